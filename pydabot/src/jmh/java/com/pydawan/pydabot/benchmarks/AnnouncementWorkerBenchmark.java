@@ -0,0 +1,56 @@
+package com.pydawan.pydabot.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.Announcement;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.workers.AnnouncementWorker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link AnnouncementWorker#run}.
+ * Announcements go to an outbound scheduler which is never started, so
+ * identical announcements are coalesced and the queue stays bounded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnouncementWorkerBenchmark {
+
+    @Param({ "10", "1000" })
+    public int announcements;
+
+    private AnnouncementWorker worker;
+
+    @Setup
+    public void createWorker() {
+        List<Announcement> list = new ArrayList<>(announcements);
+        for (int i = 0; i < announcements; i++)
+            list.add(new Announcement("channel" + (i % 10), "Announcement " + i, 1 + i % 7));
+
+        worker = new AnnouncementWorker(null, list);
+        worker.setOutbound(new OutboundScheduler((target, message) -> {
+        }));
+    }
+
+    @Benchmark
+    public void run() {
+        worker.run();
+    }
+}
@@ -0,0 +1,42 @@
+package com.pydawan.pydabot.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pircbotx.hooks.events.MessageEvent;
+
+/**
+ * Cycles through the messages of a corpus, one per invocation.
+ */
+@State(Scope.Thread)
+public class ChatState {
+
+    @Param({ "commands", "chatter", "spam", "links", "adversarial" })
+    public String corpus;
+
+    private Corpus messages;
+    private int next;
+
+    @Setup
+    public void loadCorpus() {
+        messages = Corpus.load(corpus);
+    }
+
+    /**
+     * Returns the index of the next message.
+     */
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == messages.size() ? 0 : index + 1;
+        return index;
+    }
+
+    public String nextMessage() {
+        return messages.message(nextIndex());
+    }
+
+    public MessageEvent nextEvent() {
+        return messages.event(nextIndex());
+    }
+}
@@ -0,0 +1,67 @@
+package com.pydawan.pydabot.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.ArgumentsCommand;
+import com.pydawan.pydabot.Command;
+import com.pydawan.pydabot.listeners.CommandListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link CommandListener#onMessage}, with commands receiving their
+ * arguments as an array and as {@link com.pydawan.pydabot.Arguments}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandListenerBenchmark {
+
+    /**
+     * The commands of the corpora.
+     */
+    static final List<String> COMMANDS = List.of("hello", "uptime", "discord", "socials", "followage", "lurk",
+            "so", "hug", "points", "rank", "sr", "poll", "vote", "raffle", "join", "quote", "title", "game",
+            "commands", "help", "dice", "8ball", "top", "addcom", "delcom");
+
+    private CommandListener listener;
+    private CommandListener argumentsListener;
+
+    @Setup
+    public void createListeners(Blackhole blackhole) {
+        Map<String, Command> commands = new HashMap<>();
+        Map<String, ArgumentsCommand> argumentsCommands = new HashMap<>();
+        for (String name : COMMANDS) {
+            commands.put(name, (event, args) -> blackhole.consume(args));
+            argumentsCommands.put(name, (event, args) -> blackhole.consume(args));
+        }
+        listener = new CommandListener(commands);
+        argumentsListener = CommandListener.withArguments(argumentsCommands);
+    }
+
+    @Benchmark
+    public void onMessage(ChatState chat) {
+        listener.onMessage(chat.nextEvent());
+    }
+
+    @Benchmark
+    public void onMessageWithArguments(ChatState chat) {
+        argumentsListener.onMessage(chat.nextEvent());
+    }
+}
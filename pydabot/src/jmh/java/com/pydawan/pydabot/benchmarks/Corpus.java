@@ -0,0 +1,108 @@
+package com.pydawan.pydabot.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.pircbotx.Channel;
+import org.pircbotx.User;
+import org.pircbotx.UserHostmask;
+import org.pircbotx.hooks.events.MessageEvent;
+
+/**
+ * A chat corpus, loaded from the corpora resources.
+ * Each line of a corpus is a nickname and a message, separated by a tab. Lines
+ * starting with '#' are comments.
+ */
+public final class Corpus {
+
+    /**
+     * The channel of the messages.
+     */
+    public static final String CHANNEL = "#pydawan";
+
+    private final String[] messages;
+    private final MessageEvent[] events;
+
+    private Corpus(List<String> nicks, List<String> messages) {
+        this.messages = messages.toArray(new String[0]);
+        this.events = new MessageEvent[messages.size()];
+        for (int i = 0; i < events.length; i++)
+            events[i] = messageEvent(nicks.get(i), messages.get(i));
+    }
+
+    /**
+     * Loads the corpus of the given name.
+     *
+     * @param name The name of the corpus, such as "chatter".
+     * @return The corpus.
+     */
+    public static Corpus load(String name) {
+        List<String> nicks = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+        String resource = "/corpora/" + name + ".txt";
+        try (InputStream input = Corpus.class.getResourceAsStream(resource)) {
+            if (input == null)
+                throw new IllegalArgumentException("Unknown corpus " + name);
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (line.startsWith("#") || tab < 0)
+                    continue;
+                nicks.add(line.substring(0, tab));
+                messages.add(line.substring(tab + 1));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Corpus(nicks, messages);
+    }
+
+    private static MessageEvent messageEvent(String nick, String message) {
+        Channel channel = new Channel(null, CHANNEL) {
+        };
+        UserHostmask userHostmask = new UserHostmask(null, nick) {
+        };
+        User user = new User(userHostmask) {
+        };
+        return new MessageEvent(null, channel, CHANNEL, userHostmask, user, message, ImmutableMap.of());
+    }
+
+    /**
+     * Returns the number of messages of the corpus.
+     *
+     * @return The number of messages.
+     */
+    public int size() {
+        return messages.length;
+    }
+
+    /**
+     * Returns a message of the corpus.
+     *
+     * @param index The index of the message.
+     * @return The message.
+     */
+    public String message(int index) {
+        return messages[index];
+    }
+
+    /**
+     * Returns a message of the corpus, as an event.
+     *
+     * @param index The index of the message.
+     * @return The event.
+     */
+    public MessageEvent event(int index) {
+        return events[index];
+    }
+}
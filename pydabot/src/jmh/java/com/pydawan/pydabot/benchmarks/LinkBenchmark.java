@@ -0,0 +1,49 @@
+package com.pydawan.pydabot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.Patterns;
+import com.pydawan.pydabot.moderation.LinkScanner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks link detection, with the {@link Patterns#link} regex and with the
+ * {@link LinkScanner}. The adversarial corpus holds long messages without
+ * whitespaces, full of dots and almost links, on which the regex backtracks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinkBenchmark {
+
+    private LinkScanner scanner;
+
+    @Setup
+    public void loadScanner() {
+        scanner = LinkScanner.getDefault();
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public boolean patternsLink(ChatState chat) {
+        return Patterns.link.matcher(chat.nextMessage()).find();
+    }
+
+    @Benchmark
+    public boolean linkScanner(ChatState chat) {
+        return scanner.containsLink(chat.nextMessage());
+    }
+}
@@ -0,0 +1,66 @@
+package com.pydawan.pydabot.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.listeners.Moderator;
+import com.pydawan.pydabot.moderation.LinkScanner;
+import com.pydawan.pydabot.moderation.Severities;
+import com.pydawan.pydabot.moderation.SeverityMatcher;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Moderator#moderate}, with banned terms and links.
+ * Responses go to a running outbound scheduler whose sink drops them, so that
+ * they are rate limited as they would be by a bot.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModeratorBenchmark {
+
+    private Moderator moderator;
+    private OutboundScheduler outbound;
+
+    @Setup
+    public void createModerator() {
+        SeverityMatcher matcher = SeverityMatcher.builder()
+                .addAll(Severity.LOW, List.of("idiot", "stupid", "trash"))
+                .addAll(Severity.MEDIUM, List.of("scam", "uninstall"))
+                .addAll(Severity.HIGH, List.of("buy followers", "free v-bucks", "cheap viewers"))
+                .build();
+
+        moderator = new Moderator(Severities.highest(matcher, LinkScanner.getDefault()),
+                (user, severity) -> severity == Severity.SAFE ? null : user + ": " + severity);
+        outbound = new OutboundScheduler((target, message) -> {
+        });
+        outbound.start();
+        moderator.setOutbound(outbound);
+    }
+
+    @TearDown
+    public void stopOutbound() {
+        outbound.close();
+    }
+
+    @Benchmark
+    public Severity moderate(ChatState chat) {
+        return moderator.moderate(chat.nextEvent());
+    }
+}
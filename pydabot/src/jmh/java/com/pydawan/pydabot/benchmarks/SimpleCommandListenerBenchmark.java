@@ -0,0 +1,51 @@
+package com.pydawan.pydabot.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.listeners.SimpleCommandListener;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link SimpleCommandListener#onMessage}.
+ * Responses go to an outbound scheduler which is never started, so identical
+ * responses are coalesced and the queue stays bounded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimpleCommandListenerBenchmark {
+
+    private SimpleCommandListener listener;
+
+    @Setup
+    public void createListener() {
+        Map<String, String> responses = new HashMap<>();
+        for (String name : CommandListenerBenchmark.COMMANDS)
+            responses.put(name, "Response of " + name);
+
+        listener = new SimpleCommandListener(responses, "!");
+        listener.setOutbound(new OutboundScheduler((target, message) -> {
+        }));
+    }
+
+    @Benchmark
+    public void onMessage(ChatState chat) {
+        listener.onMessage(chat.nextEvent());
+    }
+}
@@ -1,33 +1,132 @@
 package com.pydawan.pydabot;
 
-import java.nio.file.Files;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import com.pydawan.pydabot.analytics.TopCommand;
+import com.pydawan.pydabot.analytics.TrendListener;
+import com.pydawan.pydabot.analytics.Trends;
+import com.pydawan.pydabot.chatlog.ChatLogListener;
+import com.pydawan.pydabot.chatlog.ChatLogWriter;
+import com.pydawan.pydabot.config.Config;
+import com.pydawan.pydabot.config.ConfigApplier;
+import com.pydawan.pydabot.config.ConfigLoader;
+import com.pydawan.pydabot.config.ConfigWatcher;
+import com.pydawan.pydabot.cooldown.Cooldown;
+import com.pydawan.pydabot.cooldown.CooldownEngine;
+import com.pydawan.pydabot.dispatch.ChannelExecutor;
+import com.pydawan.pydabot.listeners.CommandListener;
+import com.pydawan.pydabot.listeners.CustomCommandEditor;
+import com.pydawan.pydabot.listeners.MessagePipeline;
+import com.pydawan.pydabot.listeners.Moderator;
 import com.pydawan.pydabot.listeners.SimpleCommandListener;
+import com.pydawan.pydabot.metrics.PrometheusExporter;
+import com.pydawan.pydabot.moderation.FloodDetector;
+import com.pydawan.pydabot.poll.Polls;
+import com.pydawan.pydabot.poll.VoteStage;
+import com.pydawan.pydabot.raffle.RaffleStage;
+import com.pydawan.pydabot.raffle.Raffles;
+import com.pydawan.pydabot.store.CommandStore;
 
-import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Hello world!
  */
 public class App {
+    private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
+
     public static void main(String[] args) throws Exception {
-        JSONObject config = new JSONObject(Files.readString(Path.of("config.json")));
+        ConfigLoader loader = new ConfigLoader();
+        Path path = Path.of("config.json");
+        Config config = loader.load(path);
+
+        Bot bot = new Bot(config.getServer(), config.getPort(), config.getName(), config.getToken());
+        bot.setChannelExecutor(new ChannelExecutor());
+        CooldownEngine cooldowns = new CooldownEngine(Cooldown.of(5, 30, TimeUnit.SECONDS));
+        SimpleCommandListener commands = new SimpleCommandListener(Map.of(), "!");
+        commands.setCooldowns(cooldowns);
+
+        CommandStore store = CommandStore.open(Path.of("commands"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOGGER.error("Cannot close the command store", e);
+            }
+        }));
+        SimpleCommandListener customCommands = new SimpleCommandListener(store::get, "!");
+        customCommands.setCooldowns(cooldowns);
+
+        // Floods stop the pipeline before votes, entries and commands are
+        // counted.
+        Moderator moderator = new Moderator(message -> Severity.SAFE, Map.of());
+        moderator.setEscalator(new FloodDetector(30, TimeUnit.SECONDS, 15, 30));
+
+        Trends trends = new Trends();
+        CommandListener topCommand = CommandListener.withArguments(Map.of("top", new TopCommand(trends)));
+        topCommand.setCooldowns(cooldowns);
+        Polls polls = new Polls(bot.getScheduler());
+        Raffles raffles = Raffles.open(Path.of("raffles"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                raffles.close();
+            } catch (IOException e) {
+                LOGGER.error("Cannot close the raffles", e);
+            }
+        }));
+        bot.getScheduler().scheduleAtFixedRate(raffles::flush, 1, 1, TimeUnit.SECONDS);
+        bot.addListener(new MessagePipeline("!", moderator, new VoteStage(polls, "!"),
+                new RaffleStage(raffles, "!"), new TrendListener(trends, "!"), new CustomCommandEditor(store, "!"),
+                topCommand, commands, customCommands));
+        bot.getScheduler().scheduleAtFixedRate(() -> {
+            try {
+                trends.writeSnapshot(Path.of("trends.json"), System.currentTimeMillis());
+            } catch (IOException e) {
+                LOGGER.error("Cannot write the trends snapshot", e);
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+
+        ScheduledExecutorService compaction = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "command-store-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compaction.scheduleWithFixedDelay(() -> {
+            try {
+                store.compactIfNeeded(1 << 20);
+            } catch (IOException e) {
+                LOGGER.error("Cannot compact the command store", e);
+            }
+        }, 1, 1, TimeUnit.HOURS);
+
+        if (config.getChatLog() != null) {
+            ChatLogWriter chatLog = new ChatLogWriter(Path.of(config.getChatLog()));
+            chatLog.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    chatLog.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            bot.addListener(new ChatLogListener(chatLog));
+        }
+
+        ConfigWatcher watcher = new ConfigWatcher(loader, path, new ConfigApplier(bot, commands));
+        watcher.start();
 
-        String hostname = config.getString("server");
-        int port = config.getInt("port");
-        String nickname = config.getString("name");
-        String password = config.getString("token");
+        bot.getMetrics().registerMBeans();
+        if (config.getMetricsPort() > 0)
+            new PrometheusExporter(bot.getMetrics(), new InetSocketAddress(config.getMetricsPort())).start();
 
-        Bot bot = new Bot(hostname, port, nickname, password);
-        bot.addListener(new SimpleCommandListener(Map.of(
-                "hello", "Hello, world!"), "!"));
-        bot.addChannel("#pydawan");
         bot.start();
         System.out.println("Connected");
-        Thread.sleep(5000);
-        bot.sendMessage("pydawan", "Hi!");
-        bot.getHostname();
     }
 }
@@ -0,0 +1,262 @@
+package com.pydawan.pydabot;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import lombok.NonNull;
+
+import static com.pydawan.pydabot.parsing.Chars.skipWhitespace;
+import static com.pydawan.pydabot.parsing.Chars.tokenEnd;
+
+/**
+ * A lazy view over the arguments of a command.
+ *
+ * The view is backed by the original message and never copies it. As a
+ * CharSequence, it represents the raw arguments, from the first argument to the
+ * end of the message. Individual arguments are separated by whitespaces and
+ * are only located when they are first accessed: reading the first argument
+ * does not scan the rest of the message.
+ */
+public final class Arguments implements CharSequence {
+
+    private static final int[] NO_BOUNDS = new int[0];
+
+    private final String source;
+    private final int start;
+    private final int end;
+
+    /**
+     * The index, in the bounds array, of the pair describing the first argument.
+     */
+    private final int base;
+
+    /**
+     * The bounds of the arguments found so far, as pairs of start (inclusive) and
+     * end (exclusive) indexes in the source.
+     */
+    private int[] bounds;
+    private int found;
+    private int scanPosition;
+
+    /**
+     * Creates a view over the given region of a message.
+     *
+     * @param source The message containing the arguments.
+     * @param start  The index at which the arguments start, inclusive. Leading
+     *               whitespaces are skipped.
+     * @param end    The index at which the arguments end, exclusive.
+     */
+    public Arguments(@NonNull String source, int start, int end) {
+        if (start < 0 || end > source.length() || start > end)
+            throw new IndexOutOfBoundsException("Invalid region [" + start + ", " + end + ")");
+
+        this.start = Math.min(skipWhitespace(source, start), end);
+        this.end = end;
+        this.source = source;
+        this.bounds = NO_BOUNDS;
+        this.base = 0;
+        this.scanPosition = this.start;
+    }
+
+    /**
+     * Creates a view over the end of a message.
+     *
+     * @param source The message containing the arguments.
+     * @param start  The index at which the arguments start, inclusive.
+     */
+    public Arguments(@NonNull String source, int start) {
+        this(source, start, source.length());
+    }
+
+    /**
+     * Creates a view whose argument bounds have already been computed.
+     *
+     * @param source The message containing the arguments.
+     * @param bounds The bounds of the tokens of the message, as pairs of start
+     *               (inclusive) and end (exclusive) indexes in the source. The
+     *               array is not copied and must not be modified afterwards.
+     * @param first  The index of the token that is the first argument.
+     * @param count  The number of arguments, starting from the first one.
+     */
+    public Arguments(@NonNull String source, @NonNull int[] bounds, int first, int count) {
+        if (first < 0 || count < 0 || bounds.length < 2 * (first + count))
+            throw new IndexOutOfBoundsException("Invalid bounds");
+
+        this.source = source;
+        this.bounds = bounds;
+        this.base = 2 * first;
+        this.found = count;
+        this.start = count == 0 ? source.length() : bounds[base];
+        this.end = source.length();
+        this.scanPosition = this.end;
+    }
+
+    /**
+     * Locates arguments until the argument of the given index is found or the
+     * end of the region is reached.
+     */
+    private boolean scanTo(int index) {
+        while (found <= index && scanPosition < end) {
+            int tokenStart = scanPosition;
+            int tokenEnd = Math.min(tokenEnd(source, tokenStart), end);
+
+            if (bounds.length < 2 * (found + 1))
+                bounds = Arrays.copyOf(bounds, Math.max(8, bounds.length * 2));
+
+            bounds[2 * found] = tokenStart;
+            bounds[2 * found + 1] = tokenEnd;
+            found++;
+
+            scanPosition = Math.min(skipWhitespace(source, tokenEnd), end);
+        }
+        return index < found;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || !scanTo(index))
+            throw new IndexOutOfBoundsException("No argument at index " + index);
+    }
+
+    /**
+     * Returns the number of arguments.
+     * This scans the whole region.
+     *
+     * @return The number of arguments.
+     */
+    public int count() {
+        scanTo(Integer.MAX_VALUE - 1);
+        return found;
+    }
+
+    /**
+     * Returns whether the argument of the given index exists.
+     * This only scans the region up to that argument.
+     *
+     * @param index The index of the argument.
+     * @return <code>true</code> if there are more than index arguments.
+     */
+    public boolean has(int index) {
+        return index >= 0 && scanTo(index);
+    }
+
+    /**
+     * Returns whether there are no arguments.
+     *
+     * @return <code>true</code> if there are no arguments.
+     */
+    @Override
+    public boolean isEmpty() {
+        return !has(0);
+    }
+
+    /**
+     * Returns a view over the argument of the given index.
+     * The view is backed by the message and does not copy it.
+     *
+     * @param index The index of the argument.
+     * @return A view over the argument.
+     * @throws IndexOutOfBoundsException If there is no argument at this index.
+     */
+    public CharSequence get(int index) {
+        checkIndex(index);
+        return CharBuffer.wrap(source, bounds[base + 2 * index], bounds[base + 2 * index + 1]);
+    }
+
+    /**
+     * Returns a copy of the argument of the given index.
+     *
+     * @param index The index of the argument.
+     * @return The argument.
+     * @throws IndexOutOfBoundsException If there is no argument at this index.
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        return source.substring(bounds[base + 2 * index], bounds[base + 2 * index + 1]);
+    }
+
+    /**
+     * Returns whether the argument of the given index is equal to the given
+     * sequence. Does not copy the argument.
+     *
+     * @param index    The index of the argument.
+     * @param sequence The sequence to compare the argument to.
+     * @return <code>true</code> if the argument exists and is equal to the
+     *         sequence.
+     */
+    public boolean argumentEquals(int index, @NonNull CharSequence sequence) {
+        if (!has(index))
+            return false;
+
+        int argumentStart = bounds[base + 2 * index];
+        int length = bounds[base + 2 * index + 1] - argumentStart;
+        if (length != sequence.length())
+            return false;
+
+        for (int i = 0; i < length; i++)
+            if (source.charAt(argumentStart + i) != sequence.charAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the index of the first character of the argument of the given index
+     * in the original message.
+     *
+     * @param index The index of the argument.
+     * @return The index of the first character of the argument.
+     * @throws IndexOutOfBoundsException If there is no argument at this index.
+     */
+    public int startOf(int index) {
+        checkIndex(index);
+        return bounds[base + 2 * index];
+    }
+
+    /**
+     * Returns the index following the last character of the argument of the given
+     * index in the original message.
+     *
+     * @param index The index of the argument.
+     * @return The index following the last character of the argument.
+     * @throws IndexOutOfBoundsException If there is no argument at this index.
+     */
+    public int endOf(int index) {
+        checkIndex(index);
+        return bounds[base + 2 * index + 1];
+    }
+
+    /**
+     * Copies all the arguments into a new array.
+     *
+     * @return The arguments.
+     */
+    public String[] toArray() {
+        String[] arguments = new String[count()];
+        for (int i = 0; i < arguments.length; i++)
+            arguments[i] = source.substring(bounds[base + 2 * i], bounds[base + 2 * i + 1]);
+        return arguments;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length())
+            throw new IndexOutOfBoundsException(index);
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length() || from > to)
+            throw new IndexOutOfBoundsException("Invalid region [" + from + ", " + to + ")");
+        return CharBuffer.wrap(source, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return source.substring(start, end);
+    }
+}
@@ -0,0 +1,27 @@
+package com.pydawan.pydabot;
+
+import java.util.function.BiConsumer;
+
+import org.pircbotx.hooks.Event;
+
+import lombok.NonNull;
+
+/**
+ * A command that can be executed by the bot, whose arguments are given as a
+ * lazy view over the original message.
+ * Unlike {@link Command}, the arguments are only copied if the command asks for
+ * them.
+ */
+public interface ArgumentsCommand extends BiConsumer<Event, Arguments> {
+
+    /**
+     * Adapts a command taking its arguments as an array.
+     * The arguments are copied into an array each time the command is executed.
+     *
+     * @param command The command to adapt.
+     * @return An ArgumentsCommand executing the given command.
+     */
+    static ArgumentsCommand of(@NonNull Command command) {
+        return (event, arguments) -> command.accept(event, arguments.toArray());
+    }
+}
@@ -1,34 +1,74 @@
 package com.pydawan.pydabot;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-
+import java.util.function.Supplier;
+
+import com.pydawan.pydabot.dispatch.ChannelDispatcher;
+import com.pydawan.pydabot.dispatch.ChannelExecutor;
+import com.pydawan.pydabot.irc.Backoff;
+import com.pydawan.pydabot.irc.Connection;
+import com.pydawan.pydabot.irc.ConsistentHashRing;
+import com.pydawan.pydabot.metrics.InstrumentedListener;
+import com.pydawan.pydabot.metrics.MetricsRegistry;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.outbound.RateLimit;
+import com.pydawan.pydabot.outbound.TokenBucket;
 import com.pydawan.pydabot.workers.AnnouncementWorker;
+import com.pydawan.pydabot.workers.TimingWheel;
 
 import org.pircbotx.Configuration;
 import org.pircbotx.PircBotX;
 import org.pircbotx.exception.IrcException;
 import org.pircbotx.hooks.Listener;
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.ConnectEvent;
+import org.pircbotx.hooks.events.DisconnectEvent;
+import org.pircbotx.hooks.managers.SequentialListenerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.Setter;
 
-import static com.pydawan.pydabot.irc.IrcUtils.channelOf;
+import static com.pydawan.pydabot.irc.IrcUtils.normalizeChannel;
 
 /**
  * A bot that connects to a server and joins channels.
+ *
+ * The bot opens a pool of connections to the server. Channels are spread
+ * across the connections by consistent hashing, and messages to a channel are
+ * sent through the connection owning it. When a connection dies, its channels
+ * are moved to the remaining connections. Joins are queued per connection and
+ * sent round robin, within the join rate limit of the server.
+ *
+ * A connection that drops is reconnected after a jittered exponential backoff,
+ * takes its channels back and joins them again in batches, within the join
+ * limit. Messages to channels whose connection is down are held by the
+ * {@link OutboundScheduler} and flushed once it is back.
  */
 public class Bot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Bot.class);
+
     @Getter
     private final String hostname;
     @Getter
@@ -38,20 +78,121 @@ public class Bot {
     @Getter
     private final String password;
 
-    private final Set<String> channels = new HashSet<>();
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
     private final Set<Listener> listeners = new HashSet<>();
 
-    private PircBotX bot;
+    /**
+     * The default join limit, matching Twitch's limit for regular accounts.
+     */
+    public static final RateLimit DEFAULT_JOIN_LIMIT = new RateLimit(20, 10, TimeUnit.SECONDS);
+
+    /**
+     * How often the pending joins are sent.
+     */
+    private static final long JOIN_INTERVAL_MILLIS = 100L;
+
+    /**
+     * The maximum number of channels joined or parted by a single line.
+     */
+    private static final int JOIN_BATCH_SIZE = 10;
+
+    /**
+     * The number of connections opened by the bot.
+     * Changes are applied the next time the bot is started.
+     */
+    @Getter
+    @Setter
+    private int connectionCount = 1;
+
+    /**
+     * The limit on the joins of all the connections.
+     * Changes are applied the next time the bot is started.
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private RateLimit joinLimit = DEFAULT_JOIN_LIMIT;
+
+    /**
+     * The bounds of the delay before reconnecting a connection that dropped.
+     * Changes are applied the next time the bot is started.
+     */
+    @Getter
+    @Setter
+    private long reconnectMinDelay = 500;
+    @Getter
+    @Setter
+    private long reconnectMaxDelay = 60_000;
+    @Getter
+    @Setter
+    private TimeUnit reconnectUnit = TimeUnit.MILLISECONDS;
+
+    /**
+     * The executor running the listeners, in order within a channel and
+     * concurrently across channels. If null, PircBotX runs every listener on its
+     * own thread for each event, without ordering.
+     * Changes are applied the next time the bot is started. The executor is not
+     * closed with the bot.
+     */
+    @Getter
+    @Setter
+    private ChannelExecutor channelExecutor;
+
     private final ExecutorService botExecutor;
-    private Future<?> botFuture;
+    private volatile List<Connection> connections = List.of();
+    private volatile ConsistentHashRing<Connection> ring = new ConsistentHashRing<>(List.of());
+    private final Object ringLock = new Object();
+    private volatile boolean running;
+    private final Object lifecycleLock = new Object();
 
-    private final ScheduledExecutorService taskExecutor;
-    private ScheduledFuture<?> announcementFuture;
-    private AnnouncementWorker announcementWorker = new AnnouncementWorker(bot);
+    private TimingWheel.Timeout joinTimeout;
+    private TokenBucket joinBucket;
+    private int joinCursor;
+
+    /**
+     * The scheduler through which every outbound message is sent.
+     */
+    @Getter
+    private final OutboundScheduler outbound;
+
+    /**
+     * The metrics of the listeners, channels and outbound messages.
+     */
+    @Getter
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    /**
+     * The scheduler of the periodic tasks of the bot, such as joining channels
+     * and sending announcements. It is shared across starts of the bot.
+     */
+    @Getter
+    private final TimingWheel scheduler = new TimingWheel();
+
+    /**
+     * The worker sending the announcements.
+     */
+    @Getter
+    private final AnnouncementWorker announcementWorker = new AnnouncementWorker(null);
+
+    /**
+     * The announcement timer of each channel having announcements, while the bot
+     * runs.
+     */
+    private final Map<String, TimingWheel.Timeout> announcementTimers = new HashMap<>();
+
+    /**
+     * The nanoseconds between two announcements of the channels not using the
+     * default interval.
+     */
+    private final Map<String, Long> announcementIntervals = new ConcurrentHashMap<>();
 
     @Getter
     @Setter
     private long announcementDelay = 60;
+    /**
+     * The default interval between two announcements of a channel.
+     * Changes are applied the next time the bot is started.
+     */
     @Getter
     @Setter
     private long announcementInterval = 60;
@@ -71,8 +212,13 @@ public class Bot {
         this.port = port;
         this.nickname = nickname;
         this.password = password;
-        botExecutor = Executors.newSingleThreadExecutor();
-        taskExecutor = Executors.newSingleThreadScheduledExecutor();
+        botExecutor = Executors.newCachedThreadPool();
+        outbound = new OutboundScheduler(this::sendNow);
+        outbound.setAvailability(this::isAvailable);
+        announcementWorker.setOutbound(outbound);
+        announcementWorker.setChangeObserver(this::refreshAnnouncementTimers);
+        metrics.setOutbound(outbound);
+        outbound.setSubmitObserver(metrics::recordOutbound);
     }
 
     /**
@@ -82,32 +228,72 @@ public class Bot {
      *         <code>false</code> otherwise.
      */
     public boolean isConnected() {
-        return bot != null && bot.isConnected();
+        for (Connection connection : connections)
+            if (connection.getBot().isConnected())
+                return true;
+        return false;
     }
 
     /**
-     * Returns whether the bot thread is running.
+     * Returns whether a bot thread is running.
      * 
-     * @return <code>true</code> if the bot thread is running, <code>false</code>
+     * @return <code>true</code> if a bot thread is running, <code>false</code>
      *         otherwise.
      */
     public boolean isAlive() {
-        return botFuture != null && !botFuture.isDone();
+        for (Connection connection : connections)
+            if (connection.isAlive())
+                return true;
+        return false;
     }
 
-    private Configuration buildConfiguration() {
-        return new Configuration.Builder()
+    /**
+     * Returns the connections of the bot.
+     * 
+     * @return An unmodifiable list of the connections.
+     */
+    public List<Connection> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the connection owning the given channel.
+     * 
+     * @param channel The channel, with or without its leading '#'.
+     * @return The connection owning the channel, or null if no connection is
+     *         alive.
+     */
+    public Connection getOwner(String channel) {
+        return ring.get(normalizeChannel(channel));
+    }
+
+    /**
+     * Channels are joined by the join worker instead of being auto joined, so
+     * that joins are spread under the join limit.
+     * 
+     * @param listeners The instrumented listeners.
+     */
+    private Configuration buildConfiguration(List<Listener> listeners) {
+        Configuration.Builder builder = new Configuration.Builder()
                 .setName(nickname)
                 .addServer(hostname, port)
                 .setServerPassword(password)
-                .addAutoJoinChannels(channels)
-                .addListeners(listeners)
-                .buildConfiguration();
+                .setMessageDelay(0);
+
+        if (channelExecutor == null) {
+            builder.addListener(new ConnectionListener())
+                    .addListeners(listeners);
+        } else {
+            builder.setListenerManager(SequentialListenerManager.newDefault()
+                    .addListenerInline(new ConnectionListener())
+                    .addListenerInline(new ChannelDispatcher(channelExecutor, listeners)));
+        }
+        return builder.buildConfiguration();
     }
 
     /**
      * Connects to the IRC server and start the bot.
-     * Creates a new thread for the bot.
+     * Creates a new thread for each connection.
      * 
      * This method should be called if the configuration is changed.
      * 
@@ -120,23 +306,277 @@ public class Bot {
         if (isAlive())
             throw new IllegalStateException("Bot is already running.");
 
-        bot = new PircBotX(buildConfiguration());
-        botFuture = botExecutor.submit(this::runBot);
+        if (connectionCount <= 0)
+            throw new IllegalArgumentException("connectionCount must be positive");
+
+        List<Listener> instrumented = instrumentedListeners();
+        List<Connection> pool = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++)
+            pool.add(new Connection(i, new PircBotX(buildConfiguration(instrumented))));
+
+        synchronized (ringLock) {
+            connections = List.copyOf(pool);
+            ring = new ConsistentHashRing<>(pool);
+            for (String channel : channels)
+                assign(channel);
+        }
+
+        running = true;
+        for (Connection connection : pool)
+            connection.setFuture(botExecutor.submit(() -> runBot(connection, instrumented)));
+        outbound.start();
+
+        startJoinWorker();
+        refreshAnnouncementTimers();
+    }
+
+    /**
+     * Wraps the listeners to record their metrics. Listeners are named after their
+     * class, followed by a number when several listeners share a class.
+     */
+    private List<Listener> instrumentedListeners() {
+        List<Listener> instrumented = new ArrayList<>(listeners.size());
+        Map<String, Integer> counts = new HashMap<>();
+        for (Listener listener : listeners) {
+            String name = listener.getClass().getSimpleName();
+            if (name.isEmpty())
+                name = listener.getClass().getName();
+            int count = counts.merge(name, 1, Integer::sum);
+            instrumented.add(new InstrumentedListener(listener, count == 1 ? name : name + "-" + count, metrics));
+        }
+        return instrumented;
+    }
+
+    /**
+     * Runs the bot of a connection, and reconnects it with a new bot whenever it
+     * drops until the bot is closed. The backoff starts again from its minimum
+     * delay once the connection registers to the server.
+     */
+    private void runBot(Connection connection, List<Listener> instrumented) {
+        Backoff backoff = new Backoff(reconnectMinDelay, reconnectMaxDelay, reconnectUnit);
+        while (running) {
+            if (connection.getConnectCount() > 0 || connection.getBot().getState() != PircBotX.State.INIT)
+                connection.setBot(new PircBotX(buildConfiguration(instrumented)));
+            int connects = connection.getConnectCount();
+            try {
+                connection.getBot().startBot();
+            } catch (Exception e) {
+                metrics.recordConnectionFailure();
+                LOGGER.error("{} failed", connection, e);
+            }
+            if (!running)
+                return;
+
+            if (connection.getConnectCount() != connects)
+                backoff.reset();
+            long delay = backoff.nextDelayNanos();
+            metrics.recordReconnect();
+            LOGGER.warn("{} dropped, reconnecting in {} ms", connection, TimeUnit.NANOSECONDS.toMillis(delay));
+            awaitReconnect(delay);
+        }
+    }
+
+    /**
+     * Waits for the given delay, or until the bot is closed.
+     */
+    private void awaitReconnect(long delayNanos) {
+        long deadline = System.nanoTime() + delayNanos;
+        synchronized (lifecycleLock) {
+            long remaining;
+            while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lifecycleLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns a channel, with its leading '#', to the connection owning it. Must
+     * hold the ring lock.
+     */
+    private void assign(String channel) {
+        Connection owner = ring.get(channel);
+        if (owner != null)
+            owner.assign(channel);
+    }
+
+    /**
+     * Returns the connection of the given bot, or null if there is none.
+     */
+    private Connection connectionOf(PircBotX bot) {
+        for (Connection connection : connections)
+            if (connection.getBot() == bot)
+                return connection;
+        return null;
+    }
 
-        startAnnouncementWorker(announcementDelay, announcementInterval, announcementUnit);
+    /**
+     * Moves the channels of a dead connection to the remaining connections.
+     * The channels are kept by the connection if it was the last one, so they are
+     * joined again when it reconnects.
+     */
+    private void rebalance(Connection dead) {
+        synchronized (ringLock) {
+            List<Connection> survivors = new ArrayList<>(ring.getMembers());
+            if (!survivors.remove(dead) || survivors.isEmpty())
+                return;
+
+            ring = new ConsistentHashRing<>(survivors);
+            for (String channel : dead.unassignAll())
+                assign(channel);
+        }
     }
 
     /**
-     * Runs the bot.
+     * Puts a connection that reconnected back in the ring, and moves back the
+     * channels it owns from the connections that took them.
      */
-    private void runBot() {
-        try {
-            bot.startBot();
-        } catch (Exception e) {
-            // Do nothing.
+    private void restore(Connection connection) {
+        synchronized (ringLock) {
+            List<Connection> members = new ArrayList<>(ring.getMembers());
+            if (members.contains(connection))
+                return;
+
+            members.add(connection);
+            ring = new ConsistentHashRing<>(members);
+            for (Connection other : members) {
+                if (other == connection)
+                    continue;
+                for (String channel : other.getChannels()) {
+                    if (ring.get(channel) == connection && other.unassignAndPart(channel))
+                        connection.assign(channel);
+                }
+            }
         }
     }
 
+    /**
+     * Returns whether messages can be sent to the given target: the connection
+     * owning a channel must be ready, and any connection for a user.
+     */
+    private boolean isAvailable(String target) {
+        if (target.startsWith("#"))
+            return isAvailable(ring.get(target));
+        for (Connection connection : connections)
+            if (isAvailable(connection))
+                return true;
+        return false;
+    }
+
+    private static boolean isAvailable(Connection connection) {
+        return connection != null && connection.isReady() && connection.getBot().isConnected();
+    }
+
+    /**
+     * Tracks the state of the connections.
+     */
+    private class ConnectionListener extends ListenerAdapter {
+        @Override
+        public void onConnect(ConnectEvent event) {
+            Connection connection = connectionOf(event.getBot());
+            if (connection == null)
+                return;
+
+            restore(connection);
+            connection.requeueJoins();
+            connection.connected();
+        }
+
+        @Override
+        public void onDisconnect(DisconnectEvent event) {
+            Connection connection = connectionOf(event.getBot());
+            if (connection == null)
+                return;
+
+            connection.setReady(false);
+            if (running)
+                rebalance(connection);
+        }
+    }
+
+    /**
+     * Sends the pending parts and joins of the connections, one connection after
+     * the other, as long as the join limit allows it. Each channel takes a token
+     * of the join limit, but the channels of a connection are parted or joined
+     * in batches of up to {@link #JOIN_BATCH_SIZE} channels per line.
+     */
+    private void sendJoins() {
+        List<Connection> pool = connections;
+        long now = System.nanoTime();
+        boolean joined = true;
+
+        while (joined) {
+            joined = false;
+            for (int i = 0; i < pool.size(); i++) {
+                Connection connection = pool.get((joinCursor + i) % pool.size());
+                if (!connection.isReady() || !connection.hasPendingJoins())
+                    continue;
+                if (!joinBucket.isAvailable(now))
+                    return;
+
+                if (!sendBatch(connection, "PART ", connection::pollPart, now)
+                        && !sendBatch(connection, "JOIN ", connection::pollJoin, now))
+                    continue;
+                joinCursor = (joinCursor + i + 1) % pool.size();
+                joined = true;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Sends a command for a batch of channels taken from the given source, as
+     * long as the join limit allows it.
+     *
+     * @return <code>true</code> if a command was sent.
+     */
+    private boolean sendBatch(Connection connection, String command, Supplier<String> source, long now) {
+        StringBuilder line = null;
+        for (int count = 0; count < JOIN_BATCH_SIZE && joinBucket.isAvailable(now); count++) {
+            String channel = source.get();
+            if (channel == null)
+                break;
+
+            joinBucket.tryAcquire(now);
+            if (line == null)
+                line = new StringBuilder(command).append(channel);
+            else
+                line.append(',').append(channel);
+        }
+        if (line == null)
+            return false;
+
+        connection.getBot().sendRaw().rawLine(line.toString());
+        return true;
+    }
+
+    private void startJoinWorker() {
+        if (joinTimeout != null && !joinTimeout.isCancelled())
+            throw new IllegalStateException("Join worker is already running.");
+
+        joinBucket = joinLimit.newBucket(System.nanoTime());
+        joinCursor = 0;
+        joinTimeout = scheduler.scheduleAtFixedRate(() -> {
+            try {
+                sendJoins();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Cannot send the joins, retrying on the next tick", e);
+            }
+        }, 0, JOIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopJoinWorker() {
+        if (joinTimeout == null)
+            return;
+
+        joinTimeout.cancel();
+        joinTimeout = null;
+    }
+
     /**
      * The maximum number of milliseconds to wait for the server to disconnect the
      * bot.
@@ -146,6 +586,8 @@ public class Bot {
 
     /**
      * Closes the bot .
+     * Stops reconnecting the connections, and waits a bounded time for each of
+     * them to stop: a connection that does not stop in time is interrupted.
      * 
      * @throws TimeoutException
      * @throws ExecutionException
@@ -157,15 +599,37 @@ public class Bot {
         if (!isAlive())
             throw new IllegalStateException("Bot is not running.");
 
+        running = false;
+        synchronized (lifecycleLock) {
+            lifecycleLock.notifyAll();
+        }
         stopAnnouncementWorker();
+        stopJoinWorker();
+        outbound.close();
+
+        for (Connection connection : connections) {
+            connection.setReady(false);
+            try {
+                if (connection.getBot().isConnected())
+                    connection.getBot().sendIRC().quitServer("");
+            } catch (RuntimeException e) {
+                LOGGER.debug("{} dropped before quitting", connection, e);
+            }
+        }
 
-        bot.sendIRC().quitServer("");
-
-        try {
-            botFuture.get(MAX_SAFE_DISCONNECT_TIME, MAX_SAFE_DISCONNECT_TIME_UNIT);
-        } catch (TimeoutException e) {
-            bot.close();
-            botFuture.get();
+        for (Connection connection : connections) {
+            Future<?> future = connection.getFuture();
+            try {
+                future.get(MAX_SAFE_DISCONNECT_TIME, MAX_SAFE_DISCONNECT_TIME_UNIT);
+            } catch (TimeoutException e) {
+                connection.getBot().close();
+                try {
+                    future.get(MAX_SAFE_DISCONNECT_TIME, MAX_SAFE_DISCONNECT_TIME_UNIT);
+                } catch (TimeoutException stuck) {
+                    LOGGER.warn("{} did not stop in time, interrupting it", connection);
+                    future.cancel(true);
+                }
+            }
         }
     }
 
@@ -185,6 +649,8 @@ public class Bot {
      * @param listener The listener to add.
      */
     public void addListener(Listener listener) {
+        if (listener instanceof OutboundAware)
+            ((OutboundAware) listener).setOutbound(outbound);
         listeners.add(listener);
     }
 
@@ -200,7 +666,7 @@ public class Bot {
     /**
      * Returns the channels the bot is connected to.
      * 
-     * @return A set of channels.
+     * @return A set of channels, with their leading '#'.
      */
     public Set<String> getChannels() {
         return Collections.unmodifiableSet(channels);
@@ -209,54 +675,228 @@ public class Bot {
     /**
      * Adds a channel to the bot.
      * 
-     * @param channel The channel to add.
+     * @param channel The channel to add, with or without its leading '#'.
      */
     public void addChannel(String channel) {
-        channels.add(channel);
+        String name = normalizeChannel(channel);
+        if (!channels.add(name) || !running)
+            return;
+
+        synchronized (ringLock) {
+            assign(name);
+        }
     }
 
     /**
      * Removes a channel from the bot.
+     * While the bot runs, the channel is parted within the join limit.
      * 
-     * @param channel The channel to remove.
+     * @param channel The channel to remove, with or without its leading '#'.
      */
     public void removeChannel(String channel) {
-        channels.remove(channel);
+        String name = normalizeChannel(channel);
+        if (!channels.remove(name) || !running)
+            return;
+
+        synchronized (ringLock) {
+            for (Connection connection : connections)
+                connection.unassignAndPart(name);
+        }
+    }
+
+    /**
+     * Replaces the channels of the bot.
+     * While the bot runs, only the channels that were added are joined and only
+     * the channels that were removed are parted, within the join limit.
+     *
+     * @param channels The channels of the bot.
+     */
+    public void setChannels(@NonNull Collection<String> channels) {
+        Set<String> next = new HashSet<>();
+        for (String channel : channels)
+            next.add(normalizeChannel(channel));
+
+        for (String channel : List.copyOf(this.channels))
+            if (!next.contains(channel))
+                removeChannel(channel);
+        next.removeAll(this.channels);
+        for (String channel : next)
+            addChannel(channel);
     }
 
     /**
      * Sends a message to a channel.
+     * The message is queued with the {@link Priority#COMMAND} priority.
      * 
-     * @param channel The channel to send the message to.
+     * @param channel The channel to send the message to, with or without its
+     *                leading '#'.
      * @param message The message to send.
      */
     public void sendMessage(String channel, String message) {
-        bot.send().message(channelOf(channel), message);
+        sendMessage(channel, message, Priority.COMMAND);
     }
 
     /**
-     * Starts the announcement worker with the given delay.
-     * The worker will send a random Announcement every period.
+     * Sends a message to a channel.
+     * The message is queued and sent by the outbound scheduler, within the rate
+     * limits of the server.
      * 
-     * @param delay  The delay before the first announcement.
-     * @param period The period between each announcement.
-     * @throws IllegalArgumentException If the period is less or equal to zero.
+     * @param channel  The channel to send the message to, with or without its
+     *                 leading '#'.
+     * @param message  The message to send.
+     * @param priority The priority of the message.
      */
-    private void startAnnouncementWorker(long delay, long period, TimeUnit unit) {
-        if (announcementFuture != null && !announcementFuture.isDone())
-            throw new IllegalStateException("Announcement worker is already running.");
+    public void sendMessage(String channel, String message, Priority priority) {
+        outbound.submit(normalizeChannel(channel), message, priority);
+    }
 
-        announcementFuture = taskExecutor.scheduleAtFixedRate(announcementWorker, delay, period, unit);
+    /**
+     * Writes a message to the server. Called by the outbound scheduler.
+     * Messages to a channel go through the connection owning it, which joined
+     * it, other messages through any connection ready to send them.
+     * 
+     * @param target  The channel or user to send the message to.
+     * @param message The message to send.
+     * @throws IllegalStateException If no connection can send the message.
+     */
+    private void sendNow(String target, String message) {
+        Connection connection = null;
+        if (target.startsWith("#")) {
+            connection = ring.get(target);
+        } else {
+            for (Connection candidate : connections) {
+                if (candidate.isReady()) {
+                    connection = candidate;
+                    break;
+                }
+            }
+        }
+        if (connection == null || !connection.isReady())
+            throw new IllegalStateException("No connection is ready to send to " + target);
+
+        connection.getBot().sendIRC().message(target, message);
     }
 
     /**
-     * Stops the announcement worker.
+     * Sets the interval between two announcements of a channel, instead of the
+     * default interval. The announcements of the channel are rescheduled if the
+     * bot is running.
+     *
+     * @param channel  The name of the channel, with or without its leading '#'.
+     * @param interval The interval between two announcements.
+     * @param unit     The unit of the interval.
+     * @throws IllegalArgumentException If the interval is not positive.
      */
-    private void stopAnnouncementWorker() {
-        if (announcementFuture == null)
-            return;
+    public void setAnnouncementInterval(@NonNull String channel, long interval, @NonNull TimeUnit unit) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval must be positive");
+
+        String normalized = normalizeChannel(channel);
+        Long previous = announcementIntervals.put(normalized, unit.toNanos(interval));
+        if (previous == null || previous != unit.toNanos(interval))
+            rescheduleAnnouncements(Set.of(normalized));
+    }
+
+    /**
+     * Replaces the intervals between two announcements of every channel. The
+     * channels missing from the given intervals use the default interval. The
+     * announcements of the channels whose interval changed are rescheduled if
+     * the bot is running.
+     *
+     * @param intervals The interval between two announcements, by channel.
+     * @param unit      The unit of the intervals.
+     * @throws IllegalArgumentException If an interval is not positive.
+     */
+    public void setAnnouncementIntervals(@NonNull Map<String, Long> intervals, @NonNull TimeUnit unit) {
+        Map<String, Long> next = new HashMap<>();
+        intervals.forEach((channel, interval) -> {
+            if (interval <= 0)
+                throw new IllegalArgumentException("interval must be positive");
+            next.put(normalizeChannel(channel), unit.toNanos(interval));
+        });
+
+        Set<String> changed = new HashSet<>(announcementIntervals.keySet());
+        changed.addAll(next.keySet());
+        changed.removeIf(channel -> Objects.equals(announcementIntervals.get(channel), next.get(channel)));
+
+        announcementIntervals.keySet().retainAll(next.keySet());
+        announcementIntervals.putAll(next);
+        rescheduleAnnouncements(changed);
+    }
+
+    /**
+     * Returns the interval between two announcements of a channel.
+     *
+     * @param channel The name of the channel, with or without its leading '#'.
+     * @param unit    The unit of the interval.
+     * @return The interval of the channel, or the default interval.
+     */
+    public long getAnnouncementInterval(@NonNull String channel, @NonNull TimeUnit unit) {
+        Long interval = announcementIntervals.get(normalizeChannel(channel));
+        return interval == null
+                ? unit.convert(announcementInterval, announcementUnit)
+                : unit.convert(interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Schedules the announcements of a channel. Must hold the lock of the timers.
+     * The first announcement is sent after the announcement delay, plus a random
+     * part of the interval of the channel so that the channels do not all
+     * announce at once.
+     */
+    private void scheduleAnnouncements(String channel) {
+        long interval = getAnnouncementInterval(channel, TimeUnit.NANOSECONDS);
+        long delay = announcementUnit.toNanos(announcementDelay) + ThreadLocalRandom.current().nextLong(interval);
+        announcementTimers.put(channel, scheduler.scheduleAtFixedRate(
+                () -> announcementWorker.announce(channel), delay, interval, TimeUnit.NANOSECONDS));
+    }
 
-        announcementFuture.cancel(false);
-        announcementFuture = null;
+    /**
+     * Starts the timers of the channels that got announcements, and stops the
+     * timers of the channels that lost them. Does nothing if the bot is not
+     * running.
+     */
+    private void refreshAnnouncementTimers() {
+        synchronized (announcementTimers) {
+            if (!running)
+                return;
+
+            Set<String> channels = announcementWorker.getChannels();
+            announcementTimers.entrySet().removeIf(entry -> {
+                if (channels.contains(entry.getKey()))
+                    return false;
+                entry.getValue().cancel();
+                return true;
+            });
+            for (String channel : channels)
+                if (!announcementTimers.containsKey(channel))
+                    scheduleAnnouncements(channel);
+        }
+    }
+
+    /**
+     * Restarts the timers of the given channels, if they have announcements.
+     */
+    private void rescheduleAnnouncements(Set<String> channels) {
+        synchronized (announcementTimers) {
+            for (String channel : channels) {
+                TimingWheel.Timeout timer = announcementTimers.remove(channel);
+                if (timer == null)
+                    continue;
+
+                timer.cancel();
+                scheduleAnnouncements(channel);
+            }
+        }
+    }
+
+    /**
+     * Stops the timers of every channel.
+     */
+    private void stopAnnouncementWorker() {
+        synchronized (announcementTimers) {
+            announcementTimers.values().forEach(TimingWheel.Timeout::cancel);
+            announcementTimers.clear();
+        }
     }
 }
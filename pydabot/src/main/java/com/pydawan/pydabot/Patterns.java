@@ -2,6 +2,13 @@ package com.pydawan.pydabot;
 
 import java.util.regex.Pattern;
 
+import com.pydawan.pydabot.moderation.LinkScanner;
+
 public class Patterns {
+    /**
+     * @deprecated This regex backtracks on long messages without whitespaces and
+     *             misses long top level domains. Use {@link LinkScanner} instead.
+     */
+    @Deprecated
     public static Pattern link = Pattern.compile("(\\S+)\\.(\\S{2,4})\\b");
 }
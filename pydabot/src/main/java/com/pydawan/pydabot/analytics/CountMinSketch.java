@@ -0,0 +1,114 @@
+package com.pydawan.pydabot.analytics;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * A Count-Min Sketch estimating how often keys were added, in a fixed amount
+ * of memory whatever the number of distinct keys.
+ *
+ * Each key increments one counter per row, at positions derived from its 64
+ * bits hash, and its count is estimated by the smallest of its counters. The
+ * estimate never underestimates, and overestimates by at most
+ * <code>e * total / width</code> with probability
+ * <code>1 - exp(-depth)</code>. Updates are conservative: only the counters
+ * equal to the estimate are incremented, which tightens the estimates of the
+ * other keys sharing them.
+ *
+ * Not thread safe.
+ */
+public final class CountMinSketch {
+
+    /**
+     * The number of rows.
+     */
+    @Getter
+    private final int depth;
+
+    /**
+     * The number of counters of each row.
+     */
+    @Getter
+    private final int width;
+
+    private final int mask;
+    private final int[] counters;
+
+    /**
+     * The number of keys added since the sketch was cleared.
+     */
+    @Getter
+    private long total;
+
+    /**
+     * Creates a new CountMinSketch.
+     *
+     * @param depth The number of rows.
+     * @param width The number of counters of each row, a power of two.
+     * @throws IllegalArgumentException If the depth is not positive, or the
+     *                                  width is not a positive power of two.
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0)
+            throw new IllegalArgumentException("depth must be positive");
+        if (width <= 0 || Integer.bitCount(width) != 1)
+            throw new IllegalArgumentException("width must be a positive power of two");
+
+        this.depth = depth;
+        this.width = width;
+        this.mask = width - 1;
+        this.counters = new int[depth * width];
+    }
+
+    /**
+     * Returns the index of the counter of a key in a row, by double hashing of
+     * the two halves of its hash.
+     */
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & mask);
+    }
+
+    /**
+     * Adds a key once.
+     *
+     * @param hash The 64 bits hash of the key.
+     * @return The estimated count of the key, including this addition.
+     */
+    public int add(long hash) {
+        int estimate = estimate(hash);
+        if (estimate == Integer.MAX_VALUE)
+            return estimate;
+
+        for (int row = 0; row < depth; row++) {
+            int index = index(hash, row);
+            if (counters[index] == estimate)
+                counters[index] = estimate + 1;
+        }
+        total++;
+        return estimate + 1;
+    }
+
+    /**
+     * Returns the estimated count of a key.
+     *
+     * @param hash The 64 bits hash of the key.
+     * @return The estimated count, never less than the actual count.
+     */
+    public int estimate(long hash) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+            estimate = Math.min(estimate, counters[index(hash, row)]);
+        return estimate;
+    }
+
+    /**
+     * Resets every count to zero.
+     */
+    public void clear() {
+        Arrays.fill(counters, 0);
+        total = 0;
+    }
+}
@@ -0,0 +1,264 @@
+package com.pydawan.pydabot.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import lombok.Data;
+import lombok.Getter;
+
+/**
+ * The Space-Saving algorithm, keeping the most frequent keys of a stream in a
+ * fixed number of counters.
+ *
+ * A key that is counted is incremented. A new key takes the counter of the
+ * least counted key, and starts from its count plus one, the excess being
+ * recorded as the error of the counter. Any key occurring more than
+ * <code>total / capacity</code> times is guaranteed to be counted. An external
+ * estimate, such as the one of a {@link CountMinSketch} over the same stream,
+ * can tighten the count of new keys.
+ *
+ * The counters are kept in a min-heap, and indexed by an open addressing table
+ * of their keys, so counting a key takes logarithmic time in the capacity and
+ * never allocates: a new key keeps the text holding it and its bounds, and its
+ * text is only copied when the top keys are read.
+ *
+ * Not thread safe.
+ */
+public final class SpaceSaving {
+
+    /**
+     * A counted key.
+     */
+    @Data
+    public static final class Entry {
+        /**
+         * The text of the key, as it was first seen.
+         */
+        private final String text;
+
+        /**
+         * The count of the key, never less than its actual count.
+         */
+        private final long count;
+
+        /**
+         * The maximum overestimation of the count.
+         */
+        private final long error;
+    }
+
+    /**
+     * The maximum number of counted keys.
+     */
+    @Getter
+    private final int capacity;
+
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final CharSequence[] sources;
+    private final int[] starts;
+    private final int[] ends;
+
+    // Min-heap of counters by count, and position of each counter in it.
+    private final int[] heap;
+    private final int[] positions;
+
+    // Open addressing table from keys to counter index plus one, 0 if empty.
+    private final long[] tableKeys;
+    private final int[] tableCounters;
+    private final int tableMask;
+
+    /**
+     * The number of counted keys.
+     */
+    @Getter
+    private int size;
+
+    /**
+     * Creates a new SpaceSaving.
+     *
+     * @param capacity The maximum number of counted keys.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        this.capacity = capacity;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        sources = new CharSequence[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        heap = new int[capacity];
+        positions = new int[capacity];
+
+        int tableSize = Integer.highestOneBit(capacity * 4 - 1) << 1;
+        tableKeys = new long[tableSize];
+        tableCounters = new int[tableSize];
+        tableMask = tableSize - 1;
+    }
+
+    /**
+     * Counts a key once.
+     *
+     * @param hash     The 64 bits hash of the key.
+     * @param text     The text holding the key, kept if the key is new. It must
+     *                 not change while the key is counted.
+     * @param start    The index of the first character of the key, inclusive.
+     * @param end      The index of the last character of the key, exclusive.
+     * @param estimate An estimate of the count of the key including this
+     *                 occurrence, never less than its actual count, or
+     *                 {@link Long#MAX_VALUE} if there is none.
+     */
+    public void add(long hash, CharSequence text, int start, int end, long estimate) {
+        int counter = find(hash);
+        if (counter >= 0) {
+            counts[counter]++;
+            siftDown(positions[counter]);
+            return;
+        }
+
+        long count;
+        if (size < capacity) {
+            counter = size++;
+            heap[counter] = counter;
+            positions[counter] = counter;
+            count = 1;
+        } else {
+            counter = heap[0];
+            remove(keys[counter]);
+            count = Math.max(1, Math.min(counts[counter] + 1, estimate));
+        }
+
+        keys[counter] = hash;
+        counts[counter] = count;
+        errors[counter] = count - 1;
+        sources[counter] = text;
+        starts[counter] = start;
+        ends[counter] = end;
+        insert(hash, counter);
+        siftUp(positions[counter]);
+        siftDown(positions[counter]);
+    }
+
+    /**
+     * Returns the count of a key.
+     *
+     * @param hash The 64 bits hash of the key.
+     * @return The count of the key, or 0 if it is not counted.
+     */
+    public long countOf(long hash) {
+        int counter = find(hash);
+        return counter < 0 ? 0 : counts[counter];
+    }
+
+    /**
+     * Returns the most counted keys, most counted first.
+     *
+     * @param limit The maximum number of keys to return.
+     * @return The most counted keys.
+     */
+    public List<Entry> top(int limit) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingLong((Integer counter) -> counts[counter]).reversed());
+
+        List<Entry> top = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < size && i < limit; i++) {
+            int counter = order[i];
+            String text = sources[counter].subSequence(starts[counter], ends[counter]).toString();
+            top.add(new Entry(text, counts[counter], errors[counter]));
+        }
+        return top;
+    }
+
+    /**
+     * Forgets every key.
+     */
+    public void clear() {
+        Arrays.fill(sources, null);
+        Arrays.fill(tableCounters, 0);
+        size = 0;
+    }
+
+    private int slotOf(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & tableMask;
+    }
+
+    private int find(long hash) {
+        for (int slot = slotOf(hash);; slot = (slot + 1) & tableMask) {
+            int counter = tableCounters[slot];
+            if (counter == 0)
+                return -1;
+            if (tableKeys[slot] == hash)
+                return counter - 1;
+        }
+    }
+
+    private void insert(long hash, int counter) {
+        int slot = slotOf(hash);
+        while (tableCounters[slot] != 0)
+            slot = (slot + 1) & tableMask;
+        tableKeys[slot] = hash;
+        tableCounters[slot] = counter + 1;
+    }
+
+    /**
+     * Removes a key from the table, moving back the keys that probed past it.
+     */
+    private void remove(long hash) {
+        int slot = slotOf(hash);
+        while (tableKeys[slot] != hash || tableCounters[slot] == 0)
+            slot = (slot + 1) & tableMask;
+
+        int hole = slot;
+        for (int next = (hole + 1) & tableMask; tableCounters[next] != 0; next = (next + 1) & tableMask) {
+            int home = slotOf(tableKeys[next]);
+            if (((next - home) & tableMask) >= ((next - hole) & tableMask)) {
+                tableKeys[hole] = tableKeys[next];
+                tableCounters[hole] = tableCounters[next];
+                hole = next;
+            }
+        }
+        tableCounters[hole] = 0;
+    }
+
+    private void siftUp(int position) {
+        int counter = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[counter])
+                break;
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(counter, position);
+    }
+
+    private void siftDown(int position) {
+        int counter = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]])
+                child++;
+            if (counts[counter] <= counts[heap[child]])
+                break;
+            move(heap[child], position);
+            position = child;
+        }
+        move(counter, position);
+    }
+
+    private void move(int counter, int position) {
+        heap[position] = counter;
+        positions[counter] = position;
+    }
+}
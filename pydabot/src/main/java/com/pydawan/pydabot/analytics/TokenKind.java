@@ -0,0 +1,16 @@
+package com.pydawan.pydabot.analytics;
+
+/**
+ * The kinds of tokens counted by {@link Trends}.
+ */
+public enum TokenKind {
+    /**
+     * Words, counted regardless of their case.
+     */
+    WORD,
+
+    /**
+     * Emotes, as tagged by the server.
+     */
+    EMOTE
+}
@@ -0,0 +1,101 @@
+package com.pydawan.pydabot.analytics;
+
+import java.util.List;
+
+import com.pydawan.pydabot.Arguments;
+import com.pydawan.pydabot.ArgumentsCommand;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+
+import org.pircbotx.hooks.Event;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * A command answering the most frequent words or emotes of the channel.
+ *
+ * - !top gives the top words of the last ten minutes.
+ * - !top emotes 1h gives the top emotes of the last hour.
+ *
+ * The kind, words or emotes, and the window, 1m, 10m or 1h, can be given in
+ * any order. The command is ignored outside of channels.
+ */
+public class TopCommand implements ArgumentsCommand, OutboundAware {
+
+    /**
+     * The number of tokens answered.
+     */
+    public static final int LIMIT = 5;
+
+    /**
+     * The trends the answers are read from.
+     */
+    @Getter
+    private final Trends trends;
+
+    /**
+     * The scheduler through which answers are sent with the
+     * {@link Priority#COMMAND} priority. If null, answers are sent directly.
+     */
+    @Setter
+    private volatile OutboundScheduler outbound;
+
+    /**
+     * Creates a new TopCommand.
+     *
+     * @param trends The trends the answers are read from.
+     */
+    public TopCommand(@NonNull Trends trends) {
+        this.trends = trends;
+    }
+
+    @Override
+    public void accept(Event event, Arguments arguments) {
+        if (!(event instanceof MessageEvent))
+            return;
+        MessageEvent message = (MessageEvent) event;
+
+        TokenKind kind = TokenKind.WORD;
+        TrendWindow window = TrendWindow.TEN_MINUTES;
+        for (int i = 0; i < arguments.count(); i++) {
+            String argument = arguments.getString(i);
+            TrendWindow parsed = TrendWindow.ofLabel(argument);
+            if (parsed != null)
+                window = parsed;
+            else if (argument.equalsIgnoreCase("emotes"))
+                kind = TokenKind.EMOTE;
+            else if (argument.equalsIgnoreCase("words"))
+                kind = TokenKind.WORD;
+        }
+
+        List<SpaceSaving.Entry> top = trends.top(message.getChannel().getName(), window, kind, LIMIT,
+                message.getTimestamp());
+        respond(message, format(top, kind, window));
+    }
+
+    /**
+     * Formats an answer, such as <code>Top words (10m): lul (42), pog (30)</code>.
+     */
+    static String format(List<SpaceSaving.Entry> top, TokenKind kind, TrendWindow window) {
+        String noun = kind == TokenKind.WORD ? "words" : "emotes";
+        if (top.isEmpty())
+            return "No " + noun + " in the last " + window.getLabel() + ".";
+
+        StringBuilder builder = new StringBuilder("Top ").append(noun).append(" (").append(window.getLabel())
+                .append("): ");
+        for (int i = 0; i < top.size(); i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(top.get(i).getText()).append(" (").append(top.get(i).getCount()).append(')');
+        }
+        return builder.toString();
+    }
+
+    private void respond(MessageEvent event, String response) {
+        OutboundScheduler.respond(outbound, event, response, Priority.COMMAND);
+    }
+}
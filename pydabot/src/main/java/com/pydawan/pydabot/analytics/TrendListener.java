@@ -0,0 +1,53 @@
+package com.pydawan.pydabot.analytics;
+
+import com.pydawan.pydabot.listeners.MessagePipeline;
+import com.pydawan.pydabot.listeners.MessageStage;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A listener recording the words and emotes of the messages of the channels in
+ * {@link Trends}. Commands are not recorded.
+ *
+ * As a stage of a {@link MessagePipeline}, it never stops the pipeline.
+ */
+public class TrendListener extends ListenerAdapter implements MessageStage {
+
+    /**
+     * The trends the messages are recorded in.
+     */
+    @Getter
+    private final Trends trends;
+
+    private final String prefix;
+
+    /**
+     * Creates a new TrendListener.
+     *
+     * @param trends The trends the messages are recorded in.
+     * @param prefix The prefix of the commands.
+     */
+    public TrendListener(@NonNull Trends trends, @NonNull String prefix) {
+        this.trends = trends;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        handle(event, ParsedMessage.parse(event.getMessage(), prefix));
+    }
+
+    @Override
+    public boolean handle(MessageEvent event, ParsedMessage message) {
+        message = message.withPrefix(prefix);
+        if (!message.isCommand())
+            trends.record(event.getChannel().getName(), message.getMessage(), event.getTags().get("emotes"),
+                    event.getTimestamp());
+        return true;
+    }
+}
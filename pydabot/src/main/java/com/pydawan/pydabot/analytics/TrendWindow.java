@@ -0,0 +1,66 @@
+package com.pydawan.pydabot.analytics;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+/**
+ * The tumbling windows over which trends are counted. Windows are aligned on
+ * the epoch, so that the windows of every channel start at the same time.
+ */
+public enum TrendWindow {
+    /**
+     * One minute.
+     */
+    MINUTE("1m", TimeUnit.MINUTES.toMillis(1)),
+
+    /**
+     * Ten minutes.
+     */
+    TEN_MINUTES("10m", TimeUnit.MINUTES.toMillis(10)),
+
+    /**
+     * One hour.
+     */
+    HOUR("1h", TimeUnit.HOURS.toMillis(1));
+
+    /**
+     * The short name of the window, such as 10m.
+     */
+    @Getter
+    private final String label;
+
+    /**
+     * The length of the window, in milliseconds.
+     */
+    @Getter
+    private final long millis;
+
+    private TrendWindow(String label, long millis) {
+        this.label = label;
+        this.millis = millis;
+    }
+
+    /**
+     * Returns the start of the window holding the given time.
+     *
+     * @param timestamp The time, in milliseconds since the epoch.
+     * @return The start of the window, in milliseconds since the epoch.
+     */
+    public long startOf(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, millis);
+    }
+
+    /**
+     * Returns the window of the given short name.
+     *
+     * @param label The short name of the window, such as 10m.
+     * @return The window, or null if there is none.
+     */
+    public static TrendWindow ofLabel(CharSequence label) {
+        for (TrendWindow window : values())
+            if (window.label.contentEquals(label))
+                return window;
+        return null;
+    }
+}
@@ -0,0 +1,501 @@
+package com.pydawan.pydabot.analytics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pydawan.pydabot.util.Hashing;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import static com.pydawan.pydabot.irc.IrcUtils.normalizeChannel;
+
+/**
+ * The trending words and emotes of each channel, over tumbling windows of one
+ * minute, ten minutes and one hour.
+ *
+ * Each message is tokenized once. A token is a run of letters, digits and
+ * underscores; it is an emote if the emotes tag of the message says so, and a
+ * word otherwise. Words shorter than {@link #MIN_WORD_LENGTH} characters and
+ * common English words are ignored. For each window, every token is counted
+ * by a {@link CountMinSketch}, whose estimate tightens the counts of a
+ * {@link SpaceSaving} of the top words and one of the top emotes. The top
+ * tokens of the previous window are kept for comparison.
+ *
+ * The memory of a channel is fixed by the size of its sketches and counters,
+ * whatever the number of distinct tokens, and recording a message only
+ * allocates to copy the text of tokens entering a top. Messages of a channel
+ * are recorded under the lock of the channel.
+ */
+public class Trends {
+
+    /**
+     * The default number of rows of the sketches.
+     */
+    public static final int DEFAULT_DEPTH = 4;
+
+    /**
+     * The default number of counters of each row of the sketches.
+     */
+    public static final int DEFAULT_WIDTH = 512;
+
+    /**
+     * The default number of tokens of each kind counted per window.
+     */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    /**
+     * The minimum length of a counted word.
+     */
+    public static final int MIN_WORD_LENGTH = 3;
+
+    private static final String[] STOP_WORDS = { "the", "and", "you", "for", "that", "this", "with", "are", "was",
+            "but", "not", "have", "just", "what", "its", "can", "all", "your", "they", "his", "her", "she", "him",
+            "out", "get", "has", "had", "from", "there", "then", "when", "who", "how", "why", "will", "would",
+            "about", "been", "were", "them", "their", "our", "any", "also", "some", "than", "too", "into", "yes" };
+
+    private static final long[] STOP_WORD_HASHES = stopWordHashes();
+
+    /**
+     * The character ranges of the emotes of the message being recorded, by
+     * pairs of inclusive start and exclusive end.
+     */
+    private static final ThreadLocal<int[][]> EMOTE_RANGES = ThreadLocal.withInitial(() -> new int[][] { new int[32] });
+
+    /**
+     * The number of rows of the sketches.
+     */
+    @Getter
+    private final int depth;
+
+    /**
+     * The number of counters of each row of the sketches.
+     */
+    @Getter
+    private final int width;
+
+    /**
+     * The number of tokens of each kind counted per window.
+     */
+    @Getter
+    private final int capacity;
+
+    private final ConcurrentHashMap<String, ChannelTrends> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new Trends.
+     *
+     * @param depth    The number of rows of the sketches.
+     * @param width    The number of counters of each row of the sketches, a
+     *                 power of two.
+     * @param capacity The number of tokens of each kind counted per window.
+     * @throws IllegalArgumentException If a size is not positive, or the width
+     *                                  is not a power of two.
+     */
+    public Trends(int depth, int width, int capacity) {
+        if (depth <= 0)
+            throw new IllegalArgumentException("depth must be positive");
+        if (width <= 0 || Integer.bitCount(width) != 1)
+            throw new IllegalArgumentException("width must be a positive power of two");
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        this.depth = depth;
+        this.width = width;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a new Trends with sketches of {@link #DEFAULT_DEPTH} rows of
+     * {@link #DEFAULT_WIDTH} counters, counting {@link #DEFAULT_CAPACITY} tokens
+     * of each kind per window.
+     */
+    public Trends() {
+        this(DEFAULT_DEPTH, DEFAULT_WIDTH, DEFAULT_CAPACITY);
+    }
+
+    private static long[] stopWordHashes() {
+        long[] hashes = new long[STOP_WORDS.length];
+        for (int i = 0; i < STOP_WORDS.length; i++)
+            hashes[i] = wordHash(STOP_WORDS[i], 0, STOP_WORDS[i].length());
+        Arrays.sort(hashes);
+        return hashes;
+    }
+
+    private static long wordHash(CharSequence text, int start, int end) {
+        return Hashing.mix(Hashing.updateIgnoreCase(Hashing.FNV_OFFSET, text, start, end));
+    }
+
+    private static long emoteHash(CharSequence text, int start, int end) {
+        return Hashing.mix(Hashing.separate(Hashing.update(Hashing.FNV_OFFSET, text, start, end)));
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Records a message.
+     *
+     * @param channel   The channel of the message.
+     * @param message   The message.
+     * @param emotes    The emotes tag of the message, such as
+     *                  <code>25:0-4,12-16/1902:6-10</code>, or null if it has
+     *                  none.
+     * @param timestamp The time of the message, in milliseconds since the epoch.
+     */
+    public void record(@NonNull String channel, @NonNull String message, String emotes, long timestamp) {
+        int[][] holder = EMOTE_RANGES.get();
+        int emoteCount = emotes == null || emotes.isEmpty() ? 0 : parseEmotes(emotes, message, holder);
+        channels.computeIfAbsent(normalizeChannel(channel), name -> new ChannelTrends(depth, width, capacity))
+                .record(message, holder[0], emoteCount, timestamp);
+    }
+
+    /**
+     * Parses the emotes tag of a message into character ranges of the message.
+     * The tag gives inclusive ranges of code points: they are converted to
+     * ranges of characters if the message holds surrogate pairs. Parsing stops
+     * at the first malformed range.
+     *
+     * @return The number of ranges.
+     */
+    static int parseEmotes(String emotes, String message, int[][] holder) {
+        boolean surrogates = false;
+        for (int i = 0; i < message.length() && !surrogates; i++)
+            surrogates = Character.isSurrogate(message.charAt(i));
+
+        int count = 0;
+        int i = 0;
+        int length = emotes.length();
+        while (i < length) {
+            int colon = emotes.indexOf(':', i);
+            if (colon < 0)
+                return count;
+            i = colon + 1;
+
+            while (true) {
+                int start = 0;
+                int digits = i;
+                while (i < length && emotes.charAt(i) >= '0' && emotes.charAt(i) <= '9')
+                    start = start * 10 + emotes.charAt(i++) - '0';
+                if (i == digits || i >= length || emotes.charAt(i++) != '-')
+                    return count;
+
+                int end = 0;
+                digits = i;
+                while (i < length && emotes.charAt(i) >= '0' && emotes.charAt(i) <= '9')
+                    end = end * 10 + emotes.charAt(i++) - '0';
+                if (i == digits || end < start)
+                    return count;
+                end++;
+
+                if (surrogates) {
+                    try {
+                        int codePoints = end - start;
+                        start = message.offsetByCodePoints(0, start);
+                        end = message.offsetByCodePoints(start, codePoints);
+                    } catch (IndexOutOfBoundsException e) {
+                        return count;
+                    }
+                }
+
+                int[] ranges = holder[0];
+                if (2 * count + 2 > ranges.length)
+                    holder[0] = ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                ranges[2 * count] = start;
+                ranges[2 * count + 1] = end;
+                count++;
+
+                if (i >= length)
+                    return count;
+                char separator = emotes.charAt(i++);
+                if (separator == '/')
+                    break;
+                if (separator != ',')
+                    return count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the most frequent tokens of a channel in the current window.
+     *
+     * @param channel   The channel.
+     * @param window    The window.
+     * @param kind      The kind of tokens.
+     * @param limit     The maximum number of tokens to return.
+     * @param timestamp The current time, in milliseconds since the epoch.
+     * @return The most frequent tokens, most frequent first. Words are lower
+     *         cased.
+     */
+    public List<SpaceSaving.Entry> top(@NonNull String channel, @NonNull TrendWindow window, @NonNull TokenKind kind,
+            int limit, long timestamp) {
+        ChannelTrends trends = channels.get(normalizeChannel(channel));
+        return trends == null ? List.of() : trends.top(window, kind, limit, timestamp, false);
+    }
+
+    /**
+     * Returns the most frequent tokens of a channel in the previous window.
+     *
+     * @param channel   The channel.
+     * @param window    The window.
+     * @param kind      The kind of tokens.
+     * @param limit     The maximum number of tokens to return.
+     * @param timestamp The current time, in milliseconds since the epoch.
+     * @return The most frequent tokens, most frequent first. Words are lower
+     *         cased.
+     */
+    public List<SpaceSaving.Entry> previousTop(@NonNull String channel, @NonNull TrendWindow window,
+            @NonNull TokenKind kind, int limit, long timestamp) {
+        ChannelTrends trends = channels.get(normalizeChannel(channel));
+        return trends == null ? List.of() : trends.top(window, kind, limit, timestamp, true);
+    }
+
+    /**
+     * Returns the estimated number of times a word was said in a channel in the
+     * current window, whether it is in the top or not.
+     *
+     * @param channel   The channel.
+     * @param window    The window.
+     * @param word      The word, in any case.
+     * @param timestamp The current time, in milliseconds since the epoch.
+     * @return The estimated count, never less than the actual count.
+     */
+    public long countOf(@NonNull String channel, @NonNull TrendWindow window, @NonNull CharSequence word,
+            long timestamp) {
+        ChannelTrends trends = channels.get(normalizeChannel(channel));
+        return trends == null ? 0 : trends.estimate(window, wordHash(word, 0, word.length()), timestamp);
+    }
+
+    /**
+     * Forgets the trends of a channel, such as after parting it.
+     *
+     * @param channel The channel.
+     * @return <code>true</code> if the channel had trends.
+     */
+    public boolean remove(@NonNull String channel) {
+        return channels.remove(normalizeChannel(channel)) != null;
+    }
+
+    /**
+     * Returns the channels having trends.
+     *
+     * @return An unmodifiable view of the channels.
+     */
+    public Set<String> getChannels() {
+        return Collections.unmodifiableSet(channels.keySet());
+    }
+
+    /**
+     * Returns the trends of every channel as JSON, for dashboards: for each
+     * channel and window, the start and number of messages of the current and
+     * previous windows, with their top words and emotes.
+     *
+     * @param timestamp The current time, in milliseconds since the epoch.
+     * @return The trends.
+     */
+    public JSONObject toJson(long timestamp) {
+        JSONObject channelsJson = new JSONObject();
+        channels.forEach((channel, trends) -> channelsJson.put(channel, trends.toJson(timestamp)));
+        return new JSONObject()
+                .put("timestamp", timestamp)
+                .put("channels", channelsJson);
+    }
+
+    /**
+     * Writes the trends of every channel as JSON to a file, replacing it at once
+     * so that readers never see a partial snapshot.
+     *
+     * @param path      The file.
+     * @param timestamp The current time, in milliseconds since the epoch.
+     * @throws IOException If the file cannot be written.
+     * @see #toJson(long)
+     */
+    public void writeSnapshot(@NonNull Path path, long timestamp) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temporary, toJson(timestamp).toString());
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The counts of a channel over one window length.
+     */
+    private static final class WindowCounts {
+        final TrendWindow window;
+        final CountMinSketch sketch;
+        SpaceSaving words;
+        SpaceSaving emotes;
+        SpaceSaving previousWords;
+        SpaceSaving previousEmotes;
+        long start = Long.MIN_VALUE;
+        long messages;
+        long previousMessages;
+
+        WindowCounts(TrendWindow window, int depth, int width, int capacity) {
+            this.window = window;
+            this.sketch = new CountMinSketch(depth, width);
+            this.words = new SpaceSaving(capacity);
+            this.emotes = new SpaceSaving(capacity);
+            this.previousWords = new SpaceSaving(capacity);
+            this.previousEmotes = new SpaceSaving(capacity);
+        }
+
+        /**
+         * Moves to the window holding the given time. The current counts become
+         * the previous ones if the window follows the current one.
+         */
+        void roll(long timestamp) {
+            long current = window.startOf(timestamp);
+            if (current <= start)
+                return;
+
+            SpaceSaving words = this.words;
+            SpaceSaving emotes = this.emotes;
+            this.words = previousWords;
+            this.emotes = previousEmotes;
+            previousWords = words;
+            previousEmotes = emotes;
+            previousMessages = messages;
+            if (current - start != window.getMillis()) {
+                previousWords.clear();
+                previousEmotes.clear();
+                previousMessages = 0;
+            }
+
+            this.words.clear();
+            this.emotes.clear();
+            sketch.clear();
+            messages = 0;
+            start = current;
+        }
+
+        void add(TokenKind kind, long hash, String message, int start, int end) {
+            long estimate = sketch.add(hash);
+            (kind == TokenKind.WORD ? words : emotes).add(hash, message, start, end, estimate);
+        }
+
+        JSONObject toJson(boolean previous, int limit) {
+            return new JSONObject()
+                    .put("start", previous ? start - window.getMillis() : start)
+                    .put("messages", previous ? previousMessages : messages)
+                    .put("words", toJson(previous ? previousWords : words, TokenKind.WORD, limit))
+                    .put("emotes", toJson(previous ? previousEmotes : emotes, TokenKind.EMOTE, limit));
+        }
+
+        private static JSONArray toJson(SpaceSaving counts, TokenKind kind, int limit) {
+            JSONArray array = new JSONArray();
+            for (SpaceSaving.Entry entry : top(counts, kind, limit))
+                array.put(new JSONObject()
+                        .put("text", entry.getText())
+                        .put("count", entry.getCount())
+                        .put("error", entry.getError()));
+            return array;
+        }
+
+        static List<SpaceSaving.Entry> top(SpaceSaving counts, TokenKind kind, int limit) {
+            List<SpaceSaving.Entry> top = counts.top(limit);
+            if (kind == TokenKind.EMOTE)
+                return top;
+
+            List<SpaceSaving.Entry> lowered = new ArrayList<>(top.size());
+            for (SpaceSaving.Entry entry : top)
+                lowered.add(new SpaceSaving.Entry(entry.getText().toLowerCase(Locale.ROOT), entry.getCount(),
+                        entry.getError()));
+            return lowered;
+        }
+    }
+
+    /**
+     * The counts of a channel over every window length.
+     */
+    private static final class ChannelTrends {
+        private final WindowCounts[] windows;
+
+        ChannelTrends(int depth, int width, int capacity) {
+            TrendWindow[] lengths = TrendWindow.values();
+            windows = new WindowCounts[lengths.length];
+            for (int i = 0; i < lengths.length; i++)
+                windows[i] = new WindowCounts(lengths[i], depth, width, capacity);
+        }
+
+        synchronized void record(String message, int[] emoteRanges, int emoteCount, long timestamp) {
+            for (WindowCounts counts : windows) {
+                counts.roll(timestamp);
+                counts.messages++;
+            }
+
+            int length = message.length();
+            int i = 0;
+            while (i < length) {
+                while (i < length && !isTokenChar(message.charAt(i)))
+                    i++;
+                int start = i;
+                while (i < length && isTokenChar(message.charAt(i)))
+                    i++;
+                if (start == i)
+                    break;
+
+                TokenKind kind = isEmote(emoteRanges, emoteCount, start, i) ? TokenKind.EMOTE : TokenKind.WORD;
+                long hash;
+                if (kind == TokenKind.EMOTE) {
+                    hash = emoteHash(message, start, i);
+                } else {
+                    if (i - start < MIN_WORD_LENGTH)
+                        continue;
+                    hash = wordHash(message, start, i);
+                    if (Arrays.binarySearch(STOP_WORD_HASHES, hash) >= 0)
+                        continue;
+                }
+
+                for (WindowCounts counts : windows)
+                    counts.add(kind, hash, message, start, i);
+            }
+        }
+
+        private static boolean isEmote(int[] ranges, int count, int start, int end) {
+            for (int i = 0; i < count; i++)
+                if (ranges[2 * i] == start && ranges[2 * i + 1] == end)
+                    return true;
+            return false;
+        }
+
+        synchronized List<SpaceSaving.Entry> top(TrendWindow window, TokenKind kind, int limit, long timestamp,
+                boolean previous) {
+            WindowCounts counts = windows[window.ordinal()];
+            counts.roll(timestamp);
+            SpaceSaving top = kind == TokenKind.WORD
+                    ? previous ? counts.previousWords : counts.words
+                    : previous ? counts.previousEmotes : counts.emotes;
+            return WindowCounts.top(top, kind, limit);
+        }
+
+        synchronized long estimate(TrendWindow window, long hash, long timestamp) {
+            WindowCounts counts = windows[window.ordinal()];
+            counts.roll(timestamp);
+            return counts.sketch.estimate(hash);
+        }
+
+        synchronized JSONObject toJson(long timestamp) {
+            JSONObject json = new JSONObject();
+            for (WindowCounts counts : windows) {
+                counts.roll(timestamp);
+                json.put(counts.window.getLabel(), counts.toJson(false, Integer.MAX_VALUE)
+                        .put("previous", counts.toJson(true, Integer.MAX_VALUE)));
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.pydawan.pydabot.chatlog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The binary format of chat log segments.
+ *
+ * A segment is a sequence of blocks. Each block is a header followed by the
+ * Deflate compressed records of the block:
+ * - magic (int), compressed length (int), uncompressed length (int), record
+ * count (int), CRC32 of the compressed bytes (int), smallest and largest
+ * timestamps of the records (longs).
+ *
+ * Each record is the difference between its timestamp and the one of the
+ * previous record of its block, zigzag encoded, then its channel, nick and
+ * message, each as a length and UTF-8 bytes. Numbers are variable length
+ * integers.
+ */
+final class ChatLogFormat {
+    private ChatLogFormat() {
+    }
+
+    static final int BLOCK_MAGIC = 0x50434c42;
+    static final int HEADER_SIZE = 36;
+
+    static final String SEGMENT_PREFIX = "chat-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * A growable byte array holding the uncompressed records of a block.
+     */
+    static final class BlockBuffer {
+        byte[] bytes;
+        int length;
+        int count;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        long lastTimestamp;
+
+        BlockBuffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void clear() {
+            length = 0;
+            count = 0;
+            minTimestamp = Long.MAX_VALUE;
+            maxTimestamp = Long.MIN_VALUE;
+            lastTimestamp = 0;
+        }
+
+        void append(ChatRecord record) {
+            long timestamp = record.getTimestamp();
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            long delta = timestamp - lastTimestamp;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+            lastTimestamp = timestamp;
+            writeString(record.getChannel());
+            writeString(record.getNick());
+            writeString(record.getMessage());
+            count++;
+        }
+
+        private void writeString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(encoded.length);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    static long readVarLong(ByteBuffer input) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = input.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    static long readTimestamp(ByteBuffer input, long previous) {
+        long zigzag = readVarLong(input);
+        return previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    static String readString(ByteBuffer input) {
+        int size = (int) readVarLong(input);
+        String value = new String(input.array(), input.arrayOffset() + input.position(), size,
+                StandardCharsets.UTF_8);
+        input.position(input.position() + size);
+        return value;
+    }
+}
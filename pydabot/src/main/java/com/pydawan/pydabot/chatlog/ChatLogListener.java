@@ -0,0 +1,36 @@
+package com.pydawan.pydabot.chatlog;
+
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A listener logging the messages of the channels to a {@link ChatLogWriter}.
+ * Handling a message only copies references into the ring of the writer, so
+ * the thread of the event never waits for the disk.
+ */
+public class ChatLogListener extends ListenerAdapter {
+
+    /**
+     * The writer of the chat log.
+     */
+    @Getter
+    private final ChatLogWriter writer;
+
+    /**
+     * Creates a new ChatLogListener.
+     *
+     * @param writer The writer of the chat log.
+     */
+    public ChatLogListener(@NonNull ChatLogWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        writer.offer(new ChatRecord(event.getTimestamp(), event.getChannel().getName(), event.getUser().getNick(),
+                event.getMessage()));
+    }
+}
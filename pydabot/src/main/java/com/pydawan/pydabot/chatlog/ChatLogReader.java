@@ -0,0 +1,196 @@
+package com.pydawan.pydabot.chatlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.NonNull;
+
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.BLOCK_MAGIC;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.HEADER_SIZE;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.SEGMENT_PREFIX;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.SEGMENT_SUFFIX;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.readString;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.readTimestamp;
+
+/**
+ * Reads the chat log written by a {@link ChatLogWriter}.
+ *
+ * Only the blocks whose time range overlaps the queried one are read and
+ * decompressed; the others are skipped by their header. A block that is
+ * truncated or corrupted, such as the last one of a segment being written,
+ * ends the reading of its segment.
+ */
+public class ChatLogReader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatLogReader.class);
+
+    private final Path directory;
+
+    /**
+     * Creates a new ChatLogReader.
+     *
+     * @param directory The directory of the segments.
+     */
+    public ChatLogReader(@NonNull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the messages of a channel within a time range, in the order they
+     * were written.
+     *
+     * @param channel The channel, or null for every channel.
+     * @param from    The start of the range, in milliseconds since the epoch,
+     *                inclusive.
+     * @param to      The end of the range, in milliseconds since the epoch,
+     *                exclusive.
+     * @return The messages.
+     * @throws IOException If the segments cannot be read.
+     */
+    public List<ChatRecord> read(String channel, long from, long to) throws IOException {
+        List<ChatRecord> records = new ArrayList<>();
+        read(channel, from, to, records::add);
+        return records;
+    }
+
+    /**
+     * Gives the messages of a channel within a time range to a consumer, in the
+     * order they were written.
+     *
+     * @param channel  The channel, or null for every channel.
+     * @param from     The start of the range, in milliseconds since the epoch,
+     *                 inclusive.
+     * @param to       The end of the range, in milliseconds since the epoch,
+     *                 exclusive.
+     * @param consumer The consumer of the messages.
+     * @throws IOException If the segments cannot be read.
+     */
+    public void read(String channel, long from, long to, @NonNull Consumer<ChatRecord> consumer) throws IOException {
+        if (!Files.isDirectory(directory))
+            return;
+
+        Inflater inflater = new Inflater(true);
+        try {
+            for (Path segment : segments())
+                readSegment(segment, channel, from, to, consumer, inflater);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(ChatLogReader::startOf))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long startOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static void readSegment(Path path, String channel, long from, long to, Consumer<ChatRecord> consumer,
+            Inflater inflater) throws IOException {
+        try (FileChannel segment = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            long position = 0;
+            long size = segment.size();
+
+            while (position + HEADER_SIZE <= size) {
+                header.clear();
+                readFully(segment, header, position);
+                header.flip();
+                int length = header.getInt(4);
+                if (header.getInt(0) != BLOCK_MAGIC || length < 0 || position + HEADER_SIZE + length > size)
+                    break;
+
+                long minTimestamp = header.getLong(20);
+                long maxTimestamp = header.getLong(28);
+                if (maxTimestamp >= from && minTimestamp < to) {
+                    ByteBuffer compressed = ByteBuffer.allocate(length);
+                    readFully(segment, compressed, position + HEADER_SIZE);
+                    CRC32 crc = new CRC32();
+                    crc.update(compressed.array(), 0, length);
+                    if ((int) crc.getValue() != header.getInt(16)) {
+                        LOGGER.warn("Corrupted block at {} of {}", position, path);
+                        break;
+                    }
+                    readBlock(compressed.array(), header.getInt(8), header.getInt(12), channel, from, to, consumer,
+                            inflater);
+                }
+                position += HEADER_SIZE + length;
+            }
+        }
+    }
+
+    private static void readBlock(byte[] compressed, int uncompressedLength, int count, String channel, long from,
+            long to, Consumer<ChatRecord> consumer, Inflater inflater) throws IOException {
+        byte[] bytes = new byte[uncompressedLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += inflated;
+            }
+            if (length != bytes.length)
+                throw new IOException("Truncated chat log block");
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted chat log block", e);
+        }
+
+        ByteBuffer input = ByteBuffer.wrap(bytes);
+        long timestamp = 0;
+        for (int i = 0; i < count; i++) {
+            timestamp = readTimestamp(input, timestamp);
+            String recordChannel = readString(input);
+            if (channel != null && !channel.equals(recordChannel) || timestamp < from || timestamp >= to) {
+                skipString(input);
+                skipString(input);
+                continue;
+            }
+            consumer.accept(new ChatRecord(timestamp, recordChannel, readString(input), readString(input)));
+        }
+    }
+
+    private static void skipString(ByteBuffer input) {
+        int size = (int) ChatLogFormat.readVarLong(input);
+        input.position(input.position() + size);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new IOException("Unexpected end of chat log segment");
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.pydawan.pydabot.chatlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.pydawan.pydabot.util.MpscRing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.BLOCK_MAGIC;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.HEADER_SIZE;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.SEGMENT_PREFIX;
+import static com.pydawan.pydabot.chatlog.ChatLogFormat.SEGMENT_SUFFIX;
+
+/**
+ * Writes chat records to compressed segment files, on a thread of its own.
+ *
+ * Records are offered to a bounded lock-free ring, so offering never blocks
+ * nor does any I/O. When the disk falls behind and the ring is full, the
+ * offered record is dropped and counted: the chat log favors the bot over its
+ * completeness.
+ *
+ * The writer thread drains the ring into a block, and writes the block when it
+ * is large enough or when the flush interval elapsed since its first record.
+ * Blocks are compressed with Deflate and written with their header in a single
+ * gathering write. A segment is closed, and the next block starts a new one,
+ * when it is larger than the maximum segment size or older than the maximum
+ * segment age. See {@link ChatLogFormat} for the format of the segments.
+ */
+public class ChatLogWriter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatLogWriter.class);
+
+    /**
+     * The default capacity of the ring.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * The longest the writer thread sleeps when the ring is empty.
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Path directory;
+    private final MpscRing<ChatRecord> ring;
+    private final Thread thread;
+    private volatile boolean running;
+
+    /**
+     * The uncompressed size from which a block is written, in bytes.
+     */
+    @Getter
+    @Setter
+    private volatile int blockSize = 64 * 1024;
+
+    /**
+     * The longest a record waits in a block before the block is written, in
+     * milliseconds.
+     */
+    @Getter
+    @Setter
+    private volatile long flushIntervalMillis = 1000;
+
+    /**
+     * The size from which a segment is closed, in bytes.
+     */
+    @Getter
+    @Setter
+    private volatile long maxSegmentSize = 64L * 1024 * 1024;
+
+    /**
+     * The age from which a segment is closed, in milliseconds.
+     */
+    @Getter
+    @Setter
+    private volatile long maxSegmentAgeMillis = TimeUnit.HOURS.toMillis(1);
+
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder blocks = new LongAdder();
+    private final LongAdder segments = new LongAdder();
+
+    // State of the writer thread.
+    private final ChatLogFormat.BlockBuffer block = new ChatLogFormat.BlockBuffer(64 * 1024);
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private byte[] compressed = new byte[64 * 1024];
+    private long blockStartNanos;
+    private FileChannel segment;
+    private long segmentSize;
+    private long segmentStartNanos;
+
+    /**
+     * Creates a new ChatLogWriter. Records are only written once it is started.
+     *
+     * @param directory The directory of the segments, created if needed.
+     * @param capacity  The number of records the ring holds, rounded up to a
+     *                  power of two.
+     */
+    public ChatLogWriter(@NonNull Path directory, int capacity) {
+        this.directory = directory;
+        this.ring = new MpscRing<>(capacity);
+        this.thread = new Thread(this::run, "chat-log-writer");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Creates a new ChatLogWriter with a ring of {@link #DEFAULT_CAPACITY}
+     * records.
+     *
+     * @param directory The directory of the segments, created if needed.
+     */
+    public ChatLogWriter(@NonNull Path directory) {
+        this(directory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts the writer thread.
+     *
+     * @throws IOException If the directory cannot be created.
+     */
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+        Files.createDirectories(directory);
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Offers a record to the writer, without blocking.
+     *
+     * @param record The record.
+     * @return <code>true</code> if the record will be written, <code>false</code>
+     *         if it was dropped because the writer fell behind.
+     */
+    public boolean offer(@NonNull ChatRecord record) {
+        offered.increment();
+        if (ring.offer(record))
+            return true;
+        dropped.increment();
+        return false;
+    }
+
+    private void run() {
+        while (true) {
+            boolean stopping = !running;
+            ChatRecord record = ring.poll();
+            if (record != null) {
+                if (block.count == 0)
+                    blockStartNanos = System.nanoTime();
+                block.append(record);
+                if (block.length >= blockSize)
+                    writeBlock();
+                continue;
+            }
+
+            if (block.count > 0 && (stopping
+                    || System.nanoTime() - blockStartNanos >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis)))
+                writeBlock();
+            if (stopping)
+                break;
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        closeSegment();
+        deflater.end();
+    }
+
+    private void writeBlock() {
+        try {
+            int length = compress();
+            crc.reset();
+            crc.update(compressed, 0, length);
+            header.clear();
+            header.putInt(BLOCK_MAGIC).putInt(length).putInt(block.length).putInt(block.count)
+                    .putInt((int) crc.getValue()).putLong(block.minTimestamp).putLong(block.maxTimestamp)
+                    .flip();
+
+            FileChannel channel = segment();
+            ByteBuffer[] buffers = { header, ByteBuffer.wrap(compressed, 0, length) };
+            long size = HEADER_SIZE + length;
+            long remaining = size;
+            while (remaining > 0)
+                remaining -= channel.write(buffers);
+
+            segmentSize += size;
+            written.add(block.count);
+            blocks.increment();
+            if (segmentSize >= maxSegmentSize
+                    || System.nanoTime() - segmentStartNanos >= TimeUnit.MILLISECONDS.toNanos(maxSegmentAgeMillis))
+                closeSegment();
+        } catch (IOException e) {
+            failed.add(block.count);
+            LOGGER.error("Cannot write {} chat records", block.count, e);
+            closeSegment();
+        } finally {
+            block.clear();
+        }
+    }
+
+    private int compress() {
+        deflater.reset();
+        deflater.setInput(block.bytes, 0, block.length);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return length;
+    }
+
+    private FileChannel segment() throws IOException {
+        if (segment != null)
+            return segment;
+
+        long name = System.currentTimeMillis();
+        Path path;
+        do {
+            path = directory.resolve(SEGMENT_PREFIX + name++ + SEGMENT_SUFFIX);
+        } while (Files.exists(path));
+
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        segmentStartNanos = System.nanoTime();
+        segments.increment();
+        return segment;
+    }
+
+    private void closeSegment() {
+        if (segment == null)
+            return;
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            LOGGER.error("Cannot close chat log segment", e);
+        }
+        segment = null;
+    }
+
+    /**
+     * Stops the writer thread after it wrote every record offered so far.
+     *
+     * @throws InterruptedException If interrupted while waiting for the writer.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            if (!running)
+                return;
+            running = false;
+        }
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    /**
+     * Returns the number of records waiting to be written.
+     *
+     * @return The number of records in the ring.
+     */
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    /**
+     * Returns the number of records offered to the writer, whether they were
+     * accepted or dropped.
+     *
+     * @return The number of offered records.
+     */
+    public long getOfferedCount() {
+        return offered.sum();
+    }
+
+    /**
+     * Returns the number of records dropped because the ring was full.
+     *
+     * @return The number of dropped records.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of records written to a segment.
+     *
+     * @return The number of written records.
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Returns the number of records lost because their block could not be
+     * written.
+     *
+     * @return The number of lost records.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of blocks written to a segment.
+     *
+     * @return The number of written blocks.
+     */
+    public long getBlockCount() {
+        return blocks.sum();
+    }
+
+    /**
+     * Returns the number of segments opened.
+     *
+     * @return The number of opened segments.
+     */
+    public long getSegmentCount() {
+        return segments.sum();
+    }
+}
@@ -0,0 +1,25 @@
+package com.pydawan.pydabot.chatlog;
+
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * A chat message, as written to and read from a chat log.
+ */
+@Data
+public class ChatRecord {
+
+    /**
+     * The time of the message, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    @NonNull
+    private final String channel;
+
+    @NonNull
+    private final String nick;
+
+    @NonNull
+    private final String message;
+}
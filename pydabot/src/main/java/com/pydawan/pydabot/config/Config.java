@@ -0,0 +1,51 @@
+package com.pydawan.pydabot.config;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pydawan.pydabot.Announcement;
+
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * The configuration of the bot, as read from a file matching
+ * config_schema.json.
+ *
+ * The channels, commands, announcements and announcement intervals can be
+ * reloaded while the bot runs; the other settings are only applied at startup.
+ */
+@Data
+public class Config {
+    @NonNull
+    private final String name;
+    @NonNull
+    private final String server;
+    private final int port;
+    @NonNull
+    private final String token;
+
+    /**
+     * The port of the Prometheus metrics endpoint, or 0 if it is disabled.
+     */
+    private final int metricsPort;
+
+    /**
+     * The directory of the chat log, or null if it is disabled.
+     */
+    private final String chatLog;
+
+    @NonNull
+    private final List<String> channels;
+    @NonNull
+    private final Map<String, String> commands;
+    @NonNull
+    private final List<Announcement> announcements;
+
+    /**
+     * The seconds between two announcements, by channel. Channels missing from
+     * it use the default interval of the bot.
+     */
+    @NonNull
+    private final Map<String, Long> announcementIntervals;
+}
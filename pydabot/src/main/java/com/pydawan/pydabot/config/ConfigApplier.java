@@ -0,0 +1,72 @@
+package com.pydawan.pydabot.config;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.pydawan.pydabot.Bot;
+import com.pydawan.pydabot.listeners.SimpleCommandListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.NonNull;
+
+/**
+ * Applies configurations to a running bot.
+ *
+ * Only what changed since the last configuration is applied: channels that
+ * were added are joined and channels that were removed are parted, within the
+ * join limit of the bot, and the commands and announcements are swapped at
+ * once when they changed. Changed announcement intervals reschedule the
+ * announcements of their channels. Settings only read at startup are left as is.
+ * A configuration failing to apply is not remembered, so the next one is
+ * compared to the last configuration applied.
+ */
+public class ConfigApplier implements Consumer<Config> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigApplier.class);
+
+    private final Bot bot;
+    private final SimpleCommandListener commands;
+    private Config last;
+
+    /**
+     * Creates a new ConfigApplier.
+     *
+     * @param bot      The bot.
+     * @param commands The listener of the simple commands, or null if the
+     *                 commands are not reloaded.
+     */
+    public ConfigApplier(@NonNull Bot bot, SimpleCommandListener commands) {
+        this.bot = bot;
+        this.commands = commands;
+    }
+
+    @Override
+    public synchronized void accept(Config config) {
+        Config last = this.last;
+
+        if (last != null && (!last.getName().equals(config.getName())
+                || !last.getServer().equals(config.getServer())
+                || last.getPort() != config.getPort()
+                || !last.getToken().equals(config.getToken())
+                || last.getMetricsPort() != config.getMetricsPort()
+                || !Objects.equals(last.getChatLog(), config.getChatLog())))
+            LOGGER.warn("Connection, metrics or chat log settings changed, they will be applied at the next start");
+
+        if (last == null || !new HashSet<>(last.getChannels()).equals(new HashSet<>(config.getChannels())))
+            bot.setChannels(config.getChannels());
+
+        if (commands != null && (last == null || !last.getCommands().equals(config.getCommands())))
+            commands.setCommands(config.getCommands());
+
+        if (last == null || !last.getAnnouncementIntervals().equals(config.getAnnouncementIntervals()))
+            bot.setAnnouncementIntervals(config.getAnnouncementIntervals(), TimeUnit.SECONDS);
+
+        if (last == null || !last.getAnnouncements().equals(config.getAnnouncements()))
+            bot.getAnnouncementWorker().setAnnouncements(config.getAnnouncements());
+
+        this.last = config;
+    }
+}
@@ -0,0 +1,34 @@
+package com.pydawan.pydabot.config;
+
+import java.util.List;
+
+import com.pydawan.pydabot.BotException;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a configuration cannot be read or does not match its schema.
+ */
+public class ConfigException extends BotException {
+
+    /**
+     * The violations of the schema, empty if the configuration could not be read.
+     */
+    @Getter
+    private final List<String> violations;
+
+    public ConfigException(String message) {
+        super(message);
+        this.violations = List.of();
+    }
+
+    public ConfigException(String message, Throwable cause) {
+        super(message, cause);
+        this.violations = List.of();
+    }
+
+    public ConfigException(String message, List<String> violations) {
+        super(message + ": " + String.join(", ", violations));
+        this.violations = List.copyOf(violations);
+    }
+}
@@ -0,0 +1,139 @@
+package com.pydawan.pydabot.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pydawan.pydabot.Announcement;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import lombok.NonNull;
+
+/**
+ * Reads configurations and validates them against config_schema.json.
+ */
+public class ConfigLoader {
+
+    /**
+     * The path of the schema in the classpath.
+     */
+    public static final String SCHEMA_RESOURCE = "/config_schema.json";
+
+    /**
+     * The default port, used when the configuration does not set one.
+     */
+    public static final int DEFAULT_PORT = 6667;
+
+    private final SchemaValidator validator;
+
+    /**
+     * Creates a new ConfigLoader validating against config_schema.json.
+     *
+     * @throws ConfigException If the schema cannot be read.
+     */
+    public ConfigLoader() {
+        this(SchemaValidator.fromResource(SCHEMA_RESOURCE));
+    }
+
+    /**
+     * Creates a new ConfigLoader.
+     *
+     * @param validator The validator of the configurations.
+     */
+    public ConfigLoader(@NonNull SchemaValidator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Reads a configuration file.
+     *
+     * @param path The path of the file.
+     * @return The configuration.
+     * @throws IOException     If the file cannot be read.
+     * @throws ConfigException If the file is not a valid configuration.
+     */
+    public Config load(@NonNull Path path) throws IOException {
+        return parse(Files.readString(path));
+    }
+
+    /**
+     * Parses a configuration.
+     *
+     * @param json The configuration, as JSON.
+     * @return The configuration.
+     * @throws ConfigException If the configuration is not valid.
+     */
+    public Config parse(@NonNull String json) {
+        JSONObject object;
+        try {
+            object = new JSONObject(json);
+        } catch (JSONException e) {
+            throw new ConfigException("Malformed configuration", e);
+        }
+
+        List<String> violations = validator.validate(object);
+        if (!violations.isEmpty())
+            throw new ConfigException("Invalid configuration", violations);
+
+        return new Config(
+                object.getString("name"),
+                object.getString("server"),
+                object.optInt("port", DEFAULT_PORT),
+                object.getString("token"),
+                object.optInt("metrics_port", 0),
+                object.optString("chat_log", null),
+                channelsOf(object.getJSONArray("channels")),
+                commandsOf(object.optJSONObject("commands")),
+                announcementsOf(object.optJSONArray("announcements")),
+                intervalsOf(object.optJSONObject("announcement_intervals")));
+    }
+
+    private static List<String> channelsOf(JSONArray array) {
+        List<String> channels = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++)
+            channels.add(array.getString(i));
+        return List.copyOf(channels);
+    }
+
+    private static Map<String, String> commandsOf(JSONObject object) {
+        if (object == null)
+            return Map.of();
+
+        Map<String, String> commands = new HashMap<>();
+        for (String name : object.keySet())
+            commands.put(name, object.getString(name));
+        return Map.copyOf(commands);
+    }
+
+    private static List<Announcement> announcementsOf(JSONArray array) {
+        if (array == null)
+            return List.of();
+
+        List<Announcement> announcements = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject announcement = array.getJSONObject(i);
+            announcements.add(new Announcement(
+                    announcement.getString("channel"),
+                    announcement.getString("message"),
+                    announcement.optDouble("weight", 1)));
+        }
+        return List.copyOf(announcements);
+    }
+
+    private static Map<String, Long> intervalsOf(JSONObject object) {
+        if (object == null)
+            return Map.of();
+
+        Map<String, Long> intervals = new HashMap<>();
+        for (String channel : object.keySet())
+            intervals.put(channel, object.getLong(channel));
+        return Map.copyOf(intervals);
+    }
+}
@@ -0,0 +1,176 @@
+package com.pydawan.pydabot.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Watches a configuration file and reloads it when it changes.
+ *
+ * A dedicated thread waits for changes of the directory of the file. Changes
+ * are debounced, since editors often write a file in several steps, then the
+ * file is loaded and validated. A valid configuration that differs from the
+ * last one is given to the consumer; an invalid one is logged and ignored, so
+ * the bot keeps running with the last valid configuration.
+ */
+public class ConfigWatcher implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    /**
+     * How long to wait for a change to settle before reloading the file.
+     */
+    private static final long DEBOUNCE_MILLIS = 200L;
+
+    private final ConfigLoader loader;
+    private final Consumer<Config> consumer;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * The watched file.
+     */
+    @Getter
+    private final Path path;
+
+    private final AtomicLong reloadCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private Config last;
+
+    /**
+     * Creates a new ConfigWatcher. The file is not loaded until the watcher is
+     * started.
+     *
+     * @param loader   The loader of the file.
+     * @param path     The path of the file.
+     * @param consumer The consumer of the configurations, called on the watcher
+     *                 thread.
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    public ConfigWatcher(@NonNull ConfigLoader loader, @NonNull Path path, @NonNull Consumer<Config> consumer)
+            throws IOException {
+        this.loader = loader;
+        this.path = path.toAbsolutePath();
+        this.consumer = consumer;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.path.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "config-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Loads the file, gives it to the consumer and starts watching it.
+     *
+     * @return The loaded configuration.
+     * @throws IOException     If the file cannot be read.
+     * @throws ConfigException If the file is not a valid configuration.
+     */
+    public Config start() throws IOException {
+        Config config = loader.load(path);
+        consumer.accept(config);
+        synchronized (this) {
+            last = config;
+        }
+        thread.start();
+        return config;
+    }
+
+    /**
+     * Reloads the file now and gives it to the consumer if it is valid and
+     * differs from the last configuration the consumer accepted, so that a
+     * configuration the consumer failed to apply is given again.
+     *
+     * @return <code>true</code> if the consumer was given a new configuration.
+     */
+    public synchronized boolean reload() {
+        Config config;
+        try {
+            config = loader.load(path);
+        } catch (IOException | RuntimeException e) {
+            failureCount.incrementAndGet();
+            LOGGER.warn("Ignoring invalid configuration {}: {}", path, e.getMessage());
+            return false;
+        }
+
+        if (config.equals(last))
+            return false;
+        reloadCount.incrementAndGet();
+        try {
+            consumer.accept(config);
+        } catch (RuntimeException e) {
+            failureCount.incrementAndGet();
+            LOGGER.error("Cannot apply configuration {}", path, e);
+            return true;
+        }
+        last = config;
+        return true;
+    }
+
+    private void watch() {
+        Path name = path.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents())
+                        changed |= name.equals(event.context())
+                                || event.kind() == StandardWatchEventKinds.OVERFLOW;
+                    key.reset();
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                if (changed)
+                    reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed.
+        }
+    }
+
+    /**
+     * Returns the number of new configurations given to the consumer since the
+     * watcher started, not counting the first one.
+     *
+     * @return The number of reloads.
+     */
+    public long getReloadCount() {
+        return reloadCount.get();
+    }
+
+    /**
+     * Returns the number of configurations that could not be loaded or applied.
+     *
+     * @return The number of failures.
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Stops watching the file.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,185 @@
+package com.pydawan.pydabot.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A validator for the subset of JSON Schema used by the configuration schema.
+ *
+ * Supports the keywords type, properties, required, additionalProperties,
+ * items, minimum and maximum. Other keywords, such as description and default,
+ * are ignored.
+ */
+public class SchemaValidator {
+
+    /**
+     * The schema against which documents are validated.
+     */
+    @Getter
+    private final JSONObject schema;
+
+    /**
+     * Creates a new SchemaValidator.
+     *
+     * @param schema The schema against which documents are validated.
+     */
+    public SchemaValidator(@NonNull JSONObject schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Creates a new SchemaValidator from a schema in the classpath.
+     *
+     * @param resource The absolute path of the schema in the classpath.
+     * @return A new SchemaValidator.
+     * @throws ConfigException If the schema cannot be read.
+     */
+    public static SchemaValidator fromResource(@NonNull String resource) {
+        try (InputStream input = SchemaValidator.class.getResourceAsStream(resource)) {
+            if (input == null)
+                throw new ConfigException("Schema " + resource + " not found");
+            return new SchemaValidator(new JSONObject(new String(input.readAllBytes(), StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new ConfigException("Cannot read schema " + resource, e);
+        }
+    }
+
+    /**
+     * Validates a document.
+     *
+     * @param document The document, as parsed by org.json.
+     * @return The violations of the schema, each prefixed by the JSON pointer of
+     *         the invalid value. Empty if the document is valid.
+     */
+    public List<String> validate(Object document) {
+        List<String> violations = new ArrayList<>();
+        validate(schema, document, "", violations);
+        return violations;
+    }
+
+    private static void validate(JSONObject schema, Object value, String path, List<String> violations) {
+        Object type = schema.opt("type");
+        if (type != null && !matchesType(type, value)) {
+            violations.add(pointer(path) + ": expected " + type + " but was " + typeOf(value));
+            return;
+        }
+
+        if (value instanceof JSONObject)
+            validateObject(schema, (JSONObject) value, path, violations);
+        else if (value instanceof JSONArray)
+            validateArray(schema, (JSONArray) value, path, violations);
+        else if (value instanceof Number)
+            validateNumber(schema, (Number) value, path, violations);
+    }
+
+    private static void validateObject(JSONObject schema, JSONObject object, String path, List<String> violations) {
+        JSONArray required = schema.optJSONArray("required");
+        if (required != null)
+            for (int i = 0; i < required.length(); i++)
+                if (!object.has(required.getString(i)))
+                    violations.add(pointer(path) + ": missing required property " + required.getString(i));
+
+        JSONObject properties = schema.optJSONObject("properties");
+        Object additional = schema.opt("additionalProperties");
+        for (String key : object.keySet()) {
+            String child = path + "/" + key.replace("~", "~0").replace("/", "~1");
+            if (properties != null && properties.has(key))
+                validate(properties.getJSONObject(key), object.get(key), child, violations);
+            else if (Boolean.FALSE.equals(additional))
+                violations.add(pointer(child) + ": unexpected property");
+            else if (additional instanceof JSONObject)
+                validate((JSONObject) additional, object.get(key), child, violations);
+        }
+    }
+
+    private static void validateArray(JSONObject schema, JSONArray array, String path, List<String> violations) {
+        JSONObject items = schema.optJSONObject("items");
+        if (items == null)
+            return;
+        for (int i = 0; i < array.length(); i++)
+            validate(items, array.get(i), path + "/" + i, violations);
+    }
+
+    private static void validateNumber(JSONObject schema, Number number, String path, List<String> violations) {
+        BigDecimal value = toBigDecimal(number);
+        if (schema.has("minimum") && value.compareTo(schema.getBigDecimal("minimum")) < 0)
+            violations.add(pointer(path) + ": " + number + " is less than " + schema.get("minimum"));
+        if (schema.has("maximum") && value.compareTo(schema.getBigDecimal("maximum")) > 0)
+            violations.add(pointer(path) + ": " + number + " is greater than " + schema.get("maximum"));
+    }
+
+    private static boolean matchesType(Object type, Object value) {
+        if (type instanceof JSONArray) {
+            JSONArray types = (JSONArray) type;
+            for (int i = 0; i < types.length(); i++)
+                if (matchesType(types.get(i), value))
+                    return true;
+            return false;
+        }
+
+        switch (type.toString()) {
+            case "object":
+                return value instanceof JSONObject;
+            case "array":
+                return value instanceof JSONArray;
+            case "string":
+                return value instanceof String;
+            case "boolean":
+                return value instanceof Boolean;
+            case "null":
+                return JSONObject.NULL.equals(value);
+            case "number":
+                return value instanceof Number;
+            case "integer":
+                return value instanceof Number && isIntegral((Number) value);
+            default:
+                throw new ConfigException("Unsupported type in schema: " + type);
+        }
+    }
+
+    private static boolean isIntegral(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof BigInteger)
+            return true;
+        BigDecimal value = toBigDecimal(number);
+        return value.signum() == 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal)
+            return (BigDecimal) number;
+        if (number instanceof BigInteger)
+            return new BigDecimal((BigInteger) number);
+        if (number instanceof Integer || number instanceof Long)
+            return BigDecimal.valueOf(number.longValue());
+        return new BigDecimal(number.toString());
+    }
+
+    private static String typeOf(Object value) {
+        if (value instanceof JSONObject)
+            return "object";
+        if (value instanceof JSONArray)
+            return "array";
+        if (value instanceof String)
+            return "string";
+        if (value instanceof Boolean)
+            return "boolean";
+        if (value instanceof Number)
+            return "number";
+        return "null";
+    }
+
+    private static String pointer(String path) {
+        return path.isEmpty() ? "/" : path;
+    }
+}
@@ -0,0 +1,52 @@
+package com.pydawan.pydabot.cooldown;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Data;
+
+/**
+ * The cooldowns of a command: how long it stays silent after being answered in
+ * a channel, and after being answered to a user in a channel.
+ */
+@Data
+public class Cooldown {
+
+    /**
+     * No cooldown: every invocation is answered.
+     */
+    public static final Cooldown NONE = new Cooldown(0, 0);
+
+    /**
+     * The cooldown of the command in a channel, in nanoseconds.
+     */
+    private final long channelNanos;
+
+    /**
+     * The cooldown of the command for a user in a channel, in nanoseconds.
+     */
+    private final long userNanos;
+
+    /**
+     * Creates a cooldown.
+     *
+     * @param channel The cooldown of the command in a channel.
+     * @param user    The cooldown of the command for a user in a channel.
+     * @param unit    The unit of the cooldowns.
+     * @return The cooldown.
+     * @throws IllegalArgumentException If a cooldown is negative.
+     */
+    public static Cooldown of(long channel, long user, TimeUnit unit) {
+        if (channel < 0 || user < 0)
+            throw new IllegalArgumentException("Cooldowns must not be negative");
+        return new Cooldown(unit.toNanos(channel), unit.toNanos(user));
+    }
+
+    /**
+     * Returns whether the cooldown lets every invocation through.
+     *
+     * @return <code>true</code> if both cooldowns are zero.
+     */
+    public boolean isNone() {
+        return channelNanos == 0 && userNanos == 0;
+    }
+}
@@ -0,0 +1,239 @@
+package com.pydawan.pydabot.cooldown;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.pydawan.pydabot.parsing.CommandTrie;
+import com.pydawan.pydabot.util.Hashing;
+
+import org.pircbotx.Channel;
+import org.pircbotx.User;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Decides whether an invocation of a command is answered, according to the
+ * cooldowns of the command in the channel and for the user.
+ *
+ * Invocations are keyed by the 64 bits hashes of (channel, command) and
+ * (channel, user, command), computed over regions of the message without
+ * allocating, and checked against a shared {@link CooldownTable}. The cooldown
+ * of each command is resolved with a {@link CommandTrie}, so an invocation in
+ * cooldown is rejected before anything is allocated or formatted.
+ *
+ * Both cooldowns are checked before either is started, so an invocation
+ * rejected by one cooldown does not start the other: a user spamming a command
+ * only holds the command for themselves, and a user rejected because the
+ * command is in cooldown in the channel is not held afterwards. The channel
+ * cooldown is then started before the user cooldown, so among concurrent
+ * invocations only the one starting the channel cooldown starts its user
+ * cooldown.
+ */
+public class CooldownEngine {
+
+    /**
+     * The default number of slots of the table.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Keeps timestamps above every cooldown, see {@link CooldownTable}.
+     */
+    private static final long CLOCK_OFFSET = 1L << 62;
+
+    private static final long USER_SEED = Hashing.mix(0x5EED);
+
+    private final CooldownTable table;
+    private final long origin = System.nanoTime();
+
+    /**
+     * The cooldown of the commands without a cooldown of their own.
+     */
+    @Getter
+    private final Cooldown defaultCooldown;
+
+    private volatile Map<String, Cooldown> cooldowns = Map.of();
+    private volatile CommandTrie<Cooldown> trie = new CommandTrie<>(Map.of());
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new CooldownEngine.
+     *
+     * @param defaultCooldown The cooldown of the commands without a cooldown of
+     *                        their own.
+     * @param capacity        The number of slots of the table.
+     */
+    public CooldownEngine(@NonNull Cooldown defaultCooldown, int capacity) {
+        this.defaultCooldown = defaultCooldown;
+        this.table = new CooldownTable(capacity, longest(defaultCooldown, Map.of()));
+    }
+
+    /**
+     * Creates a new CooldownEngine with {@link #DEFAULT_CAPACITY} slots.
+     *
+     * @param defaultCooldown The cooldown of the commands without a cooldown of
+     *                        their own.
+     */
+    public CooldownEngine(@NonNull Cooldown defaultCooldown) {
+        this(defaultCooldown, DEFAULT_CAPACITY);
+    }
+
+    private static long longest(Cooldown defaultCooldown, Map<String, Cooldown> cooldowns) {
+        long longest = Math.max(defaultCooldown.getChannelNanos(), defaultCooldown.getUserNanos());
+        for (Cooldown cooldown : cooldowns.values())
+            longest = Math.max(longest, Math.max(cooldown.getChannelNanos(), cooldown.getUserNanos()));
+        return longest;
+    }
+
+    /**
+     * Sets the cooldown of a command.
+     *
+     * @param command  The name of the command, without prefix.
+     * @param cooldown The cooldown of the command.
+     * @throws IllegalArgumentException If the name is not made of word
+     *                                  characters.
+     */
+    public synchronized void setCooldown(@NonNull String command, @NonNull Cooldown cooldown) {
+        Map<String, Cooldown> updated = new HashMap<>(cooldowns);
+        updated.put(command, cooldown);
+        apply(updated);
+    }
+
+    /**
+     * Replaces the cooldowns of every command.
+     *
+     * @param cooldowns The cooldowns of the commands, by name.
+     * @throws IllegalArgumentException If a name is not made of word characters.
+     */
+    public synchronized void setCooldowns(@NonNull Map<String, Cooldown> cooldowns) {
+        apply(new HashMap<>(cooldowns));
+    }
+
+    private void apply(Map<String, Cooldown> updated) {
+        CommandTrie<Cooldown> built = new CommandTrie<>(updated);
+        table.setExpiryNanos(longest(defaultCooldown, updated));
+        trie = built;
+        cooldowns = Map.copyOf(updated);
+    }
+
+    /**
+     * Returns the cooldowns of the commands having their own.
+     *
+     * @return An unmodifiable map of the cooldowns, by command name.
+     */
+    public Map<String, Cooldown> getCooldowns() {
+        return cooldowns;
+    }
+
+    /**
+     * Returns the cooldown of a command.
+     *
+     * @param command The name of the command.
+     * @return The cooldown of the command.
+     */
+    public Cooldown getCooldown(@NonNull CharSequence command) {
+        return cooldownOf(command, 0, command.length());
+    }
+
+    private Cooldown cooldownOf(CharSequence text, int start, int end) {
+        Cooldown cooldown = trie.get(text, start, end);
+        return cooldown != null ? cooldown : defaultCooldown;
+    }
+
+    private long now() {
+        return System.nanoTime() - origin + CLOCK_OFFSET;
+    }
+
+    /**
+     * Decides whether an invocation of a command is answered, and starts its
+     * cooldowns if it is.
+     *
+     * @param channel      The channel of the invocation.
+     * @param user         The user invoking the command.
+     * @param text         The text holding the name of the command.
+     * @param commandStart The index of the name of the command in the text.
+     * @param commandEnd   The index following the name of the command in the
+     *                     text.
+     * @return <code>true</code> if the invocation is answered,
+     *         <code>false</code> if the command is in cooldown.
+     */
+    public boolean tryAcquire(@NonNull CharSequence channel, @NonNull CharSequence user,
+            @NonNull CharSequence text, int commandStart, int commandEnd) {
+        Cooldown cooldown = cooldownOf(text, commandStart, commandEnd);
+        if (cooldown.isNone()) {
+            accepted.increment();
+            return true;
+        }
+
+        long channelHash = Hashing.separate(Hashing.update(Hashing.FNV_OFFSET, channel, 0, channel.length()));
+        long commandHash = Hashing.update(channelHash, text, commandStart, commandEnd);
+        long now = now();
+
+        long userNanos = cooldown.getUserNanos();
+        long channelNanos = cooldown.getChannelNanos();
+        long userKey = Hashing.mix(Hashing.update(Hashing.separate(commandHash) ^ USER_SEED, user, 0, user.length()));
+        long channelKey = Hashing.mix(commandHash);
+
+        if (userNanos > 0 && !table.isReady(userKey, now, userNanos)
+                || channelNanos > 0 && !table.tryFire(channelKey, now, channelNanos)
+                || userNanos > 0 && !table.tryFire(userKey, now, userNanos)) {
+            rejected.increment();
+            return false;
+        }
+
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * Decides whether an invocation of a command is answered, and starts its
+     * cooldowns if it is.
+     *
+     * @param event        The message invoking the command.
+     * @param text         The text holding the name of the command.
+     * @param commandStart The index of the name of the command in the text.
+     * @param commandEnd   The index following the name of the command in the
+     *                     text.
+     * @return <code>true</code> if the invocation is answered,
+     *         <code>false</code> if the command is in cooldown.
+     */
+    public boolean tryAcquire(@NonNull MessageEvent event, @NonNull CharSequence text, int commandStart,
+            int commandEnd) {
+        Channel channel = event.getChannel();
+        User user = event.getUser();
+        return tryAcquire(channel == null ? "" : channel.getName(), user == null ? "" : user.getNick(),
+                text, commandStart, commandEnd);
+    }
+
+    /**
+     * Returns the number of invocations answered.
+     *
+     * @return The number of accepted invocations.
+     */
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    /**
+     * Returns the number of invocations rejected by a cooldown.
+     *
+     * @return The number of rejected invocations.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the number of invocations let through because the table was full.
+     *
+     * @return The number of overflows.
+     */
+    public long getOverflowCount() {
+        return table.getOverflowCount();
+    }
+}
@@ -0,0 +1,182 @@
+package com.pydawan.pydabot.cooldown;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A lock free table of the last time each key fired, keyed by 64 bits hashes.
+ *
+ * The table is open addressed with a fixed capacity, so its memory is bounded.
+ * A key is looked up in a short window of slots following its hash. A slot
+ * whose key has not fired for the expiry time is idle, and is reused by the
+ * next key needing a slot; a key that finds no free slot in its window is let
+ * through and counted as an overflow.
+ *
+ * Firing a key is a compare and set of its timestamp, so among concurrent
+ * attempts on a key in cooldown exactly one succeeds. Timestamps are given by
+ * the caller and must be greater than every cooldown. The only approximation
+ * is a key reusing an idle slot while the previous key of the slot fires
+ * again: one of the two may then be wrongly held or let through once.
+ */
+public final class CooldownTable {
+
+    /**
+     * The number of slots a key can be stored in.
+     */
+    private static final int PROBES = 16;
+
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray stamps;
+    private final int mask;
+
+    /**
+     * The time after which an idle slot can be reused, in nanoseconds.
+     */
+    @Getter
+    @Setter
+    private volatile long expiryNanos;
+
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * Creates a new CooldownTable.
+     *
+     * @param capacity    The number of slots, rounded up to a power of two.
+     * @param expiryNanos The time after which an idle slot can be reused.
+     */
+    public CooldownTable(int capacity, long expiryNanos) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+        int size = Math.max(PROBES, Integer.highestOneBit(capacity - 1) << 1);
+        keys = new AtomicLongArray(size);
+        stamps = new AtomicLongArray(size);
+        mask = size - 1;
+        this.expiryNanos = expiryNanos;
+    }
+
+    /**
+     * Returns the number of slots of the table.
+     *
+     * @return The capacity of the table.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Fires the given key if it has not fired for the given cooldown.
+     *
+     * @param key           The hash of the key.
+     * @param now           The current time, in nanoseconds.
+     * @param cooldownNanos The cooldown of the key, in nanoseconds.
+     * @return <code>true</code> if the key fired, <code>false</code> if it is in
+     *         cooldown.
+     */
+    public boolean tryFire(long key, long now, long cooldownNanos) {
+        if (key == EMPTY)
+            key = 1;
+
+        while (true) {
+            int slot = find(key, now);
+            if (slot < 0) {
+                overflows.increment();
+                return true;
+            }
+            long current = keys.get(slot);
+            if (current != key && (!isFree(slot, current, now) || !keys.compareAndSet(slot, current, key)))
+                continue;
+
+            while (true) {
+                long last = stamps.get(slot);
+                if (now - last < cooldownNanos)
+                    return false;
+                if (keys.get(slot) != key)
+                    break;
+                if (stamps.compareAndSet(slot, last, now))
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given key has not fired for the given cooldown, without
+     * firing it.
+     *
+     * @param key           The hash of the key.
+     * @param now           The current time, in nanoseconds.
+     * @param cooldownNanos The cooldown of the key, in nanoseconds.
+     * @return <code>true</code> if the key can fire, <code>false</code> if it is
+     *         in cooldown.
+     */
+    public boolean isReady(long key, long now, long cooldownNanos) {
+        if (key == EMPTY)
+            key = 1;
+
+        int start = (int) key & mask;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (start + i) & mask;
+            long current = keys.get(slot);
+            if (current == key)
+                return now - stamps.get(slot) >= cooldownNanos;
+            if (current == EMPTY)
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the slot of the given key, or the first free slot of its window if
+     * it has none, or -1 if the window is full.
+     */
+    private int find(long key, long now) {
+        int start = (int) key & mask;
+        int free = -1;
+
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (start + i) & mask;
+            long current = keys.get(slot);
+            if (current == key)
+                return slot;
+            if (free < 0 && isFree(slot, current, now))
+                free = slot;
+            if (current == EMPTY)
+                break;
+        }
+        return free;
+    }
+
+    private boolean isFree(int slot, long current, long now) {
+        return current == EMPTY || now - stamps.get(slot) >= expiryNanos;
+    }
+
+    /**
+     * Returns the number of keys that fired within the expiry time.
+     * Scans the whole table.
+     *
+     * @param now The current time, in nanoseconds.
+     * @return The number of live keys.
+     */
+    public int size(long now) {
+        long expiry = expiryNanos;
+        int size = 0;
+        for (int slot = 0; slot <= mask; slot++)
+            if (keys.get(slot) != EMPTY && now - stamps.get(slot) < expiry)
+                size++;
+        return size;
+    }
+
+    /**
+     * Returns the number of keys let through because their window was full.
+     *
+     * @return The number of overflows.
+     */
+    public long getOverflowCount() {
+        return overflows.sum();
+    }
+}
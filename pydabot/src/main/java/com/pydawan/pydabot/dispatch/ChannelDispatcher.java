@@ -0,0 +1,77 @@
+package com.pydawan.pydabot.dispatch;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.pircbotx.hooks.Event;
+import org.pircbotx.hooks.Listener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import static com.pydawan.pydabot.irc.IrcUtils.channelNameOf;
+
+/**
+ * A listener handing the events of each channel to a {@link ChannelExecutor}.
+ *
+ * The listeners run one after the other for each event, in the order they were
+ * given, on the lane of the channel of the event: events of a channel are
+ * handled in the order they were received, while channels are handled
+ * concurrently. Events without a channel, such as connections and private
+ * messages, are handled on the calling thread.
+ */
+public class ChannelDispatcher implements Listener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChannelDispatcher.class);
+
+    /**
+     * The executor running the listeners.
+     */
+    @Getter
+    private final ChannelExecutor executor;
+
+    /**
+     * The listeners to which the events are dispatched.
+     */
+    @Getter
+    private final List<Listener> listeners;
+
+    /**
+     * Creates a new ChannelDispatcher.
+     *
+     * @param executor  The executor running the listeners.
+     * @param listeners The listeners to which the events are dispatched.
+     */
+    public ChannelDispatcher(@NonNull ChannelExecutor executor, @NonNull Collection<? extends Listener> listeners) {
+        this.executor = executor;
+        this.listeners = List.copyOf(listeners);
+    }
+
+    @Override
+    public void onEvent(Event event) {
+        String channel = channelNameOf(event);
+        if (channel == null)
+            dispatch(event, null);
+        else
+            executor.execute(channel, () -> dispatch(event, channel));
+    }
+
+    /**
+     * Runs every listener on the event. A listener throwing an exception is
+     * logged and does not prevent the next ones from running.
+     */
+    private void dispatch(Event event, String channel) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (Exception e) {
+                if (channel == null)
+                    LOGGER.error("{} failed on {}", listener, event.getClass().getSimpleName(), e);
+                else
+                    LOGGER.error("{} failed on {} in {}", listener, event.getClass().getSimpleName(), channel, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.pydawan.pydabot.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An executor running tasks in order within a channel, and concurrently across
+ * channels.
+ *
+ * Each channel has its own bounded queue. A channel with queued tasks is
+ * handed to the underlying executor, which runs a batch of its tasks before
+ * handing it back, so a busy channel cannot keep a thread to itself. A slow
+ * task only delays the tasks of its own channel. When the queue of a channel
+ * is full, the {@link OverloadPolicy} decides what happens to new tasks.
+ *
+ * By default, tasks run on a fixed pool of platform threads, several per core,
+ * so that tasks blocking on I/O do not starve the other channels. Any executor
+ * can be used instead, such as a virtual thread per task executor on runtimes
+ * providing one.
+ */
+public class ChannelExecutor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChannelExecutor.class);
+
+    /**
+     * The default capacity of the queue of each channel.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * The default number of threads of the default pool.
+     */
+    public static final int DEFAULT_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of tasks of a channel run before giving the thread to another
+     * channel.
+     */
+    private static final int BATCH_SIZE = 32;
+
+    private static final AtomicInteger EXECUTOR_COUNT = new AtomicInteger();
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * The capacity of the queue of each channel.
+     */
+    @Getter
+    private final int queueCapacity;
+
+    /**
+     * What happens to tasks submitted to a full queue.
+     */
+    @Getter
+    private final OverloadPolicy overloadPolicy;
+
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a ChannelExecutor running tasks on the given executor.
+     * The executor is not shut down when this ChannelExecutor is closed.
+     *
+     * @param executor       The executor running the tasks.
+     * @param queueCapacity  The capacity of the queue of each channel.
+     * @param overloadPolicy What happens to tasks submitted to a full queue.
+     */
+    public ChannelExecutor(@NonNull Executor executor, int queueCapacity, @NonNull OverloadPolicy overloadPolicy) {
+        this(executor, null, queueCapacity, overloadPolicy);
+    }
+
+    /**
+     * Creates a ChannelExecutor running tasks on a pool of
+     * {@link #DEFAULT_THREADS} threads.
+     *
+     * @param queueCapacity  The capacity of the queue of each channel.
+     * @param overloadPolicy What happens to tasks submitted to a full queue.
+     */
+    public ChannelExecutor(int queueCapacity, @NonNull OverloadPolicy overloadPolicy) {
+        this(null, newDefaultPool(), queueCapacity, overloadPolicy);
+    }
+
+    /**
+     * Creates a ChannelExecutor running tasks on a pool of
+     * {@link #DEFAULT_THREADS} threads, with queues of
+     * {@link #DEFAULT_QUEUE_CAPACITY} tasks dropping their oldest task when
+     * full.
+     */
+    public ChannelExecutor() {
+        this(DEFAULT_QUEUE_CAPACITY, OverloadPolicy.DROP_OLDEST);
+    }
+
+    private ChannelExecutor(Executor executor, ExecutorService ownedExecutor, int queueCapacity,
+            OverloadPolicy overloadPolicy) {
+        if (queueCapacity <= 0)
+            throw new IllegalArgumentException("queueCapacity must be positive");
+
+        this.executor = executor != null ? executor : ownedExecutor;
+        this.ownedExecutor = ownedExecutor;
+        this.queueCapacity = queueCapacity;
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    private static ExecutorService newDefaultPool() {
+        int number = EXECUTOR_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "channel-executor-" + number + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(DEFAULT_THREADS, factory);
+    }
+
+    /**
+     * Submits a task to a channel.
+     * The task runs after every task previously submitted to the same channel.
+     *
+     * @param channel The channel.
+     * @param task    The task.
+     * @return <code>true</code> if the task was queued, <code>false</code> if it
+     *         was dropped.
+     * @throws RejectedExecutionException If the executor is closed.
+     */
+    public boolean execute(@NonNull String channel, @NonNull Runnable task) {
+        if (closed)
+            throw new RejectedExecutionException("ChannelExecutor is closed.");
+
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(channel, Lane::new);
+            int result = lane.offer(task);
+            if (result != Lane.RETIRED)
+                return result == Lane.QUEUED;
+        }
+    }
+
+    /**
+     * The queue of a channel. A lane is retired, and removed from the lanes,
+     * when its queue is empty; a new lane is then created for the next task of
+     * the channel. Tasks of a retired lane have all run, so order is kept.
+     */
+    private final class Lane implements Runnable {
+        static final int QUEUED = 0;
+        static final int DROPPED = 1;
+        static final int RETIRED = 2;
+
+        private final String channel;
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean retired;
+
+        Lane(String channel) {
+            this.channel = channel;
+        }
+
+        int offer(Runnable task) {
+            synchronized (this) {
+                if (retired)
+                    return RETIRED;
+
+                if (queue.size() >= queueCapacity) {
+                    switch (overloadPolicy) {
+                        case DROP_NEWEST:
+                            dropped.increment();
+                            return DROPPED;
+                        case DROP_OLDEST:
+                            queue.poll();
+                            dropped.increment();
+                            break;
+                        case BLOCK:
+                            try {
+                                while (queue.size() >= queueCapacity && !retired)
+                                    wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                dropped.increment();
+                                return DROPPED;
+                            }
+                            if (retired)
+                                return RETIRED;
+                            break;
+                    }
+                }
+
+                queue.add(task);
+                if (scheduled)
+                    return QUEUED;
+                scheduled = true;
+            }
+
+            schedule();
+            return QUEUED;
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    dropped.add(queue.size());
+                    queue.clear();
+                    retire();
+                }
+            }
+        }
+
+        /**
+         * Retires the lane. Must hold the lock of the lane.
+         */
+        private void retire() {
+            scheduled = false;
+            retired = true;
+            lanes.remove(channel, this);
+            notifyAll();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Runnable task;
+                synchronized (this) {
+                    task = queue.poll();
+                    if (task == null) {
+                        retire();
+                        return;
+                    }
+                    if (overloadPolicy == OverloadPolicy.BLOCK)
+                        notifyAll();
+                }
+
+                try {
+                    task.run();
+                    executed.increment();
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    LOGGER.error("Task of {} failed", channel, e);
+                }
+            }
+            schedule();
+        }
+
+        synchronized int size() {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to run in a channel.
+     *
+     * @param channel The channel.
+     * @return The number of queued tasks.
+     */
+    public int getQueueDepth(@NonNull String channel) {
+        Lane lane = lanes.get(channel);
+        return lane == null ? 0 : lane.size();
+    }
+
+    /**
+     * Returns the number of channels with queued or running tasks.
+     *
+     * @return The number of active channels.
+     */
+    public int getActiveChannelCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Returns the number of tasks run so far.
+     *
+     * @return The number of executed tasks.
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Returns the number of tasks dropped because their channel was overloaded.
+     *
+     * @return The number of dropped tasks.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of tasks which threw an exception.
+     *
+     * @return The number of failed tasks.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Stops accepting tasks. The default pool, if used, is shut down after
+     * running the queued tasks for at most a second.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownedExecutor == null)
+            return;
+
+        ownedExecutor.shutdown();
+        try {
+            ownedExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
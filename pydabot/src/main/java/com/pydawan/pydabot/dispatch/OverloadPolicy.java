@@ -0,0 +1,25 @@
+package com.pydawan.pydabot.dispatch;
+
+/**
+ * What a {@link ChannelExecutor} does with a task submitted to a channel whose
+ * queue is full.
+ */
+public enum OverloadPolicy {
+    /**
+     * The submitted task is dropped.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest queued task of the channel is dropped to make room for the
+     * submitted task.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The caller waits until the queue of the channel has room. Applies back
+     * pressure to the connection reading the events, and so to every channel
+     * of that connection.
+     */
+    BLOCK
+}
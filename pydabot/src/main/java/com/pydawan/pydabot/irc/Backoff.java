@@ -0,0 +1,77 @@
+package com.pydawan.pydabot.irc;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Jittered exponential backoff between reconnection attempts.
+ *
+ * The ceiling of the delay doubles with each attempt, from the minimum delay up
+ * to the maximum delay, and each delay is drawn uniformly between the minimum
+ * delay and the ceiling. The randomness spreads the reconnections of many
+ * clients dropped at once, instead of having them all retry in lockstep.
+ *
+ * Not thread safe: each connection has its own backoff.
+ */
+public final class Backoff {
+
+    /**
+     * The minimum delay, in nanoseconds.
+     */
+    @Getter
+    private final long minNanos;
+
+    /**
+     * The maximum delay, in nanoseconds.
+     */
+    @Getter
+    private final long maxNanos;
+
+    /**
+     * The number of delays drawn since the last reset.
+     */
+    @Getter
+    private int attempts;
+
+    /**
+     * Creates a new Backoff.
+     *
+     * @param min  The minimum delay.
+     * @param max  The maximum delay.
+     * @param unit The unit of the delays.
+     * @throws IllegalArgumentException If the minimum delay is not positive or
+     *                                  is greater than the maximum delay.
+     */
+    public Backoff(long min, long max, @NonNull TimeUnit unit) {
+        if (min <= 0 || min > max)
+            throw new IllegalArgumentException("Delays must satisfy 0 < min <= max");
+
+        this.minNanos = unit.toNanos(min);
+        this.maxNanos = unit.toNanos(max);
+    }
+
+    /**
+     * Returns the delay before the next attempt, and counts the attempt.
+     *
+     * @return The delay, in nanoseconds.
+     */
+    public long nextDelayNanos() {
+        int shift = attempts;
+        if (attempts < Integer.MAX_VALUE)
+            attempts++;
+
+        long ceiling = shift >= Long.numberOfLeadingZeros(minNanos) - 1 ? maxNanos
+                : Math.min(maxNanos, minNanos << shift);
+        return ceiling == minNanos ? minNanos : ThreadLocalRandom.current().nextLong(minNanos, ceiling + 1);
+    }
+
+    /**
+     * Starts again from the minimum delay, after a successful attempt.
+     */
+    public void reset() {
+        attempts = 0;
+    }
+}
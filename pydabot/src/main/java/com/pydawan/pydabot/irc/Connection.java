@@ -0,0 +1,207 @@
+package com.pydawan.pydabot.irc;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.pircbotx.PircBotX;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * One of the connections of a {@link com.pydawan.pydabot.Bot} to the server.
+ * Holds the channels it owns, the channels it still has to join and the
+ * channels it still has to part.
+ */
+public final class Connection {
+
+    /**
+     * The index of the connection in the pool.
+     */
+    @Getter
+    private final int index;
+
+    /**
+     * The underlying bot. Replaced by a new one on each reconnection, since a
+     * bot cannot be started again once it disconnected.
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private volatile PircBotX bot;
+
+    /**
+     * The task running the bot.
+     */
+    @Getter
+    @Setter
+    private volatile Future<?> future;
+
+    /**
+     * Whether the connection is registered to the server and can join channels.
+     */
+    @Getter
+    @Setter
+    private volatile boolean ready;
+
+    /**
+     * The number of times the connection registered to the server.
+     */
+    @Getter
+    private volatile int connectCount;
+
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+    private final ArrayDeque<String> pendingJoins = new ArrayDeque<>();
+    private final ArrayDeque<String> pendingParts = new ArrayDeque<>();
+
+    /**
+     * Creates a new connection.
+     *
+     * @param index The index of the connection in the pool.
+     * @param bot   The underlying bot.
+     */
+    public Connection(int index, @NonNull PircBotX bot) {
+        this.index = index;
+        this.bot = bot;
+    }
+
+    /**
+     * Returns whether the task running the bot is still running.
+     *
+     * @return <code>true</code> if the task is running.
+     */
+    public boolean isAlive() {
+        Future<?> current = future;
+        return current != null && !current.isDone();
+    }
+
+    /**
+     * Marks the connection as registered to the server, and ready to join
+     * channels. Only called from the thread of the underlying bot.
+     */
+    public void connected() {
+        connectCount++;
+        ready = true;
+    }
+
+    /**
+     * Returns the channels owned by this connection, joined or not.
+     *
+     * @return An unmodifiable view of the channels.
+     */
+    public Set<String> getChannels() {
+        return Collections.unmodifiableSet(channels);
+    }
+
+    /**
+     * Assigns a channel to this connection and queues its join.
+     *
+     * @param channel The channel.
+     */
+    public void assign(String channel) {
+        if (channels.add(channel)) {
+            synchronized (pendingJoins) {
+                pendingParts.remove(channel);
+                pendingJoins.add(channel);
+            }
+        }
+    }
+
+    /**
+     * Removes a channel from this connection.
+     *
+     * @param channel The channel.
+     * @return <code>true</code> if the channel was owned by this connection.
+     */
+    public boolean unassign(String channel) {
+        synchronized (pendingJoins) {
+            pendingJoins.remove(channel);
+        }
+        return channels.remove(channel);
+    }
+
+    /**
+     * Removes a channel from this connection and queues its part, if it was
+     * joined or about to be.
+     *
+     * @param channel The channel.
+     * @return <code>true</code> if the channel was owned by this connection.
+     */
+    public boolean unassignAndPart(String channel) {
+        synchronized (pendingJoins) {
+            boolean joining = pendingJoins.remove(channel);
+            if (!channels.remove(channel))
+                return false;
+            if (!joining && !pendingParts.contains(channel))
+                pendingParts.add(channel);
+            return true;
+        }
+    }
+
+    /**
+     * Removes every channel from this connection.
+     *
+     * @return The channels that were owned by this connection.
+     */
+    public Set<String> unassignAll() {
+        Set<String> removed = Set.copyOf(channels);
+        channels.removeAll(removed);
+        synchronized (pendingJoins) {
+            pendingJoins.clear();
+        }
+        return removed;
+    }
+
+    /**
+     * Queues the join of every owned channel again, after a reconnection.
+     */
+    public void requeueJoins() {
+        synchronized (pendingJoins) {
+            pendingJoins.clear();
+            pendingParts.clear();
+            pendingJoins.addAll(channels);
+        }
+    }
+
+    /**
+     * Takes the next channel to join.
+     *
+     * @return The next channel to join, or null if there is none.
+     */
+    public String pollJoin() {
+        synchronized (pendingJoins) {
+            return pendingJoins.poll();
+        }
+    }
+
+    /**
+     * Takes the next channel to part.
+     *
+     * @return The next channel to part, or null if there is none.
+     */
+    public String pollPart() {
+        synchronized (pendingJoins) {
+            return pendingParts.poll();
+        }
+    }
+
+    /**
+     * Returns whether channels are waiting to be joined or parted.
+     *
+     * @return <code>true</code> if channels are waiting to be joined or parted.
+     */
+    public boolean hasPendingJoins() {
+        synchronized (pendingJoins) {
+            return !pendingJoins.isEmpty() || !pendingParts.isEmpty();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "connection-" + index;
+    }
+}
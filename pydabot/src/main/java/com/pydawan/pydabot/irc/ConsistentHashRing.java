@@ -0,0 +1,113 @@
+package com.pydawan.pydabot.irc;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.pydawan.pydabot.util.Hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An immutable consistent hash ring.
+ *
+ * Each member is placed on the ring at several pseudo random points, its
+ * virtual nodes, and a key belongs to the member owning the first point
+ * following the hash of the key. Adding or removing a member only moves the
+ * keys of the affected points, about 1/n of them.
+ *
+ * @param <T> The type of the members. Members are placed according to their
+ *            toString() representation, which must be unique.
+ */
+public final class ConsistentHashRing<T> {
+
+    /**
+     * The default number of virtual nodes of each member.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /**
+     * The members of the ring.
+     */
+    @Getter
+    private final List<T> members;
+
+    private final long[] points;
+    private final Object[] owners;
+
+    /**
+     * Creates a ring over the given members.
+     *
+     * @param members      The members of the ring.
+     * @param virtualNodes The number of points of each member on the ring.
+     */
+    public ConsistentHashRing(@NonNull Collection<? extends T> members, int virtualNodes) {
+        if (virtualNodes <= 0)
+            throw new IllegalArgumentException("virtualNodes must be positive");
+
+        this.members = List.copyOf(members);
+
+        int count = this.members.size() * virtualNodes;
+        long[] entries = new long[count];
+        Object[] entryOwners = new Object[count];
+        Integer[] order = new Integer[count];
+
+        int index = 0;
+        for (T member : this.members) {
+            String name = member.toString();
+            for (int node = 0; node < virtualNodes; node++) {
+                entries[index] = Hashing.hash64(name + '#' + node);
+                entryOwners[index] = member;
+                order[index] = index;
+                index++;
+            }
+        }
+
+        Arrays.sort(order, (a, b) -> Long.compare(entries[a], entries[b]));
+        this.points = new long[count];
+        this.owners = new Object[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = entries[order[i]];
+            owners[i] = entryOwners[order[i]];
+        }
+    }
+
+    /**
+     * Creates a ring over the given members, with the default number of virtual
+     * nodes.
+     *
+     * @param members The members of the ring.
+     */
+    public ConsistentHashRing(@NonNull Collection<? extends T> members) {
+        this(members, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Returns whether the ring has no member.
+     *
+     * @return <code>true</code> if the ring has no member.
+     */
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * Returns the member owning the given key.
+     *
+     * @param key The key.
+     * @return The member owning the key, or null if the ring is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(@NonNull CharSequence key) {
+        if (points.length == 0)
+            return null;
+
+        int index = Arrays.binarySearch(points, Hashing.hash64(key));
+        if (index < 0)
+            index = -index - 1;
+        if (index == points.length)
+            index = 0;
+        return (T) owners[index];
+    }
+}
@@ -1,5 +1,14 @@
 package com.pydawan.pydabot.irc;
 
+import java.util.Map;
+
+import com.pydawan.pydabot.util.Hashing;
+
+import org.pircbotx.Channel;
+import org.pircbotx.hooks.Event;
+import org.pircbotx.hooks.events.MessageEvent;
+import org.pircbotx.hooks.types.GenericChannelEvent;
+
 public class IrcUtils {
     private IrcUtils() {
     }
@@ -7,4 +16,68 @@ public class IrcUtils {
     public static String channelOf(String channelName) {
         return "#" + channelName;
     }
+
+    /**
+     * Returns the name of the given channel with its leading '#', adding it if it
+     * is missing.
+     *
+     * @param channel The name of the channel, with or without its leading '#'.
+     * @return The name of the channel, with its leading '#'.
+     */
+    public static String normalizeChannel(String channel) {
+        return channel.startsWith("#") ? channel : channelOf(channel);
+    }
+
+    /**
+     * Returns the name of the channel of the given event.
+     *
+     * @param event The event.
+     * @return The name of the channel, or null if the event has no channel.
+     */
+    public static String channelNameOf(Event event) {
+        if (!(event instanceof GenericChannelEvent))
+            return null;
+        Channel channel = ((GenericChannelEvent) event).getChannel();
+        return channel == null ? null : channel.getName();
+    }
+
+    /**
+     * Returns whether the sender of a message moderates its channel, according to
+     * the Twitch tags of the message. The broadcaster moderates their channel.
+     *
+     * @param event The message.
+     * @return <code>true</code> if the sender is a moderator or the broadcaster.
+     */
+    public static boolean isModerator(MessageEvent event) {
+        Map<String, String> tags = event.getTags();
+        if ("1".equals(tags.get("mod")))
+            return true;
+        String badges = tags.get("badges");
+        return badges != null && (badges.startsWith("broadcaster/") || badges.contains(",broadcaster/"));
+    }
+
+    /**
+     * Returns the user id of the sender of a message from its Twitch user-id
+     * tag, without allocating, or the hash of their nick if the message has no
+     * valid user-id tag.
+     *
+     * @param event The message.
+     * @return The user id of the sender.
+     */
+    public static long userIdOf(MessageEvent event) {
+        String id = event.getTags().get("user-id");
+        if (id != null && !id.isEmpty() && id.length() <= 18) {
+            long userId = 0;
+            int i = 0;
+            for (; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9')
+                    break;
+                userId = userId * 10 + c - '0';
+            }
+            if (i == id.length())
+                return userId;
+        }
+        return Hashing.hash64(event.getUser().getNick());
+    }
 }
@@ -1,80 +1,222 @@
 package com.pydawan.pydabot.listeners;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import com.pydawan.pydabot.Arguments;
+import com.pydawan.pydabot.ArgumentsCommand;
 import com.pydawan.pydabot.Command;
+import com.pydawan.pydabot.cooldown.CooldownEngine;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.parsing.CommandTrie;
+import com.pydawan.pydabot.parsing.ParsedMessage;
 
-import org.javatuples.Pair;
 import org.pircbotx.hooks.ListenerAdapter;
 import org.pircbotx.hooks.events.MessageEvent;
 
 import lombok.NonNull;
+import lombok.Setter;
+
+import static com.pydawan.pydabot.parsing.Chars.isWhitespace;
+import static com.pydawan.pydabot.parsing.Chars.skipWhitespace;
 
 /**
  * A generic listener for parsing commands.
  * Parses each message and calls the appropriate command.
- * 
- * Commands are defined by the given regex: ^!(\\w+)(?:\\s+(.*))?
+ *
+ * Commands follow the grammar of the regex: ^\\s*!(\\w+)(?:\\s+(.*))?
  * The first group is the command name, the second group is the arguments.
  * Each command starts with an ! and each part of the command is separated by
  * whitespaces.
+ *
+ * Messages are parsed by hand: a message that does not start with the prefix
+ * is rejected after reading its leading whitespaces, and the command name is
+ * resolved without allocating a substring when the commands are given as a
+ * map. Only messages that resolve to a command get an {@link Arguments} view,
+ * and the arguments are only split if the command reads them.
+ *
+ * As a {@link MessageStage}, it uses the tokens and arguments found by the
+ * pipeline instead, but still recognizes commands by its own prefix.
+ *
+ * The outbound scheduler given to the listener is given to every command of
+ * its map that sends its answers through one.
  */
-public class CommandListener extends ListenerAdapter {
+public class CommandListener extends ListenerAdapter implements MessageStage, OutboundAware {
 
     /**
-     * A regex representing a command.
-     * The first group is the command names. The second group is the arguments.
-     * Commands starts with a '!'. Arguments are splitted by spaces.
-     * Examples of Strings matched by the regex:
+     * The character every command starts with.
+     * Examples of commands:
      * - !command arg1 arg2
      * - !command arg1 arg2 arg3
      * - !command
      */
-    private static final Pattern COMMAND_REGEX = Pattern.compile("^!(\\w+)(?:\\s+(.*))?");
+    private static final String PREFIX = "!";
+
+    /**
+     * Resolves the command whose name is a region of a message.
+     */
+    @FunctionalInterface
+    private interface CommandResolver {
+        ArgumentsCommand resolve(String message, int start, int end);
+    }
+
+    /**
+     * Resolves a command name to the corresponding command.
+     */
+    private final CommandResolver commandMap;
+
+    /**
+     * The commands sending their answers through an outbound scheduler.
+     */
+    private final List<OutboundAware> outboundAware;
 
     /**
-     * A function that takes a command name and returns the corresponding command.
+     * The cooldowns of the commands. An invocation in cooldown is ignored. If
+     * null, every invocation is handled.
      */
-    private final Function<String, Command> commandMap;
+    @Setter
+    private volatile CooldownEngine cooldowns;
 
     /**
      * Creates a new CommandListener.
-     * 
+     *
+     * The name of each command is materialized as a String before being given to
+     * the function. Prefer {@link #CommandListener(Map)} when the commands are
+     * known in advance.
+     *
      * @param commandMap A function that takes a command name and returns the
      *                   corresponding command.
      */
     public CommandListener(@NonNull Function<String, Command> commandMap) {
+        this.commandMap = (message, start, end) -> {
+            Command command = commandMap.apply(message.substring(start, end));
+            return command == null ? null : ArgumentsCommand.of(command);
+        };
+        this.outboundAware = List.of();
+    }
+
+    /**
+     * Creates a new CommandListener for the given commands.
+     * The commands are compiled into a trie, so resolving a command name does not
+     * allocate.
+     *
+     * @param commands A map of command names to commands.
+     * @throws IllegalArgumentException If a command name is not made of word
+     *                                  characters.
+     */
+    public CommandListener(@NonNull Map<String, Command> commands) {
+        Map<String, ArgumentsCommand> adapted = new HashMap<>();
+        commands.forEach((name, command) -> adapted.put(name, ArgumentsCommand.of(command)));
+        this.commandMap = new CommandTrie<>(adapted)::get;
+        this.outboundAware = outboundAware(commands.values());
+    }
+
+    private CommandListener(CommandResolver commandMap, List<OutboundAware> outboundAware) {
         this.commandMap = commandMap;
+        this.outboundAware = outboundAware;
+    }
+
+    private static List<OutboundAware> outboundAware(Iterable<?> commands) {
+        List<OutboundAware> aware = new ArrayList<>();
+        for (Object command : commands)
+            if (command instanceof OutboundAware)
+                aware.add((OutboundAware) command);
+        return List.copyOf(aware);
     }
 
     /**
-     * A function that takes a message as argument and parses it as a command.
-     * Returns a Pair of the command name and the arguments.
+     * Creates a new CommandListener for commands reading their arguments through
+     * an {@link Arguments} view.
+     * The commands are compiled into a trie, so resolving a command name does not
+     * allocate.
+     *
+     * @param commands A map of command names to commands.
+     * @return A new CommandListener.
+     * @throws IllegalArgumentException If a command name is not made of word
+     *                                  characters.
      */
-    private static final Pair<String, String[]> parseCommand(String message) throws IndexOutOfBoundsException {
-        Matcher matcher = COMMAND_REGEX.matcher(message);
+    public static CommandListener withArguments(@NonNull Map<String, ArgumentsCommand> commands) {
+        CommandTrie<ArgumentsCommand> trie = new CommandTrie<>(commands);
+        return new CommandListener((CommandResolver) trie::get, outboundAware(commands.values()));
+    }
 
-        if (!matcher.matches())
-            return null;
+    /**
+     * Creates a new CommandListener for commands reading their arguments through
+     * an {@link Arguments} view.
+     *
+     * @param commandMap A function that takes a command name and returns the
+     *                   corresponding command.
+     * @return A new CommandListener.
+     */
+    public static CommandListener withArguments(@NonNull Function<String, ArgumentsCommand> commandMap) {
+        return new CommandListener(
+                (CommandResolver) (message, start, end) -> commandMap.apply(message.substring(start, end)),
+                List.of());
+    }
 
-        return new Pair<>(matcher.group(1), matcher.group(2).split("\\s"));
+    /**
+     * Gives the scheduler to every command of the map that sends its answers
+     * through one. Commands resolved by a function are not given it.
+     *
+     * @param outbound The scheduler, or null to send answers directly.
+     */
+    @Override
+    public void setOutbound(OutboundScheduler outbound) {
+        for (OutboundAware command : outboundAware)
+            command.setOutbound(outbound);
     }
 
     @Override
     public void onMessage(MessageEvent event) {
         String message = event.getMessage();
-        Pair<String, String[]> command = parseCommand(message);
 
-        if (command == null)
+        int nameStart = skipWhitespace(message, 0);
+        if (!message.startsWith(PREFIX, nameStart))
+            return;
+        nameStart += PREFIX.length();
+
+        int nameEnd = CommandTrie.wordEnd(message, nameStart);
+        if (nameEnd == nameStart)
+            return;
+        if (nameEnd < message.length() && !isWhitespace(message.charAt(nameEnd)))
             return;
 
-        Command cmd = commandMap.apply(command.getValue0());
+        ArgumentsCommand cmd = commandMap.resolve(message, nameStart, nameEnd);
 
-        if (cmd == null)
+        if (cmd == null || !isReady(event, message, nameStart, nameEnd))
             return;
 
-        cmd.accept(event, command.getValue1());
+        cmd.accept(event, new Arguments(message, nameEnd));
+    }
+
+    @Override
+    public boolean handle(MessageEvent event, ParsedMessage message) {
+        message = message.withPrefix(PREFIX);
+        if (!message.isCommand())
+            return true;
+
+        int start = message.getCommandStart();
+        int end = message.getCommandEnd();
+        if (CommandTrie.wordEnd(message.getMessage(), start) != end)
+            return true;
+
+        ArgumentsCommand cmd = commandMap.resolve(message.getMessage(), start, end);
+
+        if (cmd != null && isReady(event, message.getMessage(), start, end))
+            cmd.accept(event, message.getArguments());
+        return true;
+    }
+
+    /**
+     * Returns whether the command whose name is a region of the message is not in
+     * cooldown, and starts its cooldown if so.
+     */
+    private boolean isReady(MessageEvent event, String message, int start, int end) {
+        CooldownEngine cooldowns = this.cooldowns;
+        return cooldowns == null || cooldowns.tryAcquire(event, message, start, end);
     }
 }
@@ -0,0 +1,125 @@
+package com.pydawan.pydabot.listeners;
+
+import java.io.IOException;
+
+import com.pydawan.pydabot.Arguments;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.parsing.CommandTrie;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+import com.pydawan.pydabot.store.CommandStore;
+
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.MessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import static com.pydawan.pydabot.irc.IrcUtils.isModerator;
+
+/**
+ * A listener letting the moderators of a channel edit its custom commands.
+ *
+ * - !addcom name response adds or replaces the command !name of the channel.
+ * - !delcom name removes it.
+ *
+ * Commands are written to a {@link CommandStore}, and are answered by a
+ * {@link SimpleCommandListener} reading from the same store. Messages of users
+ * who do not moderate the channel are ignored.
+ */
+public class CustomCommandEditor extends ListenerAdapter implements MessageStage, OutboundAware {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomCommandEditor.class);
+
+    /**
+     * The name of the command adding a command.
+     */
+    public static final String ADD = "addcom";
+
+    /**
+     * The name of the command removing a command.
+     */
+    public static final String REMOVE = "delcom";
+
+    /**
+     * The store of the commands.
+     */
+    @Getter
+    private final CommandStore store;
+
+    private final String prefix;
+
+    /**
+     * The scheduler through which confirmations are sent with the
+     * {@link Priority#COMMAND} priority. If null, confirmations are sent
+     * directly.
+     */
+    @Setter
+    private volatile OutboundScheduler outbound;
+
+    /**
+     * Creates a new CustomCommandEditor.
+     *
+     * @param store  The store of the commands.
+     * @param prefix The prefix of the commands.
+     */
+    public CustomCommandEditor(@NonNull CommandStore store, @NonNull String prefix) {
+        this.store = store;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        handle(event, ParsedMessage.parse(event.getMessage(), prefix));
+    }
+
+    @Override
+    public boolean handle(MessageEvent event, ParsedMessage message) {
+        message = message.withPrefix(prefix);
+        if (!message.isCommand())
+            return true;
+
+        String command = message.getCommandName();
+        boolean add = command.equals(ADD);
+        if (!add && !command.equals(REMOVE) || !isModerator(event))
+            return true;
+
+        Arguments arguments = message.getArguments();
+        String name = arguments.isEmpty() ? "" : nameOf(arguments.getString(0));
+        if (name.isEmpty() || CommandTrie.wordEnd(name, 0) != name.length()
+                || name.length() > CommandStore.MAX_KEY_LENGTH || (add && !arguments.has(1))) {
+            respond(event, add ? "Usage: " + prefix + ADD + " name response" : "Usage: " + prefix + REMOVE + " name");
+            return false;
+        }
+
+        String channel = event.getChannel().getName();
+        try {
+            if (add) {
+                String response = event.getMessage().substring(arguments.startOf(1)).strip();
+                boolean replaced = store.put(channel, name, response);
+                respond(event, "Command " + prefix + name + (replaced ? " updated." : " added."));
+            } else {
+                boolean removed = store.remove(channel, name);
+                respond(event, removed ? "Command " + prefix + name + " removed." : "No command " + prefix + name + ".");
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot save command {} of {}", name, channel, e);
+            respond(event, "Cannot save command " + prefix + name + ".");
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of a command without its prefix, if given with one.
+     */
+    private String nameOf(String argument) {
+        return argument.startsWith(prefix) ? argument.substring(prefix.length()) : argument;
+    }
+
+    private void respond(MessageEvent event, String response) {
+        OutboundScheduler.respond(outbound, event, response, Priority.COMMAND);
+    }
+}
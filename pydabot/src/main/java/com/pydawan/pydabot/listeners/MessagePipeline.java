@@ -0,0 +1,96 @@
+package com.pydawan.pydabot.listeners;
+
+import java.util.List;
+
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A listener that parses each message once and hands it to ordered stages.
+ *
+ * Registering a single pipeline instead of one listener per feature means the
+ * message is tokenized and classified once, whatever the number of stages.
+ * Stages run in order, typically moderation first and then commands, and any
+ * stage can stop the pipeline, for instance when a message has been moderated.
+ */
+public class MessagePipeline extends ListenerAdapter implements OutboundAware {
+
+    /**
+     * The prefix commands start with.
+     */
+    @Getter
+    private final String prefix;
+
+    private final MessageStage[] stages;
+
+    /**
+     * Creates a new MessagePipeline.
+     *
+     * @param prefix The prefix commands start with.
+     * @param stages The stages of the pipeline, in the order they run.
+     */
+    public MessagePipeline(@NonNull String prefix, @NonNull List<? extends MessageStage> stages) {
+        this.prefix = prefix;
+        this.stages = stages.toArray(new MessageStage[0]);
+    }
+
+    /**
+     * Creates a new MessagePipeline.
+     *
+     * @param prefix The prefix commands start with.
+     * @param stages The stages of the pipeline, in the order they run.
+     */
+    public MessagePipeline(@NonNull String prefix, @NonNull MessageStage... stages) {
+        this(prefix, List.of(stages));
+    }
+
+    /**
+     * Returns the stages of the pipeline.
+     *
+     * @return An unmodifiable list of the stages, in the order they run.
+     */
+    public List<MessageStage> getStages() {
+        return List.of(stages);
+    }
+
+    /**
+     * Gives the scheduler to every stage that sends its messages through one.
+     *
+     * @param outbound The scheduler, or null to send messages directly.
+     */
+    @Override
+    public void setOutbound(OutboundScheduler outbound) {
+        for (MessageStage stage : stages)
+            if (stage instanceof OutboundAware)
+                ((OutboundAware) stage).setOutbound(outbound);
+    }
+
+    /**
+     * Parses the given message and runs it through the stages.
+     *
+     * @param event The event of the message.
+     * @return <code>true</code> if every stage handled the message,
+     *         <code>false</code> if a stage stopped the pipeline.
+     * @throws Exception If a stage fails to handle the message.
+     */
+    public boolean process(MessageEvent event) throws Exception {
+        ParsedMessage message = ParsedMessage.parse(event.getMessage(), prefix);
+
+        for (MessageStage stage : stages)
+            if (!stage.handle(event, message))
+                return false;
+        return true;
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) throws Exception {
+        process(event);
+    }
+}
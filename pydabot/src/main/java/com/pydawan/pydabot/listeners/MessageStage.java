@@ -0,0 +1,25 @@
+package com.pydawan.pydabot.listeners;
+
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
+import org.pircbotx.hooks.events.MessageEvent;
+
+/**
+ * A stage of a {@link MessagePipeline}.
+ * Each stage consumes a message that has already been parsed, and decides
+ * whether the following stages should see it.
+ */
+@FunctionalInterface
+public interface MessageStage {
+
+    /**
+     * Handles the given message.
+     *
+     * @param event   The event of the message.
+     * @param message The parsed message.
+     * @return <code>true</code> if the following stages should handle the
+     *         message, <code>false</code> to stop the pipeline.
+     * @throws Exception If the stage fails to handle the message.
+     */
+    boolean handle(MessageEvent event, ParsedMessage message) throws Exception;
+}
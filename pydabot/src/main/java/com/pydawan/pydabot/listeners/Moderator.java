@@ -6,23 +6,57 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.moderation.ConfusableFolder;
+import com.pydawan.pydabot.moderation.SeverityEscalator;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.parsing.ParsedMessage;
 
 import org.pircbotx.hooks.ListenerAdapter;
 import org.pircbotx.hooks.events.MessageEvent;
 
 import lombok.NonNull;
+import lombok.Setter;
 
 /**
  * A generic listener for moderating messages.
  * Takes a function that takes a message event and returns a severity.
  * Then, it will respond with a message based on the severity given
  * a second function. This function might return null if no response is needed.
+ *
+ * As a {@link MessageStage}, it stops the pipeline when a message is not
+ * {@link Severity#SAFE}, so moderated messages are not handled as commands.
  */
-public class Moderator extends ListenerAdapter {
+public class Moderator extends ListenerAdapter implements MessageStage, OutboundAware {
 
     private final BiFunction<String, Severity, String> responseOfSeverity;
     private final Function<String, Severity> severityOf;
 
+    /**
+     * The scheduler through which responses are sent with the
+     * {@link Priority#MODERATION} priority. If null, responses are sent directly.
+     */
+    @Setter
+    private volatile OutboundScheduler outbound;
+
+    /**
+     * Raises the severity of the text of a message according to its context,
+     * such as the rate at which its sender writes. It is given the text folded
+     * by the folder. If null, the severity of a message is the severity of its
+     * text.
+     */
+    @Setter
+    private volatile SeverityEscalator escalator;
+
+    /**
+     * Folds the text of messages before their severity is computed, so that
+     * look alike characters do not evade the severity function. If null, the
+     * severity function receives the text as is.
+     */
+    @Setter
+    private volatile ConfusableFolder folder = ConfusableFolder.getDefault();
+
     /**
      * Constructs a new Moderator.
      * The moderator is a listener that responds to messages based on the severity
@@ -50,7 +84,9 @@ public class Moderator extends ListenerAdapter {
      * 
      * @param severityOf         A function that takes a message and returns the
      *                           severity of the message. The function must not
-     *                           return null.
+     *                           return null. Wrap it in a {@link com.pydawan.pydabot.moderation.VerdictCache} to
+     *                           avoid recomputing the severity of repeated
+     *                           messages.
      * @param responseOfSeverity A map of severities to responses. Responses should
      *                           contain a "%s" placeholder for the name of the
      *                           user. The map might contain null values.
@@ -58,23 +94,42 @@ public class Moderator extends ListenerAdapter {
     public Moderator(
             @NonNull Function<String, Severity> severityOf,
             @NonNull Map<Severity, String> responseOfSeverity) {
-        this(severityOf, (user, severity) -> responseOfSeverity.get(severity).formatted(user));
+        this(severityOf, (user, severity) -> {
+            String template = responseOfSeverity.get(severity);
+            return template == null ? null : template.formatted(user);
+        });
     }
 
     /**
      * Moderates the given message.
-     * First computes the severity of the message.
+     * First computes the severity of the message, folded by the folder if any,
+     * and escalated by the escalator if any.
      * Then computes a response based on the severity.
      * If the response is not null, it will respond with the response.
      * 
      * @param event The message event to moderate.
+     * @return The severity of the message.
      */
-    public void moderate(MessageEvent event) {
-        String message = event.getMessage();
+    public Severity moderate(MessageEvent event) {
+        return moderate(event, event.getMessage());
+    }
+
+    private Severity moderate(MessageEvent event, String message) {
+        ConfusableFolder folder = this.folder;
+        if (folder != null)
+            message = folder.fold(message);
         String sender = event.getUser().getNick();
         Severity severity = severityOf.apply(message);
+        SeverityEscalator escalator = this.escalator;
+        if (escalator != null)
+            severity = escalator.escalate(event, message, severity);
         Optional.ofNullable(responseOfSeverity.apply(sender, severity))
-                .ifPresent(event::respond);
+                .ifPresent(response -> respond(event, response));
+        return severity;
+    }
+
+    private void respond(MessageEvent event, String response) {
+        OutboundScheduler.respond(outbound, event, response, Priority.MODERATION);
     }
 
     @Override
@@ -82,4 +137,8 @@ public class Moderator extends ListenerAdapter {
         moderate(event);
     }
 
+    @Override
+    public boolean handle(MessageEvent event, ParsedMessage message) {
+        return moderate(event, message.getMessage()) == Severity.SAFE;
+    }
 }
@@ -2,22 +2,57 @@ package com.pydawan.pydabot.listeners;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
+import com.pydawan.pydabot.cooldown.CooldownEngine;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
 import org.pircbotx.hooks.ListenerAdapter;
 import org.pircbotx.hooks.events.MessageEvent;
 
+import lombok.NonNull;
+import lombok.Setter;
+
+import static com.pydawan.pydabot.parsing.Chars.skipWhitespace;
+import static com.pydawan.pydabot.parsing.Chars.tokenEnd;
+
 /**
  * A listener that handles simple commands.
  * This is used to handle commands that do not require arguments.
  * 
  * A command is of the form [prefix][command] ...
+ *
+ * Leading whitespaces are ignored, and the command name ends at the first
+ * whitespace. As a {@link MessageStage}, it reuses the tokens of the pipeline
+ * but still recognizes commands by its own prefix.
+ *
+ * The commands can be replaced while messages are handled: each message is
+ * answered with either the old or the new commands, never a mix of both.
  */
-public class SimpleCommandListener extends ListenerAdapter {
-    private static final String SPLIT = " ";
+public class SimpleCommandListener extends ListenerAdapter implements MessageStage, OutboundAware {
     private final String prefix;
 
-    private final Function<String, String> mapping;
+    private volatile BiFunction<String, String, String> mapping;
+
+    /**
+     * The scheduler through which responses are sent with the
+     * {@link Priority#COMMAND} priority. If null, responses are sent directly.
+     */
+    @Setter
+    private volatile OutboundScheduler outbound;
+
+    /**
+     * The cooldowns of the commands. An invocation in cooldown is ignored, and
+     * only the commands this listener handles start a cooldown, so listeners of
+     * different commands can share the cooldowns. If null, every invocation is
+     * answered.
+     */
+    @Setter
+    private volatile CooldownEngine cooldowns;
 
     /**
      * Creates a new SimpleCommandListener for the given commands.
@@ -26,7 +61,21 @@ public class SimpleCommandListener extends ListenerAdapter {
      *                corresponding command.
      * @param prefix  - The prefix of the commands.
      */
-    public SimpleCommandListener(Function<String, String> mapping, String prefix) {
+    public SimpleCommandListener(@NonNull Function<String, String> mapping, String prefix) {
+        this.mapping = (channel, command) -> mapping.apply(command);
+        this.prefix = prefix;
+    }
+
+    /**
+     * Creates a new SimpleCommandListener for commands depending on the channel,
+     * such as the custom commands of a
+     * {@link com.pydawan.pydabot.store.CommandStore}.
+     * 
+     * @param mapping - A function that takes a channel and a command name and
+     *                returns the corresponding command.
+     * @param prefix  - The prefix of the commands.
+     */
+    public SimpleCommandListener(@NonNull BiFunction<String, String, String> mapping, String prefix) {
         this.mapping = mapping;
         this.prefix = prefix;
     }
@@ -41,25 +90,79 @@ public class SimpleCommandListener extends ListenerAdapter {
         this(map::get, prefix);
     }
 
+    /**
+     * Replaces the commands.
+     *
+     * @param mapping A function that takes a command name and returns the
+     *                corresponding command.
+     */
+    public void setMapping(@NonNull Function<String, String> mapping) {
+        this.mapping = (channel, command) -> mapping.apply(command);
+    }
+
+    /**
+     * Replaces the commands with a copy of the given map.
+     *
+     * @param map A map of command names to commands.
+     */
+    public void setCommands(@NonNull Map<String, String> map) {
+        setMapping(Map.copyOf(map)::get);
+    }
+
     /**
      * Returns the response for the given command.
      * 
+     * @param event   - The message of the command.
      * @param command - The command to handle.
      * @return The response for the given command. The response is empty if the
      *         command is not handled.
      */
-    private Optional<String> getResponse(String command) {
-        return Optional.ofNullable(mapping.apply(command));
+    private Optional<String> getResponse(MessageEvent event, String command) {
+        return Optional.ofNullable(mapping.apply(event.getChannel().getName(), command));
+    }
+
+    private void respond(MessageEvent event, String response) {
+        OutboundScheduler.respond(outbound, event, response, Priority.COMMAND);
     }
 
     @Override
     public void onMessage(MessageEvent event) {
         String message = event.getMessage();
-        String command = message.stripLeading().split(SPLIT)[0];
+        int start = skipWhitespace(message, 0);
+        int end = tokenEnd(message, start);
+
+        if (end - start <= prefix.length() || !message.startsWith(prefix, start))
+            return;
+
+        answer(event, message, start + prefix.length(), end);
+    }
 
-        if (!command.startsWith(prefix)) return;
-        
-        final String commandName = command.substring(prefix.length());
-        getResponse(commandName).ifPresent(event::respond);
+    @Override
+    public boolean handle(MessageEvent event, ParsedMessage message) {
+        message = message.withPrefix(prefix);
+        if (message.isCommand())
+            answer(event, message.getMessage(), message.getCommandStart(), message.getCommandEnd());
+        return true;
+    }
+
+    /**
+     * Answers the command whose name is a region of the message, if it is
+     * handled and not in cooldown. The response is resolved first, so unknown
+     * commands, such as the commands of another listener, start no cooldown.
+     */
+    private void answer(MessageEvent event, String message, int start, int end) {
+        getResponse(event, message.substring(start, end)).ifPresent(response -> {
+            if (isReady(event, message, start, end))
+                respond(event, response);
+        });
+    }
+
+    /**
+     * Returns whether the command whose name is a region of the text is not in
+     * cooldown, and starts its cooldown if so.
+     */
+    private boolean isReady(MessageEvent event, CharSequence text, int start, int end) {
+        CooldownEngine cooldowns = this.cooldowns;
+        return cooldowns == null || cooldowns.tryAcquire(event, text, start, end);
     }
 }
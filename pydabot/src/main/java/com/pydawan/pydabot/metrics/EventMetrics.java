@@ -0,0 +1,98 @@
+package com.pydawan.pydabot.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * The metrics of the events handled by a listener, or in a channel.
+ */
+public final class EventMetrics implements EventMetricsMXBean {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * The name of the listener or of the channel.
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * The time taken to handle the events.
+     */
+    @Getter
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder outbound = new LongAdder();
+
+    /**
+     * Creates new metrics.
+     *
+     * @param name The name of the listener or of the channel.
+     */
+    public EventMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records the handling of an event.
+     *
+     * @param nanos  The time taken to handle the event, in nanoseconds.
+     * @param failed Whether handling the event threw an exception.
+     */
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        events.increment();
+        if (failed)
+            exceptions.increment();
+    }
+
+    /**
+     * Records an outbound message.
+     */
+    public void recordOutbound() {
+        outbound.increment();
+    }
+
+    @Override
+    public long getEventCount() {
+        return events.sum();
+    }
+
+    @Override
+    public long getExceptionCount() {
+        return exceptions.sum();
+    }
+
+    @Override
+    public long getOutboundCount() {
+        return outbound.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getPercentile(0.5) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getPercentile(0.99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getPercentile(0.999) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMax() / NANOS_PER_MICRO;
+    }
+}
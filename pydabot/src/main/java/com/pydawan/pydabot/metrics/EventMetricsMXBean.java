@@ -0,0 +1,25 @@
+package com.pydawan.pydabot.metrics;
+
+/**
+ * The JMX view of {@link EventMetrics}.
+ */
+public interface EventMetricsMXBean {
+
+    String getName();
+
+    long getEventCount();
+
+    long getExceptionCount();
+
+    long getOutboundCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
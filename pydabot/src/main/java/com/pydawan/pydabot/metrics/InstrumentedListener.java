@@ -0,0 +1,78 @@
+package com.pydawan.pydabot.metrics;
+
+import org.pircbotx.hooks.Event;
+import org.pircbotx.hooks.Listener;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import static com.pydawan.pydabot.irc.IrcUtils.channelNameOf;
+
+/**
+ * A listener recording the events handled by another listener, and the time
+ * it took, in the metrics of the listener and of the channel of each event.
+ *
+ * While the listener runs, its metrics are the current metrics of the thread,
+ * so the messages it sends are counted for it.
+ */
+public class InstrumentedListener implements Listener {
+
+    private static final ThreadLocal<EventMetrics> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The instrumented listener.
+     */
+    @Getter
+    private final Listener listener;
+
+    /**
+     * The metrics of the instrumented listener.
+     */
+    @Getter
+    private final EventMetrics metrics;
+
+    private final MetricsRegistry registry;
+
+    /**
+     * Creates a new InstrumentedListener.
+     *
+     * @param listener The listener to instrument.
+     * @param name     The name of the listener in the metrics.
+     * @param registry The registry of the metrics.
+     */
+    public InstrumentedListener(@NonNull Listener listener, @NonNull String name, @NonNull MetricsRegistry registry) {
+        this.listener = listener;
+        this.metrics = registry.listener(name);
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the metrics of the listener running on the current thread.
+     *
+     * @return The metrics of the listener, or null if no instrumented listener is
+     *         running.
+     */
+    static EventMetrics current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public void onEvent(Event event) throws Exception {
+        String channel = channelNameOf(event);
+        EventMetrics previous = CURRENT.get();
+        CURRENT.set(metrics);
+
+        boolean failed = true;
+        long start = System.nanoTime();
+        try {
+            listener.onEvent(event);
+            failed = false;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            CURRENT.set(previous);
+            metrics.record(elapsed, failed);
+            if (channel != null)
+                registry.channel(channel).record(elapsed, failed);
+        }
+    }
+}
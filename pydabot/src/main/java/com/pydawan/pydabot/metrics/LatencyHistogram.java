@@ -0,0 +1,142 @@
+package com.pydawan.pydabot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of latencies, in nanoseconds.
+ *
+ * Latencies are counted in log-linear buckets: each power of two is split in
+ * 16 buckets, so percentiles are reported within about 6% of the recorded
+ * values. Latencies of 2^36 nanoseconds or more, about 68 seconds, share an
+ * overflow bucket of their own. Recording a latency does not allocate, and never blocks.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+
+    /**
+     * The number of buckets of a histogram.
+     */
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + 1;
+
+    private static final int OVERFLOW = BUCKETS - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Returns the bucket of the given latency.
+     */
+    static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT)
+            return OVERFLOW;
+
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the highest latency counted in the given bucket.
+     */
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        if (index == OVERFLOW)
+            return Long.MAX_VALUE;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency, in nanoseconds. Negative latencies are recorded
+     *              as zero.
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        counts.incrementAndGet(indexOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        if (nanos > max.get())
+            max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return The number of recorded latencies.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of the recorded latencies.
+     *
+     * @return The sum of the recorded latencies, in nanoseconds.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return The highest recorded latency, in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     *
+     * @return The mean latency, in nanoseconds, or 0 if no latency was recorded.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /**
+     * Returns the latency below which the given fraction of the recorded
+     * latencies fall.
+     *
+     * @param quantile The fraction, between 0 and 1, such as 0.99.
+     * @return The latency, in nanoseconds, or 0 if no latency was recorded.
+     */
+    public long getPercentile(double quantile) {
+        if (quantile < 0 || quantile > 1)
+            throw new IllegalArgumentException("quantile must be between 0 and 1");
+
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += counts.get(i);
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+}
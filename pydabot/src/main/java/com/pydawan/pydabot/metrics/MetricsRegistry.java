@@ -0,0 +1,189 @@
+package com.pydawan.pydabot.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * The metrics of a bot: events handled by each listener and in each channel,
+ * outbound messages, connection failures and reconnections.
+ */
+public class MetricsRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    /**
+     * The domain of the MBeans registered by {@link #registerMBeans()}.
+     */
+    public static final String JMX_DOMAIN = "com.pydawan.pydabot";
+
+    private final ConcurrentHashMap<String, EventMetrics> listeners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, EventMetrics> channels = new ConcurrentHashMap<>();
+    private final LongAdder connectionFailures = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+
+    /**
+     * The scheduler of the outbound messages, whose metrics are exported too.
+     */
+    @Getter
+    @Setter
+    private volatile OutboundScheduler outbound;
+
+    private volatile MBeanServer mbeanServer;
+
+    /**
+     * Returns the metrics of a listener, creating them if needed.
+     *
+     * @param name The name of the listener.
+     * @return The metrics of the listener.
+     */
+    public EventMetrics listener(@NonNull String name) {
+        EventMetrics metrics = listeners.get(name);
+        return metrics != null ? metrics : create(listeners, "Listener", name);
+    }
+
+    /**
+     * Returns the metrics of a channel, creating them if needed.
+     *
+     * @param name The name of the channel.
+     * @return The metrics of the channel.
+     */
+    public EventMetrics channel(@NonNull String name) {
+        EventMetrics metrics = channels.get(name);
+        return metrics != null ? metrics : create(channels, "Channel", name);
+    }
+
+    private EventMetrics create(ConcurrentHashMap<String, EventMetrics> map, String type, String name) {
+        EventMetrics created = new EventMetrics(name);
+        EventMetrics existing = map.putIfAbsent(name, created);
+        if (existing != null)
+            return existing;
+
+        MBeanServer server = mbeanServer;
+        if (server != null)
+            register(server, type, name, created);
+        return created;
+    }
+
+    /**
+     * Returns the metrics of the listeners.
+     *
+     * @return An unmodifiable view of the metrics of the listeners.
+     */
+    public Collection<EventMetrics> getListeners() {
+        return Collections.unmodifiableCollection(listeners.values());
+    }
+
+    /**
+     * Returns the metrics of the channels.
+     *
+     * @return An unmodifiable view of the metrics of the channels.
+     */
+    public Collection<EventMetrics> getChannels() {
+        return Collections.unmodifiableCollection(channels.values());
+    }
+
+    /**
+     * Records an outbound message, for its channel and for the listener sending
+     * it, if any.
+     *
+     * @param target The channel or user the message is sent to.
+     */
+    public void recordOutbound(@NonNull String target) {
+        if (target.startsWith("#"))
+            channel(target).recordOutbound();
+
+        EventMetrics sender = InstrumentedListener.current();
+        if (sender != null)
+            sender.recordOutbound();
+    }
+
+    /**
+     * Records the failure of a connection.
+     */
+    public void recordConnectionFailure() {
+        connectionFailures.increment();
+    }
+
+    /**
+     * Returns the number of connection failures.
+     *
+     * @return The number of connection failures.
+     */
+    public long getConnectionFailureCount() {
+        return connectionFailures.sum();
+    }
+
+    /**
+     * Records an attempt to reconnect a connection.
+     */
+    public void recordReconnect() {
+        reconnects.increment();
+    }
+
+    /**
+     * Returns the number of attempts to reconnect a connection.
+     *
+     * @return The number of reconnections.
+     */
+    public long getReconnectCount() {
+        return reconnects.sum();
+    }
+
+    /**
+     * Registers the metrics, and the metrics created later, in the platform
+     * MBean server.
+     *
+     * @throws IllegalStateException If the metrics cannot be registered.
+     */
+    public synchronized void registerMBeans() {
+        if (mbeanServer != null)
+            return;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        OutboundScheduler outbound = this.outbound;
+        if (outbound != null) {
+            try {
+                server.registerMBean(outbound, new ObjectName(JMX_DOMAIN + ":type=Outbound"));
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot register the outbound metrics", e);
+            }
+        }
+
+        mbeanServer = server;
+        listeners.forEach((name, metrics) -> register(server, "Listener", name, metrics));
+        channels.forEach((name, metrics) -> register(server, "Channel", name, metrics));
+    }
+
+    /**
+     * Registers metrics in the MBean server. Metrics which are already registered
+     * are ignored, and metrics which cannot be registered are logged and skipped.
+     */
+    private static void register(MBeanServer server, String type, String name, EventMetrics metrics) {
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName))
+                server.registerMBean(metrics, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.debug("The metrics of {} {} were registered concurrently", type.toLowerCase(), name);
+        } catch (JMException e) {
+            LOGGER.warn("Cannot register the metrics of {} {}", type.toLowerCase(), name, e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.pydawan.pydabot.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An HTTP endpoint exporting the metrics of a {@link MetricsRegistry} in the
+ * Prometheus text format, at /metrics.
+ */
+public class PrometheusExporter implements AutoCloseable {
+
+    /**
+     * The content type of the Prometheus text format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    @Getter
+    private final MetricsRegistry registry;
+
+    @Getter
+    private final InetSocketAddress address;
+
+    private HttpServer server;
+
+    /**
+     * Creates a new PrometheusExporter.
+     *
+     * @param registry The metrics to export.
+     * @param address  The address to listen to.
+     */
+    public PrometheusExporter(@NonNull MetricsRegistry registry, @NonNull InetSocketAddress address) {
+        this.registry = registry;
+        this.address = address;
+    }
+
+    /**
+     * Starts listening.
+     *
+     * @throws IOException If the server cannot listen to the address.
+     */
+    public synchronized void start() throws IOException {
+        if (server != null)
+            throw new IllegalStateException("Exporter is already running.");
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the port the exporter listens to, which is useful when it was
+     * started on port 0.
+     *
+     * @return The port, or -1 if the exporter is not running.
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server == null)
+            return;
+
+        server.stop(0);
+        server = null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics in the Prometheus text format.
+     *
+     * @return The metrics.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        writeEvents(out, "listener", registry.getListeners());
+        writeEvents(out, "channel", registry.getChannels());
+
+        OutboundScheduler outbound = registry.getOutbound();
+        if (outbound != null) {
+            header(out, "pydabot_outbound_queue_depth", "gauge", "Messages waiting to be sent.");
+            sample(out, "pydabot_outbound_queue_depth", null, null, outbound.getQueueDepth());
+
+            header(out, "pydabot_outbound_messages_total", "counter", "Outbound messages, by state.");
+            sample(out, "pydabot_outbound_messages_total", "state", "submitted", outbound.getSubmittedCount());
+            sample(out, "pydabot_outbound_messages_total", "state", "coalesced", outbound.getCoalescedCount());
+            sample(out, "pydabot_outbound_messages_total", "state", "sent", outbound.getSentCount());
+            sample(out, "pydabot_outbound_messages_total", "state", "failed", outbound.getFailedCount());
+            sample(out, "pydabot_outbound_messages_total", "state", "rejected", outbound.getRejectedCount());
+            sample(out, "pydabot_outbound_messages_total", "state", "expired", outbound.getExpiredCount());
+
+            header(out, "pydabot_outbound_max_wait_seconds", "gauge", "Longest wait of a message in the queue.");
+            sample(out, "pydabot_outbound_max_wait_seconds", null, null,
+                    outbound.getMaxWaitNanos() / NANOS_PER_SECOND);
+        }
+
+        header(out, "pydabot_connection_failures_total", "counter", "Connections which failed.");
+        sample(out, "pydabot_connection_failures_total", null, null, registry.getConnectionFailureCount());
+
+        header(out, "pydabot_reconnects_total", "counter", "Attempts to reconnect a connection.");
+        sample(out, "pydabot_reconnects_total", null, null, registry.getReconnectCount());
+        return out.toString();
+    }
+
+    private static void writeEvents(StringBuilder out, String label, Collection<EventMetrics> all) {
+        if (all.isEmpty())
+            return;
+
+        String prefix = "pydabot_" + label;
+        header(out, prefix + "_latency_seconds", "summary", "Time taken to handle an event, by " + label + ".");
+        for (EventMetrics metrics : all) {
+            LatencyHistogram latency = metrics.getLatency();
+            for (double quantile : QUANTILES) {
+                out.append(prefix).append("_latency_seconds{").append(label).append("=\"");
+                escape(out, metrics.getName());
+                out.append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(latency.getPercentile(quantile) / NANOS_PER_SECOND).append('\n');
+            }
+            sample(out, prefix + "_latency_seconds_sum", label, metrics.getName(),
+                    latency.getSum() / NANOS_PER_SECOND);
+            sample(out, prefix + "_latency_seconds_count", label, metrics.getName(), latency.getCount());
+        }
+
+        header(out, prefix + "_events_total", "counter", "Events handled, by " + label + ".");
+        for (EventMetrics metrics : all)
+            sample(out, prefix + "_events_total", label, metrics.getName(), metrics.getEventCount());
+
+        header(out, prefix + "_exceptions_total", "counter", "Events which threw an exception, by " + label + ".");
+        for (EventMetrics metrics : all)
+            sample(out, prefix + "_exceptions_total", label, metrics.getName(), metrics.getExceptionCount());
+
+        header(out, prefix + "_outbound_messages_total", "counter", "Messages submitted, by " + label + ".");
+        for (EventMetrics metrics : all)
+            sample(out, prefix + "_outbound_messages_total", label, metrics.getName(), metrics.getOutboundCount());
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, double sample) {
+        out.append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"");
+            escape(out, value);
+            out.append("\"}");
+        }
+        out.append(' ');
+        if (sample == Math.rint(sample) && Math.abs(sample) < 1e15)
+            out.append((long) sample);
+        else
+            out.append(sample);
+        out.append('\n');
+    }
+
+    /**
+     * Escapes a label value.
+     */
+    private static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"')
+                out.append('\\').append(c);
+            else if (c == '\n')
+                out.append("\\n");
+            else
+                out.append(c);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.pydawan.pydabot.moderation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import lombok.NonNull;
+
+/**
+ * Folds text to a skeleton where look alike characters are replaced by their
+ * ASCII counterpart, so that moderation sees through the usual obfuscations:
+ * full width letters, Cyrillic and Greek homoglyphs, accents and combining
+ * marks, zero width characters, and the mathematical and enclosed letters.
+ *
+ * Every character of the basic multilingual plane is folded through a flat
+ * table of 65536 characters, computed once: full width forms are shifted to
+ * ASCII, characters are decomposed and stripped of their marks, marks and
+ * invisible format characters are removed, and homoglyphs are read from the
+ * confusables.txt resource, in the format of the Unicode confusables data.
+ * ASCII characters are never folded. Folding takes a single pass over the
+ * text, into a buffer reused by each thread, and text made of ASCII characters
+ * only, most of the chat, is returned as is after a single scan.
+ */
+public final class ConfusableFolder implements UnaryOperator<String> {
+
+    private static final String DEFAULT_CONFUSABLES = "confusables.txt";
+
+    /**
+     * The folding of the characters that are removed, a noncharacter.
+     */
+    private static final char REMOVED = '\uFFFF';
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
+    private static volatile ConfusableFolder defaultFolder;
+
+    /**
+     * The folding of each character of the basic multilingual plane.
+     */
+    private final char[] table = new char[Character.MAX_VALUE + 1];
+
+    /**
+     * Creates a ConfusableFolder with the given homoglyphs.
+     *
+     * @param confusables The homoglyphs, in the format of the Unicode
+     *                    confusables data: lines of a source code point and
+     *                    target code points in hexadecimal, separated by
+     *                    semicolons. Mappings of ASCII characters, of
+     *                    supplementary characters or to several characters
+     *                    are ignored.
+     * @throws IllegalArgumentException If a line is malformed.
+     */
+    public ConfusableFolder(@NonNull Iterable<String> confusables) {
+        for (int c = 0; c <= Character.MAX_VALUE; c++)
+            table[c] = computeFolding((char) c);
+
+        for (String line : confusables) {
+            int comment = line.indexOf('#');
+            String[] fields = (comment < 0 ? line : line.substring(0, comment)).split(";");
+            if (fields.length < 2 || fields[0].isBlank())
+                continue;
+            String[] targets = fields[1].strip().split("\\s+");
+            try {
+                int source = Integer.parseInt(fields[0].strip(), 16);
+                int target = Integer.parseInt(targets[0], 16);
+                if (source >= 0x80 && source <= Character.MAX_VALUE && targets.length == 1
+                        && target <= Character.MAX_VALUE)
+                    table[source] = (char) target;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid confusable: " + line, e);
+            }
+        }
+
+        // Fold the targets too, such as a decomposed Greek letter to Latin.
+        for (int round = 0; round < 2; round++)
+            for (int c = 0x80; c <= Character.MAX_VALUE; c++)
+                if (table[c] != REMOVED && table[c] != c)
+                    table[c] = table[table[c]];
+        table[REMOVED] = REMOVED;
+    }
+
+    /**
+     * Returns a ConfusableFolder folding the homoglyphs bundled with the bot.
+     *
+     * @return The default ConfusableFolder.
+     */
+    public static ConfusableFolder getDefault() {
+        ConfusableFolder folder = defaultFolder;
+        if (folder == null) {
+            synchronized (ConfusableFolder.class) {
+                folder = defaultFolder;
+                if (folder == null)
+                    defaultFolder = folder = new ConfusableFolder(loadConfusables());
+            }
+        }
+        return folder;
+    }
+
+    private static Iterable<String> loadConfusables() {
+        try (InputStream input = ConfusableFolder.class.getResourceAsStream(DEFAULT_CONFUSABLES)) {
+            if (input == null)
+                throw new IllegalStateException("Missing resource " + DEFAULT_CONFUSABLES);
+            return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)).lines()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Computes the folding of a character without the homoglyphs.
+     */
+    private static char computeFolding(char c) {
+        if (c < 0x80 || Character.isSurrogate(c))
+            return c;
+
+        int type = Character.getType(c);
+        if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || type == Character.FORMAT
+                || c == '\u115F' || c == '\u1160' || c == '\u3164' || c == '\uFFA0')
+            return REMOVED;
+
+        if (c >= '\uFF01' && c <= '\uFF5E')
+            return (char) (c - 0xFF01 + '!');
+        if (type == Character.SPACE_SEPARATOR)
+            return ' ';
+        if (c >= '\u24B6' && c <= '\u24CF')
+            return (char) (c - 0x24B6 + 'A');
+        if (c >= '\u24D0' && c <= '\u24E9')
+            return (char) (c - 0x24D0 + 'a');
+
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        if (decomposed.length() > 1 && decomposed.charAt(0) != c) {
+            for (int i = 1; i < decomposed.length(); i++)
+                if (Character.getType(decomposed.charAt(i)) != Character.NON_SPACING_MARK)
+                    return c;
+            return decomposed.charAt(0);
+        }
+        return c;
+    }
+
+    /**
+     * Folds a supplementary character.
+     *
+     * @return The folding, {@link #REMOVED}, or 0 if the character is kept.
+     */
+    private static char foldSupplementary(int codePoint) {
+        // Mathematical alphanumeric symbols: 13 alphabets of 52 letters.
+        if (codePoint >= 0x1D400 && codePoint < 0x1D6A4) {
+            int letter = (codePoint - 0x1D400) % 52;
+            return (char) (letter < 26 ? 'A' + letter : 'a' + letter - 26);
+        }
+        if (codePoint >= 0x1D7CE && codePoint <= 0x1D7FF)
+            return (char) ('0' + (codePoint - 0x1D7CE) % 10);
+        // Squared, negative circled and negative squared capital letters.
+        if (codePoint >= 0x1F130 && codePoint < 0x1F18A && (codePoint - 0x1F130) % 32 < 26)
+            return (char) ('A' + (codePoint - 0x1F130) % 32);
+        // Tags and variation selectors.
+        if (codePoint >= 0xE0000 && codePoint <= 0xE007F || codePoint >= 0xE0100 && codePoint <= 0xE01EF)
+            return REMOVED;
+        return 0;
+    }
+
+    /**
+     * Folds a text to its skeleton.
+     *
+     * @param text The text.
+     * @return The folded text, the text itself if nothing was folded.
+     */
+    public String fold(@NonNull String text) {
+        int length = text.length();
+        int start = 0;
+        while (start < length && text.charAt(start) < 0x80)
+            start++;
+        if (start == length)
+            return text;
+
+        char[] buffer = BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+            BUFFER.set(buffer);
+        }
+        text.getChars(0, start, buffer, 0);
+
+        boolean folded = false;
+        int end = start;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            char folding;
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                folding = foldSupplementary(Character.toCodePoint(c, text.charAt(i + 1)));
+                if (folding == 0) {
+                    buffer[end++] = c;
+                    buffer[end++] = text.charAt(++i);
+                    continue;
+                }
+                i++;
+                folded = true;
+            } else {
+                folding = table[c];
+                folded |= folding != c;
+            }
+            if (folding != REMOVED)
+                buffer[end++] = folding;
+        }
+        return folded ? new String(buffer, 0, end) : text;
+    }
+
+    @Override
+    public String apply(String text) {
+        return fold(text);
+    }
+}
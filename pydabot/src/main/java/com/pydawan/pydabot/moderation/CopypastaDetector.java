@@ -0,0 +1,277 @@
+package com.pydawan.pydabot.moderation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.util.Hashing;
+
+import org.pircbotx.Channel;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Escalates the severity of messages pasted many times with small mutations in
+ * a channel, such as spam raids.
+ *
+ * Each message is fingerprinted with {@link SimHash}, and each channel keeps
+ * the fingerprints of its recent messages in a fixed size ring. A message is a
+ * copypasta when enough recent messages of its channel, within the time
+ * window, have fingerprints within a few bits of its own.
+ *
+ * Near fingerprints are found through 8 banded index tables: the 64 bits of a
+ * fingerprint are split in 8 bands of 8 bits, and each table maps the value of
+ * a band to the recent messages having it. Two fingerprints differing by 7
+ * bits or less share at least one band, so they are always found, which bounds
+ * the maximum distance. Each table is set associative with a fixed number of
+ * entries per bucket, so a lookup reads at most 8 buckets whatever the size of
+ * the ring. A bucket has at least
+ * threshold - 1 entries, so that enough duplicates of a message can be found
+ * to reach the threshold.
+ *
+ * The state of a channel is guarded by a lock of its own.
+ */
+public class CopypastaDetector implements SeverityEscalator {
+
+    /**
+     * The default number of recent messages kept per channel.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 256;
+
+    /**
+     * The default maximum number of bits differing between near duplicates.
+     */
+    public static final int DEFAULT_MAX_DISTANCE = 6;
+
+    /**
+     * Messages shorter than this, once normalized, are never copypastas.
+     */
+    public static final int MIN_LENGTH = 12;
+
+    private static final int BANDS = 8;
+    private static final int BAND_BITS = 8;
+    private static final int WAYS = 4;
+
+    private final ConcurrentHashMap<String, ChannelWindow> channels = new ConcurrentHashMap<>();
+    private final int ways;
+
+    /**
+     * The number of recent messages kept per channel.
+     */
+    @Getter
+    private final int windowSize;
+
+    /**
+     * The time during which a message counts as recent, in nanoseconds.
+     */
+    @Getter
+    private final long windowNanos;
+
+    /**
+     * The number of near duplicates, including the message itself, from which a
+     * message is a copypasta.
+     */
+    @Getter
+    private final int threshold;
+
+    /**
+     * The maximum number of bits differing between near duplicates.
+     */
+    @Getter
+    private final int maxDistance;
+
+    /**
+     * The severity given to copypastas.
+     */
+    @Getter
+    private final Severity severity;
+
+    /**
+     * Creates a new CopypastaDetector.
+     *
+     * @param windowSize  The number of recent messages kept per channel.
+     * @param window      The time during which a message counts as recent.
+     * @param unit        The unit of the window.
+     * @param threshold   The number of near duplicates, including the message
+     *                    itself, from which a message is a copypasta.
+     * @param maxDistance The maximum number of bits differing between near
+     *                    duplicates.
+     * @param severity    The severity given to copypastas.
+     * @throws IllegalArgumentException If the threshold is less than 2 or more
+     *                                  than the window size, or if the maximum
+     *                                  distance is not between 0 and 7.
+     */
+    public CopypastaDetector(int windowSize, long window, @NonNull TimeUnit unit, int threshold, int maxDistance,
+            @NonNull Severity severity) {
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("windowSize must be positive");
+        if (threshold < 2)
+            throw new IllegalArgumentException("threshold must be at least 2");
+        if (threshold > windowSize)
+            throw new IllegalArgumentException("threshold must be at most windowSize");
+        if (maxDistance < 0 || maxDistance >= BANDS)
+            throw new IllegalArgumentException("maxDistance must be between 0 and " + (BANDS - 1));
+
+        this.windowSize = windowSize;
+        this.windowNanos = unit.toNanos(window);
+        this.threshold = threshold;
+        this.maxDistance = maxDistance;
+        this.severity = severity;
+        this.ways = Math.max(WAYS, threshold - 1);
+    }
+
+    /**
+     * Creates a new CopypastaDetector keeping {@link #DEFAULT_WINDOW_SIZE}
+     * messages per channel and matching fingerprints within
+     * {@link #DEFAULT_MAX_DISTANCE} bits.
+     *
+     * @param window    The time during which a message counts as recent.
+     * @param unit      The unit of the window.
+     * @param threshold The number of near duplicates, including the message
+     *                  itself, from which a message is a copypasta.
+     * @param severity  The severity given to copypastas.
+     */
+    public CopypastaDetector(long window, @NonNull TimeUnit unit, int threshold, @NonNull Severity severity) {
+        this(DEFAULT_WINDOW_SIZE, window, unit, threshold, DEFAULT_MAX_DISTANCE, severity);
+    }
+
+    @Override
+    public Severity escalate(MessageEvent event, String message, Severity severity) {
+        Channel channel = event.getChannel();
+        return escalate(channel == null ? "" : channel.getName(), message, severity, System.nanoTime());
+    }
+
+    /**
+     * Records a message and returns its escalated severity.
+     *
+     * @param channel  The channel of the message.
+     * @param message  The message.
+     * @param severity The severity of the text of the message.
+     * @param nowNanos The time of the message, as given by
+     *                 {@link System#nanoTime()}.
+     * @return The severity of the message.
+     */
+    public Severity escalate(@NonNull String channel, @NonNull CharSequence message, @NonNull Severity severity,
+            long nowNanos) {
+        if (SimHash.normalizedLength(message) < MIN_LENGTH)
+            return severity;
+
+        long fingerprint = SimHash.fingerprint(message);
+        ChannelWindow window = channels.get(channel);
+        if (window == null)
+            window = channels.computeIfAbsent(channel, name -> new ChannelWindow());
+
+        int duplicates = window.record(fingerprint, nowNanos);
+        return duplicates + 1 >= threshold ? Severities.max(severity, this.severity) : severity;
+    }
+
+    /**
+     * Forgets the recent messages of a channel, such as when leaving it.
+     *
+     * @param channel The channel.
+     */
+    public void clear(@NonNull String channel) {
+        channels.remove(channel);
+    }
+
+    private static int bandOf(long fingerprint, int band) {
+        return (int) (fingerprint >>> (band * BAND_BITS)) & ((1 << BAND_BITS) - 1);
+    }
+
+    /**
+     * The recent messages of a channel.
+     * Messages are numbered from 1 in arrival order; message n is stored at
+     * index n % windowSize of the ring, and index tables refer to messages by
+     * number, so entries of messages overwritten in the ring are recognized as
+     * stale.
+     */
+    private final class ChannelWindow {
+        private final long[] fingerprints = new long[windowSize];
+        private final long[] times = new long[windowSize];
+        private final int[] numbers = new int[windowSize];
+        private final int bucketMask;
+        private final int[][] tables = new int[BANDS][];
+        private int last;
+
+        ChannelWindow() {
+            int buckets = Integer.highestOneBit(Math.max(1, windowSize - 1)) << 1;
+            bucketMask = buckets - 1;
+            for (int band = 0; band < BANDS; band++)
+                tables[band] = new int[buckets * ways];
+        }
+
+        private int bucketOf(int band, int value) {
+            return ((int) Hashing.mix(((long) band << BAND_BITS) | value) & bucketMask) * ways;
+        }
+
+        /**
+         * Records a fingerprint.
+         *
+         * @return The number of recent near duplicates of the fingerprint.
+         */
+        synchronized int record(long fingerprint, long now) {
+            int duplicates = 0;
+
+            for (int band = 0; band < BANDS; band++) {
+                int value = bandOf(fingerprint, band);
+                int[] table = tables[band];
+                int bucket = bucketOf(band, value);
+
+                for (int way = bucket; way < bucket + ways; way++) {
+                    int number = table[way];
+                    int index = Integer.remainderUnsigned(number, windowSize);
+                    if (number == 0 || numbers[index] != number)
+                        continue;
+
+                    long candidate = fingerprints[index];
+                    if (bandOf(candidate, band) != value || now - times[index] > windowNanos)
+                        continue;
+                    if (SimHash.distance(candidate, fingerprint) > maxDistance || sharesEarlierBand(candidate,
+                            fingerprint, band))
+                        continue;
+                    duplicates++;
+                }
+            }
+
+            insert(fingerprint, now);
+            return duplicates;
+        }
+
+        /**
+         * Returns whether a candidate was already found through an earlier band.
+         */
+        private boolean sharesEarlierBand(long candidate, long fingerprint, int band) {
+            for (int earlier = 0; earlier < band; earlier++)
+                if (bandOf(candidate, earlier) == bandOf(fingerprint, earlier))
+                    return true;
+            return false;
+        }
+
+        private void insert(long fingerprint, long now) {
+            int number = ++last == 0 ? ++last : last;
+            int index = Integer.remainderUnsigned(number, windowSize);
+            fingerprints[index] = fingerprint;
+            times[index] = now;
+            numbers[index] = number;
+
+            for (int band = 0; band < BANDS; band++) {
+                int[] table = tables[band];
+                int bucket = bucketOf(band, bandOf(fingerprint, band));
+                int oldest = bucket;
+                for (int way = bucket; way < bucket + ways; way++) {
+                    int current = table[way];
+                    int currentIndex = Integer.remainderUnsigned(current, windowSize);
+                    if (current == 0 || numbers[currentIndex] != current) {
+                        oldest = way;
+                        break;
+                    }
+                    if (current - table[oldest] < 0)
+                        oldest = way;
+                }
+                table[oldest] = number;
+            }
+        }
+    }
+}
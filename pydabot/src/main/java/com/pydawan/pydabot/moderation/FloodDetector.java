@@ -0,0 +1,326 @@
+package com.pydawan.pydabot.moderation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.util.Hashing;
+
+import org.pircbotx.Channel;
+import org.pircbotx.User;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Escalates the severity of the messages of users writing too fast in a
+ * channel.
+ *
+ * Each (channel, user) pair has a decaying counter: every message adds one,
+ * and the counter decays exponentially with a time constant of one window, so
+ * it approximates the number of messages sent during the last window. Reaching
+ * the medium threshold escalates messages to {@link Severity#MEDIUM}, reaching
+ * the high threshold to {@link Severity#HIGH}. Above half the medium
+ * threshold, a message whose text already has a severity is raised by one
+ * level.
+ *
+ * Counters live in a fixed size, set associative table of primitive longs: the
+ * hash of the pair selects a set of 8 slots, and a pair missing from its set
+ * takes the slot of the least recently active pair of the set. Each counter is
+ * a single long packing the time of its last message and its value, updated
+ * with a compare and set, so there is no lock and memory is bounded whatever
+ * the number of users.
+ *
+ * A slot is claimed by a pair in three steps: its counter is marked as being
+ * claimed, which makes every concurrent update of the previous pair fail, then
+ * the key of the pair is published, then the counter is reset. Updates wait
+ * for the counter of a claimed slot to be reset, and check that the slot still
+ * belongs to their pair before counting, so a message is never counted on the
+ * counter of another pair.
+ */
+public class FloodDetector implements SeverityEscalator {
+
+    /**
+     * The default number of counters.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int WAYS = 8;
+    private static final long EMPTY = 0;
+
+    /**
+     * The state of a slot being claimed, which no packed counter can be equal to.
+     */
+    private static final long CLAIMING = -1;
+
+    /**
+     * Counters are stored in fixed point, with 8 bits of fraction.
+     */
+    private static final double SCALE = 256;
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+
+    /**
+     * Time differences of less than a minute backwards, caused by threads
+     * reading the clock in a different order than they update a counter, count
+     * as no time.
+     */
+    private static final long MAX_SKEW_MILLIS = 60_000;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray states;
+    private final int setMask;
+    private final long origin = System.nanoTime();
+
+    /**
+     * The window over which messages are counted, in milliseconds.
+     */
+    @Getter
+    private final double windowMillis;
+
+    /**
+     * The number of messages per window escalating messages to
+     * {@link Severity#MEDIUM}.
+     */
+    @Getter
+    private final double mediumThreshold;
+
+    /**
+     * The number of messages per window escalating messages to
+     * {@link Severity#HIGH}.
+     */
+    @Getter
+    private final double highThreshold;
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new FloodDetector.
+     *
+     * @param window          The window over which messages are counted.
+     * @param unit            The unit of the window.
+     * @param mediumThreshold The number of messages per window escalating
+     *                        messages to {@link Severity#MEDIUM}.
+     * @param highThreshold   The number of messages per window escalating
+     *                        messages to {@link Severity#HIGH}.
+     * @param capacity        The number of counters, rounded up to a power of
+     *                        two. Inactive users are evicted beyond it.
+     */
+    public FloodDetector(long window, @NonNull TimeUnit unit, double mediumThreshold, double highThreshold,
+            int capacity) {
+        if (window <= 0)
+            throw new IllegalArgumentException("window must be positive");
+        if (mediumThreshold <= 0 || highThreshold < mediumThreshold)
+            throw new IllegalArgumentException("Thresholds must be positive and increasing");
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+        int size = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+        this.keys = new AtomicLongArray(size);
+        this.states = new AtomicLongArray(size);
+        this.setMask = size / WAYS - 1;
+        this.windowMillis = unit.toMillis(window);
+        this.mediumThreshold = mediumThreshold;
+        this.highThreshold = highThreshold;
+    }
+
+    /**
+     * Creates a new FloodDetector with {@link #DEFAULT_CAPACITY} counters.
+     *
+     * @param window          The window over which messages are counted.
+     * @param unit            The unit of the window.
+     * @param mediumThreshold The number of messages per window escalating
+     *                        messages to {@link Severity#MEDIUM}.
+     * @param highThreshold   The number of messages per window escalating
+     *                        messages to {@link Severity#HIGH}.
+     */
+    public FloodDetector(long window, @NonNull TimeUnit unit, double mediumThreshold, double highThreshold) {
+        this(window, unit, mediumThreshold, highThreshold, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public Severity escalate(MessageEvent event, String message, Severity severity) {
+        Channel channel = event.getChannel();
+        User user = event.getUser();
+        return escalate(channel == null ? "" : channel.getName(), user == null ? "" : user.getNick(), severity,
+                System.nanoTime());
+    }
+
+    /**
+     * Counts a message and returns its escalated severity.
+     *
+     * @param channel  The channel of the message.
+     * @param user     The sender of the message.
+     * @param severity The severity of the text of the message.
+     * @param nowNanos The time of the message, as given by
+     *                 {@link System#nanoTime()}.
+     * @return The severity of the message.
+     */
+    public Severity escalate(@NonNull CharSequence channel, @NonNull CharSequence user, @NonNull Severity severity,
+            long nowNanos) {
+        double count = record(keyOf(channel, user), millisOf(nowNanos));
+
+        if (count >= highThreshold)
+            return Severities.max(severity, Severity.HIGH);
+        if (count >= mediumThreshold)
+            return Severities.max(severity, Severity.MEDIUM);
+        if (count >= mediumThreshold / 2 && (severity == Severity.LOW || severity == Severity.MEDIUM))
+            return severity == Severity.LOW ? Severity.MEDIUM : Severity.HIGH;
+        return severity;
+    }
+
+    /**
+     * Returns the number of messages a user sent in a channel during the last
+     * window, approximately, without counting a message.
+     *
+     * @param channel  The channel.
+     * @param user     The user.
+     * @param nowNanos The current time, as given by {@link System#nanoTime()}.
+     * @return The number of messages, or 0 if the user is not tracked.
+     */
+    public double countOf(@NonNull CharSequence channel, @NonNull CharSequence user, long nowNanos) {
+        long key = keyOf(channel, user);
+        int now = millisOf(nowNanos);
+        int base = (int) (key & setMask) * WAYS;
+        for (int slot = base; slot < base + WAYS; slot++) {
+            if (keys.get(slot) == key) {
+                long state = states.get(slot);
+                return state == CLAIMING ? 0 : decayed(state, now);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of counters taken from an inactive user.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static long keyOf(CharSequence channel, CharSequence user) {
+        long hash = Hashing.separate(Hashing.update(Hashing.FNV_OFFSET, channel, 0, channel.length()));
+        long key = Hashing.mix(Hashing.update(hash, user, 0, user.length()));
+        return key == EMPTY ? 1 : key;
+    }
+
+    private int millisOf(long nanos) {
+        return (int) TimeUnit.NANOSECONDS.toMillis(nanos - origin);
+    }
+
+    /**
+     * Packs a counter, whose value is capped below {@link #MAX_VALUE} so that it
+     * is never equal to {@link #CLAIMING}.
+     */
+    private static long pack(int millis, double count) {
+        return ((long) millis << 32) | Math.min((long) (count * SCALE), MAX_VALUE - 1);
+    }
+
+    /**
+     * Returns the time elapsed since the last message of a counter, in
+     * milliseconds.
+     */
+    private static long elapsed(long state, int now) {
+        long elapsed = Integer.toUnsignedLong(now - (int) (state >>> 32));
+        return elapsed > (1L << 32) - MAX_SKEW_MILLIS ? 0 : elapsed;
+    }
+
+    private double decayed(long state, int now) {
+        double count = (state & MAX_VALUE) / SCALE;
+        return count * Math.exp(-elapsed(state, now) / windowMillis);
+    }
+
+    /**
+     * Counts a message of the given pair.
+     *
+     * @return The updated count of the pair.
+     */
+    private double record(long key, int now) {
+        int base = (int) (key & setMask) * WAYS;
+
+        retry: while (true) {
+            int victim = -1;
+            long victimAge = -1;
+
+            for (int slot = base; slot < base + WAYS; slot++) {
+                long current = keys.get(slot);
+                if (current == key) {
+                    double count = increment(slot, key, now);
+                    if (count < 0)
+                        continue retry;
+                    return count;
+                }
+
+                if (current == EMPTY) {
+                    // Another pair, or this one, may be claiming the slot.
+                    if (claim(slot, EMPTY, key, now))
+                        return 1;
+                    Thread.onSpinWait();
+                    continue retry;
+                }
+
+                long state = states.get(slot);
+                if (state == CLAIMING)
+                    continue;
+                long age = elapsed(state, now);
+                if (age > victimAge) {
+                    victim = slot;
+                    victimAge = age;
+                }
+            }
+
+            if (victim < 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long evicted = keys.get(victim);
+            if (evicted != key && claim(victim, evicted, key, now)) {
+                evictions.increment();
+                return 1;
+            }
+        }
+    }
+
+    /**
+     * Claims a slot for the given key, if it still belongs to the expected key,
+     * and resets its counter to a single message.
+     *
+     * @return <code>true</code> if the slot was claimed.
+     */
+    private boolean claim(int slot, long expected, long key, int now) {
+        long state = states.get(slot);
+        if (state == CLAIMING || !states.compareAndSet(slot, state, CLAIMING))
+            return false;
+        if (!keys.compareAndSet(slot, expected, key)) {
+            // Nothing updates a counter being claimed.
+            states.set(slot, state);
+            return false;
+        }
+        states.set(slot, pack(now, 1));
+        return true;
+    }
+
+    /**
+     * Counts a message on the counter of a slot, if it still belongs to the
+     * given key.
+     *
+     * @return The updated count, or -1 if the slot belongs to another key.
+     */
+    private double increment(int slot, long key, int now) {
+        while (true) {
+            long state = states.get(slot);
+            if (state == CLAIMING) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (keys.get(slot) != key)
+                return -1;
+            double count = decayed(state, now) + 1;
+            if (states.compareAndSet(slot, state, pack(now, count)))
+                return count;
+        }
+    }
+}
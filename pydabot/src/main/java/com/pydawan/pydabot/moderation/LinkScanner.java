@@ -0,0 +1,435 @@
+package com.pydawan.pydabot.moderation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import com.pydawan.pydabot.Severity;
+
+import lombok.NonNull;
+
+/**
+ * A link detector, yielding {@link Severity#LINK} for messages containing a
+ * link and {@link Severity#SAFE} otherwise.
+ *
+ * A link is a label followed by a dot and a known top level domain, such as
+ * example.com. The message is scanned once, left to right, looking for dots;
+ * each dot is validated by reading the label character before it and the
+ * letters after it, which are looked up in a sorted table of encoded top level
+ * domains. Scanning is linear in the length of the message, whatever its
+ * content. Words that are not followed by a known domain, such as file.txt or
+ * 1.50, are not links.
+ *
+ * The usual obfuscations are detected too: full width and ideographic dots,
+ * a spelled out dot such as "example dot com" or "example(dot)com", and zero
+ * width characters inserted anywhere in the link.
+ *
+ * Some country codes are also common words, such as "is", "it" or "me". A
+ * plain dot followed by one of them is only a link with the context of a host,
+ * a scheme or a path, as in www.example.it or example.it/page, so that "ok.so"
+ * is not a link. A spelled out dot between spaces is never followed by one of
+ * them, so that "the red dot is here" is not a link either, and it must follow
+ * a label of at least two characters.
+ */
+public final class LinkScanner implements Function<String, Severity> {
+
+    private static final String DEFAULT_TLDS = "tlds.txt";
+
+    /**
+     * The longest top level domain that can be encoded in a long, in base 27.
+     */
+    private static final int MAX_TLD_LENGTH = 13;
+
+    /**
+     * The maximum number of separators around a spelled out dot.
+     */
+    private static final int MAX_SEPARATORS = 3;
+
+    private static final int[] NO_LINKS = new int[0];
+
+    /**
+     * The encoded top level domains that are also common words, sorted.
+     */
+    private static final long[] WORD_TLDS = Arrays.stream(new String[] {
+            "am", "as", "at", "be", "by", "do", "id", "in", "is", "it", "me", "my", "no", "or", "so", "to", "us"
+    }).mapToLong(LinkScanner::encode).sorted().toArray();
+
+    private static volatile LinkScanner defaultScanner;
+
+    /**
+     * The encoded top level domains, sorted.
+     */
+    private final long[] tlds;
+
+    /**
+     * Creates a LinkScanner recognizing the given top level domains.
+     *
+     * @param tlds The top level domains, without the leading dot. Top level
+     *             domains are made of ASCII letters and are case insensitive.
+     * @throws IllegalArgumentException If a top level domain is not made of
+     *                                  ASCII letters or is too long.
+     */
+    public LinkScanner(@NonNull Collection<String> tlds) {
+        long[] encoded = new long[tlds.size()];
+        int count = 0;
+        for (String tld : tlds) {
+            long code = encode(tld);
+            if (tld.isEmpty() || code < 0)
+                throw new IllegalArgumentException("Invalid top level domain: " + tld);
+            encoded[count++] = code;
+        }
+        this.tlds = Arrays.stream(encoded, 0, count).sorted().distinct().toArray();
+    }
+
+    /**
+     * Returns a LinkScanner recognizing the generic and country code top level
+     * domains bundled with the bot.
+     *
+     * @return The default LinkScanner.
+     */
+    public static LinkScanner getDefault() {
+        LinkScanner scanner = defaultScanner;
+        if (scanner == null) {
+            synchronized (LinkScanner.class) {
+                scanner = defaultScanner;
+                if (scanner == null)
+                    defaultScanner = scanner = new LinkScanner(loadTlds());
+            }
+        }
+        return scanner;
+    }
+
+    private static List<String> loadTlds() {
+        List<String> tlds = new ArrayList<>();
+        try (InputStream input = LinkScanner.class.getResourceAsStream(DEFAULT_TLDS)) {
+            if (input == null)
+                throw new IllegalStateException("Missing resource " + DEFAULT_TLDS);
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                tlds.addAll(Arrays.asList(line.split("\\s+")));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tlds;
+    }
+
+    /**
+     * Encodes a top level domain in base 27, ignoring invisible characters.
+     *
+     * @return The code, or -1 if the domain is not made of ASCII letters or is
+     *         too long.
+     */
+    private static long encode(CharSequence tld) {
+        return encode(tld, 0, tld.length());
+    }
+
+    private static long encode(CharSequence text, int start, int end) {
+        long code = 0;
+        int letters = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isIgnorable(c))
+                continue;
+            int letter = letterOf(c);
+            if (letter == 0 || ++letters > MAX_TLD_LENGTH)
+                return -1;
+            code = code * 27 + letter;
+        }
+        return code;
+    }
+
+    /**
+     * Returns the index of the given ASCII letter in the alphabet, starting at 1,
+     * or 0 if the character is not an ASCII letter.
+     */
+    private static int letterOf(char c) {
+        if (c >= 'a' && c <= 'z')
+            return c - 'a' + 1;
+        if (c >= 'A' && c <= 'Z')
+            return c - 'A' + 1;
+        return 0;
+    }
+
+    /**
+     * Returns whether the given character is invisible and should be ignored,
+     * such as zero width spaces and joiners.
+     */
+    static boolean isIgnorable(char c) {
+        return c == '\u200B' || c == '\u200C' || c == '\u200D' || c == '\u2060'
+                || c == '\uFEFF' || c == '\u00AD';
+    }
+
+    private static boolean isDot(char c) {
+        return c == '.' || c == '\uFF0E' || c == '\u3002' || c == '\uFF61';
+    }
+
+    private static boolean isLabelChar(char c) {
+        return c == '-' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '(' || c == ')' || c == '[' || c == ']' || c == '{' || c == '}';
+    }
+
+    private static boolean isOpening(char c) {
+        return c == ' ' || c == '(' || c == '[' || c == '{';
+    }
+
+    private static boolean isClosing(char c) {
+        return c == ' ' || c == ')' || c == ']' || c == '}';
+    }
+
+    /**
+     * Returns the index of the last visible character before the given index, or
+     * -1 if there is none.
+     */
+    private static int previousVisible(CharSequence text, int index) {
+        int i = index - 1;
+        while (i >= 0 && isIgnorable(text.charAt(i)))
+            i--;
+        return i;
+    }
+
+    /**
+     * Returns the index of the first visible character at or after the given
+     * index, or the length of the text if there is none.
+     */
+    private static int nextVisible(CharSequence text, int index) {
+        int i = index;
+        while (i < text.length() && isIgnorable(text.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * Returns the length of the spelled out dot starting at the given index, such
+     * as " dot " or "(dot)", or 0 if there is none. The separators before the
+     * dot are not included.
+     */
+    private static int spelledDotLength(CharSequence text, int index) {
+        int length = text.length();
+        if (index + 3 > length || index == 0 || !isOpening(text.charAt(index - 1)))
+            return 0;
+
+        if (Character.toLowerCase(text.charAt(index)) != 'd'
+                || Character.toLowerCase(text.charAt(index + 1)) != 'o'
+                || Character.toLowerCase(text.charAt(index + 2)) != 't')
+            return 0;
+
+        int end = index + 3;
+        if (end >= length || !isClosing(text.charAt(end)))
+            return 0;
+
+        int separators = 0;
+        while (end < length && separators < MAX_SEPARATORS && isSeparator(text.charAt(end))) {
+            end++;
+            separators++;
+        }
+        return end - index;
+    }
+
+    /**
+     * Returns the index of the last label character before a spelled out dot
+     * starting at the given index, or -1 if there is no label of at least two
+     * characters.
+     */
+    private static int labelBeforeSpelledDot(CharSequence text, int index) {
+        int i = index - 1;
+        int separators = 0;
+        while (i >= 0 && separators < MAX_SEPARATORS && isSeparator(text.charAt(i))) {
+            i--;
+            separators++;
+        }
+        i = previousVisible(text, i + 1);
+        if (i < 0 || !isLabelChar(text.charAt(i)))
+            return -1;
+        int previous = previousVisible(text, i);
+        return previous >= 0 && isLabelChar(text.charAt(previous)) ? i : -1;
+    }
+
+    /**
+     * Returns whether the link whose label ends and whose top level domain ends
+     * at the given indexes has the context of a host, a scheme or a path: a
+     * dot, a slash or a colon right before its label, or a slash or a colon
+     * right after its top level domain. Only the label is read backwards, so
+     * that scanning stays linear.
+     */
+    private static boolean hasHostContext(CharSequence text, int labelEnd, int tldEnd, int lowerBound) {
+        if (tldEnd < text.length() && (text.charAt(tldEnd) == '/' || text.charAt(tldEnd) == ':'))
+            return true;
+
+        int i = labelEnd;
+        while (i > lowerBound && (isLabelChar(text.charAt(i - 1)) || isIgnorable(text.charAt(i - 1))))
+            i--;
+        if (i == lowerBound)
+            return false;
+        char previous = text.charAt(i - 1);
+        return isDot(previous) || previous == '/' || previous == ':';
+    }
+
+    private static boolean isWordTld(CharSequence text, int start, int end) {
+        return Arrays.binarySearch(WORD_TLDS, encode(text, start, end)) >= 0;
+    }
+
+    /**
+     * Reads the top level domain starting at the given index and returns the
+     * index following it if it is known, or -1 otherwise.
+     */
+    private int matchTld(CharSequence text, int index) {
+        int length = text.length();
+        long code = 0;
+        int letters = 0;
+        int i = index;
+
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isIgnorable(c)) {
+                i++;
+                continue;
+            }
+            int letter = letterOf(c);
+            if (letter == 0)
+                break;
+            if (++letters > MAX_TLD_LENGTH)
+                return -1;
+            code = code * 27 + letter;
+            i++;
+        }
+
+        if (letters < 2)
+            return -1;
+        if (i < length && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'))
+            return -1;
+
+        return Arrays.binarySearch(tlds, code) >= 0 ? i : -1;
+    }
+
+    /**
+     * Finds the next link in the text, starting at the given index.
+     *
+     * @return The start of the link in the high 32 bits and its end in the low 32
+     *         bits, or -1 if there is no link.
+     */
+    private long next(CharSequence text, int from, int lowerBound) {
+        int length = text.length();
+        int i = from;
+
+        while (i < length) {
+            char c = text.charAt(i);
+            int labelEnd;
+            int tldStart;
+            boolean spaced;
+
+            if (isDot(c)) {
+                labelEnd = previousVisible(text, i);
+                tldStart = i + 1;
+                spaced = false;
+                if (labelEnd < lowerBound || !isLabelChar(text.charAt(labelEnd))) {
+                    i++;
+                    continue;
+                }
+            } else if (c == 'd' || c == 'D') {
+                int dotLength = spelledDotLength(text, i);
+                if (dotLength == 0) {
+                    i++;
+                    continue;
+                }
+                labelEnd = labelBeforeSpelledDot(text, i);
+                tldStart = i + dotLength;
+                spaced = text.charAt(i - 1) == ' ';
+                if (labelEnd < lowerBound) {
+                    i += 3;
+                    continue;
+                }
+            } else {
+                i++;
+                continue;
+            }
+
+            int tld = nextVisible(text, tldStart);
+            int tldEnd = matchTld(text, tld);
+            if (tldEnd < 0) {
+                i = tldStart;
+                continue;
+            }
+            if ((c == '.' || spaced) && isWordTld(text, tld, tldEnd)
+                    && (spaced || !hasHostContext(text, labelEnd, tldEnd, lowerBound))) {
+                i = tldStart;
+                continue;
+            }
+
+            int start = labelEnd;
+            while (start > lowerBound) {
+                char previous = text.charAt(start - 1);
+                if (!isLabelChar(previous) && !isDot(previous) && !isIgnorable(previous) && previous != '/'
+                        && previous != ':')
+                    break;
+                start--;
+            }
+
+            int end = tldEnd;
+            while (end < length && !Character.isWhitespace(text.charAt(end)))
+                end++;
+
+            return ((long) start << 32) | end;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the given text contains a link.
+     *
+     * @param text The text to scan.
+     * @return <code>true</code> if the text contains a link.
+     */
+    public boolean containsLink(@NonNull CharSequence text) {
+        return next(text, 0, 0) >= 0;
+    }
+
+    /**
+     * Finds the links contained in the given text.
+     *
+     * @param text The text to scan.
+     * @return The bounds of the links, as pairs of start (inclusive) and end
+     *         (exclusive) indexes in the text. The array is empty if there is no
+     *         link.
+     */
+    public int[] find(@NonNull CharSequence text) {
+        int[] links = NO_LINKS;
+        int count = 0;
+        int position = 0;
+
+        long link;
+        while ((link = next(text, position, position)) >= 0) {
+            int start = (int) (link >>> 32);
+            int end = (int) link;
+            if (links.length < 2 * (count + 1))
+                links = Arrays.copyOf(links, Math.max(4, links.length * 2));
+            links[2 * count] = start;
+            links[2 * count + 1] = end;
+            count++;
+            position = end;
+        }
+
+        return count == 0 ? NO_LINKS : Arrays.copyOf(links, 2 * count);
+    }
+
+    @Override
+    public Severity apply(String message) {
+        return containsLink(message) ? Severity.LINK : Severity.SAFE;
+    }
+}
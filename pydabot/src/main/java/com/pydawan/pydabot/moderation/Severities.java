@@ -0,0 +1,48 @@
+package com.pydawan.pydabot.moderation;
+
+import java.util.function.Function;
+
+import com.pydawan.pydabot.Severity;
+
+import lombok.NonNull;
+
+/**
+ * Helpers to combine severity functions.
+ */
+public class Severities {
+    private Severities() {
+    }
+
+    /**
+     * Returns the highest of two severities, in declaration order of
+     * {@link Severity}.
+     *
+     * @param a A severity.
+     * @param b Another severity.
+     * @return The highest severity.
+     */
+    public static Severity max(@NonNull Severity a, @NonNull Severity b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    /**
+     * Combines severity functions into one returning the highest severity, in
+     * declaration order of {@link Severity}, among the given functions.
+     *
+     * @param severityOfs The severity functions to combine.
+     * @return A severity function returning the highest severity.
+     */
+    @SafeVarargs
+    public static Function<String, Severity> highest(@NonNull Function<String, Severity>... severityOfs) {
+        Function<String, Severity>[] functions = severityOfs.clone();
+        return message -> {
+            Severity highest = Severity.SAFE;
+            for (Function<String, Severity> severityOf : functions) {
+                Severity severity = severityOf.apply(message);
+                if (severity.compareTo(highest) > 0)
+                    highest = severity;
+            }
+            return highest;
+        };
+    }
+}
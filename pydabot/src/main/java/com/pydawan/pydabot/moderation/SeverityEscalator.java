@@ -0,0 +1,37 @@
+package com.pydawan.pydabot.moderation;
+
+import com.pydawan.pydabot.Severity;
+
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.NonNull;
+
+/**
+ * Raises the severity of a message according to what the text alone does not
+ * show, such as how often its sender writes.
+ */
+@FunctionalInterface
+public interface SeverityEscalator {
+
+    /**
+     * Returns the severity of a message, knowing the severity of its text.
+     * Called once for every moderated message.
+     *
+     * @param event    The message.
+     * @param message  The text of the message, as moderated, such as folded by
+     *                 a {@link ConfusableFolder}.
+     * @param severity The severity of the text of the message.
+     * @return The severity of the message, never lower than the given severity.
+     */
+    Severity escalate(MessageEvent event, String message, Severity severity);
+
+    /**
+     * Returns an escalator applying this escalator, then the given one.
+     *
+     * @param next The escalator to apply next.
+     * @return The combined escalator.
+     */
+    default SeverityEscalator andThen(@NonNull SeverityEscalator next) {
+        return (event, message, severity) -> next.escalate(event, message, escalate(event, message, severity));
+    }
+}
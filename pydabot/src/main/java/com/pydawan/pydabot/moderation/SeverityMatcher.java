@@ -0,0 +1,393 @@
+package com.pydawan.pydabot.moderation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import com.pydawan.pydabot.Severity;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A severity function matching messages against lists of banned terms.
+ *
+ * Every term of every severity is compiled into a single Aho-Corasick
+ * automaton, so a message is scanned once whatever the number of terms, and
+ * the highest severity of the terms it contains is returned. Messages that
+ * contain no term are {@link Severity#SAFE}.
+ *
+ * Transitions are stored in flat primitive arrays: the edges of each state
+ * are sorted by character and looked up by binary search, except for the root
+ * whose ASCII edges are stored in a dense table since most transitions fall
+ * back to it.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class SeverityMatcher implements Function<String, Severity> {
+
+    private static final Severity[] SEVERITIES = Severity.values();
+    private static final byte NONE = -1;
+
+    /**
+     * Whether characters are compared ignoring case.
+     */
+    @Getter
+    private final boolean caseInsensitive;
+
+    /**
+     * Whether terms only match whole words.
+     */
+    @Getter
+    private final boolean wholeWord;
+
+    /**
+     * The number of terms of the automaton.
+     */
+    @Getter
+    private final int termCount;
+
+    /**
+     * The edges of state s are stored at indexes edgeStart[s] to
+     * edgeStart[s + 1] (exclusive) of edgeChars and edgeTargets.
+     */
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+
+    /**
+     * The transitions of the root for ASCII characters, including the implicit
+     * loops to the root itself.
+     */
+    private final int[] rootTransitions;
+
+    private final int[] failure;
+
+    /**
+     * The depth of each state, which is the length of the term ending at it.
+     */
+    private final int[] depth;
+
+    /**
+     * The ordinal of the severity of the term ending at each state, or NONE.
+     */
+    private final byte[] ownSeverity;
+
+    /**
+     * The highest ordinal of the severities of the terms ending at each state or
+     * at any of its suffixes, or NONE.
+     */
+    private final byte[] maxSeverity;
+
+    /**
+     * The closest proper suffix of each state at which a term ends, or 0.
+     */
+    private final int[] outputLink;
+
+    /**
+     * The highest ordinal among all the terms, used to stop scanning early.
+     */
+    private final byte highestSeverity;
+
+    private SeverityMatcher(Builder builder) {
+        this.caseInsensitive = builder.caseInsensitive;
+        this.wholeWord = builder.wholeWord;
+
+        // Build the trie with sorted maps, only used during construction.
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Byte> severities = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        children.add(new TreeMap<>());
+        severities.add(NONE);
+        depths.add(0);
+
+        int terms = 0;
+        byte highest = NONE;
+        for (Map.Entry<Severity, List<String>> entry : builder.terms.entrySet()) {
+            byte ordinal = (byte) entry.getKey().ordinal();
+            for (String term : entry.getValue()) {
+                int state = 0;
+                for (int i = 0; i < term.length(); i++) {
+                    char c = fold(term.charAt(i));
+                    Integer next = children.get(state).get(c);
+                    if (next == null) {
+                        next = children.size();
+                        children.get(state).put(c, next);
+                        children.add(new TreeMap<>());
+                        severities.add(NONE);
+                        depths.add(i + 1);
+                    }
+                    state = next;
+                }
+                if (severities.get(state) < ordinal)
+                    severities.set(state, ordinal);
+                highest = (byte) Math.max(highest, ordinal);
+                terms++;
+            }
+        }
+        this.termCount = terms;
+        this.highestSeverity = highest;
+
+        int states = children.size();
+        int edges = states - 1;
+        this.edgeStart = new int[states + 1];
+        this.edgeChars = new char[edges];
+        this.edgeTargets = new int[edges];
+        this.depth = new int[states];
+        this.ownSeverity = new byte[states];
+
+        int edge = 0;
+        for (int state = 0; state < states; state++) {
+            edgeStart[state] = edge;
+            for (Map.Entry<Character, Integer> child : children.get(state).entrySet()) {
+                edgeChars[edge] = child.getKey();
+                edgeTargets[edge] = child.getValue();
+                edge++;
+            }
+            depth[state] = depths.get(state);
+            ownSeverity[state] = severities.get(state);
+        }
+        edgeStart[states] = edge;
+
+        this.rootTransitions = new int[128];
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++)
+            if (edgeChars[e] < 128)
+                rootTransitions[edgeChars[e]] = edgeTargets[e];
+
+        // Compute failure links, output links and the severity of the outputs of
+        // each state in breadth first order.
+        this.failure = new int[states];
+        this.outputLink = new int[states];
+        this.maxSeverity = new byte[states];
+        maxSeverity[0] = NONE;
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            int child = edgeTargets[e];
+            maxSeverity[child] = ownSeverity[child];
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                char c = edgeChars[e];
+                int child = edgeTargets[e];
+
+                int fallback = failure[state];
+                int target = child(fallback, c);
+                while (target < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                    target = child(fallback, c);
+                }
+                int fail = target < 0 ? 0 : target;
+
+                failure[child] = fail;
+                outputLink[child] = ownSeverity[fail] != NONE ? fail : outputLink[fail];
+                maxSeverity[child] = (byte) Math.max(ownSeverity[child], maxSeverity[fail]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Returns the child of the given state for the given character, or -1 if
+     * there is none.
+     */
+    private int child(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char current = edgeChars[middle];
+            if (current < c)
+                low = middle + 1;
+            else if (current > c)
+                high = middle - 1;
+            else
+                return edgeTargets[middle];
+        }
+        return -1;
+    }
+
+    /**
+     * Follows the transition of the automaton from the given state for the given
+     * character, falling back along the failure links.
+     */
+    private int next(int state, char c) {
+        while (state != 0) {
+            int target = child(state, c);
+            if (target >= 0)
+                return target;
+            state = failure[state];
+        }
+        if (c < 128)
+            return rootTransitions[c];
+        int target = child(0, c);
+        return target < 0 ? 0 : target;
+    }
+
+    private char fold(char c) {
+        return caseInsensitive ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Returns the highest severity of the terms contained in the given text.
+     *
+     * @param text The text to scan.
+     * @return The highest severity of the terms found, or {@link Severity#SAFE}
+     *         if there is none.
+     */
+    public Severity severityOf(@NonNull CharSequence text) {
+        if (highestSeverity == NONE)
+            return Severity.SAFE;
+
+        byte best = NONE;
+        int state = 0;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            state = next(state, fold(text.charAt(i)));
+
+            if (maxSeverity[state] <= best)
+                continue;
+
+            if (!wholeWord) {
+                best = maxSeverity[state];
+            } else {
+                if (i + 1 < length && isWordChar(text.charAt(i + 1)))
+                    continue;
+
+                int output = ownSeverity[state] != NONE ? state : outputLink[state];
+                for (; output != 0; output = outputLink[output]) {
+                    int start = i + 1 - depth[output];
+                    if (ownSeverity[output] > best && (start == 0 || !isWordChar(text.charAt(start - 1))))
+                        best = ownSeverity[output];
+                }
+            }
+
+            if (best == highestSeverity)
+                break;
+        }
+
+        return best == NONE ? Severity.SAFE : SEVERITIES[best];
+    }
+
+    @Override
+    public Severity apply(String message) {
+        return severityOf(message);
+    }
+
+    /**
+     * Creates a builder of SeverityMatcher.
+     *
+     * @return A new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a case insensitive SeverityMatcher matching whole words.
+     *
+     * @param terms A map of severities to the terms of this severity.
+     * @return A new SeverityMatcher.
+     */
+    public static SeverityMatcher of(@NonNull Map<Severity, ? extends Collection<String>> terms) {
+        Builder builder = builder();
+        terms.forEach(builder::addAll);
+        return builder.build();
+    }
+
+    /**
+     * A builder of SeverityMatcher.
+     * By default, the matcher is case insensitive and matches whole words.
+     */
+    public static final class Builder {
+        private final Map<Severity, List<String>> terms = new TreeMap<>();
+        private boolean caseInsensitive = true;
+        private boolean wholeWord = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets whether characters are compared ignoring case.
+         *
+         * @param caseInsensitive Whether characters are compared ignoring case.
+         * @return This builder.
+         */
+        public Builder caseInsensitive(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+            return this;
+        }
+
+        /**
+         * Sets whether terms only match whole words. A whole word is delimited by
+         * characters that are neither letters, digits nor underscores.
+         *
+         * @param wholeWord Whether terms only match whole words.
+         * @return This builder.
+         */
+        public Builder wholeWord(boolean wholeWord) {
+            this.wholeWord = wholeWord;
+            return this;
+        }
+
+        /**
+         * Adds a term of the given severity. Empty terms are ignored.
+         *
+         * @param severity The severity of the term.
+         * @param term     The term.
+         * @return This builder.
+         * @throws IllegalArgumentException If the severity is
+         *                                  {@link Severity#SAFE}.
+         */
+        public Builder add(@NonNull Severity severity, @NonNull String term) {
+            if (severity == Severity.SAFE)
+                throw new IllegalArgumentException("Terms cannot be SAFE");
+            if (!term.isEmpty())
+                terms.computeIfAbsent(severity, s -> new ArrayList<>()).add(term);
+            return this;
+        }
+
+        /**
+         * Adds terms of the given severity. Empty terms are ignored.
+         *
+         * @param severity The severity of the terms.
+         * @param terms    The terms.
+         * @return This builder.
+         * @throws IllegalArgumentException If the severity is
+         *                                  {@link Severity#SAFE}.
+         */
+        public Builder addAll(@NonNull Severity severity, @NonNull Collection<String> terms) {
+            for (String term : terms)
+                add(severity, term);
+            return this;
+        }
+
+        /**
+         * Compiles the terms into a SeverityMatcher.
+         *
+         * @return A new SeverityMatcher.
+         */
+        public SeverityMatcher build() {
+            return new SeverityMatcher(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SeverityMatcher[terms=" + termCount + ", states=" + depth.length
+                + ", caseInsensitive=" + caseInsensitive + ", wholeWord=" + wholeWord
+                + ", highest=" + (highestSeverity == NONE ? Severity.SAFE : SEVERITIES[highestSeverity]) + "]";
+    }
+}
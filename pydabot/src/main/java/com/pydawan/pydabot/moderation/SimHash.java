@@ -0,0 +1,89 @@
+package com.pydawan.pydabot.moderation;
+
+import java.util.Arrays;
+
+import com.pydawan.pydabot.util.Hashing;
+
+/**
+ * SimHash fingerprints of chat messages, such that messages differing by a few
+ * characters have fingerprints differing by a few bits.
+ *
+ * A message is normalized first: letters are lower cased, and whitespaces,
+ * punctuation and invisible characters are dropped. The fingerprint is the
+ * SimHash of the shingles of 3 consecutive normalized characters: each bit is
+ * set if most shingle hashes have it set.
+ */
+public final class SimHash {
+    private SimHash() {
+    }
+
+    private static final int SHINGLE = 3;
+
+    private static final ThreadLocal<int[]> WEIGHTS = ThreadLocal.withInitial(() -> new int[64]);
+
+    /**
+     * Returns the number of characters of the given text kept by normalization.
+     *
+     * @param text The text.
+     * @return The length of the normalized text.
+     */
+    public static int normalizedLength(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++)
+            if (isKept(text.charAt(i)))
+                length++;
+        return length;
+    }
+
+    private static boolean isKept(char c) {
+        return Character.isLetterOrDigit(c) && !LinkScanner.isIgnorable(c);
+    }
+
+    /**
+     * Returns the fingerprint of the given text.
+     *
+     * @param text The text.
+     * @return The fingerprint of the text.
+     */
+    public static long fingerprint(CharSequence text) {
+        int[] weights = WEIGHTS.get();
+        Arrays.fill(weights, 0);
+
+        long window = 0;
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!isKept(c))
+                continue;
+
+            window = (window << 16 | Character.toLowerCase(c)) & 0xFFFF_FFFF_FFFFL;
+            if (++count < SHINGLE)
+                continue;
+            add(weights, Hashing.mix(window));
+        }
+        if (count > 0 && count < SHINGLE)
+            add(weights, Hashing.mix(window));
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++)
+            if (weights[bit] > 0)
+                fingerprint |= 1L << bit;
+        return fingerprint;
+    }
+
+    private static void add(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++)
+            weights[bit] += (int) ((hash >>> bit) & 1) * 2 - 1;
+    }
+
+    /**
+     * Returns the number of bits differing between two fingerprints.
+     *
+     * @param a A fingerprint.
+     * @param b Another fingerprint.
+     * @return The Hamming distance between the fingerprints.
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,255 @@
+package com.pydawan.pydabot.moderation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.util.Hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A bounded cache in front of a severity function, for messages repeated many
+ * times such as during raids and emote spam.
+ *
+ * Messages are keyed by the 64 bits hash of their text, without trailing
+ * whitespaces and invisible characters, since chat clients append them to get
+ * around the duplicate message filter of the server. The severity function
+ * must give the same severity to messages differing only by such characters,
+ * and must be pure: when its rules change, {@link #invalidate()} must be
+ * called.
+ *
+ * The cache is set associative, with 8 entries per set, and evicts with the
+ * CLOCK algorithm within a set: a hit marks its entry as referenced, and an
+ * insertion replaces the first entry not referenced since the hand last passed
+ * it. Entries expire after a time to live.
+ *
+ * Lookups do not lock. Each entry is a key and a metadata word holding its
+ * severity, expiry, epoch and referenced bit. A writer claims an entry by
+ * swapping its metadata for a locked marker, then writes the key, then the new
+ * metadata. A reader reads the metadata, the key, then the metadata again, and
+ * only trusts the key if both reads agree; a writer that fails to claim an
+ * entry does not insert, since the cache is only an optimization.
+ */
+public class VerdictCache implements Function<String, Severity>, VerdictCacheMXBean {
+
+    /**
+     * The default number of cached verdicts.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int WAYS = 8;
+
+    private static final long VALID = 1L;
+    private static final long REFERENCED = 1L << 1;
+    private static final int SEVERITY_SHIFT = 2;
+    private static final long SEVERITY_MASK = 0xF;
+    private static final int EPOCH_SHIFT = 6;
+    private static final long EPOCH_MASK = 0xFFFF;
+    private static final int EXPIRY_SHIFT = 22;
+
+    /**
+     * The metadata of an entry being written, which is never valid.
+     */
+    private static final long LOCKED = REFERENCED;
+
+    private static final Severity[] SEVERITIES = Severity.values();
+
+    private final Function<String, Severity> severityOf;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray metas;
+    private final int[] hands;
+    private final int setMask;
+    private final long ttlMillis;
+    private final long origin = System.nanoTime();
+    private final AtomicInteger epoch = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * The number of cached verdicts, rounded up to a power of two.
+     */
+    @Getter
+    private final int capacity;
+
+    /**
+     * Creates a new VerdictCache.
+     *
+     * @param severityOf The severity function to cache. The function must be pure
+     *                   and must not return null.
+     * @param capacity   The number of cached verdicts, rounded up to a power of
+     *                   two.
+     * @param ttl        The time during which a verdict is cached.
+     * @param unit       The unit of the time to live.
+     */
+    public VerdictCache(@NonNull Function<String, Severity> severityOf, int capacity, long ttl,
+            @NonNull TimeUnit unit) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        if (ttl <= 0)
+            throw new IllegalArgumentException("ttl must be positive");
+
+        int sets = (capacity + WAYS - 1) / WAYS;
+        sets = sets == 1 ? 1 : Integer.highestOneBit(sets - 1) << 1;
+
+        this.severityOf = severityOf;
+        this.capacity = sets * WAYS;
+        this.keys = new AtomicLongArray(this.capacity);
+        this.metas = new AtomicLongArray(this.capacity);
+        this.hands = new int[sets];
+        this.setMask = sets - 1;
+        this.ttlMillis = Math.max(1, unit.toMillis(ttl));
+    }
+
+    /**
+     * Creates a new VerdictCache of {@link #DEFAULT_CAPACITY} verdicts.
+     *
+     * @param severityOf The severity function to cache.
+     * @param ttl        The time during which a verdict is cached.
+     * @param unit       The unit of the time to live.
+     */
+    public VerdictCache(@NonNull Function<String, Severity> severityOf, long ttl, @NonNull TimeUnit unit) {
+        this(severityOf, DEFAULT_CAPACITY, ttl, unit);
+    }
+
+    @Override
+    public Severity apply(String message) {
+        return severityOf(message, System.nanoTime());
+    }
+
+    /**
+     * Returns the severity of a message, from the cache if possible.
+     *
+     * @param message  The message.
+     * @param nowNanos The current time, as given by {@link System#nanoTime()}.
+     * @return The severity of the message.
+     */
+    public Severity severityOf(@NonNull String message, long nowNanos) {
+        long key = keyOf(message);
+        long now = Math.max(0, nowNanos - origin) / 1_000_000;
+        int currentEpoch = epoch.get() & (int) EPOCH_MASK;
+        int set = (int) key & setMask;
+        int base = set * WAYS;
+
+        for (int i = base; i < base + WAYS; i++) {
+            long meta = metas.get(i);
+            if (!isLive(meta, currentEpoch, now) || keys.get(i) != key || metas.get(i) != meta)
+                continue;
+
+            if ((meta & REFERENCED) == 0)
+                metas.compareAndSet(i, meta, meta | REFERENCED);
+            hits.increment();
+            return SEVERITIES[(int) (meta >>> SEVERITY_SHIFT & SEVERITY_MASK)];
+        }
+
+        misses.increment();
+        Severity severity = severityOf.apply(message);
+        insert(set, key, severity, currentEpoch, now);
+        return severity;
+    }
+
+    private void insert(int set, long key, Severity severity, int currentEpoch, long now) {
+        int base = set * WAYS;
+        int hand = hands[set];
+        int victim = -1;
+        long victimMeta = 0;
+
+        // Two rounds at most: the first one clears the referenced bits it passes.
+        for (int step = 0; step < 2 * WAYS; step++) {
+            int i = base + (hand + step) % WAYS;
+            long meta = metas.get(i);
+            if (meta == LOCKED)
+                continue;
+            if (!isLive(meta, currentEpoch, now) || (meta & REFERENCED) == 0) {
+                victim = i;
+                victimMeta = meta;
+                hand = (hand + step + 1) % WAYS;
+                break;
+            }
+            metas.compareAndSet(i, meta, meta & ~REFERENCED);
+        }
+        hands[set] = hand;
+
+        if (victim < 0 || !metas.compareAndSet(victim, victimMeta, LOCKED))
+            return;
+        if (isLive(victimMeta, currentEpoch, now))
+            evictions.increment();
+
+        keys.set(victim, key);
+        metas.set(victim, VALID
+                | (long) severity.ordinal() << SEVERITY_SHIFT
+                | (long) currentEpoch << EPOCH_SHIFT
+                | (now + ttlMillis) << EXPIRY_SHIFT);
+    }
+
+    private static boolean isLive(long meta, int currentEpoch, long now) {
+        return (meta & VALID) != 0
+                && (meta >>> EPOCH_SHIFT & EPOCH_MASK) == currentEpoch
+                && (meta >>> EXPIRY_SHIFT) > now;
+    }
+
+    /**
+     * Discards every cached verdict, such as when the rules of the severity
+     * function change.
+     */
+    public void invalidate() {
+        epoch.incrementAndGet();
+        invalidations.increment();
+    }
+
+    /**
+     * Returns the key of a message: the hash of its text without trailing
+     * whitespaces and invisible characters.
+     */
+    static long keyOf(String message) {
+        int end = message.length();
+        while (end > 0 && isTrailingFiller(message, end))
+            end -= Character.isLowSurrogate(message.charAt(end - 1)) ? 2 : 1;
+        return Hashing.hash64(message, 0, end);
+    }
+
+    /**
+     * Returns whether the character before the given index is a whitespace or an
+     * invisible character, including U+E0000 as appended by some chat clients.
+     */
+    private static boolean isTrailingFiller(String message, int end) {
+        char c = message.charAt(end - 1);
+        if (c == '\uDC00')
+            return end > 1 && message.charAt(end - 2) == '\uDB40';
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\u2800' || LinkScanner.isIgnorable(c);
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,19 @@
+package com.pydawan.pydabot.moderation;
+
+/**
+ * The JMX view of a {@link VerdictCache}.
+ */
+public interface VerdictCacheMXBean {
+
+    int getCapacity();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    long getInvalidationCount();
+
+    double getHitRate();
+}
@@ -0,0 +1,16 @@
+package com.pydawan.pydabot.outbound;
+
+/**
+ * A component that sends its messages through an {@link OutboundScheduler}
+ * when it is given one. The {@link com.pydawan.pydabot.Bot} gives its scheduler
+ * to every listener implementing this interface.
+ */
+public interface OutboundAware {
+
+    /**
+     * Sets the scheduler through which messages are sent.
+     *
+     * @param outbound The scheduler, or null to send messages directly.
+     */
+    void setOutbound(OutboundScheduler outbound);
+}
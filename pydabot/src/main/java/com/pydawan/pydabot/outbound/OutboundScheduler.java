@@ -0,0 +1,554 @@
+package com.pydawan.pydabot.outbound;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.pircbotx.PircBotX;
+import org.pircbotx.hooks.events.MessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * A scheduler for outbound chat messages.
+ *
+ * Callers submit messages without blocking. A dedicated sender thread sends
+ * them through the sink while enforcing a global rate limit and a rate limit
+ * per target, so bursts are smoothed instead of being dropped or throttled by
+ * the server. When the limits do not allow sending every pending message,
+ * messages of a higher {@link Priority} go first; within a priority and a
+ * target, messages keep their submission order. A message identical to one
+ * that is still pending for the same target is coalesced with it.
+ *
+ * Each time it wakes up, the sender thread sends every message the limits
+ * allow back to back, before waiting for the next token.
+ *
+ * Messages to a target that is not available, such as a channel whose
+ * connection is down, are held until it is available again, then flushed
+ * within the rate limits. The number of pending messages is bounded: messages
+ * submitted past the capacity are rejected. Messages pending for longer than
+ * the maximum age are dropped instead of being sent late.
+ */
+public class OutboundScheduler implements AutoCloseable, OutboundSchedulerMXBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundScheduler.class);
+
+    /**
+     * The default global limit, matching Twitch's limit for regular accounts.
+     */
+    public static final RateLimit DEFAULT_GLOBAL_LIMIT = new RateLimit(20, 30, TimeUnit.SECONDS);
+
+    /**
+     * The default limit per target.
+     */
+    public static final RateLimit DEFAULT_TARGET_LIMIT = new RateLimit(1, 1, TimeUnit.SECONDS);
+
+    /**
+     * The longest the sender thread sleeps before checking its queues again.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * How often buckets of idle targets are discarded.
+     */
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * The default maximum number of pending messages.
+     */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    /**
+     * The default maximum age of a pending message, in seconds.
+     */
+    public static final long DEFAULT_MAX_AGE_SECONDS = 60;
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private static final class Pending {
+        final String target;
+        final String message;
+        final Priority priority;
+        final String key;
+        final long submittedAt;
+
+        Pending(String target, String message, Priority priority, long submittedAt) {
+            this.target = target;
+            this.message = message;
+            this.priority = priority;
+            this.key = target + '\n' + message;
+            this.submittedAt = submittedAt;
+        }
+    }
+
+    /**
+     * Sends a message to a target. Called from the sender thread only.
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private volatile BiConsumer<String, String> sink;
+
+    /**
+     * Called with the target of every submitted message, on the thread
+     * submitting it. May be null.
+     */
+    @Getter
+    @Setter
+    private volatile Consumer<String> submitObserver;
+
+    /**
+     * Whether messages can be sent to a target. Messages to an unavailable
+     * target are held until it is available. If null, every target is
+     * available. Called from the sender thread only.
+     */
+    @Getter
+    @Setter
+    private volatile Predicate<String> availability;
+
+    /**
+     * The maximum number of pending messages. Messages submitted past it are
+     * rejected.
+     */
+    @Getter
+    @Setter
+    private volatile int capacity = DEFAULT_CAPACITY;
+
+    /**
+     * The maximum age of a pending message, in nanoseconds. Older messages are
+     * dropped.
+     */
+    @Getter
+    private volatile long maxAgeNanos = TimeUnit.SECONDS.toNanos(DEFAULT_MAX_AGE_SECONDS);
+
+    @Getter
+    private final RateLimit globalLimit;
+    @Getter
+    private final RateLimit targetLimit;
+
+    private final ConcurrentLinkedQueue<Pending> inbox = new ConcurrentLinkedQueue<>();
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    // State owned by the sender thread.
+    private final Map<Priority, LinkedHashMap<String, ArrayDeque<Pending>>> queues = new EnumMap<>(Priority.class);
+    private final Map<String, TokenBucket> targetBuckets = new HashMap<>();
+    private TokenBucket globalBucket;
+    private long lastSweep;
+
+    private volatile Thread sender;
+    private volatile boolean running;
+
+    /**
+     * Creates a new OutboundScheduler.
+     *
+     * @param sink        Sends a message to a target.
+     * @param globalLimit The limit on all messages.
+     * @param targetLimit The limit on the messages of each target.
+     */
+    public OutboundScheduler(@NonNull BiConsumer<String, String> sink, @NonNull RateLimit globalLimit,
+            @NonNull RateLimit targetLimit) {
+        this.sink = sink;
+        this.globalLimit = globalLimit;
+        this.targetLimit = targetLimit;
+        for (Priority priority : PRIORITIES)
+            queues.put(priority, new LinkedHashMap<>());
+    }
+
+    /**
+     * Creates a new OutboundScheduler with the default limits.
+     *
+     * @param sink Sends a message to a target.
+     */
+    public OutboundScheduler(@NonNull BiConsumer<String, String> sink) {
+        this(sink, DEFAULT_GLOBAL_LIMIT, DEFAULT_TARGET_LIMIT);
+    }
+
+    /**
+     * Sets the maximum age of a pending message. Older messages are dropped.
+     *
+     * @param maxAge The maximum age.
+     * @param unit   The unit of the maximum age.
+     * @throws IllegalArgumentException If the maximum age is not positive.
+     */
+    public void setMaxAge(long maxAge, @NonNull TimeUnit unit) {
+        if (maxAge <= 0)
+            throw new IllegalArgumentException("maxAge must be positive");
+        maxAgeNanos = unit.toNanos(maxAge);
+    }
+
+    /**
+     * Starts the sender thread if it is not running.
+     */
+    public synchronized void start() {
+        if (sender != null && sender.isAlive())
+            return;
+
+        running = true;
+        Thread thread = new Thread(this::runSender, "outbound-scheduler");
+        thread.setDaemon(true);
+        sender = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the sender thread. Pending messages are kept and will be sent if the
+     * scheduler is started again.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        Thread thread = sender;
+        if (thread == null)
+            return;
+
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sender = null;
+    }
+
+    /**
+     * Returns whether the sender thread is running.
+     *
+     * @return <code>true</code> if the sender thread is running.
+     */
+    @Override
+    public boolean isRunning() {
+        Thread thread = sender;
+        return running && thread != null && thread.isAlive();
+    }
+
+    /**
+     * Submits a message. Never blocks.
+     *
+     * @param target   The channel or user to send the message to.
+     * @param message  The message.
+     * @param priority The priority of the message.
+     * @return <code>true</code> if the message was queued, <code>false</code> if
+     *         it was coalesced with an identical pending message or rejected
+     *         because the queue is full.
+     */
+    public boolean submit(@NonNull String target, @NonNull String message, @NonNull Priority priority) {
+        submitted.increment();
+        Consumer<String> observer = submitObserver;
+        if (observer != null)
+            observer.accept(target);
+
+        if (queueDepth.get() >= capacity) {
+            rejected.increment();
+            return false;
+        }
+
+        Pending pending = new Pending(target, message, priority, System.nanoTime());
+        if (!pendingKeys.add(pending.key)) {
+            coalesced.increment();
+            return false;
+        }
+
+        queueDepth.incrementAndGet();
+        inbox.add(pending);
+
+        Thread thread = sender;
+        if (thread != null)
+            LockSupport.unpark(thread);
+        return true;
+    }
+
+    /**
+     * Submits a reply to the sender of a message, in the channel of the message.
+     * The reply is prefixed by the nickname of the sender, like
+     * {@link MessageEvent#respond(String)}.
+     *
+     * @param event    The message to reply to.
+     * @param response The reply.
+     * @param priority The priority of the reply.
+     * @return <code>true</code> if the reply was queued, <code>false</code> if it
+     *         was coalesced with an identical pending message or rejected
+     *         because the queue is full.
+     */
+    public boolean respond(@NonNull MessageEvent event, @NonNull String response, @NonNull Priority priority) {
+        return submit(event.getChannel().getName(), event.getUser().getNick() + ": " + response, priority);
+    }
+
+    /**
+     * Replies to the sender of a message through the given scheduler, or
+     * directly if there is none.
+     *
+     * @param outbound The scheduler, or null to reply directly.
+     * @param event    The message to reply to.
+     * @param response The reply.
+     * @param priority The priority of the reply.
+     */
+    public static void respond(OutboundScheduler outbound, @NonNull MessageEvent event, @NonNull String response,
+            @NonNull Priority priority) {
+        if (outbound != null)
+            outbound.respond(event, response, priority);
+        else
+            event.respond(response);
+    }
+
+    /**
+     * Sends a message through the given scheduler, or directly by the given bot
+     * if there is no scheduler.
+     *
+     * @param outbound The scheduler, or null to send the message directly.
+     * @param bot      The bot sending the message if there is no scheduler, or
+     *                 null to drop it.
+     * @param target   The channel or user to send the message to.
+     * @param message  The message.
+     * @param priority The priority of the message.
+     */
+    public static void message(OutboundScheduler outbound, PircBotX bot, @NonNull String target,
+            @NonNull String message, @NonNull Priority priority) {
+        if (outbound != null)
+            outbound.submit(target, message, priority);
+        else if (bot != null)
+            bot.send().message(target, message);
+    }
+
+    private void runSender() {
+        while (running) {
+            long wait;
+            try {
+                wait = dispatch(System.nanoTime());
+            } catch (RuntimeException e) {
+                LOGGER.error("Outbound dispatch failed", e);
+                wait = MAX_PARK_NANOS;
+            }
+            if (inbox.isEmpty())
+                LockSupport.parkNanos(this, Math.min(wait, MAX_PARK_NANOS));
+        }
+    }
+
+    private void drainInbox() {
+        Pending pending;
+        while ((pending = inbox.poll()) != null)
+            queues.get(pending.priority).computeIfAbsent(pending.target, target -> new ArrayDeque<>()).add(pending);
+    }
+
+    /**
+     * Sends every message the rate limits allow.
+     *
+     * @return The number of nanoseconds until another message might be sent.
+     */
+    long dispatch(long now) {
+        drainInbox();
+
+        if (globalBucket == null)
+            globalBucket = globalLimit.newBucket(now);
+
+        long wait = Long.MAX_VALUE;
+        Predicate<String> availability = this.availability;
+        long oldest = now - maxAgeNanos;
+        for (Priority priority : PRIORITIES) {
+            Iterator<Map.Entry<String, ArrayDeque<Pending>>> targets = queues.get(priority).entrySet().iterator();
+            while (targets.hasNext()) {
+                Map.Entry<String, ArrayDeque<Pending>> entry = targets.next();
+                ArrayDeque<Pending> queue = entry.getValue();
+                expire(queue, oldest);
+                if (queue.isEmpty()) {
+                    targets.remove();
+                    continue;
+                }
+                if (availability != null && !availability.test(entry.getKey())) {
+                    wait = Math.min(wait, MAX_PARK_NANOS);
+                    continue;
+                }
+
+                TokenBucket bucket = targetBuckets.computeIfAbsent(entry.getKey(), t -> targetLimit.newBucket(now));
+
+                while (!queue.isEmpty()) {
+                    if (!globalBucket.isAvailable(now))
+                        return globalBucket.nanosUntilAvailable(now);
+                    if (!bucket.tryAcquire(now)) {
+                        wait = Math.min(wait, bucket.nanosUntilAvailable(now));
+                        break;
+                    }
+                    globalBucket.tryAcquire(now);
+                    if (!send(queue.peek(), now))
+                        break;
+                    queue.poll();
+                }
+
+                if (queue.isEmpty())
+                    targets.remove();
+            }
+        }
+
+        if (now - lastSweep > SWEEP_INTERVAL_NANOS) {
+            targetBuckets.entrySet().removeIf(entry -> entry.getValue().isFull(now) && !isPending(entry.getKey()));
+            lastSweep = now;
+        }
+        return wait;
+    }
+
+    private boolean isPending(String target) {
+        for (Priority priority : PRIORITIES)
+            if (queues.get(priority).containsKey(target))
+                return true;
+        return false;
+    }
+
+    /**
+     * Drops the messages of a queue submitted before the given time. Messages of
+     * a queue are in submission order, so only its head is checked.
+     */
+    private void expire(ArrayDeque<Pending> queue, long oldest) {
+        while (!queue.isEmpty() && queue.peek().submittedAt - oldest < 0) {
+            Pending pending = queue.poll();
+            pendingKeys.remove(pending.key);
+            queueDepth.decrementAndGet();
+            expired.increment();
+        }
+    }
+
+    /**
+     * Sends a message. A message the sink fails to send is kept pending if its
+     * target became unavailable meanwhile.
+     *
+     * @return <code>false</code> if the message is kept pending.
+     */
+    private boolean send(Pending pending, long now) {
+        try {
+            sink.accept(pending.target, pending.message);
+            sent.increment();
+        } catch (RuntimeException e) {
+            Predicate<String> availability = this.availability;
+            if (availability != null && !availability.test(pending.target))
+                return false;
+            LOGGER.warn("Cannot send a message to {}", pending.target, e);
+            failed.increment();
+        }
+
+        pendingKeys.remove(pending.key);
+        queueDepth.decrementAndGet();
+
+        long waited = now - pending.submittedAt;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        return true;
+    }
+
+    /**
+     * Returns the number of messages waiting to be sent.
+     *
+     * @return The number of pending messages.
+     */
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Returns the number of messages submitted so far.
+     *
+     * @return The number of submitted messages.
+     */
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Returns the number of messages coalesced with an identical pending
+     * message.
+     *
+     * @return The number of coalesced messages.
+     */
+    @Override
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the number of messages sent so far.
+     *
+     * @return The number of sent messages.
+     */
+    @Override
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * Returns the number of messages the sink failed to send.
+     *
+     * @return The number of failed messages.
+     */
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of messages rejected because the queue was full.
+     *
+     * @return The number of rejected messages.
+     */
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the number of messages dropped because they were pending for longer
+     * than the maximum age.
+     *
+     * @return The number of expired messages.
+     */
+    @Override
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Returns the average time messages waited in the queue before being sent.
+     *
+     * @return The average wait time, in nanoseconds.
+     */
+    @Override
+    public long getAverageWaitNanos() {
+        long count = sent.sum() + failed.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / count;
+    }
+
+    /**
+     * Returns the longest time a message waited in the queue before being sent.
+     *
+     * @return The longest wait time, in nanoseconds.
+     */
+    @Override
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+}
@@ -0,0 +1,27 @@
+package com.pydawan.pydabot.outbound;
+
+/**
+ * The JMX view of an {@link OutboundScheduler}.
+ */
+public interface OutboundSchedulerMXBean {
+
+    boolean isRunning();
+
+    int getQueueDepth();
+
+    long getSubmittedCount();
+
+    long getCoalescedCount();
+
+    long getSentCount();
+
+    long getFailedCount();
+
+    long getRejectedCount();
+
+    long getExpiredCount();
+
+    long getAverageWaitNanos();
+
+    long getMaxWaitNanos();
+}
@@ -0,0 +1,21 @@
+package com.pydawan.pydabot.outbound;
+
+/**
+ * The priority of an outbound message.
+ * Messages of a higher priority are sent first when the rate limits do not
+ * allow sending every pending message.
+ */
+public enum Priority {
+    /**
+     * Responses to moderated messages.
+     */
+    MODERATION,
+    /**
+     * Replies to commands.
+     */
+    COMMAND,
+    /**
+     * Periodic announcements.
+     */
+    ANNOUNCEMENT,
+}
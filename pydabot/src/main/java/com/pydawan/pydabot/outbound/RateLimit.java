@@ -0,0 +1,25 @@
+package com.pydawan.pydabot.outbound;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Data;
+
+/**
+ * A number of messages allowed per period.
+ */
+@Data
+public class RateLimit {
+    private final int messages;
+    private final long period;
+    private final TimeUnit unit;
+
+    /**
+     * Creates a token bucket enforcing this limit.
+     *
+     * @param now The current time, in nanoseconds.
+     * @return A full token bucket.
+     */
+    public TokenBucket newBucket(long now) {
+        return new TokenBucket(messages, period, unit, now);
+    }
+}
@@ -0,0 +1,103 @@
+package com.pydawan.pydabot.outbound;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+/**
+ * A token bucket rate limiter.
+ * The bucket holds up to capacity tokens and refills continuously, at a rate of
+ * capacity tokens per period.
+ *
+ * This class is not thread safe.
+ */
+public final class TokenBucket {
+
+    /**
+     * The maximum number of tokens of the bucket.
+     */
+    @Getter
+    private final int capacity;
+
+    private final long nanosPerToken;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity The maximum number of tokens, which is also the number of
+     *                 tokens refilled per period.
+     * @param period   The period in which the bucket is entirely refilled.
+     * @param unit     The unit of the period.
+     * @param now      The current time, in nanoseconds.
+     * @throws IllegalArgumentException If the capacity or the period is not
+     *                                  positive.
+     */
+    public TokenBucket(int capacity, long period, TimeUnit unit, long now) {
+        if (capacity <= 0 || period <= 0)
+            throw new IllegalArgumentException("Capacity and period must be positive");
+
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1, unit.toNanos(period) / capacity);
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0)
+            return;
+        tokens = Math.min(capacity, tokens + elapsed / (double) nanosPerToken);
+        lastRefill = now;
+    }
+
+    /**
+     * Returns whether a token is available.
+     *
+     * @param now The current time, in nanoseconds.
+     * @return <code>true</code> if a token is available.
+     */
+    public boolean isAvailable(long now) {
+        refill(now);
+        return tokens >= 1;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param now The current time, in nanoseconds.
+     * @return <code>true</code> if a token was taken.
+     */
+    public boolean tryAcquire(long now) {
+        if (!isAvailable(now))
+            return false;
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Returns whether the bucket is full.
+     *
+     * @param now The current time, in nanoseconds.
+     * @return <code>true</code> if the bucket is full.
+     */
+    public boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    /**
+     * Returns the time until a token is available.
+     *
+     * @param now The current time, in nanoseconds.
+     * @return The number of nanoseconds until a token is available, 0 if one is
+     *         available now.
+     */
+    public long nanosUntilAvailable(long now) {
+        refill(now);
+        if (tokens >= 1)
+            return 0;
+        return (long) Math.ceil((1 - tokens) * nanosPerToken);
+    }
+}
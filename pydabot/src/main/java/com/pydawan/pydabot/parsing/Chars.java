@@ -0,0 +1,54 @@
+package com.pydawan.pydabot.parsing;
+
+/**
+ * Character classification helpers shared by the message parsers.
+ */
+public class Chars {
+    private Chars() {
+    }
+
+    /**
+     * Returns whether the given character is a whitespace, as defined by the \\s
+     * regex class.
+     *
+     * @param c The character to test.
+     * @return <code>true</code> if the character is a whitespace.
+     */
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns the index of the first non whitespace character at or after the
+     * given index.
+     *
+     * @param sequence The sequence to scan.
+     * @param from     The index to start scanning from.
+     * @return The index of the first non whitespace character, or the length of
+     *         the sequence if there is none.
+     */
+    public static int skipWhitespace(CharSequence sequence, int from) {
+        int length = sequence.length();
+        int i = from;
+        while (i < length && isWhitespace(sequence.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * Returns the index of the first whitespace character at or after the given
+     * index.
+     *
+     * @param sequence The sequence to scan.
+     * @param from     The index to start scanning from.
+     * @return The index of the first whitespace character, or the length of the
+     *         sequence if there is none.
+     */
+    public static int tokenEnd(CharSequence sequence, int from) {
+        int length = sequence.length();
+        int i = from;
+        while (i < length && !isWhitespace(sequence.charAt(i)))
+            i++;
+        return i;
+    }
+}
@@ -0,0 +1,161 @@
+package com.pydawan.pydabot.parsing;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import lombok.NonNull;
+
+/**
+ * An immutable char trie mapping command names to values.
+ *
+ * Command names are made of word characters ([a-zA-Z0-9_]), the same set the
+ * former ^!(\\w+) regex accepted. The trie is stored in a single dense
+ * transition table indexed by node and character class, so a lookup only reads
+ * the characters of the name from the original message and never allocates a
+ * substring.
+ *
+ * @param <V> The type of the values.
+ */
+public final class CommandTrie<V> {
+
+    /**
+     * The number of distinct word characters: 26 lowercase letters, 26
+     * uppercase letters, 10 digits and the underscore.
+     */
+    private static final int ALPHABET_SIZE = 63;
+
+    /**
+     * Maps an ASCII character to its class in the transition table, or -1 if the
+     * character is not a word character.
+     */
+    private static final byte[] CLASS_OF = new byte[128];
+
+    static {
+        Arrays.fill(CLASS_OF, (byte) -1);
+        byte next = 0;
+        for (char c = 'a'; c <= 'z'; c++)
+            CLASS_OF[c] = next++;
+        for (char c = 'A'; c <= 'Z'; c++)
+            CLASS_OF[c] = next++;
+        for (char c = '0'; c <= '9'; c++)
+            CLASS_OF[c] = next++;
+        CLASS_OF['_'] = next;
+    }
+
+    /**
+     * Transitions of the trie. The child of node n for class c is stored at
+     * n * ALPHABET_SIZE + c. A value of 0 means no child since the root can never
+     * be a child.
+     */
+    private final int[] transitions;
+
+    /**
+     * The value of each node, or null if no command ends at this node.
+     */
+    private final Object[] values;
+
+    /**
+     * Builds a trie from the given map of command names to values.
+     *
+     * @param entries A map of command names to values.
+     * @throws IllegalArgumentException If a command name is empty or contains a
+     *                                  non word character.
+     */
+    public CommandTrie(@NonNull Map<String, ? extends V> entries) {
+        int maxNodes = 1;
+        for (String name : entries.keySet())
+            maxNodes += name.length();
+
+        int[] table = new int[maxNodes * ALPHABET_SIZE];
+        Object[] nodeValues = new Object[maxNodes];
+        int nodeCount = 1;
+
+        for (Map.Entry<String, ? extends V> entry : entries.entrySet()) {
+            String name = entry.getKey();
+            if (name.isEmpty())
+                throw new IllegalArgumentException("Command name must not be empty");
+
+            int node = 0;
+            for (int i = 0; i < name.length(); i++) {
+                int c = classOf(name.charAt(i));
+                if (c < 0)
+                    throw new IllegalArgumentException("Invalid command name: " + name);
+
+                int index = node * ALPHABET_SIZE + c;
+                if (table[index] == 0)
+                    table[index] = nodeCount++;
+                node = table[index];
+            }
+            nodeValues[node] = entry.getValue();
+        }
+
+        this.transitions = Arrays.copyOf(table, nodeCount * ALPHABET_SIZE);
+        this.values = Arrays.copyOf(nodeValues, nodeCount);
+    }
+
+    /**
+     * Returns the value of the command whose name is the given region of the
+     * sequence.
+     *
+     * @param sequence The sequence containing the command name.
+     * @param start    The index of the first character of the name, inclusive.
+     * @param end      The index of the last character of the name, exclusive.
+     * @return The value of the command, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(CharSequence sequence, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            int c = classOf(sequence.charAt(i));
+            if (c < 0)
+                return null;
+
+            node = transitions[node * ALPHABET_SIZE + c];
+            if (node == 0)
+                return null;
+        }
+        return (V) values[node];
+    }
+
+    /**
+     * Returns the value of the command with the given name.
+     *
+     * @param name The name of the command.
+     * @return The value of the command, or null if there is none.
+     */
+    public V get(CharSequence name) {
+        return get(name, 0, name.length());
+    }
+
+    /**
+     * Returns the index of the first non word character at or after the given
+     * index.
+     *
+     * @param sequence The sequence to scan.
+     * @param from     The index to start scanning from.
+     * @return The index of the first non word character, or the length of the
+     *         sequence if there is none.
+     */
+    public static int wordEnd(CharSequence sequence, int from) {
+        int length = sequence.length();
+        int i = from;
+        while (i < length && isWordChar(sequence.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * Returns whether the given character is a word character, as defined by the
+     * \\w regex class.
+     *
+     * @param c The character to test.
+     * @return <code>true</code> if the character is a word character.
+     */
+    public static boolean isWordChar(char c) {
+        return classOf(c) >= 0;
+    }
+
+    private static int classOf(char c) {
+        return c < 128 ? CLASS_OF[c] : -1;
+    }
+}
@@ -0,0 +1,249 @@
+package com.pydawan.pydabot.parsing;
+
+import java.util.Arrays;
+
+import com.pydawan.pydabot.Arguments;
+import com.pydawan.pydabot.moderation.LinkScanner;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import static com.pydawan.pydabot.parsing.Chars.skipWhitespace;
+
+/**
+ * A chat message that has been tokenized and classified once, to be shared by
+ * every stage of a {@link com.pydawan.pydabot.listeners.MessagePipeline}.
+ *
+ * Tokens are separated by whitespaces. The message is a command if its first
+ * token starts with the prefix and is longer than it; the rest of the token is
+ * the command name and the following tokens are its arguments.
+ *
+ * Instances are immutable. Positions are indexes in the original message, so
+ * consumers can read regions of it without copying. Links are only searched
+ * the first time a stage asks for them, since most messages never need it.
+ */
+public final class ParsedMessage {
+
+    private static final int[] NO_BOUNDS = new int[0];
+
+    /**
+     * The original message.
+     */
+    @Getter
+    private final String message;
+
+    /**
+     * The prefix commands start with.
+     */
+    @Getter
+    private final String prefix;
+
+    private final int[] tokens;
+    private final int tokenCount;
+    // The bounds of the links, found on first access.
+    private volatile int[] links;
+
+    private ParsedMessage(String message, String prefix, int[] tokens, int tokenCount, int[] links) {
+        this.message = message;
+        this.prefix = prefix;
+        this.tokens = tokens;
+        this.tokenCount = tokenCount;
+        this.links = links;
+    }
+
+    /**
+     * Tokenizes and classifies the given message.
+     *
+     * @param message The message to parse.
+     * @param prefix  The prefix commands start with.
+     * @return The parsed message.
+     */
+    public static ParsedMessage parse(@NonNull String message, @NonNull String prefix) {
+        int[] tokens = NO_BOUNDS;
+        int count = 0;
+
+        int position = skipWhitespace(message, 0);
+        while (position < message.length()) {
+            int end = Chars.tokenEnd(message, position);
+            if (tokens.length < 2 * (count + 1))
+                tokens = Arrays.copyOf(tokens, Math.max(8, tokens.length * 2));
+            tokens[2 * count] = position;
+            tokens[2 * count + 1] = end;
+            count++;
+            position = skipWhitespace(message, end);
+        }
+
+        return new ParsedMessage(message, prefix, tokens, count, null);
+    }
+
+    /**
+     * Returns this message classified with another prefix. The tokens, and the
+     * links if they were found, are shared, so a stage with its own prefix does
+     * not parse the message again.
+     *
+     * @param prefix The prefix commands start with.
+     * @return This message if it has the same prefix, a copy with the given
+     *         prefix otherwise.
+     */
+    public ParsedMessage withPrefix(@NonNull String prefix) {
+        return this.prefix.equals(prefix) ? this : new ParsedMessage(message, prefix, tokens, tokenCount, links);
+    }
+
+    /**
+     * Returns whether the message is a command, that is whether its first token
+     * starts with the prefix and is followed by a command name.
+     *
+     * @return <code>true</code> if the message is a command.
+     */
+    public boolean isCommand() {
+        return tokenCount > 0
+                && tokens[1] - tokens[0] > prefix.length()
+                && message.startsWith(prefix, tokens[0]);
+    }
+
+    /**
+     * Returns the index of the first character of the command name.
+     *
+     * @return The index of the first character of the command name.
+     * @throws IllegalStateException If the message is not a command.
+     */
+    public int getCommandStart() {
+        checkCommand();
+        return tokens[0] + prefix.length();
+    }
+
+    /**
+     * Returns the index following the last character of the command name.
+     *
+     * @return The index following the last character of the command name.
+     * @throws IllegalStateException If the message is not a command.
+     */
+    public int getCommandEnd() {
+        checkCommand();
+        return tokens[1];
+    }
+
+    /**
+     * Returns whether the message is the given command, ignoring case, without
+     * copying the command name.
+     *
+     * @param name The name of the command, without the prefix.
+     * @return <code>true</code> if the message is a command with this name.
+     */
+    public boolean isCommand(@NonNull String name) {
+        if (!isCommand())
+            return false;
+        int start = tokens[0] + prefix.length();
+        return tokens[1] - start == name.length() && message.regionMatches(true, start, name, 0, name.length());
+    }
+
+    /**
+     * Returns a copy of the command name.
+     *
+     * @return The command name.
+     * @throws IllegalStateException If the message is not a command.
+     */
+    public String getCommandName() {
+        return message.substring(getCommandStart(), getCommandEnd());
+    }
+
+    /**
+     * Returns a view over the arguments of the command.
+     * The view reuses the token positions computed while parsing.
+     *
+     * @return The arguments of the command.
+     * @throws IllegalStateException If the message is not a command.
+     */
+    public Arguments getArguments() {
+        checkCommand();
+        return new Arguments(message, tokens, 1, tokenCount - 1);
+    }
+
+    private void checkCommand() {
+        if (!isCommand())
+            throw new IllegalStateException("Message is not a command");
+    }
+
+    /**
+     * Returns the number of whitespace separated tokens of the message.
+     *
+     * @return The number of tokens.
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Returns the index of the first character of the token of the given index.
+     *
+     * @param index The index of the token.
+     * @return The index of the first character of the token.
+     */
+    public int tokenStart(int index) {
+        return tokens[2 * checkTokenIndex(index)];
+    }
+
+    /**
+     * Returns the index following the last character of the token of the given
+     * index.
+     *
+     * @param index The index of the token.
+     * @return The index following the last character of the token.
+     */
+    public int tokenEnd(int index) {
+        return tokens[2 * checkTokenIndex(index) + 1];
+    }
+
+    private int checkTokenIndex(int index) {
+        if (index < 0 || index >= tokenCount)
+            throw new IndexOutOfBoundsException("No token at index " + index);
+        return index;
+    }
+
+    /**
+     * Returns whether the message contains a link, as found by
+     * {@link LinkScanner#getDefault()}.
+     *
+     * @return <code>true</code> if the message contains a link.
+     */
+    public boolean hasLinks() {
+        return links().length > 0;
+    }
+
+    /**
+     * Returns the number of links found in the message.
+     *
+     * @return The number of links.
+     */
+    public int getLinkCount() {
+        return links().length / 2;
+    }
+
+    /**
+     * Returns the index of the first character of the link of the given index.
+     *
+     * @param index The index of the link.
+     * @return The index of the first character of the link.
+     */
+    public int linkStart(int index) {
+        return links()[2 * index];
+    }
+
+    /**
+     * Returns the index following the last character of the link of the given
+     * index.
+     *
+     * @param index The index of the link.
+     * @return The index following the last character of the link.
+     */
+    public int linkEnd(int index) {
+        return links()[2 * index + 1];
+    }
+
+    private int[] links() {
+        int[] links = this.links;
+        if (links == null)
+            this.links = links = LinkScanner.getDefault().find(message);
+        return links;
+    }
+}
@@ -0,0 +1,142 @@
+package com.pydawan.pydabot.poll;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.pydawan.pydabot.util.ConcurrentLongSet;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A poll of a channel, counting one vote per user.
+ *
+ * Votes are counted in one {@link LongAdder} per option, so that threads
+ * voting at once do not contend on a single counter, and voters are
+ * remembered in a {@link ConcurrentLongSet} of their user ids. Voting never
+ * allocates once the set of voters has grown to the audience of the poll.
+ */
+public final class Poll {
+
+    /**
+     * The question of the poll.
+     */
+    @Getter
+    private final String question;
+
+    /**
+     * The options of the poll, numbered from 1 by voters.
+     */
+    @Getter
+    private final List<String> options;
+
+    private final LongAdder[] tallies;
+    private final ConcurrentLongSet voters;
+
+    private volatile boolean open = true;
+
+    /**
+     * Creates a new open Poll.
+     *
+     * @param question The question of the poll.
+     * @param options  The options of the poll, numbered from 1 by voters.
+     * @throws IllegalArgumentException If there are less than two options.
+     */
+    public Poll(@NonNull String question, @NonNull List<String> options) {
+        if (options.size() < 2)
+            throw new IllegalArgumentException("a poll needs at least two options");
+
+        this.question = question;
+        this.options = List.copyOf(options);
+        this.tallies = new LongAdder[options.size()];
+        for (int i = 0; i < tallies.length; i++)
+            tallies[i] = new LongAdder();
+        this.voters = new ConcurrentLongSet();
+    }
+
+    /**
+     * Votes for an option. A voter may only vote once.
+     *
+     * @param voter  The user id of the voter.
+     * @param option The number of the option, from 1.
+     * @return The outcome of the vote.
+     */
+    public VoteResult vote(long voter, int option) {
+        if (!open)
+            return VoteResult.CLOSED;
+        if (option < 1 || option > tallies.length)
+            return VoteResult.INVALID;
+        if (!voters.add(voter))
+            return VoteResult.DUPLICATE;
+
+        tallies[option - 1].increment();
+        return VoteResult.COUNTED;
+    }
+
+    /**
+     * Closes the poll. Votes are ignored afterwards.
+     *
+     * @return <code>true</code> if the poll was open.
+     */
+    public synchronized boolean close() {
+        boolean wasOpen = open;
+        open = false;
+        return wasOpen;
+    }
+
+    /**
+     * Returns whether the poll counts votes.
+     *
+     * @return <code>true</code> if the poll is open.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Returns the number of votes of each option. Votes counted meanwhile may be
+     * missing.
+     *
+     * @return The number of votes of each option, in the order of the options.
+     */
+    public long[] getTallies() {
+        long[] counts = new long[tallies.length];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = tallies[i].sum();
+        return counts;
+    }
+
+    /**
+     * Returns the number of votes.
+     *
+     * @return The number of votes of every option.
+     */
+    public long getVoteCount() {
+        long count = 0;
+        for (LongAdder tally : tallies)
+            count += tally.sum();
+        return count;
+    }
+
+    /**
+     * Formats the tallies, such as
+     * <code>Best pet? 1) cats: 3 (60%), 2) dogs: 2 (40%)</code>.
+     *
+     * @return The question and the tallies of the poll.
+     */
+    public String format() {
+        long[] counts = getTallies();
+        long total = 0;
+        for (long count : counts)
+            total += count;
+
+        StringBuilder builder = new StringBuilder(question);
+        for (int i = 0; i < counts.length; i++) {
+            builder.append(i == 0 ? " " : ", ").append(i + 1).append(") ").append(options.get(i)).append(": ")
+                    .append(counts[i]);
+            if (total > 0)
+                builder.append(" (").append(Math.round(100.0 * counts[i] / total)).append("%)");
+        }
+        return builder.toString();
+    }
+}
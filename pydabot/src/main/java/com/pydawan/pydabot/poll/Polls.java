@@ -0,0 +1,171 @@
+package com.pydawan.pydabot.poll;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.workers.TimingWheel;
+
+import org.pircbotx.PircBotX;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import static com.pydawan.pydabot.irc.IrcUtils.normalizeChannel;
+
+/**
+ * The polls of the channels, at most one per channel.
+ *
+ * Votes are only counted: the tallies of an open poll are published to its
+ * channel on a fixed interval, and only if votes were counted since they were
+ * last published, so a burst of votes sends at most one message per interval.
+ * The final tallies are published when the poll is closed.
+ */
+public class Polls implements OutboundAware {
+
+    /**
+     * The default interval between two publications of the tallies, in seconds.
+     */
+    public static final long DEFAULT_PUBLISH_SECONDS = 15;
+
+    private final TimingWheel scheduler;
+    private final long publishInterval;
+    private final TimeUnit publishUnit;
+
+    private final ConcurrentHashMap<String, ChannelPoll> polls = new ConcurrentHashMap<>();
+
+    /**
+     * The scheduler through which tallies are sent with the
+     * {@link Priority#ANNOUNCEMENT} priority. If null, tallies are sent directly
+     * by the bot of the channel.
+     */
+    @Getter
+    @Setter
+    private volatile OutboundScheduler outbound;
+
+    /**
+     * Creates a new Polls.
+     *
+     * @param scheduler       The scheduler publishing the tallies.
+     * @param publishInterval The interval between two publications of the
+     *                        tallies of a poll.
+     * @param publishUnit     The unit of the interval.
+     * @throws IllegalArgumentException If the interval is not positive.
+     */
+    public Polls(@NonNull TimingWheel scheduler, long publishInterval, @NonNull TimeUnit publishUnit) {
+        if (publishInterval <= 0)
+            throw new IllegalArgumentException("publishInterval must be positive");
+
+        this.scheduler = scheduler;
+        this.publishInterval = publishInterval;
+        this.publishUnit = publishUnit;
+    }
+
+    /**
+     * Creates a new Polls publishing the tallies every
+     * {@link #DEFAULT_PUBLISH_SECONDS} seconds.
+     *
+     * @param scheduler The scheduler publishing the tallies.
+     */
+    public Polls(@NonNull TimingWheel scheduler) {
+        this(scheduler, DEFAULT_PUBLISH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a poll in a channel, closing its previous poll if any.
+     *
+     * @param channel  The channel.
+     * @param question The question of the poll.
+     * @param options  The options of the poll.
+     * @param bot      The bot sending the tallies if there is no outbound
+     *                 scheduler, or null.
+     * @return The new poll.
+     * @throws IllegalArgumentException If there are less than two options.
+     */
+    public Poll open(@NonNull String channel, @NonNull String question, @NonNull List<String> options, PircBotX bot) {
+        String name = normalizeChannel(channel);
+        ChannelPoll poll = new ChannelPoll(name, new Poll(question, options), bot);
+        poll.timeout = scheduler.scheduleAtFixedRate(poll::publishIfChanged, publishInterval, publishInterval,
+                publishUnit);
+        ChannelPoll previous = polls.put(name, poll);
+        if (previous != null)
+            previous.close();
+        return poll.poll;
+    }
+
+    /**
+     * Closes the poll of a channel and publishes its final tallies.
+     *
+     * @param channel The channel.
+     * @return The closed poll, or null if the channel had no poll.
+     */
+    public Poll close(@NonNull String channel) {
+        ChannelPoll poll = polls.remove(normalizeChannel(channel));
+        if (poll == null)
+            return null;
+        poll.close();
+        poll.publish();
+        return poll.poll;
+    }
+
+    /**
+     * Returns the poll of a channel.
+     *
+     * @param channel The channel.
+     * @return The open poll of the channel, or null if it has none.
+     */
+    public Poll get(@NonNull String channel) {
+        ChannelPoll poll = polls.get(normalizeChannel(channel));
+        return poll == null ? null : poll.poll;
+    }
+
+    /**
+     * Votes in the poll of a channel.
+     *
+     * @param channel The channel, with its leading '#'.
+     * @param voter   The user id of the voter.
+     * @param option  The number of the option, from 1.
+     * @return The outcome of the vote.
+     */
+    public VoteResult vote(@NonNull String channel, long voter, int option) {
+        ChannelPoll poll = polls.get(channel);
+        return poll == null ? VoteResult.CLOSED : poll.poll.vote(voter, option);
+    }
+
+    /**
+     * An open poll and the state of the publication of its tallies.
+     */
+    private final class ChannelPoll {
+        final String channel;
+        final Poll poll;
+        final PircBotX bot;
+        TimingWheel.Timeout timeout;
+        long published;
+
+        ChannelPoll(String channel, Poll poll, PircBotX bot) {
+            this.channel = channel;
+            this.poll = poll;
+            this.bot = bot;
+        }
+
+        synchronized void publishIfChanged() {
+            if (poll.getVoteCount() != published)
+                publish();
+        }
+
+        synchronized void publish() {
+            published = poll.getVoteCount();
+            String message = poll.format();
+            OutboundScheduler.message(outbound, bot, channel, message, Priority.ANNOUNCEMENT);
+        }
+
+        void close() {
+            poll.close();
+            timeout.cancel();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.pydawan.pydabot.poll;
+
+/**
+ * The outcome of a vote.
+ */
+public enum VoteResult {
+    /**
+     * The vote was counted.
+     */
+    COUNTED,
+
+    /**
+     * The voter had already voted, the vote was ignored.
+     */
+    DUPLICATE,
+
+    /**
+     * The vote was for an option the poll does not have, it was ignored.
+     */
+    INVALID,
+
+    /**
+     * There is no open poll, the vote was ignored.
+     */
+    CLOSED
+}
@@ -0,0 +1,154 @@
+package com.pydawan.pydabot.poll;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pydawan.pydabot.listeners.MessageStage;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.MessageEvent;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import static com.pydawan.pydabot.irc.IrcUtils.isModerator;
+import static com.pydawan.pydabot.irc.IrcUtils.userIdOf;
+
+/**
+ * A listener running the polls of the channels.
+ *
+ * - !vote n votes for the option n of the poll of the channel.
+ * - !poll question | option | option... opens a poll, for moderators.
+ * - !endpoll closes the poll and publishes its results, for moderators.
+ *
+ * Votes arrive by thousands per second during a poll, so they take a fast path:
+ * the command and the option are read from the bounds of the parsed message,
+ * and the voter from the user-id tag, without allocating, and votes are never
+ * answered. The tallies are published by {@link Polls} on a fixed interval. A
+ * user without a user-id tag votes under the hash of their nick. A vote in a
+ * channel without a poll is left to the next stages.
+ */
+public class VoteStage extends ListenerAdapter implements MessageStage, OutboundAware {
+
+    /**
+     * The name of the command voting.
+     */
+    public static final String VOTE = "vote";
+
+    /**
+     * The name of the command opening a poll.
+     */
+    public static final String OPEN = "poll";
+
+    /**
+     * The name of the command closing a poll.
+     */
+    public static final String CLOSE = "endpoll";
+
+    /**
+     * The polls of the channels.
+     */
+    @Getter
+    private final Polls polls;
+
+    private final String prefix;
+
+    private volatile OutboundScheduler outbound;
+
+    /**
+     * Creates a new VoteStage.
+     *
+     * @param polls  The polls of the channels.
+     * @param prefix The prefix of the commands.
+     */
+    public VoteStage(@NonNull Polls polls, @NonNull String prefix) {
+        this.polls = polls;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Sets the scheduler through which confirmations are sent with the
+     * {@link Priority#COMMAND} priority, and tallies with the
+     * {@link Priority#ANNOUNCEMENT} priority.
+     *
+     * @param outbound The scheduler, or null to send messages directly.
+     */
+    @Override
+    public void setOutbound(OutboundScheduler outbound) {
+        this.outbound = outbound;
+        polls.setOutbound(outbound);
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        handle(event, ParsedMessage.parse(event.getMessage(), prefix));
+    }
+
+    @Override
+    public boolean handle(MessageEvent event, ParsedMessage message) {
+        message = message.withPrefix(prefix);
+        if (!message.isCommand())
+            return true;
+
+        if (message.isCommand(VOTE)) {
+            String channel = event.getChannel().getName();
+            if (message.getTokenCount() < 2)
+                return polls.get(channel) == null;
+            return polls.vote(channel, userIdOf(event), parseOption(message.getMessage(), message.tokenStart(1),
+                    message.tokenEnd(1))) == VoteResult.CLOSED;
+        }
+
+        boolean open = message.isCommand(OPEN);
+        if (!open && !message.isCommand(CLOSE) || !isModerator(event))
+            return true;
+
+        String channel = event.getChannel().getName();
+        if (!open) {
+            Poll poll = polls.close(channel);
+            if (poll == null)
+                respond(event, "No poll is open.");
+            return false;
+        }
+
+        List<String> parts = new ArrayList<>();
+        if (message.getTokenCount() > 1)
+            for (String part : message.getMessage().substring(message.tokenStart(1)).split("\\|"))
+                if (!part.isBlank())
+                    parts.add(part.strip());
+        if (parts.size() < 3) {
+            respond(event, "Usage: " + prefix + OPEN + " question | option | option...");
+            return false;
+        }
+
+        Poll poll = polls.open(channel, parts.get(0), parts.subList(1, parts.size()), event.getBot());
+        respond(event, "Poll: " + poll.getQuestion() + " Vote with " + prefix + VOTE + " 1 to " + prefix + VOTE + " "
+                + poll.getOptions().size() + ".");
+        return false;
+    }
+
+    /**
+     * Parses the number of an option, without allocating.
+     *
+     * @return The number, or 0 if it is not a number of at most 9 digits.
+     */
+    private static int parseOption(String message, int start, int end) {
+        if (end - start > 9)
+            return 0;
+        int option = 0;
+        for (int i = start; i < end; i++) {
+            char c = message.charAt(i);
+            if (c < '0' || c > '9')
+                return 0;
+            option = option * 10 + c - '0';
+        }
+        return option;
+    }
+
+    private void respond(MessageEvent event, String response) {
+        OutboundScheduler.respond(outbound, event, response, Priority.COMMAND);
+    }
+}
@@ -0,0 +1,158 @@
+package com.pydawan.pydabot.raffle;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * A Fenwick tree of non negative weights, drawing an index with a probability
+ * proportional to its weight.
+ *
+ * Updating a weight, summing a prefix and finding the index holding a given
+ * cumulative weight take logarithmic time, so winners can be drawn and removed
+ * one after the other from hundreds of thousands of entries, unlike an alias
+ * table that would have to be rebuilt after each removal. Appending a weight
+ * takes amortized logarithmic time, the tree doubling its capacity when it is
+ * full.
+ *
+ * Not thread safe.
+ */
+public final class FenwickTree {
+
+    private long[] weights;
+    private long[] tree;
+
+    /**
+     * The number of weights.
+     */
+    @Getter
+    private int size;
+
+    /**
+     * The sum of the weights.
+     */
+    @Getter
+    private long total;
+
+    /**
+     * Creates a new empty FenwickTree.
+     *
+     * @param capacity The number of weights the tree can hold before growing.
+     */
+    public FenwickTree(int capacity) {
+        weights = new long[Math.max(1, capacity)];
+        tree = new long[weights.length + 1];
+    }
+
+    /**
+     * Appends a weight.
+     *
+     * @param weight The weight.
+     * @return The index of the weight.
+     * @throws IllegalArgumentException If the weight is negative.
+     */
+    public int add(long weight) {
+        if (weight < 0)
+            throw new IllegalArgumentException("weight must not be negative");
+        if (size == weights.length)
+            grow();
+        int index = size++;
+        update(index, weight);
+        return index;
+    }
+
+    /**
+     * Returns a weight.
+     *
+     * @param index The index of the weight.
+     * @return The weight.
+     */
+    public long get(int index) {
+        checkIndex(index);
+        return weights[index];
+    }
+
+    /**
+     * Replaces a weight, such as with 0 to remove a winner from the next draws.
+     *
+     * @param index  The index of the weight.
+     * @param weight The new weight.
+     * @return The previous weight.
+     * @throws IllegalArgumentException If the weight is negative.
+     */
+    public long set(int index, long weight) {
+        checkIndex(index);
+        if (weight < 0)
+            throw new IllegalArgumentException("weight must not be negative");
+        long previous = weights[index];
+        update(index, weight - previous);
+        return previous;
+    }
+
+    /**
+     * Returns the sum of the weights before an index.
+     *
+     * @param end The index of the first weight not summed.
+     * @return The sum of the weights of indices 0 to end exclusive.
+     */
+    public long prefixSum(int end) {
+        if (end < 0 || end > size)
+            throw new IndexOutOfBoundsException("No prefix of length " + end);
+        long sum = 0;
+        for (int i = end; i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * Finds the index holding a cumulative weight: the index i such that
+     * <code>prefixSum(i) &lt;= target &lt; prefixSum(i + 1)</code>. Drawing the
+     * target uniformly below {@link #getTotal()} draws each index with a
+     * probability proportional to its weight, and never draws a weight of 0.
+     *
+     * @param target The cumulative weight, from 0 inclusive to the total
+     *               exclusive.
+     * @return The index holding the cumulative weight.
+     * @throws IllegalArgumentException If the target is out of range.
+     */
+    public int find(long target) {
+        if (target < 0 || target >= total)
+            throw new IllegalArgumentException("target must be between 0 and the total weight");
+
+        int position = 0;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>>= 1) {
+            int next = position + step;
+            if (next <= size && tree[next] <= target) {
+                position = next;
+                target -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    private void update(int index, long delta) {
+        total += delta;
+        weights[index] += delta;
+        for (int i = index + 1; i < tree.length; i += i & -i)
+            tree[i] += delta;
+    }
+
+    /**
+     * Doubles the capacity, rebuilding the tree from the weights in linear time.
+     */
+    private void grow() {
+        weights = Arrays.copyOf(weights, weights.length * 2);
+        tree = new long[weights.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += weights[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length)
+                tree[parent] += tree[i];
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("No weight at index " + index);
+    }
+}
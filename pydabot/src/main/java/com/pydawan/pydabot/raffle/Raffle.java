@@ -0,0 +1,329 @@
+package com.pydawan.pydabot.raffle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.pydawan.pydabot.util.ConcurrentLongSet;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A giveaway of a channel, drawing winners among its entrants with a
+ * probability proportional to their weight.
+ *
+ * Joining does not take the lock of the raffle: the user id is deduplicated
+ * by a {@link ConcurrentLongSet} and the entry is handed over through a lock
+ * free queue. The entries are moved to a {@link FenwickTree} of their weights when
+ * the raffle is flushed or a winner is drawn, so that each draw takes
+ * logarithmic time and removes the winner from the next draws.
+ *
+ * A raffle can keep a journal, to which the entries are appended when they
+ * are flushed, and winners when they are drawn. A raffle restored from its
+ * journal has the entries and winners of the last flush, so flushing the
+ * raffle every second and when the bot stops loses nothing on a restart.
+ */
+public final class Raffle implements AutoCloseable {
+
+    private static final int MAGIC = 0x52414631;
+    private static final byte JOIN = 1;
+    private static final byte DRAW = 2;
+
+    /**
+     * An entry of a raffle.
+     */
+    @Data
+    public static final class Entry {
+        /**
+         * The user id of the entrant.
+         */
+        private final long userId;
+
+        /**
+         * The nick of the entrant.
+         */
+        private final String nick;
+
+        /**
+         * The weight of the entry, the number of tickets of the entrant.
+         */
+        private final int weight;
+    }
+
+    /**
+     * The outcome of joining a raffle.
+     */
+    public enum JoinResult {
+        /**
+         * The user entered the raffle.
+         */
+        JOINED,
+
+        /**
+         * The user had already entered the raffle.
+         */
+        DUPLICATE,
+
+        /**
+         * The raffle is closed.
+         */
+        CLOSED
+    }
+
+    /**
+     * The channel of the raffle.
+     */
+    @Getter
+    private final String channel;
+
+    private final ConcurrentLongSet entrants = new ConcurrentLongSet(4096);
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean open = true;
+
+    // Guarded by this.
+    private Entry[] entries = new Entry[1024];
+    private final FenwickTree weights = new FenwickTree(1024);
+    private int winners;
+    private FileOutputStream journalFile;
+    private DataOutputStream journal;
+
+    /**
+     * Creates a new open Raffle without a journal.
+     *
+     * @param channel The channel of the raffle.
+     */
+    public Raffle(@NonNull String channel) {
+        this.channel = channel;
+    }
+
+    private void attach(FileOutputStream file) {
+        journalFile = file;
+        journal = new DataOutputStream(new BufferedOutputStream(file));
+    }
+
+    /**
+     * Creates a new open Raffle, replacing the journal at the given path.
+     *
+     * @param channel The channel of the raffle.
+     * @param journal The journal of the raffle.
+     * @return The raffle.
+     * @throws IOException If the journal cannot be created.
+     */
+    public static Raffle create(@NonNull String channel, @NonNull Path journal) throws IOException {
+        Raffle raffle = new Raffle(channel);
+        raffle.attach(new FileOutputStream(journal.toFile()));
+        raffle.journal.writeInt(MAGIC);
+        raffle.journal.writeUTF(channel);
+        raffle.sync();
+        return raffle;
+    }
+
+    /**
+     * Restores an open Raffle from its journal, and continues the journal. A
+     * record cut short by a crash is ignored.
+     *
+     * @param journal The journal of the raffle.
+     * @return The raffle.
+     * @throws IOException If the journal cannot be read, or is not a journal.
+     */
+    public static Raffle restore(@NonNull Path journal) throws IOException {
+        Raffle raffle;
+        long valid;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a raffle journal: " + journal);
+            String channel = in.readUTF();
+            raffle = new Raffle(channel);
+            valid = 4 + 2 + utfLength(channel);
+
+            while (true) {
+                try {
+                    byte type = in.readByte();
+                    if (type == JOIN) {
+                        long userId = in.readLong();
+                        int weight = in.readInt();
+                        String nick = in.readUTF();
+                        raffle.entrants.add(userId);
+                        raffle.append(new Entry(userId, nick, weight));
+                        valid += 1 + 8 + 4 + 2 + utfLength(nick);
+                    } else if (type == DRAW) {
+                        int index = in.readInt();
+                        if (index < 0 || index >= raffle.weights.getSize())
+                            throw new IOException("Invalid winner in raffle journal: " + journal);
+                        raffle.weights.set(index, 0);
+                        raffle.winners++;
+                        valid += 1 + 4;
+                    } else {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+
+        FileOutputStream file = new FileOutputStream(journal.toFile(), true);
+        file.getChannel().truncate(valid);
+        raffle.attach(file);
+        return raffle;
+    }
+
+    private static int utfLength(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            length += c >= 0x0001 && c <= 0x007f ? 1 : c <= 0x07ff ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * Enters a user in the raffle, without taking the lock of the raffle.
+     *
+     * @param userId The user id of the entrant.
+     * @param nick   The nick of the entrant.
+     * @param weight The weight of the entry.
+     * @return The outcome of joining.
+     * @throws IllegalArgumentException If the weight is not positive.
+     */
+    public JoinResult join(long userId, @NonNull String nick, int weight) {
+        if (weight <= 0)
+            throw new IllegalArgumentException("weight must be positive");
+        if (!open)
+            return JoinResult.CLOSED;
+        if (!entrants.add(userId))
+            return JoinResult.DUPLICATE;
+        pending.add(new Entry(userId, nick, weight));
+        return JoinResult.JOINED;
+    }
+
+    /**
+     * Moves the pending entries to the tree of weights, and appends them to the
+     * journal.
+     *
+     * @return The number of entries moved.
+     * @throws IOException If the journal cannot be written.
+     */
+    public synchronized int flush() throws IOException {
+        int count = 0;
+        for (Entry entry = pending.poll(); entry != null; entry = pending.poll()) {
+            append(entry);
+            if (journal != null) {
+                journal.writeByte(JOIN);
+                journal.writeLong(entry.getUserId());
+                journal.writeInt(entry.getWeight());
+                journal.writeUTF(entry.getNick());
+            }
+            count++;
+        }
+        if (count > 0)
+            sync();
+        return count;
+    }
+
+    private void append(Entry entry) {
+        int index = weights.add(entry.getWeight());
+        if (index == entries.length)
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        entries[index] = entry;
+    }
+
+    private void sync() throws IOException {
+        if (journal == null)
+            return;
+        journal.flush();
+        journalFile.getFD().sync();
+    }
+
+    /**
+     * Draws a winner, with a probability proportional to the weight of their
+     * entry, and removes them from the next draws.
+     *
+     * @return The entry of the winner, or null if every entrant has won.
+     * @throws IOException If the journal cannot be written.
+     */
+    public synchronized Entry draw() throws IOException {
+        flush();
+        if (weights.getTotal() == 0)
+            return null;
+
+        int index = weights.find(ThreadLocalRandom.current().nextLong(weights.getTotal()));
+        weights.set(index, 0);
+        winners++;
+        if (journal != null) {
+            journal.writeByte(DRAW);
+            journal.writeInt(index);
+            sync();
+        }
+        return entries[index];
+    }
+
+    /**
+     * Returns the number of entrants, including those who have won.
+     *
+     * @return The number of entrants.
+     */
+    public int getEntryCount() {
+        return entrants.size();
+    }
+
+    /**
+     * Returns the number of winners drawn.
+     *
+     * @return The number of winners.
+     */
+    public synchronized int getWinnerCount() {
+        return winners;
+    }
+
+    /**
+     * Returns the sum of the weights of the entrants who have not won yet.
+     *
+     * @return The total weight of the next draw.
+     * @throws IOException If the journal cannot be written.
+     */
+    public synchronized long getTotalWeight() throws IOException {
+        flush();
+        return weights.getTotal();
+    }
+
+    /**
+     * Returns whether the raffle accepts entries.
+     *
+     * @return <code>true</code> if the raffle is open.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Stops accepting entries. Winners can still be drawn.
+     */
+    public void stop() {
+        open = false;
+    }
+
+    /**
+     * Closes the journal of the raffle, after flushing the pending entries.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        open = false;
+        flush();
+        if (journal != null)
+            journal.close();
+    }
+}
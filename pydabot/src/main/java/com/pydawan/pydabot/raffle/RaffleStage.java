@@ -0,0 +1,137 @@
+package com.pydawan.pydabot.raffle;
+
+import java.io.IOException;
+
+import com.pydawan.pydabot.listeners.MessageStage;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.MessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import static com.pydawan.pydabot.irc.IrcUtils.isModerator;
+import static com.pydawan.pydabot.irc.IrcUtils.userIdOf;
+
+/**
+ * A listener running the giveaways of the channels.
+ *
+ * - !join enters the raffle of the channel, once per user.
+ * - !raffle starts a raffle, for moderators.
+ * - !draw draws a winner, who cannot win again, for moderators.
+ * - !endraffle ends the raffle, for moderators.
+ *
+ * Entries are never answered, so that a giveaway announced to a large channel
+ * does not flood it. The weight of an entry comes from the tags of the message
+ * joining, see {@link Raffles#weightOf(java.util.Map)}.
+ */
+public class RaffleStage extends ListenerAdapter implements MessageStage, OutboundAware {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RaffleStage.class);
+
+    /**
+     * The name of the command entering a raffle.
+     */
+    public static final String JOIN = "join";
+
+    /**
+     * The name of the command starting a raffle.
+     */
+    public static final String START = "raffle";
+
+    /**
+     * The name of the command drawing a winner.
+     */
+    public static final String DRAW = "draw";
+
+    /**
+     * The name of the command ending a raffle.
+     */
+    public static final String END = "endraffle";
+
+    /**
+     * The raffles of the channels.
+     */
+    @Getter
+    private final Raffles raffles;
+
+    private final String prefix;
+
+    /**
+     * The scheduler through which answers are sent with the
+     * {@link Priority#COMMAND} priority. If null, answers are sent directly.
+     */
+    @Setter
+    private volatile OutboundScheduler outbound;
+
+    /**
+     * Creates a new RaffleStage.
+     *
+     * @param raffles The raffles of the channels.
+     * @param prefix  The prefix of the commands.
+     */
+    public RaffleStage(@NonNull Raffles raffles, @NonNull String prefix) {
+        this.raffles = raffles;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        handle(event, ParsedMessage.parse(event.getMessage(), prefix));
+    }
+
+    @Override
+    public boolean handle(MessageEvent event, ParsedMessage message) {
+        message = message.withPrefix(prefix);
+        if (!message.isCommand())
+            return true;
+
+        String channel = event.getChannel().getName();
+        if (message.isCommand(JOIN)) {
+            Raffle raffle = raffles.get(channel);
+            if (raffle == null)
+                return true;
+            raffle.join(userIdOf(event), event.getUser().getNick(), raffles.weightOf(event.getTags()));
+            return false;
+        }
+
+        boolean start = message.isCommand(START);
+        boolean draw = !start && message.isCommand(DRAW);
+        if (!start && !draw && !message.isCommand(END) || !isModerator(event))
+            return true;
+
+        try {
+            if (start) {
+                raffles.start(channel);
+                respond(event, "Raffle started! Type " + prefix + JOIN + " to enter.");
+            } else if (draw) {
+                Raffle raffle = raffles.get(channel);
+                Raffle.Entry winner = raffle == null ? null : raffle.draw();
+                if (raffle == null)
+                    respond(event, "No raffle is running.");
+                else if (winner == null)
+                    respond(event, "Every entrant has already won.");
+                else
+                    respond(event, "The winner is " + winner.getNick() + "!");
+            } else {
+                Raffle raffle = raffles.end(channel);
+                respond(event, raffle == null ? "No raffle is running."
+                        : "Raffle ended with " + raffle.getEntryCount() + " entries.");
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot write the journal of the raffle of {}", channel, e);
+            respond(event, "Cannot save the raffle.");
+        }
+        return false;
+    }
+
+    private void respond(MessageEvent event, String response) {
+        OutboundScheduler.respond(outbound, event, response, Priority.COMMAND);
+    }
+}
@@ -0,0 +1,174 @@
+package com.pydawan.pydabot.raffle;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import static com.pydawan.pydabot.irc.IrcUtils.normalizeChannel;
+
+/**
+ * The raffles of the channels, at most one per channel, each journaled to a
+ * file of a directory so that the raffles running when the bot stops are
+ * restored when it starts again.
+ */
+public class Raffles implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Raffles.class);
+
+    /**
+     * The extension of the journals of the raffles.
+     */
+    public static final String EXTENSION = ".raffle";
+
+    /**
+     * The default weight of the entries of subscribers.
+     */
+    public static final int DEFAULT_SUBSCRIBER_WEIGHT = 2;
+
+    /**
+     * The directory of the journals.
+     */
+    @Getter
+    private final Path directory;
+
+    private final ConcurrentHashMap<String, Raffle> raffles = new ConcurrentHashMap<>();
+
+    /**
+     * The weight of the entries of subscribers, the entries of other users
+     * weighting 1.
+     */
+    @Getter
+    @Setter
+    private volatile int subscriberWeight = DEFAULT_SUBSCRIBER_WEIGHT;
+
+    private Raffles(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the raffles journaled in a directory, creating it if needed. A
+     * journal that cannot be restored is logged and skipped, and replaced when
+     * a raffle starts again in its channel.
+     *
+     * @param directory The directory of the journals.
+     * @return The raffles.
+     * @throws IOException If the directory cannot be read.
+     */
+    public static Raffles open(@NonNull Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Raffles raffles = new Raffles(directory);
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path journal : journals) {
+                Raffle raffle;
+                try {
+                    raffle = Raffle.restore(journal);
+                } catch (IOException e) {
+                    LOGGER.error("Cannot restore the raffle journal {}, skipping it", journal, e);
+                    continue;
+                }
+                raffles.raffles.put(normalizeChannel(raffle.getChannel()), raffle);
+                LOGGER.info("Restored raffle of {} with {} entries", raffle.getChannel(), raffle.getEntryCount());
+            }
+        }
+        return raffles;
+    }
+
+    private Path journalOf(String channel) {
+        return directory.resolve(channel.substring(1) + EXTENSION);
+    }
+
+    /**
+     * Starts a raffle in a channel, ending its previous raffle if any.
+     *
+     * @param channel The channel.
+     * @return The new raffle.
+     * @throws IOException If the journal of the raffle cannot be created.
+     */
+    public Raffle start(@NonNull String channel) throws IOException {
+        String name = normalizeChannel(channel);
+        Raffle previous = raffles.remove(name);
+        if (previous != null)
+            previous.close();
+        Raffle raffle = Raffle.create(name, journalOf(name));
+        raffles.put(name, raffle);
+        return raffle;
+    }
+
+    /**
+     * Ends the raffle of a channel and deletes its journal.
+     *
+     * @param channel The channel.
+     * @return The ended raffle, or null if the channel had no raffle.
+     * @throws IOException If the journal cannot be deleted.
+     */
+    public Raffle end(@NonNull String channel) throws IOException {
+        String name = normalizeChannel(channel);
+        Raffle raffle = raffles.remove(name);
+        if (raffle == null)
+            return null;
+        raffle.close();
+        Files.deleteIfExists(journalOf(name));
+        return raffle;
+    }
+
+    /**
+     * Returns the raffle of a channel.
+     *
+     * @param channel The channel.
+     * @return The raffle, or null if the channel has none.
+     */
+    public Raffle get(@NonNull String channel) {
+        return raffles.get(normalizeChannel(channel));
+    }
+
+    /**
+     * Returns the weight of the entry of a user, according to the Twitch tags of
+     * their message.
+     *
+     * @param tags The tags of the message.
+     * @return {@link #getSubscriberWeight()} for subscribers, 1 otherwise.
+     */
+    public int weightOf(@NonNull Map<String, String> tags) {
+        if ("1".equals(tags.get("subscriber")))
+            return subscriberWeight;
+        String badges = tags.get("badges");
+        return badges != null && (badges.startsWith("subscriber/") || badges.contains(",subscriber/")
+                || badges.startsWith("founder/") || badges.contains(",founder/")) ? subscriberWeight : 1;
+    }
+
+    /**
+     * Moves the pending entries of every raffle to their journal. Meant to be
+     * called every second or so, which bounds the entries a crash can lose.
+     */
+    public void flush() {
+        raffles.forEach((channel, raffle) -> {
+            try {
+                raffle.flush();
+            } catch (IOException e) {
+                LOGGER.error("Cannot write the journal of the raffle of {}", channel, e);
+            }
+        });
+    }
+
+    /**
+     * Flushes and closes the journals of the raffles, which are restored by the
+     * next {@link #open(Path)}.
+     *
+     * @throws IOException If a journal cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Raffle raffle : raffles.values())
+            raffle.close();
+        raffles.clear();
+    }
+}
@@ -0,0 +1,615 @@
+package com.pydawan.pydabot.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import com.pydawan.pydabot.util.Hashing;
+
+import lombok.NonNull;
+
+/**
+ * A persistent store of custom commands, by channel and name.
+ *
+ * Commands are kept on disk, in two files of a directory:
+ * - commands.log, an append-only log of the additions and removals of
+ * commands. Each record is checksummed, and the log is flushed to disk before a
+ * write returns, so it is the source of truth.
+ * - commands.idx, an open addressing hash table mapping the hash of a channel
+ * and a name to the offset of the last record of the command in the log.
+ *
+ * Both files are memory mapped: a lookup probes the index, compares the
+ * channel and name with the ones of the record in place, and only decodes the
+ * response of the command it finds. The heap used by the store does not depend
+ * on the number of commands, and opening it does not read them. The log is
+ * mapped beyond its end, doubling the mapping when the log outgrows it, so
+ * that writes rarely map it again; the file is padded with zeros up to the
+ * mapping while the store is open, and cut back to the log when it is closed.
+ *
+ * The index is rebuilt from the log when it cannot be trusted: when the store
+ * was not closed, or when the index does not match the log. A record torn by a
+ * crash at the end of the log is discarded.
+ *
+ * Replaced and removed commands leave garbage in the log, reclaimed by
+ * {@link #compact()}, which rewrites the live commands to new files.
+ *
+ * Lookups run concurrently; writes are exclusive.
+ */
+public class CommandStore implements AutoCloseable {
+
+    /**
+     * The name of the log in the directory of the store.
+     */
+    public static final String LOG_FILE = "commands.log";
+
+    /**
+     * The name of the index in the directory of the store.
+     */
+    public static final String INDEX_FILE = "commands.idx";
+
+    /**
+     * The maximum number of characters of a channel or command name.
+     */
+    public static final int MAX_KEY_LENGTH = Short.MAX_VALUE;
+
+    private static final int LOG_MAGIC = 0x50434d44;
+    private static final int INDEX_MAGIC = 0x50434d49;
+    private static final int LOG_HEADER = 16;
+    private static final int MIN_LOG_MAPPING = 1 << 16;
+
+    /*
+     * Record: length (int), checksum of the rest (int), type (byte), channel
+     * length (short), name length (short), channel and name (chars), response
+     * (UTF-8).
+     */
+    private static final int RECORD_HEADER = 13;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    /*
+     * Index header: magic (int), clean (int), generation of the log (long),
+     * length of the log (long), capacity (int), used slots (int), live commands
+     * (long), garbage bytes (long). Each slot is a hash (long, 0 if empty) and
+     * an offset (long).
+     */
+    private static final int INDEX_HEADER = 48;
+    private static final int SLOT = 16;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final Path directory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel log;
+    private MappedByteBuffer logMap;
+    private long generation;
+    private long logLength;
+
+    private FileChannel index;
+    private MappedByteBuffer indexMap;
+    private int capacity;
+    private int used;
+    private long live;
+    private long garbage;
+
+    private boolean closed;
+
+    private CommandStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the store of a directory, creating it if needed.
+     *
+     * @param directory The directory of the store.
+     * @return The store.
+     * @throws IOException If the files of the store cannot be read or written.
+     */
+    public static CommandStore open(@NonNull Path directory) throws IOException {
+        Files.createDirectories(directory);
+        CommandStore store = new CommandStore(directory);
+        store.openFiles();
+        return store;
+    }
+
+    private void openFiles() throws IOException {
+        Path logPath = directory.resolve(LOG_FILE);
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (log.size() < LOG_HEADER) {
+            generation = ThreadLocalRandom.current().nextLong();
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER).putInt(LOG_MAGIC).putInt(0).putLong(generation);
+            log.truncate(0);
+            log.write(header.flip(), 0);
+            log.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+            log.read(header, 0);
+            if (header.getInt(0) != LOG_MAGIC)
+                throw new IOException(logPath + " is not a command log");
+            generation = header.getLong(8);
+        }
+        logLength = log.size();
+        mapLog();
+
+        Path indexPath = directory.resolve(INDEX_FILE);
+        index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (isIndexTrusted()) {
+            indexMap = index.map(FileChannel.MapMode.READ_WRITE, 0, index.size());
+            capacity = indexMap.getInt(24);
+            used = indexMap.getInt(28);
+            live = indexMap.getLong(32);
+            garbage = indexMap.getLong(40);
+        } else {
+            rebuildIndex();
+        }
+        indexMap.putInt(4, 0);
+        indexMap.force();
+    }
+
+    private boolean isIndexTrusted() throws IOException {
+        if (index.size() < INDEX_HEADER)
+            return false;
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+        index.read(header, 0);
+        int capacity = header.getInt(24);
+        return header.getInt(0) == INDEX_MAGIC
+                && header.getInt(4) == 1
+                && header.getLong(8) == generation
+                && header.getLong(16) == logLength
+                && Integer.bitCount(capacity) == 1
+                && index.size() == INDEX_HEADER + (long) capacity * SLOT;
+    }
+
+    /**
+     * Rebuilds the index from the log, discarding a torn record at its end.
+     */
+    private void rebuildIndex() throws IOException {
+        long offset = LOG_HEADER;
+        int count = 0;
+        while (offset < logLength) {
+            int length = validRecordLength(offset);
+            if (length < 0)
+                break;
+            offset += length;
+            count++;
+        }
+        if (offset < logLength) {
+            log.truncate(offset);
+            log.force(true);
+            logLength = offset;
+            logMap = null;
+            mapLog();
+        }
+
+        mapNewIndex(capacityFor(count));
+        for (offset = LOG_HEADER; offset < logLength; offset += logMap.getInt((int) offset))
+            indexRecord(offset);
+    }
+
+    /**
+     * Returns the length of the record at the given offset, or -1 if it is
+     * truncated or corrupted.
+     */
+    private int validRecordLength(long offset) {
+        if (logLength - offset < RECORD_HEADER)
+            return -1;
+        int position = (int) offset;
+        int length = logMap.getInt(position);
+        if (length < RECORD_HEADER || length > logLength - offset)
+            return -1;
+
+        CRC32 crc = new CRC32();
+        crc.update(logMap.slice(position + 8, length - 8));
+        if ((int) crc.getValue() != logMap.getInt(position + 4))
+            return -1;
+        int keys = 2 * (logMap.getShort(position + 9) + logMap.getShort(position + 11));
+        return RECORD_HEADER + keys <= length ? length : -1;
+    }
+
+    private static int capacityFor(long entries) {
+        long capacity = Math.max(MIN_CAPACITY, entries * 4);
+        return (int) Math.min(1 << 30, Long.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+     * Replaces the index by an empty one of the given capacity.
+     */
+    private void mapNewIndex(int capacity) throws IOException {
+        Path temporary = directory.resolve(INDEX_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    INDEX_HEADER + (long) capacity * SLOT);
+            map.putInt(0, INDEX_MAGIC);
+            map.putLong(8, generation);
+            map.putInt(24, capacity);
+            map.force();
+        }
+        index.close();
+        Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexMap = index.map(FileChannel.MapMode.READ_WRITE, 0, index.size());
+        this.capacity = capacity;
+        used = 0;
+        live = 0;
+        garbage = 0;
+    }
+
+    /**
+     * Maps the log if it outgrew its mapping, to at least twice the size of
+     * the previous mapping.
+     */
+    private void mapLog() throws IOException {
+        if (logMap != null && logLength <= logMap.capacity())
+            return;
+        long size = Math.max(logLength, logMap == null ? MIN_LOG_MAPPING : 2L * logMap.capacity());
+        logMap = log.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(Integer.MAX_VALUE, size));
+    }
+
+    /**
+     * Returns the response of a command.
+     *
+     * @param channel The channel of the command.
+     * @param name    The name of the command.
+     * @return The response of the command, or null if there is none.
+     */
+    public String get(@NonNull CharSequence channel, @NonNull CharSequence name) {
+        long hash = hashOf(channel, name);
+        lock.readLock().lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("Store is closed");
+            int slot = find(hash, channel, name, logMap);
+            if (slot < 0)
+                return null;
+            int offset = (int) indexMap.getLong(slotPosition(slot) + 8);
+            return logMap.get(offset + 8) == PUT ? responseOf(logMap, offset) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces a command. The command is on disk when the method returns.
+     *
+     * @param channel  The channel of the command.
+     * @param name     The name of the command.
+     * @param response The response of the command.
+     * @return <code>true</code> if the command replaced another one.
+     * @throws IOException If the command cannot be written.
+     */
+    public boolean put(@NonNull String channel, @NonNull String name, @NonNull String response) throws IOException {
+        return write(PUT, channel, name, response);
+    }
+
+    /**
+     * Removes a command. The removal is on disk when the method returns.
+     *
+     * @param channel The channel of the command.
+     * @param name    The name of the command.
+     * @return <code>true</code> if the command existed.
+     * @throws IOException If the removal cannot be written.
+     */
+    public boolean remove(@NonNull String channel, @NonNull String name) throws IOException {
+        return write(REMOVE, channel, name, "");
+    }
+
+    private boolean write(byte type, String channel, String name, String response) throws IOException {
+        if (channel.length() > MAX_KEY_LENGTH || name.length() > MAX_KEY_LENGTH)
+            throw new IllegalArgumentException("Channel and name must be at most " + MAX_KEY_LENGTH + " chars");
+
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("Store is closed");
+
+            long hash = hashOf(channel, name);
+            int slot = find(hash, channel, name, logMap);
+            boolean existed = slot >= 0
+                    && logMap.get((int) indexMap.getLong(slotPosition(slot) + 8) + 8) == PUT;
+            if (type == REMOVE && !existed)
+                return false;
+
+            ByteBuffer record = encode(type, channel, name, response);
+            if (logLength + record.remaining() > Integer.MAX_VALUE)
+                throw new IOException("Command log is full, it must be compacted");
+
+            long offset = logLength;
+            while (record.hasRemaining())
+                log.write(record, logLength + record.position());
+            log.force(false);
+            logLength += record.limit();
+            mapLog();
+
+            if (used + 1 > capacity / 2)
+                resizeIndex(capacityFor(used + 1));
+            indexRecord(offset);
+            indexMap.putLong(16, logLength);
+            return existed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static ByteBuffer encode(byte type, String channel, String name, String response) {
+        byte[] value = response.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER + 2 * (channel.length() + name.length()) + value.length;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length).putInt(0).put(type).putShort((short) channel.length())
+                .putShort((short) name.length());
+        for (int i = 0; i < channel.length(); i++)
+            record.putChar(channel.charAt(i));
+        for (int i = 0; i < name.length(); i++)
+            record.putChar(name.charAt(i));
+        record.put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length - 8);
+        record.putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Points the index at the record at the given offset of the log, and updates
+     * the counts of live commands and garbage.
+     */
+    private void indexRecord(long offset) {
+        int position = (int) offset;
+        int length = logMap.getInt(position);
+        byte type = logMap.get(position + 8);
+        int channelLength = logMap.getShort(position + 9);
+        int nameLength = logMap.getShort(position + 11);
+        CharSequence channel = keyView(logMap, position + RECORD_HEADER, channelLength);
+        CharSequence name = keyView(logMap, position + RECORD_HEADER + 2 * channelLength, nameLength);
+        long hash = hashOf(channel, name);
+
+        int slot = find(hash, channel, name, logMap);
+        if (slot >= 0) {
+            int slotPosition = slotPosition(slot);
+            int previous = (int) indexMap.getLong(slotPosition + 8);
+            if (logMap.get(previous + 8) == PUT) {
+                live--;
+                garbage += logMap.getInt(previous);
+            }
+            indexMap.putLong(slotPosition + 8, offset);
+        } else {
+            slot = (int) hash & (capacity - 1);
+            while (indexMap.getLong(slotPosition(slot)) != 0)
+                slot = (slot + 1) & (capacity - 1);
+            indexMap.putLong(slotPosition(slot), hash);
+            indexMap.putLong(slotPosition(slot) + 8, offset);
+            used++;
+        }
+
+        if (type == PUT)
+            live++;
+        else
+            garbage += length;
+        indexMap.putInt(28, used);
+        indexMap.putLong(32, live);
+        indexMap.putLong(40, garbage);
+    }
+
+    /**
+     * Rebuilds the index with another capacity, from the current one.
+     */
+    private void resizeIndex(int newCapacity) throws IOException {
+        int oldCapacity = capacity;
+        MappedByteBuffer old = indexMap;
+        long[] offsets = new long[used];
+        int count = 0;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int position = INDEX_HEADER + slot * SLOT;
+            if (old.getLong(position) != 0)
+                offsets[count++] = old.getLong(position + 8);
+        }
+        long oldGarbage = garbage;
+
+        mapNewIndex(newCapacity);
+        for (int i = 0; i < count; i++)
+            indexRecord(offsets[i]);
+        garbage = oldGarbage;
+        indexMap.putLong(40, garbage);
+        indexMap.putLong(16, logLength);
+    }
+
+    /**
+     * Returns the slot of a command, or -1 if it is not indexed.
+     */
+    private int find(long hash, CharSequence channel, CharSequence name, ByteBuffer log) {
+        int mask = capacity - 1;
+        for (int slot = (int) hash & mask;; slot = (slot + 1) & mask) {
+            int position = slotPosition(slot);
+            long slotHash = indexMap.getLong(position);
+            if (slotHash == 0)
+                return -1;
+            if (slotHash == hash && keyEquals(log, (int) indexMap.getLong(position + 8), channel, name))
+                return slot;
+        }
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER + slot * SLOT;
+    }
+
+    private static boolean keyEquals(ByteBuffer log, int offset, CharSequence channel, CharSequence name) {
+        int channelLength = log.getShort(offset + 9);
+        int nameLength = log.getShort(offset + 11);
+        if (channelLength != channel.length() || nameLength != name.length())
+            return false;
+
+        int position = offset + RECORD_HEADER;
+        for (int i = 0; i < channelLength; i++, position += 2)
+            if (log.getChar(position) != channel.charAt(i))
+                return false;
+        for (int i = 0; i < nameLength; i++, position += 2)
+            if (log.getChar(position) != name.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static String responseOf(ByteBuffer log, int offset) {
+        int keys = 2 * (log.getShort(offset + 9) + log.getShort(offset + 11));
+        int start = offset + RECORD_HEADER + keys;
+        byte[] value = new byte[log.getInt(offset) - RECORD_HEADER - keys];
+        log.get(start, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static CharSequence keyView(ByteBuffer log, int position, int length) {
+        return log.slice(position, 2 * length).asCharBuffer();
+    }
+
+    private static long hashOf(CharSequence channel, CharSequence name) {
+        long hash = Hashing.separate(Hashing.update(Hashing.FNV_OFFSET, channel, 0, channel.length()));
+        hash = Hashing.mix(Hashing.update(hash, name, 0, name.length()));
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Returns the number of commands.
+     *
+     * @return The number of commands.
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the size of the log, in bytes.
+     *
+     * @return The size of the log.
+     */
+    public long getLogSize() {
+        lock.readLock().lock();
+        try {
+            return logLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the log taken by replaced and removed
+     * commands.
+     *
+     * @return The number of bytes reclaimed by a compaction.
+     */
+    public long getGarbageSize() {
+        lock.readLock().lock();
+        try {
+            return garbage;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compacts the store if at least half of its log is garbage.
+     *
+     * @param minGarbage The minimum number of bytes of garbage worth reclaiming.
+     * @return <code>true</code> if the store was compacted.
+     * @throws IOException If the store cannot be compacted.
+     */
+    public boolean compactIfNeeded(long minGarbage) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (garbage < minGarbage || garbage * 2 < logLength - LOG_HEADER)
+                return false;
+            compact();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live commands to a new log and index, reclaiming the space of
+     * replaced and removed commands.
+     * A crash during the compaction leaves either the old or the new log, and
+     * the index is rebuilt if needed.
+     *
+     * @throws IOException If the store cannot be compacted.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("Store is closed");
+
+            long newGeneration = ThreadLocalRandom.current().nextLong();
+            Path temporary = directory.resolve(LOG_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(LOG_HEADER).putInt(LOG_MAGIC).putInt(0).putLong(newGeneration);
+                channel.write(header.flip());
+                for (int slot = 0; slot < capacity; slot++) {
+                    int position = slotPosition(slot);
+                    if (indexMap.getLong(position) == 0)
+                        continue;
+                    int offset = (int) indexMap.getLong(position + 8);
+                    if (logMap.get(offset + 8) != PUT)
+                        continue;
+                    ByteBuffer record = logMap.slice(offset, logMap.getInt(offset));
+                    while (record.hasRemaining())
+                        channel.write(record);
+                }
+                channel.force(true);
+            }
+
+            log.close();
+            Files.move(temporary, directory.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            generation = newGeneration;
+            logLength = log.size();
+            logMap = null;
+            mapLog();
+            rebuildIndex();
+            indexMap.putLong(16, logLength);
+            indexMap.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the store, marking its index as trusted for the next opening.
+     *
+     * @throws IOException If the index cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            log.truncate(logLength);
+            log.force(true);
+            indexMap.putLong(16, logLength);
+            indexMap.force();
+            indexMap.putInt(4, 1);
+            indexMap.force();
+            index.close();
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.pydawan.pydabot.util;
+
+import java.util.Arrays;
+
+/**
+ * A concurrent set of primitive longs, such as user ids.
+ *
+ * The set is split into segments, chosen by the bits of the mixed value, each
+ * segment being an open addressing table of longs guarded by its own lock. A
+ * value takes 8 to 16 bytes, without the boxing and the nodes of a
+ * {@link java.util.concurrent.ConcurrentHashMap} key set, and threads adding
+ * different values rarely wait for one another.
+ */
+public final class ConcurrentLongSet {
+
+    /**
+     * The default number of values the set can hold before growing.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int MIN_SEGMENT_SIZE = 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * Creates a new ConcurrentLongSet.
+     *
+     * @param capacity The number of values the set can hold before growing.
+     * @param segments The number of segments, rounded up to a power of two, which
+     *                 bounds the number of threads adding values at once.
+     * @throws IllegalArgumentException If the capacity is negative, or the
+     *                                  number of segments is not positive.
+     */
+    public ConcurrentLongSet(int capacity, int segments) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative");
+        if (segments <= 0 || segments > 1 << 16)
+            throw new IllegalArgumentException("segments must be between 1 and 65536");
+
+        int count = segments == 1 ? 1 : Integer.highestOneBit(segments - 1) << 1;
+        int perSegment = Math.max(MIN_SEGMENT_SIZE, Integer.highestOneBit(Math.max(1, 2 * capacity / count) - 1) << 1);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++)
+            this.segments[i] = new Segment(perSegment);
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * Creates a new ConcurrentLongSet with four segments per processor, at least
+     * sixteen.
+     *
+     * @param capacity The number of values the set can hold before growing.
+     */
+    public ConcurrentLongSet(int capacity) {
+        this(capacity, Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Creates a new ConcurrentLongSet holding {@link #DEFAULT_CAPACITY} values
+     * before growing.
+     */
+    public ConcurrentLongSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    private Segment segmentOf(long mixed) {
+        return segments.length == 1 ? segments[0] : segments[(int) (mixed >>> segmentShift)];
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value The value.
+     * @return <code>true</code> if the value was not in the set.
+     */
+    public boolean add(long value) {
+        long mixed = Hashing.mix(value);
+        return segmentOf(mixed).add(value, mixed);
+    }
+
+    /**
+     * Returns whether a value is in the set.
+     *
+     * @param value The value.
+     * @return <code>true</code> if the value is in the set.
+     */
+    public boolean contains(long value) {
+        long mixed = Hashing.mix(value);
+        return segmentOf(mixed).contains(value, mixed);
+    }
+
+    /**
+     * Returns the number of values in the set. The count is only exact if no
+     * value is added meanwhile.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    /**
+     * Removes every value from the set.
+     */
+    public void clear() {
+        for (Segment segment : segments)
+            segment.clear();
+    }
+
+    /**
+     * A segment of the set. 0 marks empty slots, so whether the segment holds
+     * 0 is kept apart.
+     */
+    private static final class Segment {
+        private long[] table;
+        private int size;
+        private boolean containsZero;
+
+        Segment(int capacity) {
+            table = new long[capacity];
+        }
+
+        synchronized boolean add(long value, long mixed) {
+            if (value == 0) {
+                if (containsZero)
+                    return false;
+                containsZero = true;
+                return true;
+            }
+
+            int mask = table.length - 1;
+            int slot = (int) mixed & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == value)
+                    return false;
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = value;
+            if (++size > table.length * 3 / 4)
+                grow();
+            return true;
+        }
+
+        synchronized boolean contains(long value, long mixed) {
+            if (value == 0)
+                return containsZero;
+
+            int mask = table.length - 1;
+            for (int slot = (int) mixed & mask; table[slot] != 0; slot = (slot + 1) & mask)
+                if (table[slot] == value)
+                    return true;
+            return false;
+        }
+
+        synchronized int size() {
+            return containsZero ? size + 1 : size;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(table, 0);
+            size = 0;
+            containsZero = false;
+        }
+
+        private void grow() {
+            long[] old = table;
+            long[] table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long value : old) {
+                if (value == 0)
+                    continue;
+                int slot = (int) Hashing.mix(value) & mask;
+                while (table[slot] != 0)
+                    slot = (slot + 1) & mask;
+                table[slot] = value;
+            }
+            this.table = table;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.pydawan.pydabot.util;
+
+/**
+ * Allocation free 64 bits hash functions over characters.
+ */
+public class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * The initial value of an FNV-1a hash, to be continued with
+     * {@link #update(long, CharSequence, int, int)}.
+     */
+    public static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Hashes a region of a sequence of characters to 64 bits, with FNV-1a
+     * followed by a finalizer spreading the bits.
+     *
+     * @param sequence The sequence to hash.
+     * @param start    The index of the first character to hash, inclusive.
+     * @param end      The index of the last character to hash, exclusive.
+     * @return The hash of the region.
+     */
+    public static long hash64(CharSequence sequence, int start, int end) {
+        return mix(update(FNV_OFFSET, sequence, start, end));
+    }
+
+    /**
+     * Hashes a sequence of characters to 64 bits.
+     *
+     * @param sequence The sequence to hash.
+     * @return The hash of the sequence.
+     * @see #hash64(CharSequence, int, int)
+     */
+    public static long hash64(CharSequence sequence) {
+        return hash64(sequence, 0, sequence.length());
+    }
+
+    /**
+     * Hashes several sequences of characters to 64 bits, as if they were
+     * concatenated with a separator that cannot appear in them.
+     *
+     * @param sequences The sequences to hash.
+     * @return The hash of the sequences.
+     */
+    public static long hash64(CharSequence... sequences) {
+        long hash = FNV_OFFSET;
+        for (CharSequence sequence : sequences)
+            hash = separate(update(hash, sequence, 0, sequence.length()));
+        return mix(hash);
+    }
+
+    /**
+     * Continues an FNV-1a hash with a separator that cannot appear in a sequence
+     * of characters, so that hashing "ab" then "c" differs from hashing "a" then
+     * "bc".
+     *
+     * @param hash The hash so far.
+     * @return The updated hash.
+     */
+    public static long separate(long hash) {
+        hash ^= 0x10000;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    /**
+     * Continues an FNV-1a hash with a region of a sequence of characters.
+     *
+     * @param hash     The hash so far.
+     * @param sequence The sequence to hash.
+     * @param start    The index of the first character to hash, inclusive.
+     * @param end      The index of the last character to hash, exclusive.
+     * @return The updated hash.
+     */
+    public static long update(long hash, CharSequence sequence, int start, int end) {
+        for (int i = start; i < end; i++) {
+            hash ^= sequence.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Continues an FNV-1a hash with a region of a sequence of characters, each
+     * character being lower cased first, so that a region hashes the same
+     * whatever its case.
+     *
+     * @param hash     The hash so far.
+     * @param sequence The sequence to hash.
+     * @param start    The index of the first character to hash, inclusive.
+     * @param end      The index of the last character to hash, exclusive.
+     * @return The updated hash.
+     */
+    public static long updateIgnoreCase(long hash, CharSequence sequence, int start, int end) {
+        for (int i = start; i < end; i++) {
+            hash ^= Character.toLowerCase(sequence.charAt(i));
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of a 64 bits value, with the finalizer of MurmurHash3.
+     *
+     * @param value The value to mix.
+     * @return The mixed value.
+     */
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,106 @@
+package com.pydawan.pydabot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ *
+ * Each slot of the ring carries a sequence number telling whether it is free
+ * for the producer of a given position or filled for the consumer. Producers
+ * claim a position with a compare and set on the tail, then publish their
+ * element by advancing the sequence of its slot; the consumer reads slots in
+ * order and frees them by advancing their sequence by one lap. Offering to a
+ * full ring fails immediately instead of waiting.
+ *
+ * @param <E> The type of the elements.
+ */
+public final class MpscRing<E> {
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * Creates a new MpscRing.
+     *
+     * @param capacity The capacity of the ring, rounded up to a power of two.
+     */
+    public MpscRing(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element to the ring, from any thread.
+     *
+     * @param element The element.
+     * @return <code>true</code> if the element was added, <code>false</code> if
+     *         the ring is full.
+     */
+    public boolean offer(E element) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1))
+                    break;
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+        elements[index] = element;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest element of the ring. Must only be called by the consumer
+     * thread.
+     *
+     * @return The oldest element, or null if the ring is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1)
+            return null;
+
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Returns the number of elements in the ring, which may be stale as soon as
+     * it is returned.
+     *
+     * @return The number of elements.
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head, mask + 1));
+    }
+
+    /**
+     * Returns the capacity of the ring.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
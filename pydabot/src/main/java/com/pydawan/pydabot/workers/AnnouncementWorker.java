@@ -1,27 +1,46 @@
 package com.pydawan.pydabot.workers;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Vector;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 import com.pydawan.pydabot.Announcement;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
 
 import org.pircbotx.PircBotX;
 
 import lombok.Getter;
 import lombok.Setter;
 
-import static com.pydawan.pydabot.irc.IrcUtils.channelOf;
+import static com.pydawan.pydabot.irc.IrcUtils.normalizeChannel;
 
 /**
  * A worker that sends random announcements to a channel.
- * Each call to run() will send a random announcement to a channel.
+ * Each call to run() will send a random announcement to a channel, and each
+ * call to {@link #announce(String)} a random announcement of the given channel.
+ *
+ * Announcements are held in an immutable snapshot carrying precomputed
+ * {@link WeightedSampler}s, one over every announcement and one per channel, so
+ * drawing an announcement takes constant time and never locks. The snapshot is
+ * replaced, and its samplers rebuilt, only when the announcements change.
  */
 public class AnnouncementWorker implements Worker {
 
-    private final Vector<Announcement> announcements = new Vector<>();
+    private final AtomicReference<Snapshot> announcements = new AtomicReference<>(Snapshot.EMPTY);
+
+    /**
+     * Called after the announcements change, such as to schedule the
+     * announcements of new channels. If null, nothing is called.
+     */
+    @Getter
+    @Setter
+    private volatile Runnable changeObserver;
 
     /**
      * The bot to which this worker will send messages.
@@ -30,9 +49,17 @@ public class AnnouncementWorker implements Worker {
     @Setter
     private volatile PircBotX bot;
 
+    /**
+     * The scheduler through which announcements are sent with the
+     * {@link Priority#ANNOUNCEMENT} priority. Takes precedence over the bot.
+     */
+    @Getter
+    @Setter
+    private volatile OutboundScheduler outbound;
+
     /**
      * Constructs a new AnnouncementWorker.
-     * 
+     *
      * @param bot The bot to which this worker will send messages.
      */
     public AnnouncementWorker(PircBotX bot) {
@@ -42,83 +69,170 @@ public class AnnouncementWorker implements Worker {
     /**
      * Constructs a new AnnouncementWorker.
      * Adds the given announcement to the list of announcements.
-     * 
+     *
      * @param bot           The bot to which this worker will send messages.
      * @param announcements The announcements to be sent.
      */
     public AnnouncementWorker(PircBotX bot, Collection<Announcement> announcements) {
         this.bot = bot;
-        this.announcements.addAll(announcements);
+        this.announcements.set(Snapshot.of(announcements));
+    }
+
+    private static WeightedSampler<Announcement> sampler(Collection<Announcement> announcements) {
+        return announcements.isEmpty()
+                ? WeightedSampler.empty()
+                : new WeightedSampler<>(announcements, Announcement::getWeight);
+    }
+
+    /**
+     * Replaces the snapshot of announcements with the result of the given update.
+     */
+    private void update(UnaryOperator<List<Announcement>> update) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = announcements.get();
+            next = Snapshot.of(update.apply(new ArrayList<>(current.all.getItems())));
+        } while (!announcements.compareAndSet(current, next));
+        changed();
+    }
+
+    private void changed() {
+        Runnable changeObserver = this.changeObserver;
+        if (changeObserver != null)
+            changeObserver.run();
     }
 
     /**
      * Sends a random announcement to a channel.
+     * Does nothing if there is no announcement to send.
      */
     @Override
     public void run() {
-        if (bot == null)
-            return;
-
-        Announcement announcement = randomAnnouncement();
-        bot.send().message(channelOf(announcement.getChannel()), announcement.getMessage());
+        send(announcements.get().all.sample());
     }
 
     /**
-     * Yiels a random announcement.
-     * 
-     * @return A random announcement.
+     * Sends a random announcement of the given channel.
+     * Does nothing if the channel has no announcement.
+     *
+     * @param channel The name of the channel, with or without its leading '#'.
      */
-    private Announcement randomAnnouncement() {
-        synchronized (announcements) {
-            if (announcements.isEmpty())
-                throw new NoSuchElementException("No announcements available");
-
-            double totalWeight = announcements.stream().mapToDouble(Announcement::getWeight).sum();
-            double random = Math.random() * totalWeight;
-            double currentWeight = 0;
-
-            for (Announcement announcement : announcements) {
-                currentWeight += announcement.getWeight();
-                if (random < currentWeight)
-                    return announcement;
-            }
+    public void announce(String channel) {
+        WeightedSampler<Announcement> sampler = announcements.get().byChannel.get(normalizeChannel(channel));
+        if (sampler != null)
+            send(sampler.sample());
+    }
 
-            return announcements.lastElement();
-        }
+    private void send(Announcement announcement) {
+        if (announcement != null)
+            OutboundScheduler.message(outbound, bot, normalizeChannel(announcement.getChannel()),
+                    announcement.getMessage(), Priority.ANNOUNCEMENT);
     }
 
     /**
      * Adds the given announcement to the list of announcements.
-     * 
+     *
      * @param announcement The announcement to add.
      */
     public void addAnnouncement(Announcement announcement) {
-        announcements.add(announcement);
+        update(list -> {
+            list.add(announcement);
+            return list;
+        });
     }
 
     /**
-     * Remove the given announcement to the list of announcements.
-     * 
+     * Adds the given announcements to the list of announcements.
+     * The snapshot is rebuilt once for all of them.
+     *
      * @param announcements The announcements to add.
      */
+    public void addAnnouncements(Collection<Announcement> announcements) {
+        update(list -> {
+            list.addAll(announcements);
+            return list;
+        });
+    }
+
+    /**
+     * Remove the given announcement to the list of announcements.
+     *
+     * @param announcement The announcement to remove.
+     */
     public void removeAnnouncement(Announcement announcement) {
-        announcements.remove(announcement);
+        update(list -> {
+            list.remove(announcement);
+            return list;
+        });
+    }
+
+    /**
+     * Replaces every announcement with the given ones, at once: a concurrent
+     * run sends either an old or a new announcement.
+     *
+     * @param announcements The new announcements.
+     */
+    public void setAnnouncements(Collection<Announcement> announcements) {
+        this.announcements.set(Snapshot.of(List.copyOf(announcements)));
+        changed();
     }
 
     /**
      * Clears the list of announcements.
      */
     public void clearAnnouncements() {
-        announcements.clear();
+        announcements.set(Snapshot.EMPTY);
+        changed();
     }
 
     /**
-     * Returns an unmodifiable view of the list of announcements.
-     * 
+     * Returns the current announcements.
+     * The list is an unmodifiable snapshot: later changes are not reflected in
+     * it.
+     *
      * @return The announcements.
      */
     public List<Announcement> getAnnouncements() {
-        return Collections.unmodifiableList(announcements);
+        return announcements.get().all.getItems();
+    }
+
+    /**
+     * Returns the channels having at least one announcement, with their leading
+     * '#'.
+     *
+     * @return An unmodifiable snapshot of the channels.
+     */
+    public Set<String> getChannels() {
+        return announcements.get().byChannel.keySet();
     }
 
+    /**
+     * The announcements, and their samplers.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(WeightedSampler.empty(), Map.of());
+
+        final WeightedSampler<Announcement> all;
+        final Map<String, WeightedSampler<Announcement>> byChannel;
+
+        private Snapshot(WeightedSampler<Announcement> all, Map<String, WeightedSampler<Announcement>> byChannel) {
+            this.all = all;
+            this.byChannel = byChannel;
+        }
+
+        static Snapshot of(Collection<Announcement> announcements) {
+            if (announcements.isEmpty())
+                return EMPTY;
+
+            Map<String, List<Announcement>> grouped = new HashMap<>();
+            for (Announcement announcement : announcements)
+                grouped.computeIfAbsent(normalizeChannel(announcement.getChannel()), channel -> new ArrayList<>())
+                        .add(announcement);
+
+            Map<String, WeightedSampler<Announcement>> byChannel = new HashMap<>();
+            grouped.forEach((channel, list) -> byChannel.put(channel, sampler(list)));
+            return new Snapshot(sampler(announcements), Map.copyOf(byChannel));
+        }
+    }
 }
@@ -0,0 +1,525 @@
+package com.pydawan.pydabot.workers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A scheduler of delayed and periodic tasks on a hierarchical hashed timing
+ * wheel, for thousands of timers such as one announcement timer per channel.
+ *
+ * Time is divided in ticks. The wheel has {@link #LEVELS} levels of
+ * {@link #SLOTS} slots: the first level holds the tasks due within
+ * {@link #SLOTS} ticks, one slot per tick, and each next level holds tasks due
+ * {@link #SLOTS} times further, one slot per revolution of the level below.
+ * When a level completes a revolution, the tasks of the next slot of the level
+ * above are spread over the levels below. Scheduling and cancelling a task
+ * take constant time whatever the number of tasks, and each tick only visits
+ * the tasks of a single slot.
+ *
+ * Every slot is owned by a single ticker thread. Tasks scheduled or cancelled
+ * from other threads are handed to the ticker through lock free queues, and
+ * are applied before the next tick. Expired tasks are run on an executor, so a
+ * slow task does not delay the others. A periodic task is scheduled again once
+ * its run completes, at a fixed rate from its first deadline: its runs never
+ * overlap, and late runs are not caught up.
+ */
+public class TimingWheel implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    /**
+     * The default duration of a tick, in milliseconds.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * The default number of threads running the expired tasks.
+     */
+    public static final int DEFAULT_THREADS = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of slots of each level.
+     */
+    public static final int SLOTS = 256;
+
+    /**
+     * The number of levels of the wheel. With ticks of 10 milliseconds, the
+     * wheel spans about 497 days. Tasks due further away are parked in the last
+     * slot until they get closer.
+     */
+    public static final int LEVELS = 4;
+
+    private static final int SLOT_BITS = 8;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private static final int WAITING = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+
+    private static final AtomicInteger WHEEL_COUNT = new AtomicInteger();
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * The duration of a tick, in nanoseconds.
+     */
+    @Getter
+    private final long tickNanos;
+
+    private final Slot[][] wheel = new Slot[LEVELS][SLOTS];
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final Thread ticker;
+    private final long startNanos;
+
+    /**
+     * The next tick to process. Only accessed by the ticker.
+     */
+    private long base;
+
+    private final LongAdder scheduledCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder lateCount = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a TimingWheel running the expired tasks on the given executor.
+     * The executor is not shut down when the wheel is closed.
+     *
+     * @param tick     The duration of a tick.
+     * @param unit     The unit of the duration.
+     * @param executor The executor running the expired tasks.
+     * @throws IllegalArgumentException If the tick is not positive.
+     */
+    public TimingWheel(long tick, @NonNull TimeUnit unit, @NonNull Executor executor) {
+        this(tick, unit, executor, null);
+    }
+
+    /**
+     * Creates a TimingWheel running the expired tasks on a pool of
+     * {@link #DEFAULT_THREADS} threads.
+     *
+     * @param tick The duration of a tick.
+     * @param unit The unit of the duration.
+     * @throws IllegalArgumentException If the tick is not positive.
+     */
+    public TimingWheel(long tick, @NonNull TimeUnit unit) {
+        this(tick, unit, null, newDefaultPool());
+    }
+
+    /**
+     * Creates a TimingWheel with ticks of {@link #DEFAULT_TICK_MILLIS}
+     * milliseconds, running the expired tasks on a pool of
+     * {@link #DEFAULT_THREADS} threads.
+     */
+    public TimingWheel() {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private TimingWheel(long tick, TimeUnit unit, Executor executor, ExecutorService ownedExecutor) {
+        if (tick <= 0)
+            throw new IllegalArgumentException("tick must be positive");
+
+        this.tickNanos = unit.toNanos(tick);
+        this.executor = executor != null ? executor : ownedExecutor;
+        this.ownedExecutor = ownedExecutor;
+        for (Slot[] level : wheel)
+            for (int i = 0; i < SLOTS; i++)
+                level[i] = new Slot();
+
+        startNanos = System.nanoTime();
+        ticker = new Thread(this::tickLoop, "timing-wheel-" + WHEEL_COUNT.incrementAndGet());
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private static ExecutorService newDefaultPool() {
+        int number = POOL_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "timing-wheel-worker-" + number + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(DEFAULT_THREADS, factory);
+    }
+
+    /**
+     * Runs a task once after the given delay.
+     *
+     * @param task  The task to run.
+     * @param delay The delay before running the task. A delay shorter than a
+     *              tick runs the task on the next tick.
+     * @param unit  The unit of the delay.
+     * @return A handle to cancel the task.
+     * @throws RejectedExecutionException If the wheel is closed.
+     */
+    public Timeout schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        return submit(new Timeout(task, deadlineOf(unit.toNanos(delay)), 0));
+    }
+
+    /**
+     * Runs a task periodically, first after the given delay, then every period
+     * after its first deadline. A run starting late does not delay the
+     * following ones, and runs missed while a run was late are skipped.
+     *
+     * @param task   The task to run.
+     * @param delay  The delay before the first run.
+     * @param period The period between two runs. It is rounded up to a whole
+     *               number of ticks.
+     * @param unit   The unit of the delay and period.
+     * @return A handle to cancel the task.
+     * @throws IllegalArgumentException   If the period is not positive.
+     * @throws RejectedExecutionException If the wheel is closed.
+     */
+    public Timeout scheduleAtFixedRate(@NonNull Runnable task, long delay, long period, @NonNull TimeUnit unit) {
+        if (period <= 0)
+            throw new IllegalArgumentException("period must be positive");
+
+        long periodTicks = Math.max(1, ceilDiv(unit.toNanos(period), tickNanos));
+        return submit(new Timeout(task, deadlineOf(unit.toNanos(delay)), periodTicks));
+    }
+
+    private long deadlineOf(long delayNanos) {
+        long elapsed = System.nanoTime() - startNanos + Math.max(0, delayNanos);
+        return elapsed < 0 ? 0 : ceilDiv(elapsed, tickNanos);
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    private Timeout submit(Timeout timeout) {
+        if (closed)
+            throw new RejectedExecutionException("TimingWheel is closed");
+
+        scheduledCount.increment();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void tickLoop() {
+        while (!closed) {
+            applyPending();
+
+            long now = System.nanoTime() - startNanos;
+            long due = now / tickNanos;
+            while (base <= due && !closed)
+                tick();
+
+            long sleep = base * tickNanos - (System.nanoTime() - startNanos);
+            if (sleep > 0)
+                LockSupport.parkNanos(this, sleep);
+        }
+
+        applyPending();
+        for (Slot[] level : wheel)
+            for (Slot slot : level)
+                slot.clear();
+    }
+
+    /**
+     * Applies the tasks scheduled and cancelled since the last tick.
+     */
+    private void applyPending() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null)
+            if (timeout.slot != null)
+                timeout.slot.remove(timeout);
+        while ((timeout = pending.poll()) != null)
+            if (timeout.state.get() == WAITING)
+                insert(timeout);
+    }
+
+    /**
+     * Puts a task in the slot of its deadline, in the lowest level that spans
+     * it.
+     */
+    private void insert(Timeout timeout) {
+        long deadline = Math.max(timeout.deadline, base);
+        long remaining = deadline - base;
+        if (remaining > MAX_TICKS) {
+            deadline = base + MAX_TICKS;
+            remaining = MAX_TICKS;
+        }
+
+        int level = 0;
+        while (remaining >= 1L << (SLOT_BITS * (level + 1)))
+            level++;
+        wheel[level][(int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK].add(timeout);
+    }
+
+    /**
+     * Processes the tick {@link #base}: spreads the tasks of the levels above
+     * on each revolution, then runs the tasks of the current slot.
+     */
+    private void tick() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((base & ((1L << (SLOT_BITS * level)) - 1)) != 0)
+                break;
+            cascade(wheel[level][(int) (base >>> (SLOT_BITS * level)) & SLOT_MASK]);
+        }
+
+        Slot slot = wheel[0][(int) base & SLOT_MASK];
+        Timeout timeout;
+        while ((timeout = slot.poll()) != null) {
+            if (timeout.deadline > base)
+                insert(timeout);
+            else
+                expire(timeout);
+        }
+        base++;
+    }
+
+    private void cascade(Slot slot) {
+        Timeout timeout;
+        while ((timeout = slot.poll()) != null)
+            insert(timeout);
+    }
+
+    private void expire(Timeout timeout) {
+        if (!timeout.state.compareAndSet(WAITING, RUNNING))
+            return;
+
+        expiredCount.increment();
+        try {
+            executor.execute(timeout);
+        } catch (RejectedExecutionException e) {
+            failedCount.increment();
+            timeout.state.set(CANCELLED);
+            LOGGER.warn("Timed task rejected by the executor", e);
+        }
+    }
+
+    /**
+     * Returns the number of tasks scheduled, counting each periodic task once.
+     *
+     * @return The number of scheduled tasks.
+     */
+    public long getScheduledCount() {
+        return scheduledCount.sum();
+    }
+
+    /**
+     * Returns the number of runs of expired tasks.
+     *
+     * @return The number of expirations.
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * Returns the number of tasks cancelled before they ran.
+     *
+     * @return The number of cancelled tasks.
+     */
+    public long getCancelledCount() {
+        return cancelledCount.sum();
+    }
+
+    /**
+     * Returns the number of runs that threw an exception, or were rejected by the
+     * executor.
+     *
+     * @return The number of failed runs.
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Returns the number of periodic runs skipped because a previous run was
+     * late.
+     *
+     * @return The number of skipped runs.
+     */
+    public long getLateCount() {
+        return lateCount.sum();
+    }
+
+    /**
+     * Returns whether the wheel is closed.
+     *
+     * @return <code>true</code> if the wheel is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the wheel: pending tasks are dropped, and running tasks are not
+     * interrupted. Shuts down the default pool, if any.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownedExecutor != null)
+            ownedExecutor.shutdown();
+    }
+
+    /**
+     * A scheduled task, and the handle to cancel it.
+     */
+    public final class Timeout implements Runnable {
+        private final Runnable task;
+        private final long periodTicks;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        /**
+         * The tick at which the task is due.
+         */
+        private volatile long deadline;
+
+        // Owned by the ticker.
+        private Slot slot;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline, long periodTicks) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodTicks = periodTicks;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failedCount.increment();
+                LOGGER.warn("Timed task failed", e);
+            }
+
+            if (periodTicks == 0 || !state.compareAndSet(RUNNING, WAITING))
+                return;
+
+            long current = (System.nanoTime() - startNanos) / tickNanos;
+            long next = deadline + periodTicks;
+            if (next <= current) {
+                long missed = (current - next) / periodTicks + 1;
+                lateCount.add(missed);
+                next += missed * periodTicks;
+            }
+            deadline = next;
+            if (closed)
+                state.set(CANCELLED);
+            else
+                pending.add(this);
+        }
+
+        /**
+         * Cancels the task. A run in progress completes, but a periodic task does not
+         * run again.
+         *
+         * @return <code>true</code> if the task was waiting for its deadline.
+         */
+        public boolean cancel() {
+            while (true) {
+                int current = state.get();
+                if (current == CANCELLED)
+                    return false;
+                if (state.compareAndSet(current, CANCELLED)) {
+                    if (current != WAITING)
+                        return false;
+                    cancelledCount.increment();
+                    cancelled.add(this);
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Returns whether the task is cancelled.
+         *
+         * @return <code>true</code> if the task is cancelled.
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * Returns whether the task is periodic.
+         *
+         * @return <code>true</code> if the task runs periodically.
+         */
+        public boolean isPeriodic() {
+            return periodTicks > 0;
+        }
+    }
+
+    /**
+     * The tasks of a slot, in a doubly linked list so that a cancelled task is
+     * unlinked in constant time. Only accessed by the ticker.
+     */
+    private static final class Slot {
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.slot = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null)
+                head.previous = timeout;
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.slot != this)
+                return;
+
+            if (timeout.previous != null)
+                timeout.previous.next = timeout.next;
+            else
+                head = timeout.next;
+            if (timeout.next != null)
+                timeout.next.previous = timeout.previous;
+            timeout.slot = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        Timeout poll() {
+            Timeout timeout = head;
+            if (timeout != null)
+                remove(timeout);
+            return timeout;
+        }
+
+        void clear() {
+            while (poll() != null)
+                ;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.pydawan.pydabot.workers;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An immutable weighted random sampler over a list of items.
+ *
+ * The sampler precomputes an alias table with Vose's method when it is built,
+ * in linear time. Each draw then takes constant time: it picks a column of the
+ * table uniformly and either keeps it or takes its alias.
+ *
+ * Items with a weight of zero are never drawn.
+ *
+ * @param <T> The type of the items.
+ */
+public final class WeightedSampler<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final WeightedSampler EMPTY = new WeightedSampler<>(List.of(), x -> 1.0);
+
+    /**
+     * The items of the sampler, in the order they were given.
+     */
+    @Getter
+    private final List<T> items;
+
+    /**
+     * The sum of the weights of the items.
+     */
+    @Getter
+    private final double totalWeight;
+
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * Builds a sampler over the given items.
+     *
+     * @param items    The items to draw from. The collection is copied.
+     * @param weightOf A function that returns the weight of an item.
+     * @throws IllegalArgumentException If a weight is negative or not finite.
+     */
+    public WeightedSampler(@NonNull Collection<? extends T> items, @NonNull ToDoubleFunction<? super T> weightOf) {
+        this.items = Collections.unmodifiableList(List.copyOf(items));
+        int n = this.items.size();
+
+        double[] weights = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            double weight = weightOf.applyAsDouble(this.items.get(i));
+            if (!(weight >= 0) || Double.isInfinite(weight))
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            weights[i] = weight;
+            total += weight;
+        }
+        this.totalWeight = total;
+        this.probability = new double[n];
+        this.alias = new int[n];
+
+        if (total <= 0)
+            return;
+
+        // Scale the weights so that their average is 1, then pair each small
+        // column with a large one.
+        ArrayDeque<Integer> small = new ArrayDeque<>();
+        ArrayDeque<Integer> large = new ArrayDeque<>();
+        double[] scaled = new double[n];
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0)
+                small.push(i);
+            else
+                large.push(i);
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0)
+                small.push(more);
+            else
+                large.push(more);
+        }
+
+        // The remaining columns are full, up to rounding errors. Columns of items
+        // without weight are redirected to a column that has one.
+        int positive = 0;
+        while (weights[positive] == 0)
+            positive++;
+
+        while (!large.isEmpty()) {
+            int index = large.pop();
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        while (!small.isEmpty()) {
+            int index = small.pop();
+            probability[index] = weights[index] > 0 ? 1.0 : 0.0;
+            alias[index] = weights[index] > 0 ? index : positive;
+        }
+    }
+
+    /**
+     * Returns an empty sampler.
+     *
+     * @param <T> The type of the items.
+     * @return An empty sampler.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> WeightedSampler<T> empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns whether no item can be drawn, either because there is no item or
+     * because all weights are zero.
+     *
+     * @return <code>true</code> if no item can be drawn.
+     */
+    public boolean isEmpty() {
+        return !(totalWeight > 0);
+    }
+
+    /**
+     * Draws a random index, using the given random number generator.
+     *
+     * @param random The random number generator.
+     * @return The index of the drawn item, or -1 if the sampler is empty.
+     */
+    public int sampleIndex(@NonNull Random random) {
+        if (isEmpty())
+            return -1;
+
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    /**
+     * Draws a random item.
+     *
+     * @return The drawn item, or null if the sampler is empty.
+     */
+    public T sample() {
+        int index = sampleIndex(ThreadLocalRandom.current());
+        return index < 0 ? null : items.get(index);
+    }
+}
@@ -0,0 +1,35 @@
+package com.pydawan;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.pircbotx.Channel;
+import org.pircbotx.User;
+import org.pircbotx.UserHostmask;
+import org.pircbotx.hooks.events.MessageEvent;
+
+public class MessageEvents {
+    private MessageEvents() {
+    }
+
+    public static MessageEvent messageEventWithMessage(String message) {
+        return messageEvent("#pydawan", "pydawan", message, ImmutableMap.of());
+    }
+
+    public static MessageEvent messageEvent(String channelName, String nick, String message,
+            ImmutableMap<String, String> tags) {
+        Channel channel = new Channel(null, channelName) {
+        };
+        UserHostmask userHostmask = new UserHostmask(null, nick) {
+        };
+        User user = new User(userHostmask) {
+        };
+        return new MessageEvent(
+                null,
+                channel,
+                channelName,
+                userHostmask,
+                user,
+                message,
+                tags);
+    }
+}
@@ -0,0 +1,114 @@
+package com.pydawan.analytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import com.pydawan.pydabot.analytics.CountMinSketch;
+import com.pydawan.pydabot.analytics.SpaceSaving;
+import com.pydawan.pydabot.analytics.TokenKind;
+import com.pydawan.pydabot.analytics.TrendWindow;
+import com.pydawan.pydabot.analytics.Trends;
+import com.pydawan.pydabot.util.Hashing;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class TrendsTest {
+
+    @Test
+    public void testSketchNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        int[] counts = new int[1000];
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            int key = (int) Math.min(999, Math.abs(random.nextGaussian()) * 100);
+            counts[key]++;
+            sketch.add(Hashing.hash64(Integer.toString(key)));
+        }
+
+        for (int key = 0; key < counts.length; key++)
+            assertTrue(sketch.estimate(Hashing.hash64(Integer.toString(key))) >= counts[key]);
+        assertEquals(20_000, sketch.getTotal());
+    }
+
+    @Test
+    public void testSpaceSavingFindsHeavyHitters() {
+        SpaceSaving counts = new SpaceSaving(8);
+        for (int i = 0; i < 1000; i++) {
+            String key = i % 3 == 0 ? "heavy" : i % 5 == 0 ? "medium" : "noise" + i;
+            counts.add(Hashing.hash64(key), key, 0, key.length(), Long.MAX_VALUE);
+        }
+
+        List<SpaceSaving.Entry> top = counts.top(2);
+        assertEquals("heavy", top.get(0).getText());
+        assertEquals("medium", top.get(1).getText());
+        assertTrue(top.get(0).getCount() - top.get(0).getError() <= 334);
+        assertTrue(top.get(0).getCount() >= 334);
+        assertEquals(8, counts.getSize());
+    }
+
+    @Test
+    public void testCountsWordsAndEmotes() {
+        Trends trends = new Trends();
+        trends.record("a", "Kappa hello HELLO Hello the ok", "25:0-4", 0);
+        trends.record("#a", "hello Kappa Kappa", "25:6-10,12-16", 1);
+
+        List<SpaceSaving.Entry> words = trends.top("a", TrendWindow.MINUTE, TokenKind.WORD, 5, 2);
+        assertEquals(1, words.size());
+        assertEquals(new SpaceSaving.Entry("hello", 4, 0), words.get(0));
+        assertEquals(List.of(new SpaceSaving.Entry("Kappa", 3, 0)),
+                trends.top("a", TrendWindow.HOUR, TokenKind.EMOTE, 5, 2));
+        assertEquals(4, trends.countOf("#a", TrendWindow.TEN_MINUTES, "hElLo", 2));
+        assertEquals(0, trends.countOf("#a", TrendWindow.TEN_MINUTES, "kappa", 2));
+    }
+
+    @Test
+    public void testEmoteRangesCountCodePoints() {
+        Trends trends = new Trends();
+        trends.record("a", "😀 Kappa", "25:2-6", 0);
+        assertEquals(List.of(new SpaceSaving.Entry("Kappa", 1, 0)),
+                trends.top("a", TrendWindow.MINUTE, TokenKind.EMOTE, 5, 0));
+    }
+
+    @Test
+    public void testWindowsRollOver() {
+        Trends trends = new Trends();
+        trends.record("a", "first", null, 59_000);
+        trends.record("a", "second", null, 61_000);
+
+        assertEquals(List.of(new SpaceSaving.Entry("second", 1, 0)),
+                trends.top("a", TrendWindow.MINUTE, TokenKind.WORD, 5, 61_000));
+        assertEquals(List.of(new SpaceSaving.Entry("first", 1, 0)),
+                trends.previousTop("a", TrendWindow.MINUTE, TokenKind.WORD, 5, 61_000));
+        assertEquals(2, trends.top("a", TrendWindow.TEN_MINUTES, TokenKind.WORD, 5, 61_000).size());
+
+        assertEquals(List.of(), trends.top("a", TrendWindow.MINUTE, TokenKind.WORD, 5, 300_000));
+        assertEquals(List.of(), trends.previousTop("a", TrendWindow.MINUTE, TokenKind.WORD, 5, 300_000));
+    }
+
+    @Test
+    public void testWritesSnapshot() throws Exception {
+        Trends trends = new Trends();
+        trends.record("a", "pog pog pog lul", "1902:0-2", 0);
+
+        Path directory = Files.createTempDirectory("trends");
+        Path path = directory.resolve("trends.json");
+        trends.writeSnapshot(path, 1000);
+
+        JSONObject minute = new JSONObject(Files.readString(path)).getJSONObject("channels").getJSONObject("#a")
+                .getJSONObject("1m");
+        assertEquals(1, minute.getLong("messages"));
+        assertEquals("pog", minute.getJSONArray("words").getJSONObject(0).getString("text"));
+        assertEquals(2, minute.getJSONArray("words").getJSONObject(0).getLong("count"));
+        assertEquals("pog", minute.getJSONArray("emotes").getJSONObject(0).getString("text"));
+        assertEquals(0, minute.getJSONObject("previous").getLong("messages"));
+
+        Files.delete(path);
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,115 @@
+package com.pydawan.chatlog;
+
+import static com.pydawan.MessageEvents.messageEvent;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableMap;
+import com.pydawan.pydabot.chatlog.ChatLogListener;
+import com.pydawan.pydabot.chatlog.ChatLogReader;
+import com.pydawan.pydabot.chatlog.ChatLogWriter;
+import com.pydawan.pydabot.chatlog.ChatRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChatLogTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pydabot-chatlog");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testWritesAndQueriesRecords() throws Exception {
+        ChatLogWriter writer = new ChatLogWriter(directory, 1 << 14);
+        writer.setBlockSize(1024);
+        writer.setMaxSegmentSize(4096);
+        writer.start();
+
+        List<ChatRecord> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            ChatRecord record = new ChatRecord(1_000_000L + i * 10, "#channel" + i % 3, "user" + i % 7,
+                    "message number " + i + " é");
+            assertTrue(writer.offer(record));
+            if (i % 3 == 1 && record.getTimestamp() >= 1_010_000L && record.getTimestamp() < 1_020_000L)
+                expected.add(record);
+        }
+        writer.close();
+
+        assertEquals(5000, writer.getWrittenCount());
+        assertEquals(0, writer.getDroppedCount());
+        assertTrue(writer.getBlockCount() > 1);
+        assertTrue(writer.getSegmentCount() > 1);
+
+        ChatLogReader reader = new ChatLogReader(directory);
+        assertEquals(expected, reader.read("#channel1", 1_010_000L, 1_020_000L));
+        assertEquals(5000, reader.read(null, 0, Long.MAX_VALUE).size());
+        assertTrue(reader.read("#other", 0, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testDropsNewestRecordsWhenFull() throws Exception {
+        ChatLogWriter writer = new ChatLogWriter(directory, 4);
+        ChatLogListener listener = new ChatLogListener(writer);
+        for (int i = 0; i < 10; i++)
+            listener.onMessage(messageEvent("#a", "user", "message " + i, ImmutableMap.of()));
+
+        assertEquals(10, writer.getOfferedCount());
+        assertEquals(6, writer.getDroppedCount());
+        assertFalse(writer.offer(new ChatRecord(0, "#a", "user", "dropped")));
+
+        writer.start();
+        writer.close();
+        List<ChatRecord> records = new ChatLogReader(directory).read("#a", 0, Long.MAX_VALUE);
+        assertEquals(4, records.size());
+        assertEquals("message 0", records.get(0).getMessage());
+        assertEquals("message 3", records.get(3).getMessage());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        ChatLogWriter writer = new ChatLogWriter(directory, 1 << 16);
+        writer.start();
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            String channel = "#c" + t;
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    while (!writer.offer(new ChatRecord(i, channel, "user", Integer.toString(i))))
+                        Thread.yield();
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers)
+            producer.join();
+        writer.close();
+
+        ChatLogReader reader = new ChatLogReader(directory);
+        for (int t = 0; t < producers.length; t++) {
+            List<ChatRecord> records = reader.read("#c" + t, 0, Long.MAX_VALUE);
+            assertEquals(10_000, records.size());
+            for (int i = 0; i < records.size(); i++)
+                assertEquals(Integer.toString(i), records.get(i).getMessage());
+        }
+    }
+}
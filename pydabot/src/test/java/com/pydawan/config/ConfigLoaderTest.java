@@ -0,0 +1,68 @@
+package com.pydawan.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pydawan.pydabot.Announcement;
+import com.pydawan.pydabot.config.Config;
+import com.pydawan.pydabot.config.ConfigException;
+import com.pydawan.pydabot.config.ConfigLoader;
+
+import org.junit.Test;
+
+public class ConfigLoaderTest {
+
+    private final ConfigLoader loader = new ConfigLoader();
+
+    @Test
+    public void testParsesValidConfiguration() {
+        Config config = loader.parse("{"
+                + "\"name\": \"pydabot\", \"server\": \"irc.chat.twitch.tv\", \"token\": \"oauth:x\","
+                + "\"channels\": [\"#a\", \"b\"],"
+                + "\"commands\": {\"hello\": \"Hello, world!\"},"
+                + "\"announcements\": [{\"channel\": \"a\", \"message\": \"Follow!\", \"weight\": 2}, "
+                + "{\"channel\": \"b\", \"message\": \"Hi\"}],"
+                + "\"announcement_intervals\": {\"a\": 300}"
+                + "}");
+
+        assertEquals("pydabot", config.getName());
+        assertEquals(ConfigLoader.DEFAULT_PORT, config.getPort());
+        assertEquals(0, config.getMetricsPort());
+        assertEquals(List.of("#a", "b"), config.getChannels());
+        assertEquals(Map.of("hello", "Hello, world!"), config.getCommands());
+        assertEquals(List.of(new Announcement("a", "Follow!", 2), new Announcement("b", "Hi", 1)),
+                config.getAnnouncements());
+        assertEquals(Map.of("a", 300L), config.getAnnouncementIntervals());
+    }
+
+    @Test
+    public void testRejectsConfigurationNotMatchingTheSchema() {
+        try {
+            loader.parse("{"
+                    + "\"name\": \"pydabot\", \"server\": \"irc.chat.twitch.tv\", \"port\": 66.5,"
+                    + "\"channels\": [\"#a\", 3],"
+                    + "\"commands\": {\"hello\": 1},"
+                    + "\"announcements\": [{\"channel\": \"a\", \"weight\": -1}]"
+                    + "}");
+            fail();
+        } catch (ConfigException e) {
+            List<String> violations = e.getViolations();
+            assertEquals(violations.toString(), 6, violations.size());
+            assertTrue(violations.contains("/: missing required property token"));
+            assertTrue(violations.contains("/port: expected integer but was number"));
+            assertTrue(violations.contains("/channels/1: expected string but was number"));
+            assertTrue(violations.contains("/commands/hello: expected string but was number"));
+            assertTrue(violations.contains("/announcements/0: missing required property message"));
+            assertTrue(violations.contains("/announcements/0/weight: -1 is less than 0"));
+        }
+    }
+
+    @Test(expected = ConfigException.class)
+    public void testRejectsMalformedConfiguration() {
+        loader.parse("{\"name\": ");
+    }
+}
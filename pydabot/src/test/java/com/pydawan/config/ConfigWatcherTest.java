@@ -0,0 +1,131 @@
+package com.pydawan.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pydawan.pydabot.Announcement;
+import com.pydawan.pydabot.Bot;
+import com.pydawan.pydabot.config.Config;
+import com.pydawan.pydabot.config.ConfigApplier;
+import com.pydawan.pydabot.config.ConfigLoader;
+import com.pydawan.pydabot.config.ConfigWatcher;
+import com.pydawan.pydabot.listeners.SimpleCommandListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigWatcherTest {
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("pydabot-config");
+        file = directory.resolve("config.json");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    private static String config(String channels, String commands) {
+        return "{\"name\": \"pydabot\", \"server\": \"localhost\", \"token\": \"oauth:x\","
+                + "\"channels\": [" + channels + "], \"commands\": {" + commands + "}}";
+    }
+
+    @Test
+    public void testReloadsChangedFile() throws Exception {
+        Files.writeString(file, config("\"#a\"", ""));
+        BlockingQueue<Config> configs = new LinkedBlockingQueue<>();
+
+        try (ConfigWatcher watcher = new ConfigWatcher(new ConfigLoader(), file, configs::add)) {
+            watcher.start();
+            assertEquals(List.of("#a"), configs.take().getChannels());
+
+            Files.writeString(file, config("\"#a\", \"#b\"", ""));
+            Config reloaded = configs.poll(10, TimeUnit.SECONDS);
+            assertEquals(List.of("#a", "#b"), reloaded.getChannels());
+
+            Files.writeString(file, "{ broken");
+            Files.writeString(file, config("\"#a\", \"#b\"", "\"hi\": 3"));
+            assertFalse(watcher.reload());
+            assertTrue(watcher.getFailureCount() > 0);
+            assertEquals(1, watcher.getReloadCount());
+        }
+    }
+
+    @Test
+    public void testRetriesConfigsThatFailedToApply() throws Exception {
+        Files.writeString(file, config("\"#a\"", ""));
+        AtomicInteger applied = new AtomicInteger();
+
+        try (ConfigWatcher watcher = new ConfigWatcher(new ConfigLoader(), file, config -> {
+            if (applied.incrementAndGet() == 1)
+                throw new IllegalStateException("Cannot apply");
+        })) {
+            assertTrue(watcher.reload());
+            assertTrue(watcher.reload());
+            assertFalse(watcher.reload());
+            assertEquals(2, applied.get());
+            assertEquals(1, watcher.getFailureCount());
+        }
+    }
+
+    @Test
+    public void testAppliesOnlyChanges() throws Exception {
+        Bot bot = new Bot("localhost", 6667, "pydabot", "oauth:x");
+        SimpleCommandListener commands = new SimpleCommandListener(name -> null, "!");
+        ConfigApplier applier = new ConfigApplier(bot, commands);
+        ConfigLoader loader = new ConfigLoader();
+
+        applier.accept(loader.parse(config("\"#a\", \"b\"", "\"hello\": \"Hello!\"")));
+        assertEquals(2, bot.getChannels().size());
+
+        applier.accept(loader.parse(config("\"b\", \"#c\"", "\"hello\": \"Hello!\"")));
+        assertEquals(2, bot.getChannels().size());
+        assertTrue(bot.getChannels().contains("#b"));
+        assertTrue(bot.getChannels().contains("#c"));
+        assertFalse(bot.getChannels().contains("#a"));
+
+        bot.addChannel("c");
+        bot.addChannel("d");
+        assertEquals(Set.of("#b", "#c", "#d"), bot.getChannels());
+        bot.removeChannel("#d");
+        assertEquals(Set.of("#b", "#c"), bot.getChannels());
+    }
+
+    @Test
+    public void testRetriesFailedConfigs() throws Exception {
+        Bot bot = new Bot("localhost", 6667, "pydabot", "oauth:x");
+        ConfigApplier applier = new ConfigApplier(bot, null);
+        List<Announcement> announcements = List.of(new Announcement("a", "Follow!", 1));
+
+        try {
+            applier.accept(new Config("pydabot", "localhost", 6667, "oauth:x", 0, null, List.of("#a"), Map.of(),
+                    announcements, Map.of("#a", -1L)));
+        } catch (IllegalArgumentException e) {
+            // The interval is not positive.
+        }
+        assertTrue(bot.getAnnouncementWorker().getAnnouncements().isEmpty());
+
+        applier.accept(new Config("pydabot", "localhost", 6667, "oauth:x", 0, null, List.of("#a"), Map.of(),
+                announcements, Map.of("#a", 60L)));
+        assertEquals(announcements, bot.getAnnouncementWorker().getAnnouncements());
+        assertEquals(60, bot.getAnnouncementInterval("a", TimeUnit.SECONDS));
+    }
+}
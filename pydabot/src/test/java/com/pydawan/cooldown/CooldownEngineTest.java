@@ -0,0 +1,152 @@
+package com.pydawan.cooldown;
+
+import static com.pydawan.MessageEvents.messageEventWithMessage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pydawan.pydabot.cooldown.Cooldown;
+import com.pydawan.pydabot.cooldown.CooldownEngine;
+import com.pydawan.pydabot.cooldown.CooldownTable;
+import com.pydawan.pydabot.listeners.SimpleCommandListener;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
+import org.junit.Test;
+
+public class CooldownEngineTest {
+
+    @Test
+    public void testChannelCooldown() {
+        CooldownEngine engine = new CooldownEngine(Cooldown.of(1, 0, TimeUnit.HOURS));
+
+        assertTrue(engine.tryAcquire("#a", "alice", "!discord", 1, 8));
+        assertFalse(engine.tryAcquire("#a", "bob", "!discord", 1, 8));
+        assertTrue(engine.tryAcquire("#b", "bob", "!discord", 1, 8));
+        assertTrue(engine.tryAcquire("#a", "bob", "!hello", 1, 6));
+        assertEquals(1, engine.getRejectedCount());
+    }
+
+    @Test
+    public void testUserCooldown() {
+        CooldownEngine engine = new CooldownEngine(Cooldown.of(0, 1, TimeUnit.HOURS));
+
+        assertTrue(engine.tryAcquire("#a", "alice", "discord", 0, 7));
+        assertFalse(engine.tryAcquire("#a", "alice", "discord", 0, 7));
+        assertTrue(engine.tryAcquire("#a", "bob", "discord", 0, 7));
+        assertTrue(engine.tryAcquire("#b", "alice", "discord", 0, 7));
+    }
+
+    @Test
+    public void testRejectionByChannelCooldownDoesNotStartUserCooldown() throws InterruptedException {
+        // As Cooldown.of(5, 30, SECONDS), scaled down.
+        CooldownEngine engine = new CooldownEngine(Cooldown.of(50, 300, TimeUnit.MILLISECONDS));
+
+        assertTrue(engine.tryAcquire("#a", "alice", "discord", 0, 7));
+        assertFalse(engine.tryAcquire("#a", "bob", "discord", 0, 7));
+        Thread.sleep(60);
+        assertTrue(engine.tryAcquire("#a", "bob", "discord", 0, 7));
+        assertFalse(engine.tryAcquire("#a", "alice", "discord", 0, 7));
+    }
+
+    @Test
+    public void testRejectionByUserCooldownDoesNotStartChannelCooldown() throws InterruptedException {
+        CooldownEngine engine = new CooldownEngine(Cooldown.of(50, 300, TimeUnit.MILLISECONDS));
+
+        assertTrue(engine.tryAcquire("#a", "alice", "discord", 0, 7));
+        Thread.sleep(60);
+        assertFalse(engine.tryAcquire("#a", "alice", "discord", 0, 7));
+        assertTrue(engine.tryAcquire("#a", "bob", "discord", 0, 7));
+    }
+
+    @Test
+    public void testListenersShareCooldownsOfTheirOwnCommands() {
+        AtomicInteger resolved = new AtomicInteger();
+        SimpleCommandListener commands = new SimpleCommandListener(Map.of("hello", "Hello!"), "!");
+        SimpleCommandListener customCommands = new SimpleCommandListener((channel, name) -> {
+            resolved.incrementAndGet();
+            return name.equals("discord") ? "Join us!" : null;
+        }, "!");
+        CooldownEngine engine = new CooldownEngine(Cooldown.of(1, 0, TimeUnit.HOURS));
+        OutboundScheduler outbound = new OutboundScheduler((target, message) -> {
+        });
+        for (SimpleCommandListener listener : List.of(commands, customCommands)) {
+            listener.setCooldowns(engine);
+            listener.setOutbound(outbound);
+        }
+
+        for (int i = 0; i < 2; i++) {
+            for (String message : List.of("!discord", "!hello", "!xyz")) {
+                commands.handle(messageEventWithMessage(message), ParsedMessage.parse(message, "!"));
+                customCommands.handle(messageEventWithMessage(message), ParsedMessage.parse(message, "!"));
+            }
+        }
+
+        assertEquals(6, resolved.get());
+        assertEquals(2, outbound.getSubmittedCount());
+        assertEquals(2, engine.getRejectedCount());
+    }
+
+    @Test
+    public void testPerCommandCooldown() {
+        CooldownEngine engine = new CooldownEngine(Cooldown.NONE);
+        engine.setCooldown("discord", Cooldown.of(1, 0, TimeUnit.HOURS));
+
+        assertTrue(engine.tryAcquire("#a", "alice", "!hello", 1, 6));
+        assertTrue(engine.tryAcquire("#a", "alice", "!hello", 1, 6));
+        assertTrue(engine.tryAcquire("#a", "alice", "!discord", 1, 8));
+        assertFalse(engine.tryAcquire("#a", "bob", "!discord", 1, 8));
+    }
+
+    @Test
+    public void testConcurrentInvocationsAreAnsweredOnce() throws InterruptedException {
+        CooldownEngine engine = new CooldownEngine(Cooldown.of(1, 0, TimeUnit.HOURS));
+        AtomicInteger answered = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+
+        for (int t = 0; t < threads.length; t++) {
+            String user = "user" + t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++)
+                    if (engine.tryAcquire("#a", user, "discord", 0, 7))
+                        answered.incrementAndGet();
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(1, answered.get());
+    }
+
+    @Test
+    public void testIdleSlotsAreReused() {
+        CooldownTable table = new CooldownTable(16, 100);
+        long now = 1000;
+
+        for (long key = 1; key <= 16; key++)
+            assertTrue(table.tryFire(key * 16, now, 100));
+        assertEquals(16, table.size(now));
+        assertTrue(table.tryFire(17 * 16, now, 100));
+        assertEquals(1, table.getOverflowCount());
+
+        now += 100;
+        assertEquals(0, table.size(now));
+        assertTrue(table.tryFire(17 * 16, now, 100));
+        assertFalse(table.tryFire(17 * 16, now + 1, 100));
+        assertEquals(1, table.getOverflowCount());
+    }
+}
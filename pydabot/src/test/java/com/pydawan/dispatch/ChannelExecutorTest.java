@@ -0,0 +1,94 @@
+package com.pydawan.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.dispatch.ChannelExecutor;
+import com.pydawan.pydabot.dispatch.OverloadPolicy;
+
+import org.junit.Test;
+
+public class ChannelExecutorTest {
+
+    @Test
+    public void testOrderWithinChannel() throws InterruptedException {
+        try (ChannelExecutor executor = new ChannelExecutor()) {
+            List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+            List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(2000);
+
+            for (int i = 0; i < 1000; i++) {
+                int value = i;
+                executor.execute("#first", () -> {
+                    first.add(value);
+                    done.countDown();
+                });
+                executor.execute("#second", () -> {
+                    second.add(value);
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, (int) first.get(i));
+                assertEquals(i, (int) second.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSlowChannelDoesNotBlockOthers() throws InterruptedException {
+        try (ChannelExecutor executor = new ChannelExecutor()) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch fast = new CountDownLatch(1);
+
+            executor.execute("#slow", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute("#fast", fast::countDown);
+
+            assertTrue(fast.await(1, TimeUnit.SECONDS));
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        try (ChannelExecutor executor = new ChannelExecutor(2, OverloadPolicy.DROP_NEWEST)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+
+            executor.execute("#channel", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+
+            assertTrue(executor.execute("#channel", () -> {
+            }));
+            assertTrue(executor.execute("#channel", () -> {
+            }));
+            assertFalse(executor.execute("#channel", () -> {
+            }));
+            assertEquals(1, executor.getDroppedCount());
+            assertEquals(2, executor.getQueueDepth("#channel"));
+            release.countDown();
+        }
+    }
+}
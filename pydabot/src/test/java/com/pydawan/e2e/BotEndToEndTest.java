@@ -0,0 +1,125 @@
+package com.pydawan.e2e;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.ArgumentsCommand;
+import com.pydawan.pydabot.Bot;
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.dispatch.ChannelExecutor;
+import com.pydawan.pydabot.listeners.CommandListener;
+import com.pydawan.pydabot.listeners.MessagePipeline;
+import com.pydawan.pydabot.listeners.Moderator;
+import com.pydawan.pydabot.moderation.SeverityMatcher;
+import com.pydawan.pydabot.outbound.RateLimit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pircbotx.hooks.events.MessageEvent;
+
+/**
+ * Runs a {@link Bot} against a {@link FakeIrcServer} and replays chat to it.
+ *
+ * The size of the run can be raised to look for the saturation point of the
+ * bot, with the system properties pydabot.e2e.messages, pydabot.e2e.rate (in
+ * messages per second, 0 for as fast as possible), pydabot.e2e.channels and
+ * pydabot.e2e.connections.
+ */
+public class BotEndToEndTest {
+
+    private static final int MESSAGES = Integer.getInteger("pydabot.e2e.messages", 20_000);
+    private static final int RATE = Integer.getInteger("pydabot.e2e.rate", 0);
+    private static final int CHANNELS = Integer.getInteger("pydabot.e2e.channels", 16);
+    private static final int CONNECTIONS = Integer.getInteger("pydabot.e2e.connections", 2);
+
+    private FakeIrcServer server;
+    private Bot bot;
+    private ChannelExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeIrcServer();
+        bot = new Bot("localhost", server.getPort(), "pydabot", "oauth:test");
+        bot.setConnectionCount(CONNECTIONS);
+        bot.setJoinLimit(new RateLimit(1000, 1, TimeUnit.SECONDS));
+        executor = new ChannelExecutor();
+        bot.setChannelExecutor(executor);
+
+        // Probes are answered directly, to measure the inbound path rather than
+        // the outbound rate limits.
+        CommandListener commands = CommandListener.withArguments(Map.of("probe", (ArgumentsCommand) (event,
+                arguments) -> {
+            MessageEvent message = (MessageEvent) event;
+            message.getBot().sendIRC().message(message.getChannel().getName(), "probe " + arguments.getString(0));
+        }));
+        Moderator moderator = new Moderator(SeverityMatcher.builder().add(Severity.HIGH, "forbidden").build(), Map.of());
+        bot.addListener(new MessagePipeline("!", moderator, commands));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (bot.isAlive())
+            bot.close();
+        executor.close();
+        server.close();
+    }
+
+    @Test
+    public void testReplaysChat() throws Exception {
+        List<String> channels = new ArrayList<>();
+        for (int i = 0; i < CHANNELS; i++)
+            channels.add("#channel" + i);
+        channels.forEach(bot::addChannel);
+
+        bot.start();
+        assertTrue("channels were not joined", server.awaitJoined(channels, 10, TimeUnit.SECONDS));
+        assertEquals(CONNECTIONS, server.getClientCount());
+
+        ChatReplayDriver driver = new ChatReplayDriver(server, channels);
+        ChatReplayDriver.Result result = driver.replay(ChatReplayDriver.synthetic(1000, 42), MESSAGES, RATE, 100,
+                30, TimeUnit.SECONDS);
+
+        assertEquals(result.getProbes(), result.getAnswered());
+        assertEquals(result.getProbes(), result.getLatencies().getCount());
+    }
+
+    @Test
+    public void testReconnectsAfterServerRestart() throws Exception {
+        List<String> channels = List.of("#a", "#b", "#c", "#d");
+        channels.forEach(bot::addChannel);
+        bot.setReconnectMinDelay(10);
+        bot.setReconnectMaxDelay(100);
+        List<String> received = new CopyOnWriteArrayList<>();
+        server.setMessageHandler((channel, message) -> received.add(channel + " " + message));
+
+        bot.start();
+        assertTrue("channels were not joined", server.awaitJoined(channels, 10, TimeUnit.SECONDS));
+
+        server.disconnectAll();
+        long disconnected = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (bot.isConnected() && System.nanoTime() < disconnected)
+            Thread.sleep(1);
+        assertFalse("the bot did not notice the disconnection", bot.isConnected());
+        bot.sendMessage("a", "sent while offline");
+
+        assertTrue("channels were not joined again", server.awaitJoined(channels, 10, TimeUnit.SECONDS));
+        assertEquals(CONNECTIONS, server.getClientCount());
+        assertTrue(bot.getMetrics().getReconnectCount() >= CONNECTIONS);
+
+        bot.sendMessage("#b", "sent once online");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.size() < 2 && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        assertEquals(2, received.size());
+        assertEquals(Set.of("#a sent while offline", "#b sent once online"), Set.copyOf(received));
+    }
+}
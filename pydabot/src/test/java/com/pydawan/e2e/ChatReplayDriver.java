@@ -0,0 +1,175 @@
+package com.pydawan.e2e;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.pydawan.pydabot.metrics.LatencyHistogram;
+
+import lombok.Data;
+
+/**
+ * Streams chat to a {@link FakeIrcServer} and measures how the bot keeps up.
+ *
+ * Chat lines, recorded or synthetic, are sent round robin to the channels, at
+ * a given rate or as fast as possible. Every few messages, a probe "!probe n"
+ * is sent instead; the bot under test is expected to answer it with
+ * "probe n" in the same channel, and the time between sending the probe and
+ * receiving the answer is recorded. Probes being ordinary messages, they wait
+ * behind the chat the bot did not handle yet, so their latency grows when the
+ * bot saturates.
+ */
+public class ChatReplayDriver {
+
+    /**
+     * A line of chat.
+     */
+    @Data
+    public static class ChatLine {
+        private final String nick;
+        private final String message;
+    }
+
+    /**
+     * The outcome of a replay.
+     */
+    @Data
+    public static class Result {
+        private final long sent;
+        private final long probes;
+        private final long answered;
+        private final long elapsedNanos;
+        private final LatencyHistogram latencies;
+
+        /**
+         * Returns the number of messages sent per second, until the last probe was
+         * answered.
+         */
+        public double getThroughput() {
+            return sent * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d messages in %.1f ms (%.0f msg/s), %d/%d probes answered, "
+                    + "latency p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    sent, elapsedNanos / 1e6, getThroughput(), answered, probes,
+                    latencies.getPercentile(0.5) / 1e6, latencies.getPercentile(0.99) / 1e6,
+                    latencies.getMax() / 1e6);
+        }
+    }
+
+    private static final String PROBE = "probe ";
+
+    private final FakeIrcServer server;
+    private final List<String> channels;
+
+    public ChatReplayDriver(FakeIrcServer server, List<String> channels) {
+        this.server = server;
+        this.channels = List.copyOf(channels);
+    }
+
+    /**
+     * Loads recorded chat, one nick and message separated by a tab per line.
+     * Lines starting with '#' are comments.
+     */
+    public static List<ChatLine> loadRecording(Path path) throws IOException {
+        List<ChatLine> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (!line.startsWith("#") && tab > 0)
+                lines.add(new ChatLine(line.substring(0, tab), line.substring(tab + 1)));
+        }
+        return lines;
+    }
+
+    /**
+     * Generates chat made of common words, emotes and an occasional command.
+     */
+    public static List<ChatLine> synthetic(int count, long seed) {
+        String[] words = { "gg", "lol", "Kappa", "PogChamp", "nice", "play", "what", "was", "that", "clip", "it",
+                "boss", "again", "chat", "stream", "today", "next", "game", "LUL", "build", "wow", "!hello" };
+        Random random = new Random(seed);
+        List<ChatLine> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int word = 0; word < 1 + random.nextInt(12); word++)
+                message.append(word == 0 ? "" : " ").append(words[random.nextInt(words.length)]);
+            lines.add(new ChatLine("viewer" + random.nextInt(500), message.toString()));
+        }
+        return lines;
+    }
+
+    /**
+     * Replays chat and waits for the answers to the probes.
+     *
+     * @param lines      The chat, repeated as needed.
+     * @param messages   The number of messages to send, probes included.
+     * @param rate       The number of messages per second, or 0 to send as fast
+     *                   as possible.
+     * @param probeEvery The number of messages between two probes.
+     * @param timeout    How long to wait for the answers once every message was
+     *                   sent.
+     * @param unit       The unit of the timeout.
+     */
+    public Result replay(List<ChatLine> lines, int messages, double rate, int probeEvery, long timeout,
+            TimeUnit unit) throws InterruptedException {
+        int probes = messages / probeEvery;
+        AtomicLongArray sentAt = new AtomicLongArray(probes);
+        LatencyHistogram latencies = new LatencyHistogram();
+        CountDownLatch answers = new CountDownLatch(probes);
+        AtomicLong lastAnswer = new AtomicLong();
+
+        server.setMessageHandler((channel, text) -> {
+            if (!text.startsWith(PROBE))
+                return;
+            int probe = Integer.parseInt(text.substring(PROBE.length()).trim());
+            long now = System.nanoTime();
+            long sent = sentAt.getAndSet(probe, 0);
+            if (sent == 0)
+                return;
+            latencies.record(now - sent);
+            lastAnswer.accumulateAndGet(now, Math::max);
+            answers.countDown();
+        });
+
+        long start = System.nanoTime();
+        int probe = 0;
+        for (int i = 0; i < messages; i++) {
+            if (rate > 0) {
+                long due = start + (long) (i * 1e9 / rate);
+                if (System.nanoTime() < due) {
+                    server.flush();
+                    while (System.nanoTime() < due)
+                        LockSupport.parkNanos(due - System.nanoTime());
+                }
+            }
+
+            String channel = channels.get(i % channels.size());
+            if ((i + 1) % probeEvery == 0 && probe < probes) {
+                sentAt.set(probe, System.nanoTime());
+                server.chat(channel, "prober", "user-id=1", "!" + PROBE + probe++);
+                server.flush();
+            } else {
+                ChatLine line = lines.get(i % lines.size());
+                server.chat(channel, line.getNick(), "user-id=" + line.getNick().hashCode(), line.getMessage());
+            }
+            if (i % 64 == 63)
+                server.flush();
+        }
+        server.flush();
+
+        answers.await(timeout, unit);
+        long end = answers.getCount() == 0 ? lastAnswer.get() : System.nanoTime();
+        return new Result(messages, probes, probes - answers.getCount(), end - start, latencies);
+    }
+}
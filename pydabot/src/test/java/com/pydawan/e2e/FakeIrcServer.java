@@ -0,0 +1,269 @@
+package com.pydawan.e2e;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * An IRC server on the loopback interface, speaking enough of the protocol for
+ * a {@link com.pydawan.pydabot.Bot} to connect, join channels and chat.
+ *
+ * Handles CAP, PASS, NICK, USER, JOIN, PART, PING, PONG, PRIVMSG and QUIT, and
+ * ignores other commands. Chat is injected with {@link #chat}, as a PRIVMSG
+ * with IRCv3 tags to the client that joined the channel, and the PRIVMSGs of
+ * the clients are given to the message handler.
+ */
+public class FakeIrcServer implements AutoCloseable {
+
+    private static final String HOST = "fake.irc";
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final Collection<Client> clients = new CopyOnWriteArrayList<>();
+    private final Map<String, Client> channels = new ConcurrentHashMap<>();
+    private volatile BiConsumer<String, String> messageHandler = (channel, message) -> {
+    };
+    private volatile boolean running = true;
+
+    /**
+     * Starts a server on an ephemeral port of the loopback interface.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    public FakeIrcServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::accept, "fake-irc-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Sets the handler of the messages sent by the clients, called with the
+     * target and the text of each PRIVMSG, on the thread of the client.
+     */
+    public void setMessageHandler(BiConsumer<String, String> messageHandler) {
+        this.messageHandler = messageHandler;
+    }
+
+    /**
+     * Returns the channels joined by the clients.
+     */
+    public Set<String> getJoinedChannels() {
+        return channels.keySet();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Waits until the clients joined the given channels.
+     *
+     * @return <code>true</code> if they joined them in time.
+     */
+    public boolean awaitJoined(Collection<String> channels, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!this.channels.keySet().containsAll(channels)) {
+            if (System.nanoTime() > deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Sends a message of a user to the client that joined the channel.
+     *
+     * @return <code>false</code> if no client joined the channel.
+     */
+    public boolean chat(String channel, String nick, String tags, String message) {
+        Client client = channels.get(channel);
+        if (client == null)
+            return false;
+        client.send((tags.isEmpty() ? "" : "@" + tags + " ")
+                + ":" + nick + "!" + nick + "@" + nick + "." + HOST + " PRIVMSG " + channel + " :" + message);
+        return true;
+    }
+
+    /**
+     * Drops the connections of every client, like a restart of the server.
+     */
+    public void disconnectAll() {
+        for (Client client : clients)
+            client.close();
+    }
+
+    /**
+     * Flushes the messages buffered for the clients.
+     */
+    public void flush() {
+        for (Client client : clients)
+            client.flush();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket);
+                clients.add(client);
+                Thread thread = new Thread(client::run, "fake-irc-client");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Client client : clients)
+            client.close();
+    }
+
+    private final class Client {
+        private final Socket socket;
+        private final Writer writer;
+        private String nick = "*";
+        private boolean user;
+        private boolean registered;
+
+        Client(Socket socket) throws IOException {
+            this.socket = socket;
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                    1 << 16);
+        }
+
+        void run() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null)
+                    handle(line);
+            } catch (IOException e) {
+                // Disconnected.
+            } finally {
+                close();
+            }
+        }
+
+        private void handle(String line) {
+            int space = line.indexOf(' ');
+            String command = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+            String parameters = space < 0 ? "" : line.substring(space + 1);
+
+            switch (command) {
+                case "CAP":
+                    if (parameters.startsWith("LS"))
+                        sendNow(":" + HOST + " CAP * LS :twitch.tv/tags twitch.tv/commands");
+                    else if (parameters.startsWith("REQ"))
+                        sendNow(":" + HOST + " CAP * ACK " + parameters.substring(4));
+                    break;
+                case "NICK":
+                    nick = parameters.trim();
+                    register();
+                    break;
+                case "USER":
+                    user = true;
+                    register();
+                    break;
+                case "PING":
+                    sendNow(":" + HOST + " PONG " + HOST + " " + parameters);
+                    break;
+                case "JOIN":
+                    for (String channel : parameters.split(",")) {
+                        channels.put(channel, this);
+                        send(":" + nick + "!" + nick + "@" + HOST + " JOIN " + channel);
+                        send(":" + HOST + " 353 " + nick + " = " + channel + " :" + nick);
+                        sendNow(":" + HOST + " 366 " + nick + " " + channel + " :End of /NAMES list");
+                    }
+                    break;
+                case "PART":
+                    for (String channel : parameters.split(" ")[0].split(",")) {
+                        channels.remove(channel, this);
+                        sendNow(":" + nick + "!" + nick + "@" + HOST + " PART " + channel);
+                    }
+                    break;
+                case "PRIVMSG":
+                    int colon = parameters.indexOf(" :");
+                    if (colon > 0)
+                        messageHandler.accept(parameters.substring(0, colon), parameters.substring(colon + 2));
+                    break;
+                case "QUIT":
+                    close();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void register() {
+            if (registered || !user || nick.equals("*"))
+                return;
+            registered = true;
+            send(":" + HOST + " 001 " + nick + " :Welcome, GLHF!");
+            send(":" + HOST + " 002 " + nick + " :Your host is " + HOST);
+            send(":" + HOST + " 003 " + nick + " :This server is rather new");
+            send(":" + HOST + " 004 " + nick + " " + HOST + " fake-1.0 i o");
+            send(":" + HOST + " 375 " + nick + " :-");
+            sendNow(":" + HOST + " 376 " + nick + " :>");
+        }
+
+        synchronized void send(String line) {
+            try {
+                writer.write(line);
+                writer.write("\r\n");
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void sendNow(String line) {
+            send(line);
+            flush();
+        }
+
+        synchronized void flush() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            clients.remove(this);
+            channels.values().removeIf(client -> client == this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+}
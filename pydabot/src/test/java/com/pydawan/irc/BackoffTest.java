@@ -0,0 +1,46 @@
+package com.pydawan.irc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.irc.Backoff;
+
+import org.junit.Test;
+
+public class BackoffTest {
+
+    @Test
+    public void testDelaysGrowUpToTheMaximum() {
+        Backoff backoff = new Backoff(100, 10_000, TimeUnit.NANOSECONDS);
+        assertEquals(100, backoff.nextDelayNanos());
+        for (int attempt = 1; attempt < 100; attempt++) {
+            long ceiling = Math.min(10_000, 100L << Math.min(attempt, 20));
+            long delay = backoff.nextDelayNanos();
+            assertTrue(delay + " at attempt " + attempt, delay >= 100 && delay <= ceiling);
+        }
+        assertEquals(100, backoff.getAttempts());
+
+        backoff.reset();
+        assertEquals(100, backoff.nextDelayNanos());
+    }
+
+    @Test
+    public void testDelaysAreJittered() {
+        Backoff backoff = new Backoff(1, 60, TimeUnit.SECONDS);
+        for (int i = 0; i < 10; i++)
+            backoff.nextDelayNanos();
+
+        long first = backoff.nextDelayNanos();
+        for (int i = 0; i < 10; i++)
+            if (backoff.nextDelayNanos() != first)
+                return;
+        throw new AssertionError("Delays are not jittered");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvertedBounds() {
+        new Backoff(10, 1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,48 @@
+package com.pydawan.irc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pydawan.pydabot.irc.ConsistentHashRing;
+
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+    private static final int CHANNELS = 10_000;
+
+    @Test
+    public void testEmpty() {
+        assertNull(new ConsistentHashRing<String>(List.of()).get("#channel"));
+    }
+
+    @Test
+    public void testBalance() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c", "d"));
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < CHANNELS; i++)
+            counts.merge(ring.get("#channel" + i), 1, Integer::sum);
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values())
+            assertTrue("Unbalanced ring: " + counts, Math.abs(count - CHANNELS / 4) < CHANNELS / 10);
+    }
+
+    @Test
+    public void testRemovalOnlyMovesKeysOfRemovedMember() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c", "d"));
+        ConsistentHashRing<String> survivors = new ConsistentHashRing<>(List.of("a", "b", "d"));
+
+        for (int i = 0; i < CHANNELS; i++) {
+            String channel = "#channel" + i;
+            String before = ring.get(channel);
+            if (!before.equals("c"))
+                assertEquals(before, survivors.get(channel));
+        }
+    }
+}
@@ -1,20 +1,23 @@
 package com.pydawan.listener;
 
+import static com.pydawan.MessageEvents.messageEventWithMessage;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Map;
 
-import com.google.common.collect.ImmutableMap;
 import com.pydawan.RedirectOutput;
+import com.pydawan.pydabot.Arguments;
+import com.pydawan.pydabot.ArgumentsCommand;
 import com.pydawan.pydabot.Command;
 import com.pydawan.pydabot.listeners.CommandListener;
+import com.pydawan.pydabot.listeners.MessagePipeline;
+import com.pydawan.pydabot.outbound.OutboundAware;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
 
 import org.junit.Test;
-import org.pircbotx.Channel;
-import org.pircbotx.User;
-import org.pircbotx.UserHostmask;
 import org.pircbotx.hooks.Event;
 import org.pircbotx.hooks.events.MessageEvent;
 
@@ -24,24 +27,6 @@ public class CommandListenerTest {
         System.out.print(String.join(" ", args));
     }
 
-    private MessageEvent messageEventWithMessage(String message) {
-        Channel channel = new Channel(null, message) {
-        };
-        UserHostmask userHostmask = new UserHostmask(null, "pydawan") {
-        };
-        User user = new User(userHostmask) {
-        };
-        ImmutableMap<String, String> tags = ImmutableMap.of();
-        return new MessageEvent(
-                null,
-                channel,
-                "#pydawan",
-                userHostmask,
-                user,
-                message,
-                tags);
-    }
-
     @Test
     public void test() {
         final CommandListener listener = new CommandListener(Map.of("command", (Command) this::command)::get);
@@ -54,4 +39,87 @@ public class CommandListenerTest {
 
         assertEquals("arg1 arg2", out.toString());
     }
+
+    @Test
+    public void testCommandWithoutArguments() {
+        final CommandListener listener = new CommandListener(Map.of("command", (Command) this::command));
+        final MessageEvent event = messageEventWithMessage("!command");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RedirectOutput redirectOutput = new RedirectOutput(new PrintStream(out))) {
+            listener.onMessage(event);
+        }
+
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    public void testTrieResolvesOnlyExactNames() {
+        final CommandListener listener = new CommandListener(Map.of(
+                "command", (Command) this::command,
+                "com", (Command) (event, args) -> System.out.print("com")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RedirectOutput redirectOutput = new RedirectOutput(new PrintStream(out))) {
+            listener.onMessage(messageEventWithMessage("!comm arg"));
+            listener.onMessage(messageEventWithMessage("!commands arg"));
+            listener.onMessage(messageEventWithMessage("!command-arg"));
+            listener.onMessage(messageEventWithMessage("command arg"));
+            listener.onMessage(messageEventWithMessage(" !command arg"));
+            listener.onMessage(messageEventWithMessage("!com"));
+            listener.onMessage(messageEventWithMessage("!command \targ1   arg2 "));
+        }
+
+        assertEquals("argcomarg1 arg2", out.toString());
+    }
+
+    @Test
+    public void testArgumentsCommand() {
+        final CommandListener listener = CommandListener.withArguments(Map.of(
+                "command", (ArgumentsCommand) (event, args) -> System.out.print(
+                        args.get(1) + "|" + args.argumentEquals(0, "arg1") + "|" + args.count() + "|" + args)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RedirectOutput redirectOutput = new RedirectOutput(new PrintStream(out))) {
+            listener.onMessage(messageEventWithMessage("!command  arg1 arg2\targ3"));
+        }
+
+        assertEquals("arg2|true|3|arg1 arg2\targ3", out.toString());
+    }
+
+    @Test
+    public void testArgumentsAreScannedLazily() {
+        Arguments arguments = new Arguments("!command a b c", 8);
+
+        assertEquals("a", arguments.getString(0));
+        assertEquals(false, arguments.has(3));
+        assertEquals(3, arguments.count());
+        assertEquals(0, new Arguments("!command   ", 8).count());
+    }
+
+    private static class AwareCommand implements ArgumentsCommand, OutboundAware {
+        OutboundScheduler outbound;
+
+        @Override
+        public void accept(Event event, Arguments arguments) {
+        }
+
+        @Override
+        public void setOutbound(OutboundScheduler outbound) {
+            this.outbound = outbound;
+        }
+    }
+
+    @Test
+    public void testOutboundIsGivenToCommands() {
+        AwareCommand command = new AwareCommand();
+        MessagePipeline pipeline = new MessagePipeline("!",
+                CommandListener.withArguments(Map.of("command", (ArgumentsCommand) command)));
+        OutboundScheduler outbound = new OutboundScheduler((target, message) -> {
+        });
+
+        pipeline.setOutbound(outbound);
+
+        assertSame(outbound, command.outbound);
+    }
 }
@@ -0,0 +1,73 @@
+package com.pydawan.listener;
+
+import static com.pydawan.MessageEvents.messageEventWithMessage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import com.pydawan.RedirectOutput;
+import com.pydawan.pydabot.ArgumentsCommand;
+import com.pydawan.pydabot.listeners.CommandListener;
+import com.pydawan.pydabot.listeners.MessagePipeline;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+
+import org.junit.Test;
+
+public class MessagePipelineTest {
+
+    @Test
+    public void testParsedMessage() {
+        ParsedMessage message = ParsedMessage.parse("  !so  streamer  now ", "!");
+
+        assertTrue(message.isCommand());
+        assertEquals("so", message.getCommandName());
+        assertEquals(3, message.getTokenCount());
+        assertEquals("streamer", message.getArguments().getString(0));
+        assertEquals(2, message.getArguments().count());
+        assertFalse(message.hasLinks());
+
+        assertFalse(ParsedMessage.parse("!", "!").isCommand());
+        assertFalse(ParsedMessage.parse("hello !so", "!").isCommand());
+        assertTrue(ParsedMessage.parse("see example.com", "!").hasLinks());
+    }
+
+    @Test
+    public void testStagesRunInOrderAndShortCircuit() throws Exception {
+        CommandListener commands = CommandListener.withArguments(Map.of(
+                "command", (ArgumentsCommand) (event, args) -> System.out.print("command " + args)));
+        MessagePipeline pipeline = new MessagePipeline("!",
+                (event, message) -> {
+                    System.out.print("moderation;");
+                    return !message.getMessage().contains("banned");
+                },
+                commands);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RedirectOutput redirectOutput = new RedirectOutput(new PrintStream(out))) {
+            assertTrue(pipeline.process(messageEventWithMessage("!command a b")));
+            assertFalse(pipeline.process(messageEventWithMessage("!command banned")));
+        }
+
+        assertEquals("moderation;command a bmoderation;", out.toString());
+    }
+
+    @Test
+    public void testStagesUseTheirOwnPrefix() throws Exception {
+        CommandListener commands = CommandListener.withArguments(Map.of(
+                "command", (ArgumentsCommand) (event, args) -> System.out.print("command " + args + ";")));
+        MessagePipeline pipeline = new MessagePipeline("?", commands);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RedirectOutput redirectOutput = new RedirectOutput(new PrintStream(out))) {
+            pipeline.process(messageEventWithMessage("?command a"));
+            pipeline.process(messageEventWithMessage("  !command b"));
+            commands.onMessage(messageEventWithMessage("  !command c"));
+        }
+
+        assertEquals("command b;command c;", out.toString());
+    }
+}
@@ -0,0 +1,95 @@
+package com.pydawan.metrics;
+
+import static com.pydawan.MessageEvents.messageEventWithMessage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import com.pydawan.pydabot.metrics.EventMetrics;
+import com.pydawan.pydabot.metrics.InstrumentedListener;
+import com.pydawan.pydabot.metrics.MetricsRegistry;
+import com.pydawan.pydabot.metrics.PrometheusExporter;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+
+import org.junit.Test;
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.MessageEvent;
+
+public class InstrumentedListenerTest {
+
+    @Test
+    public void testRecordsListenerAndChannel() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        OutboundScheduler outbound = new OutboundScheduler((target, message) -> {
+        });
+        outbound.setSubmitObserver(registry::recordOutbound);
+        registry.setOutbound(outbound);
+
+        InstrumentedListener listener = new InstrumentedListener(new ListenerAdapter() {
+            @Override
+            public void onMessage(MessageEvent event) {
+                if (event.getMessage().equals("fail"))
+                    throw new IllegalStateException();
+                outbound.submit(event.getChannel().getName(), event.getMessage(), Priority.COMMAND);
+            }
+        }, "echo", registry);
+
+        listener.onEvent(messageEventWithMessage("hello"));
+        try {
+            listener.onEvent(messageEventWithMessage("fail"));
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+
+        EventMetrics metrics = registry.listener("echo");
+        assertEquals(2, metrics.getEventCount());
+        assertEquals(1, metrics.getExceptionCount());
+        assertEquals(1, metrics.getOutboundCount());
+
+        EventMetrics channel = registry.channel("#pydawan");
+        assertEquals(2, channel.getEventCount());
+        assertEquals(1, channel.getOutboundCount());
+
+        try (PrometheusExporter exporter = new PrometheusExporter(registry, new InetSocketAddress("localhost", 0))) {
+            exporter.start();
+            URL url = new URL("http://localhost:" + exporter.getPort() + "/metrics");
+            String scrape;
+            try (InputStream input = url.openStream()) {
+                scrape = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            assertTrue(scrape, scrape.contains("pydabot_listener_events_total{listener=\"echo\"} 2\n"));
+            assertTrue(scrape, scrape.contains("pydabot_channel_exceptions_total{channel=\"#pydawan\"} 1\n"));
+            assertTrue(scrape, scrape.contains("pydabot_outbound_messages_total{state=\"submitted\"} 1\n"));
+        }
+    }
+
+    @Test
+    public void testRecordingDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        MetricsRegistry registry = new MetricsRegistry();
+        InstrumentedListener listener = new InstrumentedListener(event -> {
+        }, "noop", registry);
+        MessageEvent event = messageEventWithMessage("hello");
+
+        for (int i = 0; i < 100_000; i++)
+            listener.onEvent(event);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++)
+            listener.onEvent(event);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("Allocated " + allocated + " bytes", allocated < 100_000);
+    }
+}
@@ -0,0 +1,59 @@
+package com.pydawan.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.pydawan.pydabot.metrics.LatencyHistogram;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++)
+            histogram.record(i * 1000);
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertWithin(50_000_000, histogram.getPercentile(0.5));
+        assertWithin(99_000_000, histogram.getPercentile(0.99));
+        assertWithin(99_900_000, histogram.getPercentile(0.999));
+        assertEquals(100_000_000, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void testSmallAndHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(3, histogram.getPercentile(0.5));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void testOverflowHasItsOwnBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(67_000_000_000L);
+        histogram.record(1_000_000_000_000L);
+
+        assertWithin(67_000_000_000L, histogram.getPercentile(0.5));
+        assertEquals(1_000_000_000_000L, histogram.getPercentile(1));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 16);
+    }
+}
@@ -0,0 +1,87 @@
+package com.pydawan.moderation;
+
+import static com.pydawan.MessageEvents.messageEventWithMessage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.listeners.Moderator;
+import com.pydawan.pydabot.moderation.ConfusableFolder;
+import com.pydawan.pydabot.moderation.SeverityMatcher;
+
+import org.junit.Test;
+
+public class ConfusableFolderTest {
+
+    private final ConfusableFolder folder = ConfusableFolder.getDefault();
+
+    @Test
+    public void testKeepsAsciiText() {
+        String text = "hello chat, 1 + 1 = 2 :)";
+        assertSame(text, folder.fold(text));
+        String accented = "café is fine";
+        assertEquals("cafe is fine", folder.fold(accented));
+        String cjk = "你好";
+        assertSame(cjk, folder.fold(cjk));
+    }
+
+    @Test
+    public void testFoldsObfuscations() {
+        assertEquals("free nitro", folder.fold("ｆｒｅｅ　ｎｉｔｒｏ"));
+        assertEquals("paypal", folder.fold("раураl"));
+        assertEquals("spam", folder.fold("s​p‍a⁠m﻿"));
+        assertEquals("zalgo", folder.fold("z͑̀a̶l҉g̃o"));
+        assertEquals("Bold", folder.fold("𝐁𝐨𝐥𝐝"));
+        assertEquals("ABC", folder.fold("Ⓐ🄱🅲"));
+        assertEquals("example.com", folder.fold("example․com"));
+        assertEquals("tag", folder.fold("tag󠀀"));
+        assertEquals("😀 ok", folder.fold("😀 ok"));
+    }
+
+    @Test
+    public void testReusesTheBufferForLongText() {
+        String chunk = "аb";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            text.append(chunk);
+        assertEquals("ab".repeat(1000), folder.fold(text.toString()));
+        assertEquals("a", folder.fold("а"));
+    }
+
+    @Test
+    public void testReadsConfusablesData() {
+        ConfusableFolder custom = new ConfusableFolder(List.of(
+                "# comment",
+                "03B2 ;\t0062 ;\tMA\t# ( β → b )",
+                "0030 ;\t004F ;\tMA\t# ASCII sources are ignored",
+                "2025 ;\t002E 002E ;\tMA\t# several targets are ignored"));
+        assertEquals("b0‥", custom.fold("β0‥"));
+    }
+
+    @Test
+    public void testModeratorSeesFoldedText() {
+        Moderator moderator = new Moderator(SeverityMatcher.builder().add(Severity.HIGH, "forbidden").build(),
+                Map.of());
+        assertEquals(Severity.HIGH, moderator.moderate(messageEventWithMessage("ｆоrbiԁden")));
+
+        moderator.setFolder(null);
+        assertEquals(Severity.SAFE, moderator.moderate(messageEventWithMessage("ｆоrbiԁden")));
+    }
+
+    @Test
+    public void testEscalatorsSeeFoldedText() {
+        Moderator moderator = new Moderator(message -> Severity.SAFE, Map.of());
+        List<String> escalated = new ArrayList<>();
+        moderator.setEscalator((event, message, severity) -> {
+            escalated.add(message);
+            return severity;
+        });
+
+        moderator.moderate(messageEventWithMessage("ｆｒｅｅ　ｎｉｔｒｏ"));
+        assertEquals(List.of("free nitro"), escalated);
+    }
+}
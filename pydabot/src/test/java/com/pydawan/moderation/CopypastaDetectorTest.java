@@ -0,0 +1,121 @@
+package com.pydawan.moderation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.moderation.CopypastaDetector;
+import com.pydawan.pydabot.moderation.SimHash;
+
+import org.junit.Test;
+
+public class CopypastaDetectorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final String PASTA = "this chat is getting raided by the best copypasta ever written, spam it now";
+
+    private static String randomMessage(Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int word = 0; word < 4 + random.nextInt(6); word++) {
+            for (int i = 0; i < 2 + random.nextInt(6); i++)
+                builder.append((char) ('a' + random.nextInt(26)));
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testNearDuplicatesHaveNearFingerprints() {
+        long fingerprint = SimHash.fingerprint(PASTA);
+
+        assertEquals(fingerprint, SimHash.fingerprint(PASTA.toUpperCase()));
+        assertEquals(fingerprint, SimHash.fingerprint(PASTA.replace(" ", "  ")));
+        assertTrue(SimHash.distance(fingerprint, SimHash.fingerprint(PASTA + " x")) <= 6);
+        assertTrue(SimHash.distance(fingerprint, SimHash.fingerprint("something else entirely, about the game")) > 6);
+    }
+
+    @Test
+    public void testEscalatesMutatedCopies() {
+        CopypastaDetector detector = new CopypastaDetector(30, TimeUnit.SECONDS, 3, Severity.MEDIUM);
+
+        assertEquals(Severity.SAFE, detector.escalate("#a", PASTA, Severity.SAFE, 0));
+        assertEquals(Severity.SAFE, detector.escalate("#a", PASTA + " !", Severity.SAFE, SECOND));
+        assertEquals(Severity.MEDIUM, detector.escalate("#a", PASTA.toUpperCase() + " 1", Severity.SAFE, 2 * SECOND));
+        assertEquals(Severity.HIGH, detector.escalate("#a", PASTA, Severity.HIGH, 3 * SECOND));
+
+        assertEquals(Severity.SAFE, detector.escalate("#b", PASTA, Severity.SAFE, 3 * SECOND));
+    }
+
+    @Test
+    public void testEscalatesFromLargeThresholds() {
+        CopypastaDetector detector = new CopypastaDetector(30, TimeUnit.SECONDS, 10, Severity.MEDIUM);
+
+        for (int i = 0; i < 9; i++)
+            assertEquals(Severity.SAFE, detector.escalate("#a", PASTA, Severity.SAFE, i * SECOND));
+        assertEquals(Severity.MEDIUM, detector.escalate("#a", PASTA + " !", Severity.SAFE, 9 * SECOND));
+    }
+
+    @Test
+    public void testAlwaysFindsCopiesWithinTheMaxDistance() {
+        Random random = new Random(42);
+        int found = 0;
+        for (int i = 0; i < 2000; i++) {
+            String message = randomMessage(random) + randomMessage(random);
+            String copy = message + randomMessage(random).substring(0, 3);
+            int distance = SimHash.distance(SimHash.fingerprint(message), SimHash.fingerprint(copy));
+            if (distance < 4 || distance > CopypastaDetector.DEFAULT_MAX_DISTANCE)
+                continue;
+
+            CopypastaDetector detector = new CopypastaDetector(30, TimeUnit.SECONDS, 2, Severity.MEDIUM);
+            detector.escalate("#a", message, Severity.SAFE, 0);
+            assertEquals(Severity.MEDIUM, detector.escalate("#a", copy, Severity.SAFE, SECOND));
+            found++;
+        }
+        assertTrue(found > 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxDistanceIsBoundedByTheBands() {
+        new CopypastaDetector(16, 30, TimeUnit.SECONDS, 2, 8, Severity.MEDIUM);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThresholdIsBoundedByTheRing() {
+        new CopypastaDetector(16, 30, TimeUnit.SECONDS, 17, 6, Severity.MEDIUM);
+    }
+
+    @Test
+    public void testIgnoresDistinctMessages() {
+        CopypastaDetector detector = new CopypastaDetector(30, TimeUnit.SECONDS, 2, Severity.MEDIUM);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(Severity.SAFE, detector.escalate("#a", randomMessage(random), Severity.SAFE, i));
+        assertEquals(Severity.SAFE, detector.escalate("#a", "lol", Severity.SAFE, 0));
+        assertEquals(Severity.SAFE, detector.escalate("#a", "lol", Severity.SAFE, 0));
+    }
+
+    @Test
+    public void testForgetsOldMessages() {
+        CopypastaDetector detector = new CopypastaDetector(30, TimeUnit.SECONDS, 2, Severity.MEDIUM);
+
+        detector.escalate("#a", PASTA, Severity.SAFE, 0);
+        assertEquals(Severity.SAFE, detector.escalate("#a", PASTA, Severity.SAFE, 31 * SECOND));
+        assertEquals(Severity.MEDIUM, detector.escalate("#a", PASTA, Severity.SAFE, 32 * SECOND));
+    }
+
+    @Test
+    public void testRingBoundsTheWindow() {
+        CopypastaDetector detector = new CopypastaDetector(16, 30, TimeUnit.SECONDS, 2, 6, Severity.MEDIUM);
+
+        detector.escalate("#a", PASTA, Severity.SAFE, 0);
+        Random random = new Random(42);
+        for (int i = 0; i < 16; i++)
+            detector.escalate("#a", randomMessage(random), Severity.SAFE, 0);
+        assertEquals(Severity.SAFE, detector.escalate("#a", PASTA, Severity.SAFE, 0));
+    }
+}
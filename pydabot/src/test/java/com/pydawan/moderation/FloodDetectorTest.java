@@ -0,0 +1,91 @@
+package com.pydawan.moderation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.moderation.FloodDetector;
+
+import org.junit.Test;
+
+public class FloodDetectorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testEscalatesFastUsers() {
+        FloodDetector detector = new FloodDetector(10, TimeUnit.SECONDS, 10, 20);
+        long now = 0;
+
+        for (int i = 0; i < 9; i++)
+            assertEquals(Severity.SAFE, detector.escalate("#a", "flooder", Severity.SAFE, now += SECOND / 20));
+        for (int i = 0; i < 2; i++)
+            detector.escalate("#a", "flooder", Severity.SAFE, now += SECOND / 20);
+        assertEquals(Severity.MEDIUM, detector.escalate("#a", "flooder", Severity.SAFE, now += SECOND / 20));
+        for (int i = 0; i < 11; i++)
+            detector.escalate("#a", "flooder", Severity.SAFE, now += SECOND / 20);
+        assertEquals(Severity.HIGH, detector.escalate("#a", "flooder", Severity.SAFE, now += SECOND / 20));
+
+        assertEquals(Severity.SAFE, detector.escalate("#a", "someone", Severity.SAFE, now));
+        assertEquals(Severity.SAFE, detector.escalate("#b", "flooder", Severity.SAFE, now));
+        assertEquals(Severity.LINK, detector.escalate("#a", "flooder", Severity.LINK, now));
+    }
+
+    @Test
+    public void testCountsDecay() {
+        FloodDetector detector = new FloodDetector(10, TimeUnit.SECONDS, 10, 20);
+        long now = 0;
+        for (int i = 0; i < 10; i++)
+            detector.escalate("#a", "user", Severity.SAFE, now);
+
+        assertEquals(10, detector.countOf("#a", "user", now), 0.01);
+        assertEquals(10 / Math.E, detector.countOf("#a", "user", now + 10 * SECOND), 0.01);
+        assertEquals(Severity.SAFE, detector.escalate("#a", "user", Severity.SAFE, now + 60 * SECOND));
+    }
+
+    @Test
+    public void testRaisesTextSeverityOfModerateFlooders() {
+        FloodDetector detector = new FloodDetector(10, TimeUnit.SECONDS, 10, 20);
+        for (int i = 0; i < 5; i++)
+            detector.escalate("#a", "user", Severity.SAFE, 0);
+
+        assertEquals(Severity.MEDIUM, detector.escalate("#a", "user", Severity.LOW, 0));
+        assertEquals(Severity.SAFE, detector.escalate("#a", "other", Severity.SAFE, 0));
+        assertEquals(Severity.LOW, detector.escalate("#a", "other", Severity.LOW, 0));
+    }
+
+    @Test
+    public void testEvictsInactiveUsers() {
+        FloodDetector detector = new FloodDetector(10, TimeUnit.SECONDS, 10, 20, 64);
+        for (int i = 0; i < 1000; i++)
+            detector.escalate("#a", "user" + i, Severity.SAFE, i * SECOND);
+
+        assertTrue(detector.getEvictionCount() >= 1000 - 64);
+        assertEquals(1, detector.countOf("#a", "user999", 999 * SECOND), 0.01);
+    }
+
+    @Test
+    public void testEvictedCountersAreNotInherited() throws InterruptedException {
+        // 16 users share the 8 counters of a single set, so slots are claimed
+        // concurrently all the time.
+        FloodDetector detector = new FloodDetector(10, TimeUnit.SECONDS, 10, 20, 8);
+        int messages = 20_000;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < messages; i++)
+                    detector.escalate("#a", "user" + thread + "-" + i % 4, Severity.SAFE, SECOND);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        for (int t = 0; t < threads.length; t++)
+            for (int u = 0; u < 4; u++)
+                assertTrue(detector.countOf("#a", "user" + t + "-" + u, SECOND) <= messages / 4);
+    }
+}
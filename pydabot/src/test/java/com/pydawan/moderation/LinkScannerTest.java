@@ -0,0 +1,86 @@
+package com.pydawan.moderation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.moderation.LinkScanner;
+
+import org.junit.Test;
+
+public class LinkScannerTest {
+
+    private final LinkScanner scanner = LinkScanner.getDefault();
+
+    @Test
+    public void testLinks() {
+        assertEquals(Severity.LINK, scanner.apply("go to example.com now"));
+        assertEquals(Severity.LINK, scanner.apply("https://www.twitch.tv/pydawan"));
+        assertEquals(Severity.LINK, scanner.apply("cheap viewers at spam.online"));
+        assertEquals(Severity.LINK, scanner.apply("bit.ly/abc"));
+        assertArrayEquals(new int[] { 6, 31, 36, 42 }, scanner.find("visit https://example.org/a?b=c and a.shop"));
+    }
+
+    @Test
+    public void testNotLinks() {
+        assertEquals(Severity.SAFE, scanner.apply("open file.txt please"));
+        assertEquals(Severity.SAFE, scanner.apply("it costs 1.50 dollars"));
+        assertEquals(Severity.SAFE, scanner.apply("wait... what"));
+        assertEquals(Severity.SAFE, scanner.apply("e.g. this"));
+        assertEquals(Severity.SAFE, scanner.apply("example.community2"));
+    }
+
+    @Test
+    public void testObfuscations() {
+        assertTrue(scanner.containsLink("example dot com"));
+        assertTrue(scanner.containsLink("example(dot)com"));
+        assertTrue(scanner.containsLink("example [dot] net"));
+        assertTrue(scanner.containsLink("exa\u200Bmple.c\u200Dom"));
+        assertTrue(scanner.containsLink("example\uFF0Ecom"));
+        assertFalse(scanner.containsLink("polka dot dress"));
+    }
+
+    @Test
+    public void testWordsAreNotLinks() {
+        String[] messages = {
+                "the red dot is here", "a dot in the middle", "a dot com bubble",
+                "connect the dot me", "dot to dot", "the dot it left", "not a dot so far",
+                "a dot no more", "hit the dot my friend", "between dot us", "ok.so", "fine.it",
+        };
+        for (String message : messages)
+            assertFalse(message, scanner.containsLink(message));
+
+        assertTrue(scanner.containsLink("https://fine.it"));
+        assertTrue(scanner.containsLink("www.example.it"));
+        assertTrue(scanner.containsLink("example.it/page"));
+        assertTrue(scanner.containsLink("example(dot)it"));
+        assertTrue(scanner.containsLink("example\uFF0Eme"));
+        assertTrue(scanner.containsLink("red dot com"));
+    }
+
+    @Test(timeout = 2000)
+    public void testAdversarialInputsRunInLinearTime() {
+        String[] inputs = {
+                "a".repeat(1_000_000),
+                "a.".repeat(500_000),
+                ".a".repeat(500_000) + "com",
+                "a dot ".repeat(200_000),
+                "x.\u200B".repeat(300_000) + "zz",
+        };
+        for (String input : inputs)
+            assertFalse(scanner.containsLink(input));
+    }
+
+    @Test(timeout = 2000)
+    public void testLongMessagesWithoutWhitespaceRunInLinearTime() {
+        String[] inputs = {
+                "ok.so,".repeat(100_000),
+                "a".repeat(500_000) + ".i".repeat(200_000),
+                "ab(dot)".repeat(100_000),
+        };
+        for (String input : inputs)
+            assertFalse(scanner.containsLink(input));
+    }
+}
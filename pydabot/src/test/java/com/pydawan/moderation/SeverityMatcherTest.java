@@ -0,0 +1,55 @@
+package com.pydawan.moderation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.moderation.SeverityMatcher;
+
+import org.junit.Test;
+
+public class SeverityMatcherTest {
+
+    private final SeverityMatcher matcher = SeverityMatcher.of(Map.of(
+            Severity.LOW, List.of("heck", "darn"),
+            Severity.MEDIUM, List.of("buy followers"),
+            Severity.HIGH, List.of("he", "scam")));
+
+    @Test
+    public void testHighestSeverityWins() {
+        assertEquals(Severity.SAFE, matcher.apply("hello there"));
+        assertEquals(Severity.LOW, matcher.apply("oh HECK"));
+        assertEquals(Severity.MEDIUM, matcher.apply("darn, Buy Followers now"));
+        assertEquals(Severity.HIGH, matcher.apply("heck, he is a scam"));
+    }
+
+    @Test
+    public void testWholeWords() {
+        assertEquals(Severity.SAFE, matcher.apply("scammer hello"));
+        assertEquals(Severity.HIGH, matcher.apply("(scam)"));
+
+        SeverityMatcher substrings = SeverityMatcher.builder()
+                .wholeWord(false)
+                .caseInsensitive(false)
+                .add(Severity.HIGH, "scam")
+                .add(Severity.LOW, "am")
+                .build();
+        assertEquals(Severity.HIGH, substrings.apply("scammer"));
+        assertEquals(Severity.LOW, substrings.apply("SCAM ham"));
+    }
+
+    @Test
+    public void testOverlappingTerms() {
+        SeverityMatcher overlapping = SeverityMatcher.builder()
+                .add(Severity.LOW, "ab")
+                .add(Severity.HIGH, "b c")
+                .add(Severity.MEDIUM, "abc")
+                .build();
+        assertEquals(Severity.MEDIUM, overlapping.apply("xx abc"));
+        assertEquals(Severity.LOW, overlapping.apply("ab c"));
+        assertEquals(Severity.HIGH, overlapping.apply("ab b c"));
+        assertEquals(Severity.SAFE, overlapping.apply("abcd"));
+    }
+}
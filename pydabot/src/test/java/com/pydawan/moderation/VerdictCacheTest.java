@@ -0,0 +1,77 @@
+package com.pydawan.moderation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.moderation.VerdictCache;
+
+import org.junit.Test;
+
+public class VerdictCacheTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Function<String, Severity> severityOf = message -> {
+        calls.incrementAndGet();
+        return message.contains("bad") ? Severity.HIGH : Severity.SAFE;
+    };
+
+    @Test
+    public void testCachesRepeatedMessages() {
+        VerdictCache cache = new VerdictCache(severityOf, 64, 10, TimeUnit.SECONDS);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Severity.HIGH, cache.severityOf("bad words", now));
+            assertEquals(Severity.SAFE, cache.severityOf("kind words", now));
+        }
+        assertEquals(Severity.HIGH, cache.severityOf("bad words  ​", now));
+        assertEquals(Severity.HIGH, cache.severityOf("bad words 󠀀", now));
+
+        assertEquals(2, calls.get());
+        assertEquals(200, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(200.0 / 202, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testExpiresAndInvalidates() {
+        VerdictCache cache = new VerdictCache(severityOf, 64, 10, TimeUnit.SECONDS);
+        long now = System.nanoTime();
+
+        cache.severityOf("bad words", now);
+        cache.severityOf("bad words", now + 9 * SECOND);
+        assertEquals(1, calls.get());
+        cache.severityOf("bad words", now + 11 * SECOND);
+        assertEquals(2, calls.get());
+
+        cache.invalidate();
+        cache.severityOf("bad words", now + 11 * SECOND);
+        assertEquals(3, calls.get());
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testKeepsReferencedEntries() {
+        VerdictCache cache = new VerdictCache(severityOf, 16, 10, TimeUnit.SECONDS);
+        long now = System.nanoTime();
+        assertEquals(16, cache.getCapacity());
+
+        cache.severityOf("hot message", now);
+        for (int i = 0; i < 1000; i++) {
+            cache.severityOf("cold message " + i, now);
+            cache.severityOf("hot message", now);
+        }
+
+        assertEquals(1001, calls.get());
+        assertEquals(1000, cache.getHitCount());
+        assertTrue(cache.getEvictionCount() > 900);
+    }
+}
@@ -0,0 +1,130 @@
+package com.pydawan.outbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.Priority;
+import com.pydawan.pydabot.outbound.RateLimit;
+
+import org.junit.Test;
+
+public class OutboundSchedulerTest {
+
+    private static void awaitSent(OutboundScheduler scheduler, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getSentCount() < count && System.nanoTime() < deadline)
+            Thread.sleep(5);
+    }
+
+    @Test
+    public void testPrioritiesAndCoalescing() throws InterruptedException {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        OutboundScheduler scheduler = new OutboundScheduler(
+                (target, message) -> sent.add(target + " " + message),
+                new RateLimit(100, 1, TimeUnit.SECONDS),
+                new RateLimit(100, 1, TimeUnit.SECONDS));
+
+        assertTrue(scheduler.submit("#a", "announcement", Priority.ANNOUNCEMENT));
+        assertTrue(scheduler.submit("#a", "reply", Priority.COMMAND));
+        assertFalse(scheduler.submit("#a", "reply", Priority.COMMAND));
+        assertTrue(scheduler.submit("#a", "timeout", Priority.MODERATION));
+        assertEquals(3, scheduler.getQueueDepth());
+
+        scheduler.start();
+        try {
+            awaitSent(scheduler, 3);
+        } finally {
+            scheduler.close();
+        }
+
+        assertEquals(List.of("#a timeout", "#a reply", "#a announcement"), sent);
+        assertEquals(1, scheduler.getCoalescedCount());
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void testTargetLimit() throws InterruptedException {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        OutboundScheduler scheduler = new OutboundScheduler(
+                (target, message) -> sent.add(target + " " + message),
+                new RateLimit(100, 1, TimeUnit.SECONDS),
+                new RateLimit(1, 1, TimeUnit.HOURS));
+
+        scheduler.submit("#a", "1", Priority.COMMAND);
+        scheduler.submit("#a", "2", Priority.COMMAND);
+        scheduler.submit("#b", "1", Priority.COMMAND);
+
+        scheduler.start();
+        try {
+            awaitSent(scheduler, 2);
+            Thread.sleep(50);
+        } finally {
+            scheduler.close();
+        }
+
+        assertEquals(List.of("#a 1", "#b 1"), sent);
+        assertEquals(1, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void testHoldsMessagesOfUnavailableTargets() throws InterruptedException {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        OutboundScheduler scheduler = new OutboundScheduler(
+                (target, message) -> sent.add(target + " " + message),
+                new RateLimit(100, 1, TimeUnit.SECONDS),
+                new RateLimit(100, 1, TimeUnit.SECONDS));
+        AtomicBoolean online = new AtomicBoolean();
+        scheduler.setAvailability(target -> !target.equals("#a") || online.get());
+
+        scheduler.submit("#a", "1", Priority.COMMAND);
+        scheduler.submit("#b", "1", Priority.COMMAND);
+
+        scheduler.start();
+        try {
+            awaitSent(scheduler, 1);
+            Thread.sleep(50);
+            assertEquals(List.of("#b 1"), sent);
+            assertEquals(1, scheduler.getQueueDepth());
+
+            online.set(true);
+            awaitSent(scheduler, 2);
+        } finally {
+            scheduler.close();
+        }
+
+        assertEquals(List.of("#b 1", "#a 1"), sent);
+    }
+
+    @Test
+    public void testBoundsAndExpiresPendingMessages() throws InterruptedException {
+        OutboundScheduler scheduler = new OutboundScheduler((target, message) -> {
+        });
+        scheduler.setAvailability(target -> false);
+        scheduler.setCapacity(2);
+        scheduler.setMaxAge(20, TimeUnit.MILLISECONDS);
+
+        assertTrue(scheduler.submit("#a", "1", Priority.COMMAND));
+        assertTrue(scheduler.submit("#a", "2", Priority.COMMAND));
+        assertFalse(scheduler.submit("#a", "3", Priority.COMMAND));
+        assertEquals(1, scheduler.getRejectedCount());
+
+        scheduler.start();
+        try {
+            Thread.sleep(200);
+        } finally {
+            scheduler.close();
+        }
+
+        assertEquals(2, scheduler.getExpiredCount());
+        assertEquals(0, scheduler.getQueueDepth());
+        assertEquals(0, scheduler.getSentCount());
+        assertTrue(scheduler.submit("#a", "1", Priority.COMMAND));
+    }
+}
@@ -0,0 +1,141 @@
+package com.pydawan.poll;
+
+import static com.pydawan.MessageEvents.messageEvent;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.listeners.MessagePipeline;
+import com.pydawan.pydabot.listeners.Moderator;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+import com.pydawan.pydabot.poll.Poll;
+import com.pydawan.pydabot.poll.Polls;
+import com.pydawan.pydabot.poll.VoteResult;
+import com.pydawan.pydabot.poll.VoteStage;
+import com.pydawan.pydabot.util.ConcurrentLongSet;
+import com.pydawan.pydabot.workers.TimingWheel;
+
+import org.junit.Test;
+import org.pircbotx.hooks.events.MessageEvent;
+
+public class PollTest {
+
+    @Test
+    public void testLongSetGrowsAndDeduplicates() {
+        ConcurrentLongSet set = new ConcurrentLongSet(4, 2);
+        for (long value = -1000; value < 1000; value++)
+            assertTrue(set.add(value * 7919));
+        for (long value = -1000; value < 1000; value++) {
+            assertFalse(set.add(value * 7919));
+            assertTrue(set.contains(value * 7919));
+        }
+        assertFalse(set.contains(1));
+        assertEquals(2000, set.size());
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    public void testCountsOneVotePerUserAcrossThreads() throws InterruptedException {
+        Poll poll = new Poll("Best pet?", List.of("cats", "dogs", "fish"));
+        int threads = 8;
+        int voters = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int voter = 0; voter < voters; voter++)
+                    poll.vote(voter, voter % 3 + 1);
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+
+        assertArrayEquals(new long[] { 16_667, 16_667, 16_666 }, poll.getTallies());
+        assertEquals(VoteResult.DUPLICATE, poll.vote(1, 1));
+        assertEquals(VoteResult.INVALID, poll.vote(-1, 4));
+
+        assertTrue(poll.close());
+        assertFalse(poll.close());
+        assertEquals(VoteResult.CLOSED, poll.vote(-1, 1));
+    }
+
+    @Test
+    public void testVotesAndPublishesOnInterval() throws InterruptedException {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        OutboundScheduler outbound = new OutboundScheduler((target, message) -> sent.add(target + " " + message));
+        try (TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS)) {
+            Polls polls = new Polls(wheel, 50, TimeUnit.MILLISECONDS);
+            VoteStage stage = new VoteStage(polls, "!");
+            stage.setOutbound(outbound);
+            outbound.start();
+
+            assertTrue(handle(stage, "viewer", "!vote 1"));
+            assertTrue(handle(stage, "viewer", "!poll Best pet? | cats | dogs"));
+            assertEquals(null, polls.get("#pydawan"));
+            assertFalse(handle(stage, "mod", "!poll Best pet? | cats | dogs"));
+            assertFalse(handle(stage, "viewer", "!vote 2"));
+            assertFalse(handle(stage, "viewer", "!VOTE 1"));
+            assertFalse(handle(stage, "other", "!vote 3"));
+            assertTrue(handle(stage, "viewer", "!voter 1"));
+            assertTrue(handle(stage, "viewer", "hello"));
+            assertArrayEquals(new long[] { 0, 1 }, polls.get("pydawan").getTallies());
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.size() < 2 && System.nanoTime() < deadline)
+                Thread.sleep(5);
+            Thread.sleep(200);
+            assertEquals(List.of("#pydawan mod: Poll: Best pet? Vote with !vote 1 to !vote 2.",
+                    "#pydawan Best pet? 1) cats: 0 (0%), 2) dogs: 1 (100%)"), sent);
+
+            assertFalse(handle(stage, "mod", "!endpoll"));
+            assertEquals(null, polls.get("#pydawan"));
+            assertEquals(VoteResult.CLOSED, polls.vote("#pydawan", 1, 1));
+            assertTrue(handle(stage, "viewer", "!vote 1"));
+        } finally {
+            outbound.close();
+        }
+    }
+
+    @Test
+    public void testModeratedVotesAreNotCounted() throws Exception {
+        try (TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS)) {
+            Polls polls = new Polls(wheel);
+            Moderator moderator = new Moderator(
+                    message -> message.contains("spam") ? Severity.HIGH : Severity.SAFE, Map.of());
+            MessagePipeline pipeline = new MessagePipeline("!", moderator, new VoteStage(polls, "!"));
+            polls.open("#pydawan", "Best pet?", List.of("cats", "dogs"), null);
+
+            assertFalse(pipeline.process(messageEvent("#pydawan", "viewer", "!vote 1 spam", ImmutableMap.of())));
+            assertFalse(pipeline.process(messageEvent("#pydawan", "other", "!vote 2", ImmutableMap.of())));
+            assertArrayEquals(new long[] { 0, 1 }, polls.get("#pydawan").getTallies());
+        }
+    }
+
+    private static boolean handle(VoteStage stage, String nick, String message) {
+        ImmutableMap<String, String> tags = nick.equals("mod")
+                ? ImmutableMap.of("user-id", "1", "mod", "1")
+                : ImmutableMap.of("user-id", nick.equals("viewer") ? "2" : "x");
+        MessageEvent event = messageEvent("#pydawan", nick, message, tags);
+        return stage.handle(event, ParsedMessage.parse(message, "!"));
+    }
+}
@@ -0,0 +1,166 @@
+package com.pydawan.raffle;
+
+import static com.pydawan.MessageEvents.messageEvent;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.pydawan.pydabot.Severity;
+import com.pydawan.pydabot.listeners.MessagePipeline;
+import com.pydawan.pydabot.listeners.Moderator;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.parsing.ParsedMessage;
+import com.pydawan.pydabot.raffle.FenwickTree;
+import com.pydawan.pydabot.raffle.Raffle;
+import com.pydawan.pydabot.raffle.RaffleStage;
+import com.pydawan.pydabot.raffle.Raffles;
+
+import org.junit.Test;
+
+public class RaffleTest {
+
+    @Test
+    public void testFenwickTreeFindsCumulativeWeights() {
+        FenwickTree tree = new FenwickTree(1);
+        long[] weights = { 3, 0, 1, 4, 1, 5, 9, 2, 6 };
+        for (long weight : weights)
+            tree.add(weight);
+        assertEquals(31, tree.getTotal());
+
+        long sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(sum, tree.prefixSum(i));
+            for (long target = sum; target < sum + weights[i]; target++)
+                assertEquals(i, tree.find(target));
+            sum += weights[i];
+        }
+
+        assertEquals(9, tree.set(6, 0));
+        assertEquals(22, tree.getTotal());
+        for (long target = 0; target < tree.getTotal(); target++)
+            assertTrue(tree.find(target) != 6);
+    }
+
+    @Test
+    public void testDrawsEveryEntrantOnceByWeight() throws IOException {
+        Raffle raffle = new Raffle("#a");
+        for (int user = 0; user < 10_000; user++)
+            assertEquals(Raffle.JoinResult.JOINED, raffle.join(user, "user" + user, user < 100 ? 50 : 1));
+        assertEquals(Raffle.JoinResult.DUPLICATE, raffle.join(5, "user5", 1));
+        assertEquals(14_900, raffle.getTotalWeight());
+
+        int heavy = 0;
+        for (int draw = 0; draw < 100; draw++)
+            if (raffle.draw().getWeight() == 50)
+                heavy++;
+        assertTrue("heavy winners: " + heavy, heavy > 10);
+
+        Set<Long> winners = new HashSet<>();
+        for (Raffle.Entry winner = raffle.draw(); winner != null; winner = raffle.draw())
+            assertTrue(winners.add(winner.getUserId()));
+        assertEquals(10_000 - 100, winners.size());
+        assertEquals(10_000, raffle.getWinnerCount());
+
+        raffle.stop();
+        assertEquals(Raffle.JoinResult.CLOSED, raffle.join(-1, "late", 1));
+    }
+
+    @Test
+    public void testRestoresRafflesFromJournals() throws IOException {
+        Path directory = Files.createTempDirectory("raffles");
+        Raffles raffles = Raffles.open(directory);
+        RaffleStage stage = new RaffleStage(raffles, "!");
+        stage.setOutbound(new OutboundScheduler((target, message) -> {
+        }));
+
+        assertTrue(handle(stage, "viewer", "!join", ImmutableMap.of("user-id", "2")));
+        assertFalse(handle(stage, "mod", "!raffle", ImmutableMap.of("user-id", "1", "mod", "1")));
+        assertFalse(handle(stage, "viewer", "!join", ImmutableMap.of("user-id", "2", "subscriber", "1")));
+        assertFalse(handle(stage, "viewer", "!JOIN", ImmutableMap.of("user-id", "2")));
+        assertFalse(handle(stage, "other", "!join", ImmutableMap.of("user-id", "3")));
+        assertTrue(handle(stage, "other", "!draw", ImmutableMap.of("user-id", "3")));
+
+        Raffle raffle = raffles.get("#pydawan");
+        Raffle.Entry winner = raffle.draw();
+        assertNotNull(winner);
+        raffle.join(4, "late", 1);
+        raffles.close();
+
+        // A record cut short by a crash is ignored.
+        Path journal = directory.resolve("pydawan" + Raffles.EXTENSION);
+        Files.write(journal, new byte[] { 1, 0, 0 }, StandardOpenOption.APPEND);
+
+        Raffles restored = Raffles.open(directory);
+        Raffle copy = restored.get("#pydawan");
+        assertEquals(3, copy.getEntryCount());
+        assertEquals(1, copy.getWinnerCount());
+        assertEquals(4 - winner.getWeight(), copy.getTotalWeight());
+        assertEquals(Raffle.JoinResult.DUPLICATE, copy.join(4, "late", 1));
+
+        Raffle.Entry second = copy.draw();
+        assertNotNull(second);
+        assertTrue(second.getUserId() != winner.getUserId());
+        restored.close();
+
+        copy = Raffles.open(directory).get("#pydawan");
+        assertEquals(2, copy.getWinnerCount());
+
+        Raffles ended = Raffles.open(directory);
+        assertNotNull(ended.end("pydawan"));
+        assertNull(Raffles.open(directory).get("#pydawan"));
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testSkipsCorruptJournals() throws IOException {
+        Path directory = Files.createTempDirectory("raffles");
+        Raffles raffles = Raffles.open(directory);
+        raffles.start("#pydawan").join(1, "viewer", 1);
+        raffles.close();
+        Path corrupt = directory.resolve("broken" + Raffles.EXTENSION);
+        Files.write(corrupt, new byte[] { 1, 2, 3, 4, 5 });
+
+        Raffles restored = Raffles.open(directory);
+        assertEquals(1, restored.get("pydawan").getEntryCount());
+        assertNull(restored.get("#broken"));
+        restored.end("#pydawan");
+        restored.close();
+        Files.delete(corrupt);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testModeratedEntriesAreNotCounted() throws Exception {
+        Path directory = Files.createTempDirectory("raffles");
+        Raffles raffles = Raffles.open(directory);
+        Moderator moderator = new Moderator(
+                message -> message.contains("spam") ? Severity.HIGH : Severity.SAFE, Map.of());
+        MessagePipeline pipeline = new MessagePipeline("!", moderator, new RaffleStage(raffles, "!"));
+        Raffle raffle = raffles.start("#pydawan");
+
+        assertFalse(pipeline.process(messageEvent("#pydawan", "viewer", "!join spam", ImmutableMap.of())));
+        assertEquals(0, raffle.getEntryCount());
+        assertFalse(pipeline.process(messageEvent("#pydawan", "other", "!join", ImmutableMap.of())));
+        assertEquals(1, raffle.getEntryCount());
+
+        raffles.end("#pydawan");
+        raffles.close();
+        Files.delete(directory);
+    }
+
+    private static boolean handle(RaffleStage stage, String nick, String message,
+            ImmutableMap<String, String> tags) {
+        return stage.handle(messageEvent("#pydawan", nick, message, tags), ParsedMessage.parse(message, "!"));
+    }
+}
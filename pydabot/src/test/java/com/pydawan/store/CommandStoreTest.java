@@ -0,0 +1,150 @@
+package com.pydawan.store;
+
+import static com.pydawan.MessageEvents.messageEvent;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableMap;
+import com.pydawan.pydabot.listeners.CustomCommandEditor;
+import com.pydawan.pydabot.outbound.OutboundScheduler;
+import com.pydawan.pydabot.outbound.RateLimit;
+import com.pydawan.pydabot.store.CommandStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandStoreTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pydabot-commands");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() throws IOException {
+        try (CommandStore store = CommandStore.open(directory)) {
+            assertFalse(store.put("#a", "hello", "Hello, world!"));
+            assertFalse(store.put("#b", "hello", "Bonjour ! 👋"));
+            assertTrue(store.put("#a", "hello", "Hi!"));
+
+            assertEquals("Hi!", store.get("#a", "hello"));
+            assertEquals("Bonjour ! 👋", store.get("#b", "hello"));
+            assertNull(store.get("#a", "hell"));
+            assertNull(store.get("#c", "hello"));
+
+            assertTrue(store.remove("#a", "hello"));
+            assertFalse(store.remove("#a", "hello"));
+            assertNull(store.get("#a", "hello"));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void testReopens() throws IOException {
+        try (CommandStore store = CommandStore.open(directory)) {
+            for (int i = 0; i < 5000; i++)
+                store.put("#channel" + i % 100, "command" + i, "response " + i);
+            store.remove("#channel0", "command0");
+        }
+
+        try (CommandStore store = CommandStore.open(directory)) {
+            assertEquals(Files.size(directory.resolve(CommandStore.LOG_FILE)), store.getLogSize());
+            assertEquals(4999, store.size());
+            assertNull(store.get("#channel0", "command0"));
+            assertEquals("response 4321", store.get("#channel21", "command4321"));
+        }
+    }
+
+    @Test
+    public void testRecoversFromCrash() throws IOException {
+        CommandStore crashed = CommandStore.open(directory);
+        crashed.put("#a", "one", "1");
+        crashed.put("#a", "two", "2");
+        crashed.remove("#a", "one");
+        // A torn record at the end of the log.
+        Files.write(directory.resolve(CommandStore.LOG_FILE), new byte[] { 0, 0, 0, 40, 1, 2, 3 },
+                StandardOpenOption.APPEND);
+
+        try (CommandStore store = CommandStore.open(directory)) {
+            assertNull(store.get("#a", "one"));
+            assertEquals("2", store.get("#a", "two"));
+            assertEquals(1, store.size());
+            assertTrue(store.getGarbageSize() > 0);
+            store.put("#a", "three", "3");
+            assertEquals("3", store.get("#a", "three"));
+        }
+    }
+
+    @Test
+    public void testCompacts() throws IOException {
+        try (CommandStore store = CommandStore.open(directory)) {
+            for (int i = 0; i < 100; i++)
+                store.put("#a", "counter", "value " + i);
+            store.put("#a", "other", "kept");
+            long size = store.getLogSize();
+
+            assertFalse(store.compactIfNeeded(size));
+            assertTrue(store.compactIfNeeded(1));
+            assertTrue(store.getLogSize() < size / 10);
+            assertEquals(0, store.getGarbageSize());
+            assertEquals("value 99", store.get("#a", "counter"));
+            assertEquals("kept", store.get("#a", "other"));
+        }
+
+        try (CommandStore store = CommandStore.open(directory)) {
+            assertEquals(2, store.size());
+            assertEquals("value 99", store.get("#a", "counter"));
+        }
+    }
+
+    @Test
+    public void testModeratorsEditCommands() throws Exception {
+        BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        RateLimit unlimited = new RateLimit(1000, 1, TimeUnit.SECONDS);
+        try (CommandStore store = CommandStore.open(directory);
+                OutboundScheduler outbound = new OutboundScheduler((target, message) -> sent.add(message),
+                        unlimited, unlimited)) {
+            outbound.start();
+            CustomCommandEditor editor = new CustomCommandEditor(store, "!");
+            editor.setOutbound(outbound);
+            ImmutableMap<String, String> moderator = ImmutableMap.of("mod", "1");
+            ImmutableMap<String, String> broadcaster = ImmutableMap.of("badges", "broadcaster/1,subscriber/12");
+
+            editor.onMessage(messageEvent("#a", "viewer", "!addcom discord nope", ImmutableMap.of()));
+            assertNull(store.get("#a", "discord"));
+
+            editor.onMessage(messageEvent("#a", "mod", "!addcom !discord Join us at  example.com", moderator));
+            assertEquals("mod: Command !discord added.", sent.poll(5, TimeUnit.SECONDS));
+            assertEquals("Join us at  example.com", store.get("#a", "discord"));
+
+            editor.onMessage(messageEvent("#a", "owner", "!delcom discord", broadcaster));
+            assertEquals("owner: Command !discord removed.", sent.poll(5, TimeUnit.SECONDS));
+            assertNull(store.get("#a", "discord"));
+
+            editor.onMessage(messageEvent("#a", "mod", "!addcom discord", moderator));
+            assertEquals("mod: Usage: !addcom name response", sent.poll(5, TimeUnit.SECONDS));
+        }
+    }
+}
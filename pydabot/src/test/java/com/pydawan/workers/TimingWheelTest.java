@@ -0,0 +1,111 @@
+package com.pydawan.workers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pydawan.pydabot.workers.TimingWheel;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private final TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+
+    @After
+    public void close() {
+        wheel.close();
+    }
+
+    @Test
+    public void testRunsTasksAfterTheirDelay() throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        long start = System.nanoTime();
+        for (int delay : new int[] { 60, 20, 40 })
+            wheel.schedule(() -> {
+                order.add(delay);
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(60));
+        assertEquals(List.of(20, 40, 60), order);
+        assertEquals(3, wheel.getExpiredCount());
+    }
+
+    @Test
+    public void testRunsTasksOfUpperLevels() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(latch::countDown, 700, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(700));
+    }
+
+    @Test
+    public void testDoesNotRunCancelledTasks() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        Thread.sleep(80);
+        assertEquals(0, runs.get());
+        assertEquals(1, wheel.getCancelledCount());
+    }
+
+    @Test
+    public void testRunsPeriodicTasksUntilCancelled() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(5);
+        TimingWheel.Timeout timeout = wheel.scheduleAtFixedRate(() -> {
+            runs.incrementAndGet();
+            latch.countDown();
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        timeout.cancel();
+        Thread.sleep(20);
+        int cancelledAt = runs.get();
+        Thread.sleep(40);
+        assertEquals(cancelledAt, runs.get());
+        assertTrue(timeout.isCancelled());
+    }
+
+    @Test
+    public void testRunsManyTimers() throws InterruptedException {
+        int count = 10_000;
+        CountDownLatch latch = new CountDownLatch(count);
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++)
+            wheel.schedule(latch::countDown, random.nextInt(300), TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(count, wheel.getScheduledCount());
+        assertEquals(count, wheel.getExpiredCount());
+    }
+
+    @Test
+    public void testKeepsRunningPeriodicTasksThatFail() throws InterruptedException {
+        // The fourth run starts once the third failure is counted.
+        CountDownLatch latch = new CountDownLatch(4);
+        TimingWheel.Timeout timeout = wheel.scheduleAtFixedRate(() -> {
+            latch.countDown();
+            throw new IllegalStateException("failure");
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        timeout.cancel();
+        assertTrue(wheel.getFailedCount() >= 3);
+    }
+}
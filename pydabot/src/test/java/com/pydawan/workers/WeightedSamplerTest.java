@@ -0,0 +1,58 @@
+package com.pydawan.workers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import com.pydawan.pydabot.Announcement;
+import com.pydawan.pydabot.workers.AnnouncementWorker;
+import com.pydawan.pydabot.workers.WeightedSampler;
+
+import org.junit.Test;
+import org.pircbotx.Configuration;
+import org.pircbotx.PircBotX;
+
+public class WeightedSamplerTest {
+
+    @Test
+    public void testDistribution() {
+        WeightedSampler<String> sampler = new WeightedSampler<>(
+                List.of("a", "b", "never", "c"),
+                s -> s.equals("a") ? 1 : s.equals("b") ? 3 : s.equals("c") ? 6 : 0);
+        Random random = new Random(42);
+        int[] counts = new int[4];
+        int draws = 100_000;
+        for (int i = 0; i < draws; i++)
+            counts[sampler.sampleIndex(random)]++;
+
+        assertEquals(0, counts[2]);
+        assertEquals(0.1, counts[0] / (double) draws, 0.01);
+        assertEquals(0.3, counts[1] / (double) draws, 0.01);
+        assertEquals(0.6, counts[3] / (double) draws, 0.01);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(WeightedSampler.empty().isEmpty());
+        assertNull(new WeightedSampler<>(List.of("a"), s -> 0).sample());
+    }
+
+    @Test
+    public void testRemovingLastAnnouncement() {
+        // The bot is not connected, so sending anything through it fails.
+        PircBotX bot = new PircBotX(new Configuration.Builder()
+                .setName("pydabot")
+                .addServer("localhost")
+                .buildConfiguration());
+        Announcement announcement = new Announcement("pydawan", "Hi!", 1);
+        AnnouncementWorker worker = new AnnouncementWorker(bot, List.of(announcement));
+        worker.removeAnnouncement(announcement);
+
+        assertTrue(worker.getAnnouncements().isEmpty());
+        worker.run();
+        worker.announce("pydawan");
+    }
+}